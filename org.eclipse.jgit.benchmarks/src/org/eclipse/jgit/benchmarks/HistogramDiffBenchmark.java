@@ -0,0 +1,126 @@
+/*
+ * Copyright (C) 2023, Google LLC and others
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Distribution License v. 1.0 which is available at
+ * https://www.eclipse.org/org/documents/edl-v10.php.
+ *
+ * SPDX-License-Identifier: BSD-3-Clause
+ */
+package org.eclipse.jgit.benchmarks;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.jgit.diff.DiffWorkspace;
+import org.eclipse.jgit.diff.EditList;
+import org.eclipse.jgit.diff.HistogramDiff;
+import org.eclipse.jgit.diff.RawText;
+import org.eclipse.jgit.diff.RawTextComparator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+@State(Scope.Thread)
+public class HistogramDiffBenchmark {
+
+	@Param({ "100", "1000", "10000" })
+	int lines;
+
+	@Param({ "1", "10" })
+	int changePercent;
+
+	private static final int FILES = 32;
+
+	private RawText[] a;
+
+	private RawText[] b;
+
+	private HistogramDiff algorithm;
+
+	private DiffWorkspace ws;
+
+	@Setup
+	public void setupBenchmark() {
+		Random rnd = new Random(lines * 31 + changePercent);
+		a = new RawText[FILES];
+		b = new RawText[FILES];
+		for (int f = 0; f < FILES; f++) {
+			StringBuilder oldText = new StringBuilder();
+			StringBuilder newText = new StringBuilder();
+			for (int i = 0; i < lines; i++) {
+				String line = "line " + rnd.nextInt(lines) + '\n';
+				if (rnd.nextInt(100) < changePercent) {
+					switch (rnd.nextInt(3)) {
+					case 0:
+						oldText.append(line);
+						break;
+					case 1:
+						newText.append(line);
+						break;
+					default:
+						oldText.append(line);
+						newText.append("changed ").append(line);
+					}
+				} else {
+					oldText.append(line);
+					newText.append(line);
+				}
+			}
+			a[f] = new RawText(oldText.toString().getBytes(UTF_8));
+			b[f] = new RawText(newText.toString().getBytes(UTF_8));
+		}
+		algorithm = new HistogramDiff();
+		ws = new DiffWorkspace();
+	}
+
+	@Benchmark
+	@BenchmarkMode({ Mode.AverageTime })
+	@OutputTimeUnit(TimeUnit.MICROSECONDS)
+	@Warmup(iterations = 2, time = 100, timeUnit = TimeUnit.MILLISECONDS)
+	@Measurement(iterations = 5, time = 5, timeUnit = TimeUnit.SECONDS)
+	@Fork(1)
+	public void diffAllocating(Blackhole blackhole) {
+		for (int f = 0; f < FILES; f++) {
+			EditList edits = algorithm.diff(RawTextComparator.DEFAULT, a[f],
+					b[f]);
+			blackhole.consume(edits);
+		}
+	}
+
+	@Benchmark
+	@BenchmarkMode({ Mode.AverageTime })
+	@OutputTimeUnit(TimeUnit.MICROSECONDS)
+	@Warmup(iterations = 2, time = 100, timeUnit = TimeUnit.MILLISECONDS)
+	@Measurement(iterations = 5, time = 5, timeUnit = TimeUnit.SECONDS)
+	@Fork(1)
+	public void diffWithWorkspace(Blackhole blackhole) {
+		for (int f = 0; f < FILES; f++) {
+			EditList edits = algorithm.diff(RawTextComparator.DEFAULT, a[f],
+					b[f], ws);
+			blackhole.consume(edits);
+		}
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		Options opt = new OptionsBuilder()
+				.include(HistogramDiffBenchmark.class.getSimpleName())
+				.addProfiler("gc").forks(1).jvmArgs("-ea").build();
+		new Runner(opt).run();
+	}
+}
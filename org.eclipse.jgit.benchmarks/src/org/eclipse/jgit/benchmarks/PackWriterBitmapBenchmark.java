@@ -0,0 +1,137 @@
+/*
+ * Copyright (C) 2023, Google LLC and others
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Distribution License v. 1.0 which is available at
+ * https://www.eclipse.org/org/documents/edl-v10.php.
+ *
+ * SPDX-License-Identifier: BSD-3-Clause
+ */
+package org.eclipse.jgit.benchmarks;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.jgit.internal.storage.dfs.DfsRepositoryDescription;
+import org.eclipse.jgit.internal.storage.dfs.InMemoryRepository;
+import org.eclipse.jgit.internal.storage.pack.PackWriter;
+import org.eclipse.jgit.junit.TestRepository;
+import org.eclipse.jgit.lib.NullProgressMonitor;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.storage.pack.PackConfig;
+import org.eclipse.jgit.util.io.NullOutputStream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+@State(Scope.Thread)
+public class PackWriterBitmapBenchmark {
+
+	@State(Scope.Benchmark)
+	public static class BenchmarkState {
+
+		@Param({ "1", "4" })
+		int threads;
+
+		@Param({ "3000" })
+		int numCommits;
+
+		@Param({ "4" })
+		int numBranches;
+
+		InMemoryRepository repo;
+
+		Set<ObjectId> tips;
+
+		PackWriter writer;
+
+		@Setup
+		public void setupBenchmark() throws Exception {
+			repo = new InMemoryRepository(
+					new DfsRepositoryDescription("bitmaps"));
+			tips = new HashSet<>();
+
+			// A long history, old enough for the bitmaps of its commits to
+			// be kept for walks, and branches forked from its tip.
+			try (TestRepository<InMemoryRepository> tr = new TestRepository<>(
+					repo)) {
+				RevCommit c = tr.commit().add("root", "root").create();
+				for (int i = 0; i < numCommits; i++) {
+					c = tr.commit().parent(c).add("m" + (i % 50), "m/" + i)
+							.create();
+				}
+				RevCommit main = c;
+				tips.add(main.copy());
+				for (int b = 0; b < numBranches; b++) {
+					c = main;
+					for (int i = 0; i < 200; i++) {
+						c = tr.commit().parent(c)
+								.add("b" + b + "/" + (i % 20), b + "/" + i)
+								.create();
+					}
+					tips.add(c.copy());
+				}
+			}
+		}
+
+		@Setup(Level.Invocation)
+		public void writePack() throws IOException {
+			PackConfig pc = new PackConfig();
+			pc.setBuildBitmaps(true);
+			pc.setDeltaCompress(false);
+			pc.setThreads(threads);
+			writer = new PackWriter(pc, repo.newObjectReader());
+			writer.preparePack(NullProgressMonitor.INSTANCE, tips,
+					Collections.<ObjectId> emptySet());
+			writer.writePack(NullProgressMonitor.INSTANCE,
+					NullProgressMonitor.INSTANCE, NullOutputStream.INSTANCE);
+			writer.writeIndex(NullOutputStream.INSTANCE);
+		}
+
+		@TearDown(Level.Invocation)
+		public void closeWriter() {
+			writer.close();
+		}
+
+		@TearDown
+		public void teardown() {
+			repo.close();
+		}
+	}
+
+	@Benchmark
+	@BenchmarkMode({ Mode.AverageTime })
+	@OutputTimeUnit(TimeUnit.MILLISECONDS)
+	@Warmup(iterations = 2, time = 100, timeUnit = TimeUnit.MILLISECONDS)
+	@Measurement(iterations = 5, time = 5, timeUnit = TimeUnit.SECONDS)
+	@Fork(1)
+	public boolean prepareBitmapIndex(BenchmarkState state)
+			throws IOException {
+		return state.writer.prepareBitmapIndex(NullProgressMonitor.INSTANCE);
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		Options opt = new OptionsBuilder()
+				.include(PackWriterBitmapBenchmark.class.getSimpleName())
+				.forks(1).jvmArgs("-ea").build();
+		new Runner(opt).run();
+	}
+}
@@ -0,0 +1,166 @@
+/*
+ * Copyright (C) 2023, Google LLC and others
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Distribution License v. 1.0 which is available at
+ * https://www.eclipse.org/org/documents/edl-v10.php.
+ *
+ * SPDX-License-Identifier: BSD-3-Clause
+ */
+package org.eclipse.jgit.benchmarks;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.jgit.internal.storage.dfs.DfsRepositoryDescription;
+import org.eclipse.jgit.internal.storage.dfs.InMemoryRepository;
+import org.eclipse.jgit.internal.storage.pack.PackWriter;
+import org.eclipse.jgit.lib.CommitBuilder;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.FileMode;
+import org.eclipse.jgit.lib.NullProgressMonitor;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectInserter;
+import org.eclipse.jgit.lib.PersonIdent;
+import org.eclipse.jgit.lib.TreeFormatter;
+import org.eclipse.jgit.storage.pack.PackConfig;
+import org.eclipse.jgit.util.io.CountingOutputStream;
+import org.eclipse.jgit.util.io.NullOutputStream;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+@State(Scope.Thread)
+public class PackWriterPathWalkBenchmark {
+
+	@State(Scope.Benchmark)
+	public static class BenchmarkState {
+
+		@Param({ "true", "false" })
+		boolean pathWalk;
+
+		@Param({ "10", "100" })
+		int numFiles;
+
+		@Param({ "10" })
+		int numCommits;
+
+		InMemoryRepository repo;
+
+		ObjectId tip;
+
+		@Setup
+		public void setupBenchmark() throws IOException {
+			repo = new InMemoryRepository(
+					new DfsRepositoryDescription("pathwalk"));
+			Random rnd = new Random(42);
+			String[][] lines = new String[numFiles][];
+			for (int f = 0; f < numFiles; f++) {
+				lines[f] = new String[500 + 50 * numCommits];
+				for (int i = 0; i < lines[f].length; i++) {
+					lines[f][i] = Long.toHexString(rnd.nextLong()) + '\n';
+				}
+			}
+
+			// Every directory holds an unrelated file of the same name, the
+			// worst case for grouping delta candidates by name hash.
+			PersonIdent ident = new PersonIdent("A U Thor",
+					"author@example.com");
+			try (ObjectInserter ins = repo.newObjectInserter()) {
+				for (int c = 0; c < numCommits; c++) {
+					TreeFormatter root = new TreeFormatter();
+					for (int f = 0; f < numFiles; f++) {
+						StringBuilder b = new StringBuilder();
+						for (int i = 0; i < 500 + 50 * c; i++) {
+							b.append(lines[f][i]);
+						}
+						TreeFormatter dir = new TreeFormatter();
+						dir.append("package.json", FileMode.REGULAR_FILE,
+								ins.insert(Constants.OBJ_BLOB,
+										b.toString().getBytes(UTF_8)));
+						root.append(String.format("d%05d", f),
+								FileMode.TREE, ins.insert(dir));
+					}
+					CommitBuilder cb = new CommitBuilder();
+					cb.setTreeId(ins.insert(root));
+					if (tip != null) {
+						cb.setParentId(tip);
+					}
+					cb.setAuthor(ident);
+					cb.setCommitter(ident);
+					cb.setMessage("commit " + c);
+					tip = ins.insert(cb);
+				}
+				ins.flush();
+			}
+		}
+
+		@TearDown
+		public void teardown() {
+			repo.close();
+		}
+	}
+
+	/** Size of the pack written, reported next to the time it took. */
+	@AuxCounters(AuxCounters.Type.EVENTS)
+	@State(Scope.Thread)
+	public static class PackSize {
+		/** Bytes of the last pack written. */
+		public long packBytes;
+
+		@Setup(Level.Iteration)
+		public void reset() {
+			packBytes = 0;
+		}
+	}
+
+	@Benchmark
+	@BenchmarkMode({ Mode.AverageTime })
+	@OutputTimeUnit(TimeUnit.MILLISECONDS)
+	@Warmup(iterations = 2, time = 100, timeUnit = TimeUnit.MILLISECONDS)
+	@Measurement(iterations = 5, time = 5, timeUnit = TimeUnit.SECONDS)
+	@Fork(1)
+	public void writePack(BenchmarkState state, PackSize size)
+			throws IOException {
+		PackConfig pc = new PackConfig(state.repo);
+		pc.setReuseDeltas(false);
+		pc.setPathWalk(state.pathWalk);
+		try (PackWriter pw = new PackWriter(pc,
+				state.repo.newObjectReader())) {
+			pw.preparePack(NullProgressMonitor.INSTANCE,
+					Collections.singleton(state.tip),
+					Collections.<ObjectId> emptySet());
+			CountingOutputStream out = new CountingOutputStream(
+					NullOutputStream.INSTANCE);
+			pw.writePack(NullProgressMonitor.INSTANCE,
+					NullProgressMonitor.INSTANCE, out);
+			size.packBytes = out.getCount();
+		}
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		Options opt = new OptionsBuilder()
+				.include(PackWriterPathWalkBenchmark.class.getSimpleName())
+				.forks(1).jvmArgs("-ea").build();
+		new Runner(opt).run();
+	}
+}
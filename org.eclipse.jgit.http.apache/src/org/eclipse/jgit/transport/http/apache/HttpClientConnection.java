@@ -450,6 +450,14 @@ public void connect() throws IOException {
 		execute();
 	}
 
+	/** {@inheritDoc} */
+	@Override
+	public void disconnect() {
+		if (req != null) {
+			req.abort();
+		}
+	}
+
 	/** {@inheritDoc} */
 	@Override
 	public void setHostnameVerifier(HostnameVerifier hostnameverifier) {
@@ -0,0 +1,146 @@
+/*
+ * Copyright (C) 2023, Google LLC and others
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Distribution License v. 1.0 which is available at
+ * https://www.eclipse.org/org/documents/edl-v10.php.
+ *
+ * SPDX-License-Identifier: BSD-3-Clause
+ */
+
+package org.eclipse.jgit.http.server;
+
+import static javax.servlet.http.HttpServletResponse.SC_INTERNAL_SERVER_ERROR;
+import static org.eclipse.jgit.http.server.GitSmartHttpTools.sendError;
+import static org.eclipse.jgit.http.server.ServletUtils.ATTRIBUTE_HANDLER;
+
+import java.io.IOException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.ServletRequest;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.eclipse.jgit.annotations.Nullable;
+
+/**
+ * Runs a request on an executor, releasing the container thread.
+ * <p>
+ * Uses asynchronous request processing of Servlet 3.0. Requests for which the
+ * container does not support it (the filters and servlet of the pipeline must
+ * be registered as async supported) are processed on the calling thread.
+ * Without an executor no Servlet 3.0 methods are invoked.
+ */
+final class AsyncService {
+	/** Set on requests processed asynchronously. */
+	private static final String ATTRIBUTE_ASYNC = AsyncService.class
+			.getName();
+
+	/** Service processing a request. */
+	interface Task {
+		/**
+		 * Process the request.
+		 *
+		 * @throws IOException
+		 *             the request could not be processed.
+		 */
+		void run() throws IOException;
+	}
+
+	/** Handler of failures of a task run asynchronously. */
+	interface ErrorHandler {
+		/**
+		 * Handle a failure.
+		 *
+		 * @param err
+		 *            the failure.
+		 */
+		void failed(Throwable err);
+	}
+
+	/**
+	 * Whether the handler of a request must be kept in the request until
+	 * asynchronous processing of the request completes.
+	 *
+	 * @param req
+	 *            the request.
+	 * @return {@code true} if processing of the request continues on another
+	 *         thread.
+	 */
+	static boolean isAsyncStarted(ServletRequest req) {
+		return req.getAttribute(ATTRIBUTE_ASYNC) != null
+				&& req.isAsyncStarted();
+	}
+
+	/**
+	 * Run a task for a request.
+	 *
+	 * @param req
+	 *            the request.
+	 * @param rsp
+	 *            the response.
+	 * @param executor
+	 *            executor to run the task on; null to run it on the calling
+	 *            thread.
+	 * @param task
+	 *            the task processing the request.
+	 * @param errors
+	 *            handler of failures if the task is run asynchronously. When
+	 *            run on the calling thread failures are thrown. If the
+	 *            response is not committed yet, an internal server error is
+	 *            sent after the handler returns.
+	 * @throws IOException
+	 *             the task failed on the calling thread.
+	 */
+	static void run(HttpServletRequest req, HttpServletResponse rsp,
+			@Nullable Executor executor, Task task, ErrorHandler errors)
+			throws IOException {
+		if (executor == null || !req.isAsyncSupported()) {
+			task.run();
+			return;
+		}
+
+		req.setAttribute(ATTRIBUTE_ASYNC, Boolean.TRUE);
+		AsyncContext ctx = req.startAsync();
+		ctx.setTimeout(0);
+		Runnable r = () -> {
+			try {
+				task.run();
+			} catch (Throwable e) {
+				errors.failed(e);
+				sendInternalError(req, rsp);
+			} finally {
+				req.removeAttribute(ATTRIBUTE_HANDLER);
+				ctx.complete();
+			}
+		};
+		try {
+			executor.execute(r);
+		} catch (RejectedExecutionException e) {
+			r.run();
+		}
+	}
+
+	/**
+	 * Send the error the container would send for a failure of a request
+	 * processed on its thread.
+	 */
+	private static void sendInternalError(HttpServletRequest req,
+			HttpServletResponse rsp) {
+		if (rsp.isCommitted()) {
+			return;
+		}
+		try {
+			rsp.reset();
+			sendError(req, rsp, SC_INTERNAL_SERVER_ERROR);
+		} catch (IOException | IllegalStateException e) {
+			// The client is gone or the response was committed meanwhile.
+		}
+	}
+
+	private AsyncService() {
+		// Static utility methods only.
+	}
+}
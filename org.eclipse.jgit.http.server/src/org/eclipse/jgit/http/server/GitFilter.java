@@ -14,6 +14,7 @@
 import java.text.MessageFormat;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.Executor;
 
 import javax.servlet.Filter;
 import javax.servlet.FilterConfig;
@@ -21,6 +22,7 @@
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
+import org.eclipse.jgit.annotations.Nullable;
 import org.eclipse.jgit.http.server.glue.ErrorServlet;
 import org.eclipse.jgit.http.server.glue.MetaFilter;
 import org.eclipse.jgit.http.server.glue.RegexGroupFilter;
@@ -69,6 +71,10 @@ public class GitFilter extends MetaFilter {
 
 	private final List<Filter> receivePackFilters = new LinkedList<>();
 
+	private boolean streamingResponses;
+
+	private Executor asyncExecutor;
+
 	/**
 	 * New servlet that will load its base directory from {@code web.xml}.
 	 * <p>
@@ -184,6 +190,50 @@ public void addReceivePackFilter(Filter filter) {
 		receivePackFilters.add(filter);
 	}
 
+	/**
+	 * Set whether smart HTTP responses are streamed.
+	 * <p>
+	 * By default responses up to 32 KiB are buffered in memory, so that they
+	 * can be sent with a Content-Length and, for ref advertisements, gzip
+	 * compressed; larger responses are streamed uncompressed. If streaming
+	 * is enabled nothing is buffered: every response is sent as it is
+	 * produced, using chunked transfer encoding, and ref advertisements are
+	 * compressed incrementally if the client accepts gzip.
+	 *
+	 * @param streaming
+	 *            {@code true} to stream responses as they are produced;
+	 *            {@code false} to buffer small responses.
+	 * @since 6.6
+	 */
+	public void setStreamingResponses(boolean streaming) {
+		assertNotInitialized();
+		this.streamingResponses = streaming;
+	}
+
+	/**
+	 * Set the executor processing fetch and push requests asynchronously.
+	 * <p>
+	 * If set, upload-pack and receive-pack requests are put into asynchronous
+	 * mode (Servlet 3.0) and processed by the executor, releasing the
+	 * container thread for the duration of long clones and pushes. This
+	 * requires the filter, and any filter in front of it, to be registered
+	 * with async support; requests for which the container does not support
+	 * asynchronous processing are processed on the container thread.
+	 * <p>
+	 * Upload-pack and receive-pack filters see
+	 * {@link javax.servlet.FilterChain#doFilter} return as soon as the request
+	 * is handed to the executor.
+	 *
+	 * @param executor
+	 *            executor to run upload-pack and receive-pack on; null to
+	 *            process requests on the container thread.
+	 * @since 6.6
+	 */
+	public void setAsyncExecutor(@Nullable Executor executor) {
+		assertNotInitialized();
+		this.asyncExecutor = executor;
+	}
+
 	private void assertNotInitialized() {
 		if (initialized)
 			throw new IllegalStateException(HttpServerText.get().alreadyInitializedByContainer);
@@ -207,7 +257,8 @@ public void init(FilterConfig filterConfig) throws ServletException {
 			b = b.through(new UploadPackServlet.Factory(uploadPackFactory));
 			for (Filter f : uploadPackFilters)
 				b = b.through(f);
-			b.with(new UploadPackServlet(uploadPackErrorHandler));
+			b.with(new UploadPackServlet(uploadPackErrorHandler,
+					streamingResponses, asyncExecutor));
 		}
 
 		if (receivePackFactory != ReceivePackFactory.DISABLED) {
@@ -215,17 +266,19 @@ public void init(FilterConfig filterConfig) throws ServletException {
 			b = b.through(new ReceivePackServlet.Factory(receivePackFactory));
 			for (Filter f : receivePackFilters)
 				b = b.through(f);
-			b.with(new ReceivePackServlet(receivePackErrorHandler));
+			b.with(new ReceivePackServlet(receivePackErrorHandler,
+					streamingResponses, asyncExecutor));
 		}
 
 		ServletBinder refs = serve("*/" + Constants.INFO_REFS);
 		if (uploadPackFactory != UploadPackFactory.DISABLED) {
 			refs = refs.through(new UploadPackServlet.InfoRefs(
-					uploadPackFactory, uploadPackFilters));
+					uploadPackFactory, uploadPackFilters, streamingResponses));
 		}
 		if (receivePackFactory != ReceivePackFactory.DISABLED) {
 			refs = refs.through(new ReceivePackServlet.InfoRefs(
-					receivePackFactory, receivePackFilters));
+					receivePackFactory, receivePackFilters,
+					streamingResponses));
 		}
 		if (asIs != AsIsFileService.DISABLED) {
 			refs = refs.through(new IsLocalFilter());
@@ -11,6 +11,7 @@
 package org.eclipse.jgit.http.server;
 
 import java.util.Enumeration;
+import java.util.concurrent.Executor;
 
 import javax.servlet.Filter;
 import javax.servlet.FilterConfig;
@@ -19,6 +20,7 @@
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletRequest;
 
+import org.eclipse.jgit.annotations.Nullable;
 import org.eclipse.jgit.http.server.glue.MetaServlet;
 import org.eclipse.jgit.http.server.resolver.AsIsFileService;
 import org.eclipse.jgit.transport.resolver.ReceivePackFactory;
@@ -170,6 +172,32 @@ public void addReceivePackFilter(Filter filter) {
 		gitFilter.addReceivePackFilter(filter);
 	}
 
+	/**
+	 * Set whether smart HTTP responses are streamed.
+	 *
+	 * @param streaming
+	 *            {@code true} to stream responses as they are produced;
+	 *            {@code false} to buffer small responses.
+	 * @see GitFilter#setStreamingResponses(boolean)
+	 * @since 6.6
+	 */
+	public void setStreamingResponses(boolean streaming) {
+		gitFilter.setStreamingResponses(streaming);
+	}
+
+	/**
+	 * Set the executor processing fetch and push requests asynchronously.
+	 *
+	 * @param executor
+	 *            executor to run upload-pack and receive-pack on; null to
+	 *            process requests on the container thread.
+	 * @see GitFilter#setAsyncExecutor(Executor)
+	 * @since 6.6
+	 */
+	public void setAsyncExecutor(@Nullable Executor executor) {
+		gitFilter.setAsyncExecutor(executor);
+	}
+
 	/** {@inheritDoc} */
 	@Override
 	public void init(ServletConfig config) throws ServletException {
@@ -25,8 +25,10 @@
 import static org.eclipse.jgit.util.HttpSupport.HDR_USER_AGENT;
 
 import java.io.IOException;
+import java.io.OutputStream;
 import java.text.MessageFormat;
 import java.util.List;
+import java.util.concurrent.Executor;
 
 import javax.servlet.Filter;
 import javax.servlet.FilterChain;
@@ -58,8 +60,8 @@ static class InfoRefs extends SmartServiceInfoRefs {
 		private final ReceivePackFactory<HttpServletRequest> receivePackFactory;
 
 		InfoRefs(ReceivePackFactory<HttpServletRequest> receivePackFactory,
-				List<Filter> filters) {
-			super(RECEIVE_PACK, filters);
+				List<Filter> filters, boolean streaming) {
+			super(RECEIVE_PACK, filters, streaming);
 			this.receivePackFactory = receivePackFactory;
 		}
 
@@ -114,7 +116,9 @@ public void doFilter(ServletRequest request, ServletResponse response,
 				req.setAttribute(ATTRIBUTE_HANDLER, rp);
 				chain.doFilter(req, rsp);
 			} finally {
-				req.removeAttribute(ATTRIBUTE_HANDLER);
+				if (!AsyncService.isAsyncStarted(req)) {
+					req.removeAttribute(ATTRIBUTE_HANDLER);
+				}
 			}
 		}
 
@@ -132,8 +136,16 @@ public void destroy() {
 	@Nullable
 	private final ReceivePackErrorHandler handler;
 
-	ReceivePackServlet(@Nullable ReceivePackErrorHandler handler) {
+	private final boolean streaming;
+
+	@Nullable
+	private final Executor executor;
+
+	ReceivePackServlet(@Nullable ReceivePackErrorHandler handler,
+			boolean streaming, @Nullable Executor executor) {
 		this.handler = handler;
+		this.streaming = streaming;
+		this.executor = executor;
 	}
 
 	/** {@inheritDoc} */
@@ -145,14 +157,15 @@ public void doPost(final HttpServletRequest req,
 			return;
 		}
 
-		SmartOutputStream out = new SmartOutputStream(req, rsp, false) {
-			@Override
-			public void flush() throws IOException {
-				doFlush();
-			}
-		};
-
 		ReceivePack rp = (ReceivePack) req.getAttribute(ATTRIBUTE_HANDLER);
+		AsyncService.run(req, rsp, executor, () -> receive(req, rsp, rp),
+				e -> log(rp.getRepository(), e));
+	}
+
+	private void receive(HttpServletRequest req, HttpServletResponse rsp,
+			ReceivePack rp) throws IOException {
+		OutputStream out = UploadPackServlet.newOutputStream(req, rsp,
+				streaming);
 		rp.setBiDirectionalPipe(false);
 		rsp.setContentType(RECEIVE_PACK_RESULT_TYPE);
 
@@ -20,6 +20,8 @@
 import java.io.IOException;
 import java.text.MessageFormat;
 
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
 import javax.servlet.Filter;
 import javax.servlet.FilterChain;
 import javax.servlet.FilterConfig;
@@ -51,7 +53,9 @@
  * This filter sets request attribute
  * {@link org.eclipse.jgit.http.server.ServletUtils#ATTRIBUTE_REPOSITORY} when
  * it discovers the repository, and automatically closes and removes the
- * attribute when the request is complete.
+ * attribute when the request is complete. If processing of the request
+ * continues asynchronously, this is done once the asynchronous processing
+ * completes.
  */
 public class RepositoryFilter implements Filter {
 	private final RepositoryResolver<HttpServletRequest> resolver;
@@ -107,9 +111,9 @@ public void doFilter(final ServletRequest request,
 			return;
 		}
 
-		try (Repository db = resolver.open(req, name)) {
-			request.setAttribute(ATTRIBUTE_REPOSITORY, db);
-			chain.doFilter(request, response);
+		Repository db;
+		try {
+			db = resolver.open(req, name);
 		} catch (RepositoryNotFoundException e) {
 			sendError(req, res, SC_NOT_FOUND);
 			return;
@@ -122,8 +126,65 @@ public void doFilter(final ServletRequest request,
 		} catch (ServiceMayNotContinueException e) {
 			sendError(req, res, e.getStatusCode(), e.getMessage());
 			return;
+		}
+
+		boolean async = false;
+		try {
+			request.setAttribute(ATTRIBUTE_REPOSITORY, db);
+			chain.doFilter(request, response);
+			if (AsyncService.isAsyncStarted(request)) {
+				// Processing continues on another thread, which still uses
+				// the repository until the request completes.
+				request.getAsyncContext()
+						.addListener(new CloseOnComplete(request, db));
+				async = true;
+			}
 		} finally {
-			request.removeAttribute(ATTRIBUTE_REPOSITORY);
+			if (!async) {
+				request.removeAttribute(ATTRIBUTE_REPOSITORY);
+				db.close();
+			}
+		}
+	}
+
+	private static final class CloseOnComplete implements AsyncListener {
+		private final ServletRequest request;
+
+		private final Repository db;
+
+		private boolean closed;
+
+		CloseOnComplete(ServletRequest request, Repository db) {
+			this.request = request;
+			this.db = db;
+		}
+
+		@Override
+		public void onComplete(AsyncEvent event) {
+			close();
+		}
+
+		@Override
+		public void onError(AsyncEvent event) {
+			close();
+		}
+
+		@Override
+		public void onTimeout(AsyncEvent event) {
+			// The request is completed after a timeout.
+		}
+
+		@Override
+		public void onStartAsync(AsyncEvent event) {
+			event.getAsyncContext().addListener(this);
+		}
+
+		private synchronized void close() {
+			if (!closed) {
+				closed = true;
+				request.removeAttribute(ATTRIBUTE_REPOSITORY);
+				db.close();
+			}
 		}
 	}
 }
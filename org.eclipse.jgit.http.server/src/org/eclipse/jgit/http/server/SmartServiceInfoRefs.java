@@ -18,6 +18,7 @@
 import static org.eclipse.jgit.http.server.ServletUtils.getRepository;
 
 import java.io.IOException;
+import java.io.OutputStream;
 import java.util.List;
 
 import javax.servlet.Filter;
@@ -42,9 +43,13 @@ abstract class SmartServiceInfoRefs implements Filter {
 
 	private final Filter[] filters;
 
-	SmartServiceInfoRefs(String service, List<Filter> filters) {
+	private final boolean streaming;
+
+	SmartServiceInfoRefs(String service, List<Filter> filters,
+			boolean streaming) {
 		this.svc = service;
 		this.filters = filters.toArray(new Filter[0]);
+		this.streaming = streaming;
 	}
 
 	/** {@inheritDoc} */
@@ -95,7 +100,9 @@ private void service(ServletRequest request, ServletResponse response)
 			throws IOException {
 		final HttpServletRequest req = (HttpServletRequest) request;
 		final HttpServletResponse res = (HttpServletResponse) response;
-		final SmartOutputStream buf = new SmartOutputStream(req, res, true);
+		final OutputStream buf = streaming
+				? new StreamingOutputStream(req, res, true)
+				: new SmartOutputStream(req, res, true);
 		try {
 			res.setContentType(infoRefsResultType(svc));
 
@@ -0,0 +1,95 @@
+/*
+ * Copyright (C) 2023, Google LLC and others
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Distribution License v. 1.0 which is available at
+ * https://www.eclipse.org/org/documents/edl-v10.php.
+ *
+ * SPDX-License-Identifier: BSD-3-Clause
+ */
+
+package org.eclipse.jgit.http.server;
+
+import static org.eclipse.jgit.http.server.ServletUtils.acceptsGzipEncoding;
+import static org.eclipse.jgit.util.HttpSupport.ENCODING_GZIP;
+import static org.eclipse.jgit.util.HttpSupport.HDR_CONTENT_ENCODING;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.GZIPOutputStream;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Streams a response to the client as it is produced.
+ * <p>
+ * Unlike {@link SmartOutputStream} nothing is held in memory: the response is
+ * sent without a Content-Length, most likely using HTTP/1.1 chunked encoding.
+ * If requested and the user agent supports it the response is compressed with
+ * gzip as it is written; {@link #flush()} sends everything compressed so far.
+ */
+class StreamingOutputStream extends OutputStream {
+	private static final int GZIP_BUFFER = 8192;
+
+	private final HttpServletRequest req;
+
+	private final HttpServletResponse rsp;
+
+	private final boolean compressStream;
+
+	private OutputStream out;
+
+	private boolean closed;
+
+	StreamingOutputStream(HttpServletRequest req, HttpServletResponse rsp,
+			boolean compressStream) {
+		this.req = req;
+		this.rsp = rsp;
+		this.compressStream = compressStream;
+	}
+
+	private OutputStream out() throws IOException {
+		if (out == null) {
+			OutputStream os = rsp.getOutputStream();
+			if (compressStream && acceptsGzipEncoding(req)) {
+				rsp.setHeader(HDR_CONTENT_ENCODING, ENCODING_GZIP);
+				os = new GZIPOutputStream(os, GZIP_BUFFER, true);
+			}
+			out = os;
+		}
+		return out;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void write(int b) throws IOException {
+		out().write(b);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void write(byte[] b, int off, int len) throws IOException {
+		out().write(b, off, len);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void flush() throws IOException {
+		out().flush();
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void close() throws IOException {
+		if (closed) {
+			return;
+		}
+		closed = true;
+		if (out == null) {
+			rsp.setContentLength(0);
+			out = rsp.getOutputStream();
+		}
+		out.close();
+	}
+}
@@ -25,8 +25,10 @@
 import static org.eclipse.jgit.util.HttpSupport.HDR_USER_AGENT;
 
 import java.io.IOException;
+import java.io.OutputStream;
 import java.text.MessageFormat;
 import java.util.List;
+import java.util.concurrent.Executor;
 
 import javax.servlet.Filter;
 import javax.servlet.FilterChain;
@@ -60,8 +62,8 @@ static class InfoRefs extends SmartServiceInfoRefs {
 		private final UploadPackFactory<HttpServletRequest> uploadPackFactory;
 
 		InfoRefs(UploadPackFactory<HttpServletRequest> uploadPackFactory,
-				List<Filter> filters) {
-			super(UPLOAD_PACK, filters);
+				List<Filter> filters, boolean streaming) {
+			super(UPLOAD_PACK, filters, streaming);
 			this.uploadPackFactory = uploadPackFactory;
 		}
 
@@ -136,7 +138,9 @@ public void doFilter(ServletRequest request, ServletResponse response,
 				req.setAttribute(ATTRIBUTE_HANDLER, rp);
 				chain.doFilter(req, rsp);
 			} finally {
-				req.removeAttribute(ATTRIBUTE_HANDLER);
+				if (!AsyncService.isAsyncStarted(req)) {
+					req.removeAttribute(ATTRIBUTE_HANDLER);
+				}
 			}
 		}
 
@@ -153,9 +157,17 @@ public void destroy() {
 
 	private final UploadPackErrorHandler handler;
 
-	UploadPackServlet(@Nullable UploadPackErrorHandler handler) {
+	private final boolean streaming;
+
+	@Nullable
+	private final Executor executor;
+
+	UploadPackServlet(@Nullable UploadPackErrorHandler handler,
+			boolean streaming, @Nullable Executor executor) {
 		this.handler = handler != null ? handler
 				: this::defaultUploadPackHandler;
+		this.streaming = streaming;
+		this.executor = executor;
 	}
 
 	/** {@inheritDoc} */
@@ -171,19 +183,20 @@ public void doPost(HttpServletRequest req, HttpServletResponse rsp)
 			upload(req, rsp);
 		};
 
-		handler.upload(req, rsp, r);
+		AsyncService.run(req, rsp, executor,
+				() -> handler.upload(req, rsp, r),
+				e -> {
+					UploadPack up = (UploadPack) req
+							.getAttribute(ATTRIBUTE_HANDLER);
+					log(up.getRepository(), e);
+				});
 	}
 
 	private void upload(HttpServletRequest req, HttpServletResponse rsp)
 			throws IOException, ServiceMayNotContinueException {
 		// to be explicitly closed by caller
 		@SuppressWarnings("resource")
-		SmartOutputStream out = new SmartOutputStream(req, rsp, false) {
-			@Override
-			public void flush() throws IOException {
-				doFlush();
-			}
-		};
+		OutputStream out = newOutputStream(req, rsp, streaming);
 		Repository repo = null;
 		try (UploadPack up = (UploadPack) req.getAttribute(ATTRIBUTE_HANDLER)) {
 			up.setBiDirectionalPipe(false);
@@ -205,6 +218,23 @@ public void flush() throws IOException {
 		}
 	}
 
+	/**
+	 * Create the stream a response of upload-pack or receive-pack is written
+	 * to. Flushing the stream sends everything written so far.
+	 */
+	static OutputStream newOutputStream(HttpServletRequest req,
+			HttpServletResponse rsp, boolean streaming) {
+		if (streaming) {
+			return new StreamingOutputStream(req, rsp, false);
+		}
+		return new SmartOutputStream(req, rsp, false) {
+			@Override
+			public void flush() throws IOException {
+				doFlush();
+			}
+		};
+	}
+
 	private void defaultUploadPackHandler(HttpServletRequest req,
 			HttpServletResponse rsp, UploadPackRunnable r) throws IOException {
 		try {
@@ -16,6 +16,7 @@
 import org.eclipse.jgit.transport.HttpTransport;
 import org.eclipse.jgit.transport.http.HttpConnectionFactory;
 import org.eclipse.jgit.transport.http.JDKHttpConnectionFactory;
+import org.eclipse.jgit.transport.http.JavaHttpClientConnectionFactory;
 import org.eclipse.jgit.transport.http.apache.HttpClientConnectionFactory;
 import org.junit.AfterClass;
 import org.junit.BeforeClass;
@@ -26,8 +27,9 @@
 
 /**
  * Abstract test base class for running HTTP-related tests with all connection
- * factories provided in JGit: the JDK {@link JDKHttpConnectionFactory} and the
- * Apache HTTP {@link HttpClientConnectionFactory}.
+ * factories provided in JGit: the JDK {@link JDKHttpConnectionFactory}, the
+ * {@link JavaHttpClientConnectionFactory} and the Apache HTTP
+ * {@link HttpClientConnectionFactory}.
  */
 @Ignore
 @RunWith(Parameterized.class)
@@ -35,12 +37,17 @@ public abstract class AllFactoriesHttpTestCase extends HttpTestCase {
 
 	@Parameters(name = "{0}")
 	public static Collection<Object[]> data() {
-		// run all tests with both connection factories we have
+		// run all tests with all connection factories we have
 		return Arrays.asList(new Object[][] { { new JDKHttpConnectionFactory() {
 			@Override
 			public String toString() {
 				return this.getClass().getSuperclass().getName();
 			}
+		} }, { new JavaHttpClientConnectionFactory() {
+			@Override
+			public String toString() {
+				return this.getClass().getSuperclass().getName();
+			}
 		} }, { new HttpClientConnectionFactory() {
 			@Override
 			public String toString() {
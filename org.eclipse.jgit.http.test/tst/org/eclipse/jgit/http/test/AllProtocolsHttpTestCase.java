@@ -17,6 +17,7 @@
 import org.eclipse.jgit.transport.HttpTransport;
 import org.eclipse.jgit.transport.http.HttpConnectionFactory;
 import org.eclipse.jgit.transport.http.JDKHttpConnectionFactory;
+import org.eclipse.jgit.transport.http.JavaHttpClientConnectionFactory;
 import org.eclipse.jgit.transport.http.apache.HttpClientConnectionFactory;
 import org.junit.AfterClass;
 import org.junit.BeforeClass;
@@ -54,10 +55,16 @@ public String toString() {
 
 	@Parameters(name = "{0}")
 	public static Collection<TestParameters> data() {
-		// run all tests with both connection factories we have
+		// run all tests with all connection factories we have
 		HttpConnectionFactory[] factories = new HttpConnectionFactory[] {
 				new JDKHttpConnectionFactory() {
 
+					@Override
+					public String toString() {
+						return this.getClass().getSuperclass().getName();
+					}
+				}, new JavaHttpClientConnectionFactory() {
+
 					@Override
 					public String toString() {
 						return this.getClass().getSuperclass().getName();
@@ -0,0 +1,194 @@
+/*
+ * Copyright (C) 2023, Google LLC and others
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Distribution License v. 1.0 which is available at
+ * https://www.eclipse.org/org/documents/edl-v10.php.
+ *
+ * SPDX-License-Identifier: BSD-3-Clause
+ */
+
+package org.eclipse.jgit.http.test;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.servlet.http.HttpServletRequest;
+
+import org.eclipse.jetty.servlet.ServletContextHandler;
+import org.eclipse.jetty.servlet.ServletHolder;
+import org.eclipse.jgit.errors.RepositoryNotFoundException;
+import org.eclipse.jgit.http.server.GitServlet;
+import org.eclipse.jgit.internal.storage.file.FileRepository;
+import org.eclipse.jgit.junit.TestRepository;
+import org.eclipse.jgit.junit.http.AccessEvent;
+import org.eclipse.jgit.junit.http.HttpTestCase;
+import org.eclipse.jgit.lib.NullProgressMonitor;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.lib.StoredConfig;
+import org.eclipse.jgit.revwalk.RevBlob;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.transport.PushResult;
+import org.eclipse.jgit.transport.ReceivePack;
+import org.eclipse.jgit.transport.RemoteRefUpdate;
+import org.eclipse.jgit.transport.Transport;
+import org.eclipse.jgit.transport.URIish;
+import org.eclipse.jgit.transport.UploadPack;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class StreamingSmartServerTest extends HttpTestCase {
+	private ExecutorService executor;
+
+	private final AtomicInteger open = new AtomicInteger();
+
+	private final AtomicInteger closedEarly = new AtomicInteger();
+
+	private Repository remoteRepository;
+
+	private URIish remoteURI;
+
+	private RevBlob A_txt;
+
+	private RevCommit A, B;
+
+	@Override
+	@Before
+	public void setUp() throws Exception {
+		super.setUp();
+
+		final TestRepository<Repository> src = createTestRepository();
+		final String srcName = src.getRepository().getDirectory().getName();
+
+		executor = Executors.newFixedThreadPool(2);
+
+		ServletContextHandler app = server.addContext("/git");
+		GitServlet gs = new GitServlet();
+		gs.setStreamingResponses(true);
+		gs.setAsyncExecutor(executor);
+		gs.setRepositoryResolver((HttpServletRequest req, String name) -> {
+			if (!name.equals(srcName)) {
+				throw new RepositoryNotFoundException(name);
+			}
+			try {
+				return new TrackedRepository(
+						src.getRepository().getDirectory());
+			} catch (IOException e) {
+				throw new RepositoryNotFoundException(name, e);
+			}
+		});
+		gs.setUploadPackFactory((HttpServletRequest req, Repository db) -> {
+			UploadPack up = new UploadPack(db);
+			up.setPostUploadHook(stats -> checkOpen(db));
+			return up;
+		});
+		gs.setReceivePackFactory((HttpServletRequest req, Repository db) -> {
+			ReceivePack rp = new ReceivePack(db);
+			rp.setPostReceiveHook((r, commands) -> checkOpen(db));
+			return rp;
+		});
+		ServletHolder holder = new ServletHolder(gs);
+		holder.setAsyncSupported(true);
+		app.addServlet(holder, "/*");
+
+		server.setUp();
+
+		remoteRepository = src.getRepository();
+		remoteURI = toURIish(app, srcName);
+
+		StoredConfig cfg = remoteRepository.getConfig();
+		cfg.setBoolean("http", null, "receivepack", true);
+		cfg.save();
+
+		A_txt = src.blob("A");
+		A = src.commit().add("A_txt", A_txt).create();
+		B = src.commit().parent(A).add("A_txt", "C").add("B", "B").create();
+		src.update(master, B);
+	}
+
+	@Override
+	@After
+	public void tearDown() throws Exception {
+		executor.shutdownNow();
+		super.tearDown();
+	}
+
+	private void checkOpen(Repository db) {
+		if (((TrackedRepository) db).closed) {
+			closedEarly.incrementAndGet();
+		}
+	}
+
+	private void assertAllClosed() throws InterruptedException {
+		// The repository is closed once the asynchronous processing
+		// completes, which may be after the client read the response.
+		long deadline = System.currentTimeMillis() + 10_000;
+		while (open.get() > 0 && System.currentTimeMillis() < deadline) {
+			Thread.sleep(10);
+		}
+		assertEquals(0, open.get());
+		assertEquals(0, closedEarly.get());
+	}
+
+	private class TrackedRepository extends FileRepository {
+		volatile boolean closed;
+
+		TrackedRepository(File gitDir) throws IOException {
+			super(gitDir);
+			open.incrementAndGet();
+		}
+
+		@Override
+		public void close() {
+			closed = true;
+			open.decrementAndGet();
+			super.close();
+		}
+	}
+
+	@Test
+	public void testFetch() throws Exception {
+		Repository dst = createBareRepository();
+		try (Transport t = Transport.open(dst, remoteURI)) {
+			t.fetch(NullProgressMonitor.INSTANCE, mirror(master));
+		}
+		assertEquals(B, dst.exactRef(master).getObjectId());
+		fsck(dst, B);
+
+		List<AccessEvent> requests = getRequests();
+		assertEquals(2, requests.size());
+		assertEquals(200, requests.get(0).getStatus());
+		assertEquals("POST", requests.get(1).getMethod());
+		assertEquals(200, requests.get(1).getStatus());
+		assertAllClosed();
+	}
+
+	@Test
+	public void testPush() throws Exception {
+		TestRepository<Repository> local = new TestRepository<>(
+				createBareRepository());
+		RevCommit Q = local.commit().add("Q", "Q").create();
+		local.update(master, Q);
+
+		try (Transport t = Transport.open(local.getRepository(),
+				remoteURI)) {
+			RemoteRefUpdate u = new RemoteRefUpdate(local.getRepository(),
+					master, "refs/heads/new", false, null, null);
+			PushResult r = t.push(NullProgressMonitor.INSTANCE,
+					Collections.singleton(u));
+			assertEquals(RemoteRefUpdate.Status.OK,
+					r.getRemoteUpdate("refs/heads/new").getStatus());
+		}
+		assertEquals(Q, remoteRepository.exactRef("refs/heads/new")
+				.getObjectId());
+		assertAllClosed();
+	}
+}
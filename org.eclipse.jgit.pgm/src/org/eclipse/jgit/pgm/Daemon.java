@@ -46,6 +46,12 @@ class Daemon extends TextBuiltin {
 	@Option(name = "--timeout", metaVar = "metaVar_seconds", usage = "usage_abortConnectionIfNoActivity")
 	int timeout = -1;
 
+	@Option(name = "--threads", metaVar = "metaVar_n", usage = "usage_daemonThreads")
+	int clientThreads;
+
+	@Option(name = "--max-sessions", metaVar = "metaVar_n", usage = "usage_daemonMaxSessions")
+	int maxSessions;
+
 	@Option(name = "--enable", metaVar = "metaVar_service", usage = "usage_enableTheServiceInAllRepositories")
 	List<String> enable = new ArrayList<>();
 
@@ -120,6 +126,13 @@ protected void run() throws Exception {
 			service(d, n).setOverridable(true);
 		for (String n : forbidOverride)
 			service(d, n).setOverridable(false);
+		if (0 < clientThreads)
+			d.setExecutor(org.eclipse.jgit.transport.Daemon
+					.newClientExecutor(clientThreads));
+		if (0 < maxSessions) {
+			service(d, "upload-pack").setMaxSessions(maxSessions); //$NON-NLS-1$
+			service(d, "receive-pack").setMaxSessions(maxSessions); //$NON-NLS-1$
+		}
 		d.start();
 		outw.println(MessageFormat.format(CLIText.get().listeningOn, d.getAddress()));
 	}
@@ -38,6 +38,7 @@
 import org.eclipse.jgit.treewalk.TreeWalk;
 import org.eclipse.jgit.util.FS;
 import org.eclipse.jgit.util.NB;
+import org.eclipse.jgit.util.RawByteScan;
 import org.kohsuke.args4j.Option;
 
 /**
@@ -57,6 +58,11 @@
  * the hash tables smaller array index space), declare a new instance field of
  * type {@link Fold} and implement the logic. The test suite will automatically
  * pick up the new function through reflection.
+ *
+ * The time spent splitting files into lines and hashing the lines is reported
+ * too, so the suite doubles as a benchmark of the hash functions. Use
+ * {@code --repeat} to scan the files several times, giving the JIT a chance to
+ * warm up.
  */
 @Command(usage = "usage_TextHashFunctions")
 class TextHashFunctions extends TextBuiltin {
@@ -84,6 +90,14 @@ protected int hashRegion(byte[] raw, int ptr, int end) {
 		}
 	};
 
+	/** {@link #djb} computed 8 bytes at a time, as used by RawTextComparator. */
+	final Hash djb_words = new Hash() {
+		@Override
+		protected int hashRegion(byte[] raw, int ptr, int end) {
+			return RawByteScan.djbHash(5381, raw, ptr, end);
+		}
+	};
+
 	/** Hash function commonly used by java.lang.String. */
 	final Hash string_hash31 = new Hash() {
 		@Override
@@ -228,6 +242,9 @@ public int fold(int hash, int bits) {
 	@Option(name = "--repository", aliases = { "-r" }, metaVar = "GIT_DIR", usage = "Repository to scan")
 	List<File> gitDirs = new ArrayList<>();
 
+	@Option(name = "--repeat", metaVar = "COUNT", usage = "Number of times to scan the files")
+	int repeat = 1;
+
 	/** {@inheritDoc} */
 	@Override
 	protected boolean requiresRepository() {
@@ -265,6 +282,8 @@ private void run(Repository repo) throws Exception {
 
 		long fileCnt = 0;
 		long lineCnt = 0;
+		long splitNanos = 0;
+		int rounds = Math.max(repeat, 1);
 		try (ObjectReader or = repo.newObjectReader();
 			RevWalk rw = new RevWalk(or);
 			TreeWalk tw = new TreeWalk(or)) {
@@ -289,7 +308,12 @@ private void run(Repository repo) throws Exception {
 				if (RawText.isBinary(raw, raw.length, true))
 					continue;
 
-				RawText txt = new RawText(raw);
+				RawText txt = null;
+				for (int n = 0; n < rounds; n++) {
+					long start = System.nanoTime();
+					txt = new RawText(raw);
+					splitNanos += System.nanoTime() - start;
+				}
 				int[] lines = new int[txt.size()];
 				int cnt = 0;
 				HashSet<Line> u = new HashSet<>();
@@ -301,8 +325,10 @@ private void run(Repository repo) throws Exception {
 				fileCnt++;
 				lineCnt += cnt;
 
-				for (Function fun : all)
-					testOne(fun, txt, lines, cnt);
+				for (int n = 0; n < rounds; n++) {
+					for (Function fun : all)
+						testOne(fun, txt, lines, cnt);
+				}
 			}
 		}
 
@@ -317,17 +343,21 @@ private void run(Repository repo) throws Exception {
 		outw.format("  %6d files; %5d avg. unique lines/file\n", //$NON-NLS-1$
 				valueOf(fileCnt), //
 				valueOf(lineCnt / fileCnt));
-		outw.format("%-20s %-15s %9s\n", "Hash", "Fold", "Max Len"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
-		outw.println("-----------------------------------------------"); //$NON-NLS-1$
+		outw.format("  %6d ms splitting lines (%s)\n", //$NON-NLS-1$
+				valueOf(splitNanos / 1000000), //
+				RawByteScan.isWordAtATime() ? "word-at-a-time" : "scalar"); //$NON-NLS-1$ //$NON-NLS-2$
+		outw.format("%-20s %-15s %9s %9s\n", "Hash", "Fold", "Max Len", "Time ms"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ //$NON-NLS-5$
+		outw.println("---------------------------------------------------------"); //$NON-NLS-1$
 		String lastHashName = null;
 		for (Function fun : all) {
 			String hashName = fun.hash.name;
 			if (hashName.equals(lastHashName))
 				hashName = ""; //$NON-NLS-1$
-			outw.format("%-20s %-15s %9d\n", // //$NON-NLS-1$
+			outw.format("%-20s %-15s %9d %9d\n", // //$NON-NLS-1$
 					hashName, //
 					fun.fold.name, //
-					valueOf(fun.maxChainLength));
+					valueOf(fun.maxChainLength), //
+					valueOf(fun.hashNanos / 1000000));
 			lastHashName = fun.hash.name;
 		}
 		outw.println();
@@ -341,8 +371,10 @@ private static void testOne(Function fun, RawText txt, int[] elements,
 
 		final int bits = tableBits(cnt);
 		final int[] buckets = new int[1 << bits];
+		long start = System.nanoTime();
 		for (int i = 0; i < cnt; i++)
 			buckets[fold.fold(cmp.hash(txt, elements[i]), bits)]++;
+		fun.hashNanos += System.nanoTime() - start;
 
 		int maxChainLength = 0;
 		for (int i = 0; i < buckets.length; i++)
@@ -403,6 +435,8 @@ private static class Function {
 
 		int maxChainLength;
 
+		long hashNanos;
+
 		Function(Hash cmp, Fold fold) {
 			this.hash = cmp;
 			this.fold = fold;
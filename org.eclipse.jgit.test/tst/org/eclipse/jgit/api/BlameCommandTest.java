@@ -15,14 +15,24 @@
 import static org.junit.Assert.assertTrue;
 
 import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.eclipse.jgit.api.MergeCommand.FastForwardMode;
 import org.eclipse.jgit.api.ResetCommand.ResetType;
 import org.eclipse.jgit.blame.BlameResult;
+import org.eclipse.jgit.blame.CacheRegion;
+import org.eclipse.jgit.blame.InMemoryBlameCache;
 import org.eclipse.jgit.diff.RawTextComparator;
 import org.eclipse.jgit.junit.RepositoryTestCase;
 import org.eclipse.jgit.lib.ConfigConstants;
 import org.eclipse.jgit.lib.CoreConfig.AutoCRLF;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.merge.MergeStrategy;
 import org.eclipse.jgit.revwalk.RevCommit;
 import org.eclipse.jgit.storage.file.FileBasedConfig;
 import org.junit.Test;
@@ -393,6 +403,87 @@ public void testConflictingMerge1() throws Exception {
 		}
 	}
 
+	@Test
+	public void testConflictingMergeWithExecutor() throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		try (Git git = new Git(db)) {
+			RevCommit base = commitFile("file.txt", join("0", "1", "2", "3", "4"),
+					"master");
+
+			git.checkout().setName("side").setCreateBranch(true)
+					.setStartPoint(base).call();
+			RevCommit side = commitFile("file.txt",
+					join("0", "1 side", "2", "3 on side", "4"), "side");
+
+			commitFile("file.txt", join("0", "1", "2"), "master");
+
+			checkoutBranch("refs/heads/master");
+			git.merge().include(side).call();
+
+			RevCommit merge = commitFile("file.txt",
+					join("0", "1 side", "2", "3 resolved", "4"), "master");
+
+			BlameResult serial = git.blame().setFilePath("file.txt").call();
+			BlameResult lines = git.blame().setFilePath("file.txt")
+					.setExecutor(executor).call();
+
+			assertEquals(5, lines.getResultContents().size());
+			assertEquals(base, lines.getSourceCommit(0));
+			assertEquals(side, lines.getSourceCommit(1));
+			assertEquals(base, lines.getSourceCommit(2));
+			assertEquals(merge, lines.getSourceCommit(3));
+			assertEquals(base, lines.getSourceCommit(4));
+			for (int i = 0; i < 5; i++) {
+				assertEquals(serial.getSourceCommit(i),
+						lines.getSourceCommit(i));
+				assertEquals(serial.getSourceLine(i), lines.getSourceLine(i));
+			}
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	public void testMergeWithExecutorCancelsUnneededDiffs() throws Exception {
+		// Runs the comparison with the first parent, holds back the others.
+		List<Runnable> tasks = new ArrayList<>();
+		Executor executor = task -> {
+			tasks.add(task);
+			if (tasks.size() == 1) {
+				task.run();
+			}
+		};
+		try (Git git = new Git(db)) {
+			RevCommit base = commitFile("file.txt", join("0", "1", "2"),
+					"master");
+			git.checkout().setName("side").setCreateBranch(true)
+					.setStartPoint(base).call();
+			RevCommit side = commitFile("file.txt", join("0", "1", "2 side"),
+					"side");
+			RevCommit master = commitFile("file.txt",
+					join("0", "1", "2 master"), "master");
+
+			checkoutBranch("refs/heads/master");
+			git.merge().setStrategy(MergeStrategy.OURS)
+					.setFastForward(FastForwardMode.NO_FF).include(side).call();
+
+			// The first parent takes all lines when ignoring whitespace.
+			writeTrashFile("file.txt", join("0", "1", "  2 master "));
+			git.commit().setAll(true).setMessage("merge").setAmend(true)
+					.call();
+
+			BlameResult lines = git.blame().setFilePath("file.txt")
+					.setTextComparator(RawTextComparator.WS_IGNORE_ALL)
+					.setExecutor(executor).call();
+
+			assertEquals(base, lines.getSourceCommit(0));
+			assertEquals(base, lines.getSourceCommit(1));
+			assertEquals(master, lines.getSourceCommit(2));
+			assertEquals(2, tasks.size());
+			assertTrue(((Future<?>) tasks.get(1)).isCancelled());
+		}
+	}
+
 	// this test inverts the order of the master and side commit and is
 	// otherwise identical to testConflictingMerge1
 	@Test
@@ -560,4 +651,132 @@ public void testBlameWithNulByteInTopRevision() throws Exception {
 		}
 	}
 
+	@Test
+	public void testBlameCache() throws Exception {
+		try (Git git = new Git(db)) {
+			writeTrashFile("file.txt", join("a", "b", "c"));
+			git.add().addFilepattern("file.txt").call();
+			RevCommit c1 = git.commit().setMessage("create file").call();
+
+			writeTrashFile("file.txt", join("a", "x", "b", "c"));
+			git.add().addFilepattern("file.txt").call();
+			RevCommit c2 = git.commit().setMessage("insert x").call();
+
+			writeTrashFile("file.txt", join("y", "a", "x", "b", "c"));
+			git.add().addFilepattern("file.txt").call();
+			RevCommit c3 = git.commit().setMessage("insert y").call();
+
+			InMemoryBlameCache cache = new InMemoryBlameCache();
+			git.blame().setFilePath("file.txt").setStartCommit(c2)
+					.setBlameCache(cache).call();
+			List<CacheRegion> regions = cache.get(db, c2, "file.txt");
+			assertNotNull(regions);
+			assertEquals(3, regions.size());
+			assertEquals(c1, regions.get(0).getSourceCommit());
+			assertEquals(c2, regions.get(1).getSourceCommit());
+			assertEquals(c1, regions.get(2).getSourceCommit());
+			assertEquals(2, regions.get(2).getStart());
+			assertEquals(4, regions.get(2).getEnd());
+			assertEquals(1, regions.get(2).getSourceStart());
+
+			BlameResult lines = git.blame().setFilePath("file.txt")
+					.setBlameCache(cache).call();
+			assertEquals(c3, lines.getSourceCommit(0));
+			assertEquals(c1, lines.getSourceCommit(1));
+			assertEquals(0, lines.getSourceLine(1));
+			assertEquals(c2, lines.getSourceCommit(2));
+			assertEquals(1, lines.getSourceLine(2));
+			assertEquals(c1, lines.getSourceCommit(3));
+			assertEquals(1, lines.getSourceLine(3));
+			assertEquals(c1, lines.getSourceCommit(4));
+			assertEquals(2, lines.getSourceLine(4));
+			assertEquals(2, cache.getEntryCount());
+
+			// Blame must resume from the cached ancestor, not walk past it.
+			cache.clear();
+			cache.put(db, c2, "file.txt", List.of(
+					new CacheRegion("file.txt", c2, 0, 4, 0)));
+			lines = git.blame().setFilePath("file.txt").setBlameCache(cache)
+					.call();
+			assertEquals(c3, lines.getSourceCommit(0));
+			for (int i = 1; i < 5; i++) {
+				assertEquals(c2, lines.getSourceCommit(i));
+				assertEquals(i - 1, lines.getSourceLine(i));
+			}
+		}
+	}
+
+	@Test
+	public void testBlameCacheWithModifiedWorkTree() throws Exception {
+		try (Git git = new Git(db)) {
+			writeTrashFile("file.txt", join("a", "b"));
+			git.add().addFilepattern("file.txt").call();
+			RevCommit c1 = git.commit().setMessage("create file").call();
+
+			writeTrashFile("file.txt", join("a", "x", "b"));
+			InMemoryBlameCache cache = new InMemoryBlameCache();
+			BlameResult lines = git.blame().setFilePath("file.txt")
+					.setBlameCache(cache).call();
+			assertEquals(c1, lines.getSourceCommit(0));
+			assertNull(lines.getSourceCommit(1));
+			assertEquals(c1, lines.getSourceCommit(2));
+
+			// Only the blame of the committed file is cached.
+			List<CacheRegion> regions = cache.get(db, c1, "file.txt");
+			assertNotNull(regions);
+			assertEquals(1, regions.size());
+			assertEquals(0, regions.get(0).getStart());
+			assertEquals(2, regions.get(0).getEnd());
+			assertEquals(c1, regions.get(0).getSourceCommit());
+		}
+	}
+
+	@Test
+	public void testBlameCacheOfOtherRepository() throws Exception {
+		try (Git git = new Git(db)) {
+			writeTrashFile("file.txt", join("a", "b"));
+			git.add().addFilepattern("file.txt").call();
+			RevCommit c1 = git.commit().setMessage("create file").call();
+
+			// Entry of a repository sharing the cache, whose source commit
+			// does not exist here.
+			InMemoryBlameCache cache = new InMemoryBlameCache();
+			ObjectId other = ObjectId
+					.fromString("0123456789012345678901234567890123456789");
+			cache.put(db, c1, "file.txt",
+					List.of(new CacheRegion("file.txt", other, 0, 2, 0)));
+			BlameResult lines = git.blame().setFilePath("file.txt")
+					.setBlameCache(cache).call();
+			assertEquals(c1, lines.getSourceCommit(0));
+			assertEquals(c1, lines.getSourceCommit(1));
+		}
+	}
+
+	@Test
+	public void testBlameCacheWithOtherTextComparator() throws Exception {
+		try (Git git = new Git(db)) {
+			RevCommit c1 = commitFile("file.txt", join("a", "b"), "master");
+			RevCommit c2 = commitFile("file.txt", join("a", "  b"), "master");
+
+			InMemoryBlameCache cache = new InMemoryBlameCache();
+			BlameResult lines = git.blame().setFilePath("file.txt")
+					.setTextComparator(RawTextComparator.WS_IGNORE_ALL)
+					.setBlameCache(cache).call();
+			assertEquals(c1, lines.getSourceCommit(1));
+			assertEquals(0, cache.getEntryCount());
+
+			lines = git.blame().setFilePath("file.txt")
+					.setTextComparator(RawTextComparator.DEFAULT)
+					.setBlameCache(cache).call();
+			assertEquals(c1, lines.getSourceCommit(0));
+			assertEquals(c2, lines.getSourceCommit(1));
+			assertEquals(1, cache.getEntryCount());
+
+			// Blame cached with the default comparator is not served either.
+			lines = git.blame().setFilePath("file.txt")
+					.setTextComparator(RawTextComparator.WS_IGNORE_ALL)
+					.setBlameCache(cache).call();
+			assertEquals(c1, lines.getSourceCommit(1));
+		}
+	}
 }
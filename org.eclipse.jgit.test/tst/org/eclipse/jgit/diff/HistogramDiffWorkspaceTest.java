@@ -0,0 +1,47 @@
+/*
+ * Copyright (C) 2023, Google LLC and others
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Distribution License v. 1.0 which is available at
+ * https://www.eclipse.org/org/documents/edl-v10.php.
+ *
+ * SPDX-License-Identifier: BSD-3-Clause
+ */
+
+package org.eclipse.jgit.diff;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+public class HistogramDiffWorkspaceTest extends HistogramDiffTest {
+	private final DiffWorkspace ws = new DiffWorkspace(16);
+
+	@Override
+	public EditList diff(RawText a, RawText b) {
+		return algorithm().diff(RawTextComparator.DEFAULT, a, b, ws);
+	}
+
+	@Test
+	public void testReusedWorkspaceMatchesFreshTables() {
+		Random rng = new Random(42);
+		HistogramDiff hd = new HistogramDiff();
+		for (int i = 0; i < 200; i++) {
+			RawText a = t(randomText(rng));
+			RawText b = t(randomText(rng));
+			assertEquals(hd.diff(RawTextComparator.DEFAULT, a, b),
+					hd.diff(RawTextComparator.DEFAULT, a, b, ws));
+		}
+	}
+
+	private static String randomText(Random rng) {
+		int len = rng.nextInt(40);
+		StringBuilder s = new StringBuilder(len);
+		for (int i = 0; i < len; i++) {
+			s.append((char) ('a' + rng.nextInt(6)));
+		}
+		return s.toString();
+	}
+}
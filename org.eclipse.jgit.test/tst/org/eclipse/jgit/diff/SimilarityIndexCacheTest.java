@@ -0,0 +1,107 @@
+/*
+ * Copyright (C) 2023, Google LLC and others
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Distribution License v. 1.0 which is available at
+ * https://www.eclipse.org/org/documents/edl-v10.php.
+ *
+ * SPDX-License-Identifier: BSD-3-Clause
+ */
+
+package org.eclipse.jgit.diff;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import org.eclipse.jgit.diff.SimilarityIndex.TableFullException;
+import org.eclipse.jgit.lib.ObjectId;
+import org.junit.Test;
+
+public class SimilarityIndexCacheTest extends AbstractRenameDetectionTestCase {
+	@Test
+	public void testRenameDetectorsShareCache() throws Exception {
+		ObjectId aId = blob("foo\nbar\nbaz\nblarg\n");
+		ObjectId bId = blob("foo\nbar\nbaz\nblah\n");
+		SimilarityIndexCache cache = new SimilarityIndexCache();
+
+		for (int i = 0; i < 3; i++) {
+			RenameDetector rd = new RenameDetector(db);
+			rd.setSimilarityIndexCache(cache);
+			DiffEntry a = DiffEntry.add(PATH_A, aId);
+			DiffEntry b = DiffEntry.delete(PATH_Q, bId);
+			rd.add(a);
+			rd.add(b);
+
+			List<DiffEntry> entries = rd.compute();
+			assertEquals(1, entries.size());
+			assertRename(b, a, 66, entries.get(0));
+		}
+
+		assertEquals(2, cache.getEntryCount());
+		assertEquals(2, cache.getMissCount());
+		assertEquals(4, cache.getHitCount());
+		assertTrue(cache.getCurrentBytes() > 0);
+	}
+
+	@Test
+	public void testCompactedIndexScoresTheSame() throws TableFullException {
+		SimilarityIndex src = hash("A\nB\nC\nD\n");
+		SimilarityIndex dst = hash("A\nB\nC\nE\n");
+		int expected = src.score(dst, 100);
+
+		SimilarityIndexCache cache = new SimilarityIndexCache();
+		cache.put(ObjectId.zeroId(), src);
+		assertSame(src, cache.get(ObjectId.zeroId()));
+		assertEquals(4, src.size());
+		assertEquals(expected, src.score(dst, 100));
+		assertEquals(expected, dst.score(src, 100));
+	}
+
+	@Test
+	public void testEvictsLeastRecentlyUsed() throws TableFullException {
+		SimilarityIndex a = hash("a\n");
+		SimilarityIndex b = hash("b\n");
+		SimilarityIndex c = hash("c\n");
+		ObjectId aId = id(1);
+		ObjectId bId = id(2);
+		ObjectId cId = id(3);
+
+		a.compact();
+		SimilarityIndexCache cache = new SimilarityIndexCache(
+				2 * a.getMemoryUsage());
+		cache.put(aId, a);
+		cache.put(bId, b);
+		assertSame(a, cache.get(aId));
+		cache.put(cId, c);
+
+		assertEquals(2, cache.getEntryCount());
+		assertEquals(1, cache.getEvictionCount());
+		assertSame(a, cache.get(aId));
+		assertNull(cache.get(bId));
+		assertSame(c, cache.get(cId));
+		assertTrue(cache.getCurrentBytes() <= cache.getMaxBytes());
+
+		cache.clear();
+		assertEquals(0, cache.getEntryCount());
+		assertEquals(0, cache.getCurrentBytes());
+	}
+
+	private static ObjectId id(int n) {
+		byte[] raw = new byte[20];
+		raw[19] = (byte) n;
+		return ObjectId.fromRaw(raw);
+	}
+
+	private static SimilarityIndex hash(String text) throws TableFullException {
+		SimilarityIndex src = new SimilarityIndex();
+		byte[] raw = text.getBytes(UTF_8);
+		src.hash(raw, 0, raw.length);
+		src.sort();
+		return src;
+	}
+}
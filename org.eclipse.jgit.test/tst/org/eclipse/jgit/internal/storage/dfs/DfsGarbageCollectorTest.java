@@ -1,5 +1,6 @@
 package org.eclipse.jgit.internal.storage.dfs;
 
+import static org.eclipse.jgit.internal.storage.dfs.DfsObjDatabase.PackSource.COMPACT;
 import static org.eclipse.jgit.internal.storage.dfs.DfsObjDatabase.PackSource.GC;
 import static org.eclipse.jgit.internal.storage.dfs.DfsObjDatabase.PackSource.GC_REST;
 import static org.eclipse.jgit.internal.storage.dfs.DfsObjDatabase.PackSource.INSERT;
@@ -1100,6 +1101,198 @@ public void commitGraphWithoutGCrestPack() throws Exception {
 		}
 	}
 
+	@Test
+	public void testIncrementalKeepsReachableGcPack() throws Exception {
+		RevCommit commit0 = commit().message("0").create();
+		git.update("master", commit0);
+		gcNoTtl();
+		DfsPackDescription gcBefore = odb.getPacks()[0].getPackDescription();
+		assertEquals(GC, gcBefore.getPackSource());
+
+		RevCommit commit1 = commit().message("1").parent(commit0).create();
+		RevCommit garbage = commit().message("2").parent(commit0).create();
+		git.update("master", commit1);
+		gcIncremental(false);
+
+		assertEquals(3, odb.getPacks().length);
+		assertEquals(gcBefore, odb.getPacks()[1].getPackDescription());
+		DfsPackFile compact = odb.getPacks()[0];
+		assertEquals(COMPACT, compact.getPackDescription().getPackSource());
+		assertTrue(isObjectInPack(commit1, compact));
+		assertFalse(isObjectInPack(commit0, compact));
+		assertEquals(0, countPacks(INSERT));
+		DfsPackFile unreachable = odb.getPacks()[2];
+		assertEquals(UNREACHABLE_GARBAGE,
+				unreachable.getPackDescription().getPackSource());
+		assertTrue(isObjectInPack(garbage, unreachable));
+		assertFalse(isObjectInPack(commit0, unreachable));
+	}
+
+	@Test
+	public void testIncrementalReplacesCompactPack() throws Exception {
+		RevCommit commit0 = commit().message("0").create();
+		git.update("master", commit0);
+		gcNoTtl();
+
+		RevCommit commit1 = commit().message("1").parent(commit0).create();
+		git.update("master", commit1);
+		gcIncremental(false);
+		RevCommit commit2 = commit().message("2").parent(commit1).create();
+		git.update("master", commit2);
+		gcIncremental(false);
+
+		assertEquals(2, odb.getPacks().length);
+		assertEquals(1, countPacks(GC));
+		DfsPackFile compact = odb.getPacks()[0];
+		assertEquals(COMPACT, compact.getPackDescription().getPackSource());
+		assertTrue(isObjectInPack(commit1, compact));
+		assertTrue(isObjectInPack(commit2, compact));
+	}
+
+	@Test
+	public void testIncrementalRewritesGcPackWithGarbage() throws Exception {
+		RevCommit commit0 = commit().message("0").create();
+		RevCommit side = commit().message("side").parent(commit0).create();
+		git.update("master", commit0);
+		git.update("side", side);
+		gcNoTtl();
+		DfsPackDescription gcBefore = odb.getPacks()[0].getPackDescription();
+
+		git.delete("refs/heads/side");
+		RevCommit commit1 = commit().message("1").parent(commit0).create();
+		git.update("master", commit1);
+		gcIncremental(false);
+
+		assertEquals(0, countPacks(COMPACT));
+		assertEquals(1, countPacks(GC));
+		DfsPackFile gcPack = odb.getPacks()[0];
+		assertFalse(gcBefore.equals(gcPack.getPackDescription()));
+		assertTrue(isObjectInPack(commit1, gcPack));
+		assertFalse(isObjectInPack(side, gcPack));
+	}
+
+	@Test
+	public void testIncrementalKeepsReachableGcRestPack() throws Exception {
+		RevCommit commit0 = commit().message("0").create();
+		RevCommit change = commit().message("change").parent(commit0)
+				.create();
+		git.update("master", commit0);
+		git.update("refs/changes/01/1/1", change);
+		gcNoTtl();
+		assertEquals(1, countPacks(GC_REST));
+		DfsPackDescription restBefore = packOf(GC_REST).getPackDescription();
+
+		RevCommit commit1 = commit().message("1").parent(commit0).create();
+		git.update("master", commit1);
+		gcIncremental(false);
+
+		assertEquals(1, countPacks(COMPACT));
+		assertEquals(restBefore, packOf(GC_REST).getPackDescription());
+		assertFalse(isObjectInPack(change, packOf(COMPACT)));
+	}
+
+	@Test
+	public void testIncrementalRepacksGcRestPackWithGarbage()
+			throws Exception {
+		RevCommit commit0 = commit().message("0").create();
+		RevCommit change1 = commit().message("change 1").parent(commit0)
+				.create();
+		RevCommit change2 = commit().message("change 2").parent(commit0)
+				.create();
+		git.update("master", commit0);
+		git.update("refs/changes/01/1/1", change1);
+		git.update("refs/changes/02/2/1", change2);
+		gcNoTtl();
+		DfsPackDescription gcBefore = packOf(GC).getPackDescription();
+		assertTrue(isObjectInPack(change1, packOf(GC_REST)));
+
+		git.delete("refs/changes/01/1/1");
+		gcIncremental(false);
+
+		assertEquals(gcBefore, packOf(GC).getPackDescription());
+		assertEquals(0, countPacks(GC_REST));
+		assertTrue(isObjectInPack(change2, packOf(COMPACT)));
+		assertFalse(isObjectInPack(change1, packOf(COMPACT)));
+		assertTrue(isObjectInPack(change1, packOf(UNREACHABLE_GARBAGE)));
+	}
+
+	@Test
+	public void testIncrementalKeepsGcPackWithReftable() throws Exception {
+		RevCommit commit0 = commit().message("0").create();
+		git.update("master", commit0);
+		git.update("side", commit0);
+		DfsGarbageCollector gc = new DfsGarbageCollector(repo);
+		gc.setGarbageTtl(0, TimeUnit.MILLISECONDS);
+		gc.setReftableConfig(new ReftableConfig());
+		run(gc);
+		DfsPackDescription gcBefore = packOf(GC).getPackDescription();
+		assertTrue(gcBefore.hasFileExt(REFTABLE));
+
+		git.delete("refs/heads/side");
+		RevCommit commit1 = commit().message("1").parent(commit0).create();
+		git.update("master", commit1);
+		gcIncrementalWithReftable();
+
+		assertEquals(gcBefore, packOf(GC).getPackDescription());
+		assertTrue(isObjectInPack(commit0, packOf(GC)));
+		assertTrue(isObjectInPack(commit1, packOf(COMPACT)));
+		assertFalse(isObjectInPack(commit0, packOf(COMPACT)));
+		assertRefs(commit1);
+
+		RevCommit commit2 = commit().message("2").parent(commit1).create();
+		git.update("master", commit2);
+		gcIncrementalWithReftable();
+
+		assertEquals(gcBefore, packOf(GC).getPackDescription());
+		assertTrue(isObjectInPack(commit2, packOf(COMPACT)));
+		// The reftable of the GC pack and the compacted one.
+		assertEquals(2, odb.getReftables().length);
+		assertRefs(commit2);
+	}
+
+	private void gcIncrementalWithReftable() throws IOException {
+		DfsGarbageCollector gc = new DfsGarbageCollector(repo);
+		gc.setGarbageTtl(0, TimeUnit.MILLISECONDS);
+		gc.setIncremental(true);
+		gc.setReftableConfig(new ReftableConfig());
+		run(gc);
+	}
+
+	private void assertRefs(RevCommit master) throws IOException {
+		DfsRefDatabase refdb = (DfsRefDatabase) repo.getRefDatabase();
+		refdb.clearCache();
+		assertEquals(master, refdb.exactRef("refs/heads/master").getObjectId());
+		assertNull(refdb.exactRef("refs/heads/side"));
+	}
+
+	@Test
+	public void testIncrementalWritesCommitGraph() throws Exception {
+		RevCommit commit0 = commit().message("0").create();
+		git.update("master", commit0);
+		gcWithCommitGraph();
+
+		RevCommit commit1 = commit().message("1").parent(commit0).create();
+		git.update("master", commit1);
+		gcIncremental(true);
+
+		DfsPackFile compact = odb.getPacks()[0];
+		assertEquals(COMPACT, compact.getPackDescription().getPackSource());
+		CommitGraph cg = compact.getCommitGraph(odb.newReader());
+		assertNotNull(cg);
+		assertEquals(2, cg.getCommitCnt());
+		assertTrue(cg.findGraphPosition(commit0) != -1);
+		assertTrue(cg.findGraphPosition(commit1) != -1);
+	}
+
+	private DfsPackFile packOf(PackSource source) throws IOException {
+		for (DfsPackFile pack : odb.getPacks()) {
+			if (pack.getPackDescription().getPackSource() == source) {
+				return pack;
+			}
+		}
+		throw new AssertionError(source);
+	}
+
 	private TestRepository<InMemoryRepository>.CommitBuilder commit() {
 		return git.commit();
 	}
@@ -1116,6 +1309,14 @@ private void gcNoTtl() throws IOException {
 		run(gc);
 	}
 
+	private void gcIncremental(boolean commitGraph) throws IOException {
+		DfsGarbageCollector gc = new DfsGarbageCollector(repo);
+		gc.setGarbageTtl(0, TimeUnit.MILLISECONDS); // disable TTL
+		gc.setIncremental(true);
+		gc.setWriteCommitGraph(commitGraph);
+		run(gc);
+	}
+
 	private void gcWithTtl() throws IOException {
 		// Move the clock forward by 1 minute and use the same as ttl.
 		mockSystemReader.tick(60);
@@ -0,0 +1,172 @@
+/*
+ * Copyright (C) 2023, Google LLC and others
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Distribution License v. 1.0 which is available at
+ * https://www.eclipse.org/org/documents/edl-v10.php.
+ *
+ * SPDX-License-Identifier: BSD-3-Clause
+ */
+
+package org.eclipse.jgit.internal.storage.file;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.jgit.internal.storage.pack.PackExt;
+import org.eclipse.jgit.junit.TestRepository.BranchBuilder;
+import org.eclipse.jgit.lib.RefUpdate;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.junit.Test;
+
+public class GcCruftPackTest extends GcTestCase {
+	private static final String TEMP_REF = "refs/heads/soon-to-be-unreferenced";
+
+	private RevCommit unreachable;
+
+	private void createUnreachableCommit() throws Exception {
+		BranchBuilder bb = tr.branch("refs/heads/master");
+		bb.commit().message("M").add("M", "M").create();
+		unreachable = tr.branch(TEMP_REF).commit().message("T")
+				.add("T", "T").create();
+
+		gc.setCruftPacks(true);
+		gc.setPackExpireAgeMillis(0);
+		gc.gc().get();
+		fsTick();
+
+		RefUpdate update = repo.getRefDatabase().newUpdate(TEMP_REF, false);
+		update.setForceUpdate(true);
+		update.delete();
+	}
+
+	private List<Pack> cruftPacks() throws IOException {
+		List<Pack> cruft = new ArrayList<>();
+		for (Pack p : repo.getObjectDatabase().getPacks()) {
+			if (p.isCruft()) {
+				cruft.add(p);
+			}
+		}
+		return cruft;
+	}
+
+	@Test
+	public void testUnreachableObjectsAreWrittenToCruftPack()
+			throws Exception {
+		createUnreachableCommit();
+		long packTime = repo.getObjectDatabase().getPacks().iterator().next()
+				.getPackFile().lastModified();
+
+		gc.gc().get();
+		stats = gc.getStatistics();
+		assertEquals(0, stats.numberOfLooseObjects);
+		assertEquals(6, stats.numberOfPackedObjects);
+		assertEquals(2, stats.numberOfPackFiles);
+
+		List<Pack> cruft = cruftPacks();
+		assertEquals(1, cruft.size());
+		Pack pack = cruft.get(0);
+		assertTrue(pack.getPackFile().create(PackExt.MTIMES).exists());
+		assertEquals(3, pack.getIndex().getObjectCount());
+		assertTrue(pack.hasObject(unreachable));
+		assertEquals(packTime / 1000 * 1000,
+				pack.getMtimes().getMtime(unreachable));
+		assertEquals(-1, pack.getMtimes().getMtime(tr.getRepository()
+				.resolve("refs/heads/master")));
+		assertTrue(repo.getObjectDatabase().has(unreachable));
+
+		// Cruft packs are searched last.
+		assertFalse(repo.getObjectDatabase().getPacks().iterator().next()
+				.isCruft());
+	}
+
+	@Test
+	public void testCruftPackIsRewritten() throws Exception {
+		createUnreachableCommit();
+		gc.gc().get();
+		fsTick();
+
+		gc.gc().get();
+		stats = gc.getStatistics();
+		assertEquals(0, stats.numberOfLooseObjects);
+		assertEquals(6, stats.numberOfPackedObjects);
+		assertEquals(2, stats.numberOfPackFiles);
+		assertEquals(1, cruftPacks().size());
+		assertTrue(repo.getObjectDatabase().has(unreachable));
+	}
+
+	@Test
+	public void testExpiredObjectsArePrunedFromCruftPack() throws Exception {
+		createUnreachableCommit();
+		gc.gc().get();
+		fsTick();
+
+		gc.setExpireAgeMillis(0);
+		gc.gc().get();
+		stats = gc.getStatistics();
+		assertEquals(0, stats.numberOfLooseObjects);
+		assertEquals(3, stats.numberOfPackedObjects);
+		assertEquals(1, stats.numberOfPackFiles);
+		assertTrue(cruftPacks().isEmpty());
+		assertFalse(repo.getObjectDatabase().has(unreachable));
+	}
+
+	@Test
+	public void testReferencedCruftObjectsArePackedAgain() throws Exception {
+		createUnreachableCommit();
+		gc.gc().get();
+		fsTick();
+
+		RefUpdate update = repo.getRefDatabase().newUpdate(TEMP_REF, false);
+		update.setNewObjectId(unreachable);
+		update.update();
+
+		gc.gc().get();
+		stats = gc.getStatistics();
+		assertEquals(6, stats.numberOfPackedObjects);
+		assertEquals(1, stats.numberOfPackFiles);
+		assertTrue(cruftPacks().isEmpty());
+		assertTrue(repo.getObjectDatabase().has(unreachable));
+	}
+
+	@Test
+	public void testWithoutCruftPacksObjectsAreLoosened() throws Exception {
+		createUnreachableCommit();
+		gc.setCruftPacks(false);
+		gc.gc().get();
+		stats = gc.getStatistics();
+		assertEquals(3, stats.numberOfLooseObjects);
+		assertEquals(3, stats.numberOfPackedObjects);
+		assertTrue(cruftPacks().isEmpty());
+	}
+
+	@Test
+	public void testMtimesRoundTrip() throws Exception {
+		createUnreachableCommit();
+		gc.gc().get();
+		Pack pack = cruftPacks().get(0);
+		PackIndex idx = pack.getIndex();
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		PackMtimes.write(out, idx, id -> 42_000L);
+		assertEquals(12 + 3 * 4 + 2 * 20, out.size());
+		PackMtimes mtimes = PackMtimes
+				.read(new ByteArrayInputStream(out.toByteArray()), idx);
+		assertNotNull(mtimes);
+		assertEquals(42_000L, mtimes.getMtime(unreachable));
+
+		byte[] corrupt = out.toByteArray();
+		corrupt[12] ^= 1;
+		assertThrows(IOException.class, () -> PackMtimes
+				.read(new ByteArrayInputStream(corrupt), idx));
+	}
+}
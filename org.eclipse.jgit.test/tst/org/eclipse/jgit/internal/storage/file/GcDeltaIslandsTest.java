@@ -0,0 +1,138 @@
+/*
+ * Copyright (C) 2023, Google LLC and others
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Distribution License v. 1.0 which is available at
+ * https://www.eclipse.org/org/documents/edl-v10.php.
+ *
+ * SPDX-License-Identifier: BSD-3-Clause
+ */
+
+package org.eclipse.jgit.internal.storage.file;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.Arrays;
+
+import org.eclipse.jgit.internal.storage.pack.DeltaIslands;
+import org.eclipse.jgit.lib.AnyObjectId;
+import org.eclipse.jgit.lib.ConfigConstants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.revwalk.RevBlob;
+import org.eclipse.jgit.storage.pack.PackConfig;
+import org.junit.Test;
+
+public class GcDeltaIslandsTest extends GcTestCase {
+	private static final String[] ISLANDS = { "refs/heads/(fork[0-9]+)/" };
+
+	private RevBlob base;
+
+	private RevBlob larger;
+
+	private void createBlobs() throws Exception {
+		StringBuilder b = new StringBuilder();
+		for (int i = 0; i < 1000; i++) {
+			b.append("line ").append(i).append('\n');
+		}
+		base = tr.blob(b.toString());
+		larger = tr.blob(b.append("one more line\n").toString());
+	}
+
+	private void branch(String name, RevBlob blob) throws Exception {
+		tr.branch(name).commit().add("f", blob).create();
+	}
+
+	private void gc(String... islands) throws Exception {
+		PackConfig pc = new PackConfig(repo);
+		pc.setDeltaIslands(islands);
+		gc.setPackConfig(pc);
+		gc.setPackExpireAgeMillis(0);
+		gc.gc().get();
+		assertEquals(1, gc.getStatistics().numberOfPackFiles);
+	}
+
+	private ObjectId deltaBase(AnyObjectId id) throws Exception {
+		Pack pack = repo.getObjectDatabase().getPacks().iterator().next();
+		try (WindowCursor curs = new WindowCursor(repo.getObjectDatabase())) {
+			return pack.representation(curs, id).getDeltaBase();
+		}
+	}
+
+	@Test
+	public void testWithoutIslandsObjectsAreDeltified() throws Exception {
+		createBlobs();
+		branch("refs/heads/fork1/master", base);
+		branch("refs/heads/fork2/master", larger);
+		gc();
+		assertEquals(larger, deltaBase(base));
+	}
+
+	@Test
+	public void testNoDeltaAcrossIslands() throws Exception {
+		createBlobs();
+		branch("refs/heads/fork1/master", base);
+		branch("refs/heads/fork2/master", larger);
+		gc(ISLANDS);
+		assertNull(deltaBase(base));
+		assertNull(deltaBase(larger));
+	}
+
+	@Test
+	public void testDeltaAgainstBaseInAllIslands() throws Exception {
+		createBlobs();
+		branch("refs/heads/fork1/master", base);
+		branch("refs/heads/fork1/next", larger);
+		branch("refs/heads/fork2/master", larger);
+		gc(ISLANDS);
+		assertEquals(larger, deltaBase(base));
+		assertNull(deltaBase(larger));
+	}
+
+	@Test
+	public void testIslandsOfAncestorsAndSubtrees() throws Exception {
+		createBlobs();
+		// fork2 only reaches the larger blob through an ancestor, in a
+		// subtree shared with fork1.
+		tr.branch("refs/heads/fork2/master").commit().add("d/e/f", larger)
+				.create();
+		tr.branch("refs/heads/fork2/master").commit().add("d/e/f", base)
+				.create();
+		tr.branch("refs/heads/fork1/master").commit().add("d/e/f", larger)
+				.create();
+		gc(ISLANDS);
+		assertEquals(larger, deltaBase(base));
+		assertNull(deltaBase(larger));
+	}
+
+	@Test
+	public void testDeltaAcrossIslandsIsNotReused() throws Exception {
+		createBlobs();
+		branch("refs/heads/fork1/master", base);
+		branch("refs/heads/fork2/master", larger);
+		gc();
+		assertEquals(larger, deltaBase(base));
+
+		gc(ISLANDS);
+		assertNull(deltaBase(base));
+		assertNull(deltaBase(larger));
+	}
+
+	@Test
+	public void testIslandsFromConfig() throws Exception {
+		repo.getConfig().setStringList(ConfigConstants.CONFIG_PACK_SECTION,
+				null, ConfigConstants.CONFIG_KEY_ISLAND, Arrays.asList(ISLANDS));
+		PackConfig pc = new PackConfig(repo);
+		assertEquals(Arrays.asList(ISLANDS),
+				Arrays.asList(pc.getDeltaIslands()));
+
+		createBlobs();
+		branch("refs/heads/fork1/master", base);
+		branch("refs/heads/fork2/master", larger);
+		branch("refs/heads/fork2/next", larger);
+		branch("refs/heads/other", base);
+		DeltaIslands islands = new DeltaIslands(pc.getDeltaIslands(),
+				repo.getRefDatabase().getRefs());
+		assertEquals(2, islands.getIslandCount());
+	}
+}
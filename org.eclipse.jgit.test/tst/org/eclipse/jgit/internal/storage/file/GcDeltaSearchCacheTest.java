@@ -0,0 +1,115 @@
+/*
+ * Copyright (C) 2023, Google LLC and others
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Distribution License v. 1.0 which is available at
+ * https://www.eclipse.org/org/documents/edl-v10.php.
+ *
+ * SPDX-License-Identifier: BSD-3-Clause
+ */
+
+package org.eclipse.jgit.internal.storage.file;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.nio.file.Files;
+
+import org.eclipse.jgit.internal.storage.pack.DeltaSearchCache;
+import org.eclipse.jgit.lib.AnyObjectId;
+import org.eclipse.jgit.lib.ConfigConstants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.revwalk.RevBlob;
+import org.eclipse.jgit.util.NB;
+import org.junit.Test;
+
+public class GcDeltaSearchCacheTest extends GcTestCase {
+	private File cacheFile() {
+		return new File(repo.getObjectsDirectory(), "info/delta-search-cache");
+	}
+
+	private void createHistory() throws Exception {
+		StringBuilder b = new StringBuilder();
+		for (int i = 0; i < 1000; i++) {
+			b.append("line ").append(i).append('\n');
+		}
+		tr.branch("refs/heads/master").commit().add("f", b.toString())
+				.create();
+		b.append("one more line\n");
+		tr.branch("refs/heads/master").commit().add("f", b.toString())
+				.create();
+		repo.getConfig().setBoolean(ConfigConstants.CONFIG_PACK_SECTION, null,
+				ConfigConstants.CONFIG_KEY_DELTA_SEARCH_CACHE, true);
+		gc = new GC(repo);
+	}
+
+	private int cachedCount() throws Exception {
+		byte[] buf = Files.readAllBytes(cacheFile().toPath());
+		DeltaSearchCache.read(new ByteArrayInputStream(buf));
+		return NB.decodeInt32(buf, 8);
+	}
+
+	@Test
+	public void testCacheIsWrittenByGc() throws Exception {
+		createHistory();
+		gc.gc().get();
+		assertTrue(cacheFile().exists());
+		// The blobs and the root trees.
+		assertEquals(4, cachedCount());
+
+		// The deltas of the pack are reused. The objects stored whole are
+		// not searched again, their results are kept.
+		gc.gc().get();
+		assertEquals(3, cachedCount());
+	}
+
+	@Test
+	public void testObjectWithoutBaseIsSearchedWithNewVersions()
+			throws Exception {
+		StringBuilder b = new StringBuilder();
+		for (int i = 0; i < 1000; i++) {
+			b.append("line ").append(i).append('\n');
+		}
+		RevBlob old = tr.blob(b.toString());
+		tr.branch("refs/heads/master").commit().add("f", old).create();
+		repo.getConfig().setBoolean(ConfigConstants.CONFIG_PACK_SECTION, null,
+				ConfigConstants.CONFIG_KEY_DELTA_SEARCH_CACHE, true);
+		gc = new GC(repo);
+		gc.setPackExpireAgeMillis(0);
+		gc.gc().get();
+		assertNull(deltaBase(old));
+
+		// A new version of the path is a better base than none.
+		RevBlob larger = tr.blob(b.append("one more line\n").toString());
+		tr.branch("refs/heads/master").commit().add("f", larger).create();
+		gc.gc().get();
+		assertEquals(larger, deltaBase(old));
+	}
+
+	private ObjectId deltaBase(AnyObjectId id) throws Exception {
+		Pack pack = repo.getObjectDatabase().getPacks().iterator().next();
+		try (WindowCursor curs = new WindowCursor(repo.getObjectDatabase())) {
+			return pack.representation(curs, id).getDeltaBase();
+		}
+	}
+
+	@Test
+	public void testCorruptCacheIsReplaced() throws Exception {
+		createHistory();
+		Files.createDirectories(cacheFile().getParentFile().toPath());
+		Files.write(cacheFile().toPath(), new byte[] { 'D', 'S', 'R', 'C' });
+		gc.gc().get();
+		assertEquals(4, cachedCount());
+	}
+
+	@Test
+	public void testCacheIsDisabledByDefault() throws Exception {
+		tr.branch("refs/heads/master").commit().add("f", "f").create();
+		gc.gc().get();
+		assertFalse(cacheFile().exists());
+	}
+}
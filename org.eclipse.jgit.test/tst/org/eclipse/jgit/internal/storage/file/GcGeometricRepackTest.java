@@ -0,0 +1,129 @@
+/*
+ * Copyright (C) 2023, Google LLC and others
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Distribution License v. 1.0 which is available at
+ * https://www.eclipse.org/org/documents/edl-v10.php.
+ *
+ * SPDX-License-Identifier: BSD-3-Clause
+ */
+
+package org.eclipse.jgit.internal.storage.file;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.eclipse.jgit.junit.TestRepository.BranchBuilder;
+import org.eclipse.jgit.junit.TestRepository.CommitBuilder;
+import org.eclipse.jgit.lib.ConfigConstants;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.junit.Test;
+
+public class GcGeometricRepackTest extends GcTestCase {
+	private BranchBuilder bb;
+
+	private int next;
+
+	private RevCommit commit() throws Exception {
+		next++;
+		return bb.commit().add("f" + next, "new " + next).create();
+	}
+
+	private Pack createBasePack() throws Exception {
+		bb = tr.branch("refs/heads/master");
+		CommitBuilder cb = bb.commit();
+		for (int i = 0; i < 20; i++) {
+			cb.add("base" + i, "" + i);
+		}
+		cb.create();
+		gc.gc().get();
+		gc.setGeometricFactor(2);
+		return repo.getObjectDatabase().getPacks().iterator().next();
+	}
+
+	private Set<String> packNames() {
+		Set<String> names = new HashSet<>();
+		for (Pack p : repo.getObjectDatabase().getPacks()) {
+			names.add(p.getPackName());
+		}
+		return names;
+	}
+
+	@Test
+	public void testGeometricSplit() {
+		assertEquals(0, GC.geometricSplit(new long[0], 2));
+		assertEquals(0, GC.geometricSplit(new long[] { 5 }, 2));
+		assertEquals(0, GC.geometricSplit(new long[] { 1, 2, 4 }, 2));
+		assertEquals(2, GC.geometricSplit(new long[] { 1, 1, 8 }, 2));
+		assertEquals(2, GC.geometricSplit(new long[] { 3, 5, 100 }, 2));
+		assertEquals(3, GC.geometricSplit(new long[] { 1, 1, 4 }, 2));
+		assertEquals(0, GC.geometricSplit(new long[] { 1, 3, 9 }, 3));
+		assertEquals(3, GC.geometricSplit(new long[] { 1, 3, 8 }, 3));
+	}
+
+	@Test
+	public void testLooseObjectsArePackedSeparately() throws Exception {
+		Pack base = createBasePack();
+		RevCommit c = commit();
+
+		gc.gc().get();
+		stats = gc.getStatistics();
+		assertEquals(0, stats.numberOfLooseObjects);
+		assertEquals(25, stats.numberOfPackedObjects);
+		assertEquals(2, stats.numberOfPackFiles);
+		assertEquals(1, stats.numberOfBitmaps);
+		assertTrue(packNames().contains(base.getPackName()));
+		assertTrue(repo.getObjectDatabase().has(c));
+	}
+
+	@Test
+	public void testSmallPacksAreCombined() throws Exception {
+		Pack base = createBasePack();
+		commit();
+		gc.gc().get();
+		commit();
+		gc.gc().get();
+		assertEquals(3, gc.getStatistics().numberOfPackFiles);
+
+		RevCommit c = commit();
+		gc.gc().get();
+		stats = gc.getStatistics();
+		assertEquals(0, stats.numberOfLooseObjects);
+		assertEquals(31, stats.numberOfPackedObjects);
+		assertEquals(2, stats.numberOfPackFiles);
+		assertTrue(packNames().contains(base.getPackName()));
+		assertTrue(repo.getObjectDatabase().has(c));
+	}
+
+	@Test
+	public void testAllPacksAreCombinedWithFullRepack() throws Exception {
+		createBasePack();
+		gc.setPackExpireAgeMillis(0);
+		for (int i = 0; i < 6; i++) {
+			commit();
+			gc.gc().get();
+		}
+		stats = gc.getStatistics();
+		assertEquals(0, stats.numberOfLooseObjects);
+		assertEquals(1, stats.numberOfPackFiles);
+		assertEquals(22 + 6 * 3, stats.numberOfPackedObjects);
+		// The new bitmap index covers all seven commits.
+		assertEquals(7, stats.numberOfBitmaps);
+	}
+
+	@Test
+	public void testFactorFromConfig() throws Exception {
+		Pack base = createBasePack();
+		repo.getConfig().setInt(ConfigConstants.CONFIG_GC_SECTION, null,
+				ConfigConstants.CONFIG_KEY_GEOMETRIC_FACTOR, 2);
+		gc = new GC(repo);
+		commit();
+
+		gc.gc().get();
+		assertEquals(2, gc.getStatistics().numberOfPackFiles);
+		assertTrue(packNames().contains(base.getPackName()));
+	}
+}
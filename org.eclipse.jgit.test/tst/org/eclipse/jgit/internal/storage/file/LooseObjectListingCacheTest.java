@@ -0,0 +1,122 @@
+/*
+ * Copyright (C) 2023, Google LLC and others
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Distribution License v. 1.0 which is available at
+ * https://www.eclipse.org/org/documents/edl-v10.php.
+ *
+ * SPDX-License-Identifier: BSD-3-Clause
+ */
+
+package org.eclipse.jgit.internal.storage.file;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.jgit.internal.storage.file.LooseObjectListingCache.Presence;
+import org.eclipse.jgit.junit.RepositoryTestCase;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectInserter;
+import org.eclipse.jgit.util.FileUtils;
+import org.junit.Test;
+
+public class LooseObjectListingCacheTest extends RepositoryTestCase {
+	private static ObjectId id(int i) {
+		return ObjectId.fromString(String.format("ab%038x", //$NON-NLS-1$
+				Integer.valueOf(i)));
+	}
+
+	private File objects() {
+		return db.getObjectDatabase().getDirectory();
+	}
+
+	private void touch(ObjectId id) throws Exception {
+		File f = db.getObjectDatabase().fileFor(id);
+		FileUtils.mkdirs(f.getParentFile(), true);
+		FileUtils.createNewFile(f);
+	}
+
+	@Test
+	public void testLookupFollowsDirectory() throws Exception {
+		LooseObjectListingCache cache = new LooseObjectListingCache(
+				objects());
+		assertEquals(Presence.MISSING, cache.lookup(id(1)));
+
+		touch(id(1));
+		cache.newRound();
+		assertEquals(Presence.FOUND, cache.lookup(id(1)));
+		assertEquals(Presence.MISSING, cache.lookup(id(2)));
+
+		FileUtils.delete(db.getObjectDatabase().fileFor(id(1)));
+		cache.newRound();
+		assertEquals(Presence.MISSING, cache.lookup(id(1)));
+	}
+
+	@Test
+	public void testDirectoryStatedOncePerRound() throws Exception {
+		for (int i = 0; i < 16; i++) {
+			touch(id(i));
+		}
+		AtomicInteger stats = new AtomicInteger();
+		LooseObjectListingCache cache = new LooseObjectListingCache(
+				objects()) {
+			@Override
+			boolean isModified(FileSnapshot snapshot, File dir) {
+				stats.incrementAndGet();
+				return super.isModified(snapshot, dir);
+			}
+		};
+		for (int i = 0; i < 32; i++) {
+			assertEquals(i < 16 ? Presence.FOUND : Presence.MISSING,
+					cache.lookup(id(i)));
+		}
+		assertEquals(0, stats.get());
+
+		cache.newRound();
+		for (int i = 0; i < 32; i++) {
+			cache.lookup(id(i));
+		}
+		assertEquals(1, stats.get());
+
+		touch(id(100));
+		cache.invalidate(id(100));
+		assertEquals(Presence.FOUND, cache.lookup(id(100)));
+		assertEquals(Presence.FOUND, cache.lookup(id(0)));
+	}
+
+	@Test
+	public void testModifiedDirectoryNotListedOnEveryLookup()
+			throws Exception {
+		for (int i = 0; i < 128; i++) {
+			touch(id(i));
+		}
+		LooseObjectListingCache cache = new LooseObjectListingCache(
+				objects());
+		assertEquals(Presence.FOUND, cache.lookup(id(0)));
+
+		touch(id(1000));
+		cache.newRound();
+		assertEquals(Presence.UNKNOWN, cache.lookup(id(1000)));
+		assertEquals(Presence.UNKNOWN, cache.lookup(id(1000)));
+		assertEquals(Presence.FOUND, cache.lookup(id(1000)));
+	}
+
+	@Test
+	public void testHasAfterInsert() throws Exception {
+		ObjectId blob;
+		try (ObjectInserter ins = db.newObjectInserter()) {
+			assertFalse(db.getObjectDatabase().has(id(7)));
+			blob = ins.insert(Constants.OBJ_BLOB, new byte[] { 'a' });
+		}
+		ObjectDirectory odb = db.getObjectDatabase();
+		odb.close();
+		assertTrue(odb.has(blob));
+		assertFalse(odb.has(id(7)));
+		assertEquals(1, db.open(blob).getSize());
+	}
+}
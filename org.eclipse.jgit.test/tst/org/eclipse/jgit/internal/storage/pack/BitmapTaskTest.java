@@ -0,0 +1,170 @@
+/*
+ * Copyright (C) 2023, Google LLC and others
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Distribution License v. 1.0 which is available at
+ * https://www.eclipse.org/org/documents/edl-v10.php.
+ *
+ * SPDX-License-Identifier: BSD-3-Clause
+ */
+
+package org.eclipse.jgit.internal.storage.pack;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.jgit.internal.storage.dfs.DfsRepositoryDescription;
+import org.eclipse.jgit.internal.storage.dfs.InMemoryRepository;
+import org.eclipse.jgit.junit.TestRepository;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.NullProgressMonitor;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.storage.pack.PackConfig;
+import org.eclipse.jgit.storage.pack.PackStatistics;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class BitmapTaskTest {
+	private static final int BRANCHES = 6;
+
+	private InMemoryRepository repo;
+
+	private Set<ObjectId> tips;
+
+	@Before
+	public void setUp() throws Exception {
+		repo = new InMemoryRepository(new DfsRepositoryDescription("test"));
+		tips = new HashSet<>();
+		try (TestRepository<InMemoryRepository> tr = new TestRepository<>(
+				repo)) {
+			RevCommit root = tr.commit().add("root", "root").create();
+			for (int b = 0; b < BRANCHES; b++) {
+				RevCommit c = root;
+				for (int i = 0; i < 150; i++) {
+					c = tr.commit().parent(c).add("b" + b, "b" + b + "/" + i)
+							.create();
+				}
+				tips.add(c.copy());
+			}
+		}
+	}
+
+	@After
+	public void tearDown() {
+		repo.close();
+	}
+
+	private byte[] writeBitmaps(PackConfig pc, List<PackStatistics> stats)
+			throws Exception {
+		pc.setBuildBitmaps(true);
+		try (PackWriter pw = new PackWriter(pc, repo.newObjectReader())) {
+			pw.preparePack(NullProgressMonitor.INSTANCE, tips,
+					Collections.<ObjectId> emptySet());
+			pw.writePack(NullProgressMonitor.INSTANCE,
+					NullProgressMonitor.INSTANCE, new ByteArrayOutputStream());
+			pw.writeIndex(new ByteArrayOutputStream());
+			assertTrue(pw.prepareBitmapIndex(NullProgressMonitor.INSTANCE));
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			pw.writeBitmapIndex(out);
+			stats.add(pw.getStatistics());
+			return out.toByteArray();
+		}
+	}
+
+	@Test
+	public void testParallelBitmapsMatchSingleThread() throws Exception {
+		List<PackStatistics> stats = new ArrayList<>();
+		PackConfig pc = new PackConfig();
+		pc.setThreads(1);
+		byte[] single = writeBitmaps(pc, stats);
+
+		pc = new PackConfig();
+		pc.setThreads(4);
+		assertArrayEquals(single, writeBitmaps(pc, stats));
+
+		ForkJoinPool pool = new ForkJoinPool(3);
+		try {
+			pc = new PackConfig();
+			pc.setThreads(3);
+			pc.setExecutor(pool);
+			assertArrayEquals(single, writeBitmaps(pc, stats));
+		} finally {
+			pool.shutdown();
+		}
+
+		// One of the runners only starts once another one is done.
+		ExecutorService fixed = Executors.newFixedThreadPool(2);
+		try {
+			pc = new PackConfig();
+			pc.setThreads(3);
+			pc.setExecutor(fixed);
+			assertArrayEquals(single, writeBitmaps(pc, stats));
+		} finally {
+			fixed.shutdown();
+		}
+
+		// The runners build all chains on the calling thread, one after the
+		// other.
+		pc = new PackConfig();
+		pc.setThreads(2);
+		pc.setExecutor(Runnable::run);
+		assertArrayEquals(single, writeBitmaps(pc, stats));
+
+		for (PackStatistics s : stats) {
+			assertTrue(s.getTimeBuildingBitmaps() >= 0);
+			assertTrue(s.getTimeWritingIndex() >= 0);
+			assertTrue(s.getTimeWritingIndex()
+					+ s.getTimeWritingBitmapIndex() <= s.getTimeWriting());
+		}
+	}
+
+	@Test(timeout = 60_000)
+	public void testRejectedRunnerFailsBitmaps() throws Exception {
+		// The first runner builds all chains on the calling thread, the
+		// second one is rejected.
+		AtomicInteger executed = new AtomicInteger();
+		PackConfig pc = new PackConfig();
+		pc.setDeltaCompress(false);
+		pc.setThreads(2);
+		pc.setExecutor(r -> {
+			if (executed.getAndIncrement() > 0) {
+				throw new RejectedExecutionException();
+			}
+			r.run();
+		});
+		assertThrows(RejectedExecutionException.class,
+				() -> writeBitmaps(pc, new ArrayList<>()));
+		assertEquals(2, executed.get());
+	}
+
+	@Test
+	public void testTasksSplitAtNewWalker() {
+		boolean[] reuse = { false, true, true, false, false, true };
+		List<BitmapCommit> commits = new ArrayList<>();
+		for (int i = 0; i < reuse.length; i++) {
+			byte[] raw = new byte[Constants.OBJECT_ID_LENGTH];
+			raw[0] = (byte) i;
+			commits.add(BitmapCommit.newBuilder(ObjectId.fromRaw(raw))
+					.setReuseWalker(reuse[i]).build());
+		}
+		List<BitmapTask> tasks = new BitmapTask.Block(null, null, null, null,
+				commits, 2).tasks();
+		assertEquals(3, tasks.size());
+	}
+}
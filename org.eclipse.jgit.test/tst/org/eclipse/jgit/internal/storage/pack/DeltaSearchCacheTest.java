@@ -0,0 +1,162 @@
+/*
+ * Copyright (C) 2023, Google LLC and others
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Distribution License v. 1.0 which is available at
+ * https://www.eclipse.org/org/documents/edl-v10.php.
+ *
+ * SPDX-License-Identifier: BSD-3-Clause
+ */
+
+package org.eclipse.jgit.internal.storage.pack;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Random;
+
+import org.eclipse.jgit.internal.storage.dfs.DfsRepositoryDescription;
+import org.eclipse.jgit.internal.storage.dfs.InMemoryRepository;
+import org.eclipse.jgit.junit.TestRepository;
+import org.eclipse.jgit.junit.TestRepository.CommitBuilder;
+import org.eclipse.jgit.lib.NullProgressMonitor;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.revwalk.RevBlob;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.storage.pack.PackConfig;
+import org.eclipse.jgit.storage.pack.PackStatistics;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class DeltaSearchCacheTest {
+	private static final int FILES = 20;
+
+	private InMemoryRepository repo;
+
+	private TestRepository<InMemoryRepository> tr;
+
+	private RevBlob[][] blobs;
+
+	private RevCommit tip;
+
+	@Before
+	public void setUp() throws Exception {
+		repo = new InMemoryRepository(new DfsRepositoryDescription("test"));
+		tr = new TestRepository<>(repo);
+
+		// Unrelated files of the same name whose versions sort far apart by
+		// size, so that a search by path hash does not find their deltas.
+		blobs = new RevBlob[2][FILES];
+		RevCommit parent = null;
+		for (int v = 0; v < 2; v++) {
+			CommitBuilder cb = tr.commit();
+			if (parent != null) {
+				cb.parent(parent);
+			}
+			for (int f = 0; f < FILES; f++) {
+				Random rnd = new Random(f);
+				StringBuilder b = new StringBuilder();
+				for (int i = 0; i < 100 + 5 * f + 200 * v; i++) {
+					b.append(Long.toHexString(rnd.nextLong())).append('\n');
+				}
+				blobs[v][f] = tr.blob(b.toString());
+				cb.add("d" + f + "/package.json", blobs[v][f]);
+			}
+			parent = cb.create();
+		}
+		tip = parent;
+	}
+
+	@After
+	public void tearDown() {
+		tr.close();
+		repo.close();
+	}
+
+	private PackStatistics pack(boolean pathWalk, DeltaSearchCache cache)
+			throws Exception {
+		PackConfig pc = new PackConfig();
+		pc.setThreads(1);
+		pc.setDeltaSearchWindowSize(3);
+		pc.setReuseDeltas(false);
+		pc.setPathWalk(pathWalk);
+		try (PackWriter pw = new PackWriter(pc, repo.newObjectReader())) {
+			pw.setDeltaSearchCache(cache);
+			pw.preparePack(NullProgressMonitor.INSTANCE,
+					Collections.singleton(tip.copy()),
+					Collections.<ObjectId> emptySet());
+			pw.writePack(NullProgressMonitor.INSTANCE,
+					NullProgressMonitor.INSTANCE, new ByteArrayOutputStream());
+			return pw.getStatistics();
+		}
+	}
+
+	private static DeltaSearchCache roundTrip(DeltaSearchCache cache)
+			throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		cache.write(out);
+		return DeltaSearchCache
+				.read(new ByteArrayInputStream(out.toByteArray()));
+	}
+
+	@Test
+	public void testCachedBasesAreReused() throws Exception {
+		assertTrue(pack(false, null).getTotalDeltas() < FILES);
+
+		DeltaSearchCache cache = new DeltaSearchCache();
+		assertTrue(pack(true, cache).getTotalDeltas() >= FILES);
+		assertTrue(cache.getRecordedCount() >= 2 * FILES);
+
+		// The deltas found by path are found again without searching.
+		cache = roundTrip(cache);
+		assertTrue(pack(false, cache).getTotalDeltas() >= FILES);
+	}
+
+	@Test
+	public void testObjectsWithoutBaseAreNotSearched() throws Exception {
+		DeltaSearchCache cache = new DeltaSearchCache();
+		for (int f = 0; f < FILES; f++) {
+			cache.record(blobs[0][f], null);
+			cache.record(blobs[1][f], null);
+		}
+		cache = roundTrip(cache);
+		assertEquals(ObjectId.zeroId(), cache.getBase(blobs[0][0]));
+		assertNull(cache.getBase(tip));
+
+		assertTrue(pack(true, null).getTotalDeltas() >= FILES);
+		assertEquals(0, pack(true, cache).getTotalDeltas());
+	}
+
+	@Test
+	public void testUnusableBaseIsSearched() throws Exception {
+		DeltaSearchCache cache = new DeltaSearchCache();
+		for (int f = 0; f < FILES; f++) {
+			// A commit cannot be the base of a blob.
+			cache.record(blobs[0][f], tip);
+		}
+		cache = roundTrip(cache);
+		assertTrue(pack(true, cache).getTotalDeltas() >= FILES);
+	}
+
+	@Test
+	public void testCorruptCache() throws Exception {
+		DeltaSearchCache cache = new DeltaSearchCache();
+		cache.record(blobs[0][0], blobs[1][0]);
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		cache.write(out);
+		assertEquals(12 + 40 + 20, out.size());
+		assertEquals(blobs[1][0], roundTrip(cache).getBase(blobs[0][0]));
+
+		byte[] corrupt = out.toByteArray();
+		corrupt[20] ^= 1;
+		assertThrows(IOException.class, () -> DeltaSearchCache
+				.read(new ByteArrayInputStream(corrupt)));
+	}
+}
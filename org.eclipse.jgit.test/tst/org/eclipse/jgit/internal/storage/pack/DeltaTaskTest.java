@@ -0,0 +1,247 @@
+/*
+ * Copyright (C) 2023, Google LLC and others
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Distribution License v. 1.0 which is available at
+ * https://www.eclipse.org/org/documents/edl-v10.php.
+ *
+ * SPDX-License-Identifier: BSD-3-Clause
+ */
+
+package org.eclipse.jgit.internal.storage.pack;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Collections;
+import java.util.Queue;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.jgit.internal.storage.dfs.DfsRepositoryDescription;
+import org.eclipse.jgit.internal.storage.dfs.InMemoryRepository;
+import org.eclipse.jgit.junit.TestRepository;
+import org.eclipse.jgit.junit.TestRepository.CommitBuilder;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.NullProgressMonitor;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.storage.pack.PackConfig;
+import org.eclipse.jgit.storage.pack.PackStatistics;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class DeltaTaskTest {
+	private static final int FILES = 20;
+
+	private InMemoryRepository repo;
+
+	private TestRepository<InMemoryRepository> tr;
+
+	private RevCommit tip;
+
+	@Before
+	public void setUp() throws Exception {
+		repo = new InMemoryRepository(new DfsRepositoryDescription("test"));
+		tr = new TestRepository<>(repo);
+
+		RevCommit parent = null;
+		for (int v = 0; v < 2; v++) {
+			CommitBuilder cb = tr.commit();
+			if (parent != null) {
+				cb.parent(parent);
+			}
+			for (int f = 0; f < FILES; f++) {
+				Random rnd = new Random(f);
+				StringBuilder b = new StringBuilder();
+				for (int i = 0; i < 100 + 50 * v; i++) {
+					b.append(Long.toHexString(rnd.nextLong())).append('\n');
+				}
+				cb.add("f" + f, b.toString());
+			}
+			parent = cb.create();
+		}
+		tip = parent;
+	}
+
+	@After
+	public void tearDown() {
+		tr.close();
+		repo.close();
+	}
+
+	private PackStatistics pack(PackConfig pc) throws Exception {
+		pc.setReuseDeltas(false);
+		try (PackWriter pw = new PackWriter(pc, repo.newObjectReader())) {
+			pw.preparePack(NullProgressMonitor.INSTANCE,
+					Collections.singleton(tip.copy()),
+					Collections.<ObjectId> emptySet());
+			pw.writePack(NullProgressMonitor.INSTANCE,
+					NullProgressMonitor.INSTANCE, new ByteArrayOutputStream());
+			return pw.getStatistics();
+		}
+	}
+
+	private static ObjectToPack[] objects(int[] pathHashes, int[] weights) {
+		ObjectToPack[] list = new ObjectToPack[pathHashes.length];
+		for (int i = 0; i < list.length; i++) {
+			byte[] raw = new byte[Constants.OBJECT_ID_LENGTH];
+			raw[0] = (byte) i;
+			list[i] = new ObjectToPack(ObjectId.fromRaw(raw),
+					Constants.OBJ_BLOB);
+			list[i].setPathHash(pathHashes[i]);
+			list[i].setWeight(weights[i]);
+		}
+		return list;
+	}
+
+	private static DeltaTask.Block block(ObjectToPack[] list) {
+		return block(list, false);
+	}
+
+	private static DeltaTask.Block block(ObjectToPack[] list,
+			boolean byPath) {
+		PackConfig pc = new PackConfig();
+		pc.setDeltaSearchWindowSize(3);
+		return new DeltaTask.Block(2, pc, null, null, byPath, null, null,
+				list, 0, list.length);
+	}
+
+	@Test
+	public void testSplitByWeightOnPathBoundary() {
+		int[] paths = { 1, 1, 1, 2, 2, 2, 3, 3, 3, 4, 4, 4 };
+		int[] weights = { 100, 100, 100, 100, 100, 100, 100, 100, 100, 100,
+				100, 100 };
+		assertEquals(6, block(objects(paths, weights)).split(0, 12));
+
+		// The middle of the weight falls in the first path.
+		weights[0] = 10000;
+		assertEquals(3, block(objects(paths, weights)).split(0, 12));
+
+		// The middle of the weight falls in the last path.
+		weights[0] = 100;
+		weights[11] = 10000;
+		assertEquals(9, block(objects(paths, weights)).split(0, 12));
+	}
+
+	@Test
+	public void testNoSplitWithinPath() {
+		int[] paths = new int[12];
+		int[] weights = new int[12];
+		for (int i = 0; i < weights.length; i++) {
+			paths[i] = 7;
+			weights[i] = 100;
+		}
+		assertEquals(-1, block(objects(paths, weights)).split(0, 12));
+	}
+
+	@Test
+	public void testNoSplitOfLightRange() {
+		int[] paths = { 1, 1, 1, 2, 2, 2, 3, 3, 3, 4, 4, 4 };
+		int[] weights = { 10000, 10000, 10000, 1, 1, 1, 1, 1, 1, 1, 1, 1 };
+		DeltaTask.Block b = block(objects(paths, weights));
+		assertEquals(3, b.split(0, 12));
+		assertEquals(-1, b.split(3, 12));
+	}
+
+	@Test
+	public void testSplitByFullPathInPathPass() {
+		int[] paths = { 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1 };
+		int[] weights = { 100, 100, 100, 100, 100, 100, 100, 100, 100, 100,
+				100, 100 };
+		ObjectToPack[] list = objects(paths, weights);
+		// The names share their last characters, the full paths differ.
+		for (int i = 0; i < list.length; i++) {
+			list[i].setFullPathHash(1 + i / 3);
+		}
+		assertEquals(-1, block(list, false).split(0, 12));
+		assertEquals(6, block(list, true).split(0, 12));
+	}
+
+	@Test
+	public void testSplitUpFront() {
+		int[] paths = { 1, 1, 1, 2, 2, 2, 3, 3, 3, 4, 4, 4 };
+		int[] weights = { 10000, 10000, 10000, 1, 1, 1, 1, 1, 1, 1, 1, 1 };
+		Queue<DeltaTask> tasks = block(objects(paths, weights)).tasks();
+		assertEquals(2, tasks.size());
+	}
+
+	@Test
+	public void testParallelSearch() throws Exception {
+		PackConfig pc = new PackConfig();
+		pc.setThreads(1);
+		PackStatistics single = pack(pc);
+		assertTrue(single.getTotalDeltas() >= FILES);
+		assertEquals(0, single.getTimeCompressingPerThread().length);
+
+		pc = new PackConfig();
+		pc.setThreads(4);
+		PackStatistics parallel = pack(pc);
+		assertEquals(single.getTotalDeltas(), parallel.getTotalDeltas());
+		long[] busy = parallel.getTimeCompressingPerThread();
+		double[] utilization = parallel.getDeltaSearchThreadUtilization();
+		assertTrue(busy.length >= 1 && busy.length <= 4);
+		assertEquals(busy.length, utilization.length);
+		for (double u : utilization) {
+			assertTrue(u >= 0 && u <= 1);
+		}
+	}
+
+	@Test
+	public void testParallelSearchOnExecutor() throws Exception {
+		ForkJoinPool pool = new ForkJoinPool(3);
+		try {
+			PackConfig pc = new PackConfig();
+			pc.setThreads(3);
+			pc.setExecutor(pool);
+			PackStatistics stats = pack(pc);
+			assertTrue(stats.getTotalDeltas() >= FILES);
+			assertTrue(stats.getTimeCompressingPerThread().length <= 3);
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	@Test
+	public void testParallelSearchOnOtherExecutor() throws Exception {
+		ExecutorService pool = Executors.newFixedThreadPool(3);
+		AtomicInteger executed = new AtomicInteger();
+		try {
+			PackConfig pc = new PackConfig();
+			pc.setThreads(3);
+			pc.setExecutor(r -> {
+				executed.incrementAndGet();
+				pool.execute(r);
+			});
+			PackStatistics stats = pack(pc);
+			assertTrue(stats.getTotalDeltas() >= FILES);
+			assertTrue(executed.get() > 0);
+			assertTrue(stats.getTimeCompressingPerThread().length <= 3);
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	@Test
+	public void testParallelSearchOnCallingThread() throws Exception {
+		PackConfig pc = new PackConfig();
+		pc.setThreads(3);
+		pc.setExecutor(Runnable::run);
+		PackStatistics stats = pack(pc);
+		assertTrue(stats.getTotalDeltas() >= FILES);
+		assertEquals(1, stats.getTimeCompressingPerThread().length);
+	}
+
+	@Test
+	public void testParallelSearchWithSharedMemoryLimit() throws Exception {
+		PackConfig pc = new PackConfig();
+		pc.setThreads(4);
+		pc.setDeltaSearchMemoryLimit(64 * 1024);
+		assertTrue(pack(pc).getTotalDeltas() >= FILES);
+	}
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright (C) 2023, Google LLC and others
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Distribution License v. 1.0 which is available at
+ * https://www.eclipse.org/org/documents/edl-v10.php.
+ *
+ * SPDX-License-Identifier: BSD-3-Clause
+ */
+
+package org.eclipse.jgit.internal.storage.pack;
+
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Collections;
+import java.util.Random;
+
+import org.eclipse.jgit.internal.storage.dfs.DfsRepositoryDescription;
+import org.eclipse.jgit.internal.storage.dfs.InMemoryRepository;
+import org.eclipse.jgit.junit.TestRepository;
+import org.eclipse.jgit.junit.TestRepository.CommitBuilder;
+import org.eclipse.jgit.lib.Config;
+import org.eclipse.jgit.lib.ConfigConstants;
+import org.eclipse.jgit.lib.NullProgressMonitor;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.storage.pack.PackConfig;
+import org.eclipse.jgit.storage.pack.PackStatistics;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class PackWriterPathWalkTest {
+	private static final int FILES = 20;
+
+	private InMemoryRepository repo;
+
+	private TestRepository<InMemoryRepository> tr;
+
+	private RevCommit tip;
+
+	@Before
+	public void setUp() throws Exception {
+		repo = new InMemoryRepository(new DfsRepositoryDescription("test"));
+		tr = new TestRepository<>(repo);
+
+		// Unrelated files of the same name whose versions sort far apart by
+		// size, so that the versions of one file never share a delta window.
+		String[][] contents = new String[FILES][];
+		for (int f = 0; f < FILES; f++) {
+			contents[f] = lines(new Random(f), 400);
+		}
+		RevCommit parent = null;
+		for (int v = 0; v < 2; v++) {
+			CommitBuilder cb = tr.commit();
+			if (parent != null) {
+				cb.parent(parent);
+			}
+			for (int f = 0; f < FILES; f++) {
+				cb.add("d" + f + "/package.json",
+						join(contents[f], 100 + 5 * f + 200 * v));
+			}
+			parent = cb.create();
+		}
+		tip = parent;
+	}
+
+	@After
+	public void tearDown() {
+		tr.close();
+		repo.close();
+	}
+
+	private static String[] lines(Random rnd, int n) {
+		String[] lines = new String[n];
+		for (int i = 0; i < n; i++) {
+			lines[i] = Long.toHexString(rnd.nextLong()) + '\n';
+		}
+		return lines;
+	}
+
+	private static String join(String[] lines, int n) {
+		StringBuilder b = new StringBuilder();
+		for (int i = 0; i < n; i++) {
+			b.append(lines[i]);
+		}
+		return b.toString();
+	}
+
+	private PackStatistics pack(boolean pathWalk) throws Exception {
+		PackConfig pc = new PackConfig();
+		pc.setThreads(1);
+		pc.setDeltaSearchWindowSize(3);
+		pc.setReuseDeltas(false);
+		pc.setPathWalk(pathWalk);
+		try (PackWriter pw = new PackWriter(pc, repo.newObjectReader())) {
+			pw.preparePack(NullProgressMonitor.INSTANCE,
+					Collections.singleton(tip.copy()),
+					Collections.<ObjectId> emptySet());
+			pw.writePack(NullProgressMonitor.INSTANCE,
+					NullProgressMonitor.INSTANCE, new ByteArrayOutputStream());
+			return pw.getStatistics();
+		}
+	}
+
+	@Test
+	public void testPathWalkFindsDeltasPerPath() throws Exception {
+		PackStatistics byName = pack(false);
+		PackStatistics byPath = pack(true);
+		assertTrue(byName.getTotalDeltas() < FILES);
+		// One version of every file is stored as a delta of the other.
+		assertTrue(byPath.getTotalDeltas() >= FILES);
+		assertTrue(byPath.getTotalBytes() < byName.getTotalBytes());
+	}
+
+	@Test
+	public void testPathWalkFromConfig() {
+		Config c = new Config();
+		c.setBoolean(ConfigConstants.CONFIG_PACK_SECTION, null,
+				ConfigConstants.CONFIG_KEY_USE_PATH_WALK, true);
+		PackConfig pc = new PackConfig(c);
+		assertTrue(pc.isPathWalk());
+	}
+}
@@ -0,0 +1,159 @@
+/*
+ * Copyright (C) 2023, Google LLC and others
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Distribution License v. 1.0 which is available at
+ * https://www.eclipse.org/org/documents/edl-v10.php.
+ *
+ * SPDX-License-Identifier: BSD-3-Clause
+ */
+
+package org.eclipse.jgit.internal.storage.pack;
+
+import static org.eclipse.jgit.lib.Constants.OBJ_BLOB;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.Collections;
+import java.util.Random;
+
+import org.eclipse.jgit.internal.storage.dfs.DfsRepositoryDescription;
+import org.eclipse.jgit.internal.storage.dfs.InMemoryRepository;
+import org.eclipse.jgit.junit.TestRepository;
+import org.eclipse.jgit.lib.NullProgressMonitor;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectInserter;
+import org.eclipse.jgit.lib.ObjectLoader;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.revwalk.RevBlob;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.storage.pack.PackConfig;
+import org.eclipse.jgit.storage.pack.PackStatistics;
+import org.eclipse.jgit.transport.PackParser;
+import org.junit.Test;
+
+public class StreamingDeltaEncoderTest {
+	private static final int CHUNK = 4096;
+
+	private static byte[] random(int seed, int len) {
+		byte[] b = new byte[len];
+		new Random(seed).nextBytes(b);
+		return b;
+	}
+
+	/** Edit a copy of the data as a new version of a binary file would. */
+	private static byte[] edit(byte[] base) {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		out.write(base, 0, 1000);
+		out.write(random(1, 300), 0, 300);
+		out.write(base, 1000, 20000);
+		out.write(base, 21500, base.length - 21500);
+		byte[] res = out.toByteArray();
+		res[res.length / 2] ^= 1;
+		return res;
+	}
+
+	private static byte[] encode(byte[] base, byte[] res, int limit,
+			boolean fits) throws Exception {
+		ByteArrayOutputStream delta = new ByteArrayOutputStream();
+		assertEquals(Boolean.valueOf(fits),
+				Boolean.valueOf(new StreamingDeltaEncoder(CHUNK).encode(delta,
+						new ObjectLoader.SmallObject(OBJ_BLOB, base),
+						new ObjectLoader.SmallObject(OBJ_BLOB, res), limit)));
+		return delta.toByteArray();
+	}
+
+	@Test
+	public void testEncodeEditedCopy() throws Exception {
+		byte[] base = random(0, 100000);
+		byte[] res = edit(base);
+		byte[] delta = encode(base, res, 0, true);
+		assertTrue(delta.length < res.length / 10);
+		assertArrayEquals(res, BinaryDelta.apply(base, delta));
+	}
+
+	@Test
+	public void testEncodeShorterAndLongerBase() throws Exception {
+		byte[] base = random(0, 100000);
+		byte[] res = edit(base);
+		byte[] shorter = new byte[30000];
+		System.arraycopy(base, 0, shorter, 0, shorter.length);
+		assertArrayEquals(res,
+				BinaryDelta.apply(shorter, encode(shorter, res, 0, true)));
+
+		byte[] small = random(2, 5000);
+		assertArrayEquals(small,
+				BinaryDelta.apply(base, encode(base, small, 0, true)));
+	}
+
+	@Test
+	public void testUnrelatedExceedsLimit() throws Exception {
+		byte[] base = random(0, 100000);
+		byte[] res = random(3, 100000);
+		encode(base, res, res.length / 2, false);
+	}
+
+	@Test
+	public void testPackBigFileDeltas() throws Exception {
+		InMemoryRepository repo = new InMemoryRepository(
+				new DfsRepositoryDescription("test"));
+		RevCommit tip;
+		RevBlob v2;
+		byte[] data;
+		try (TestRepository<InMemoryRepository> tr = new TestRepository<>(
+				repo)) {
+			byte[] v1data = random(0, 200000);
+			data = edit(v1data);
+			RevCommit c1 = tr.commit().add("asset.bin", tr.blob(v1data))
+					.create();
+			v2 = tr.blob(data);
+			tip = tr.commit().parent(c1).add("asset.bin", v2).create();
+		}
+
+		ByteArrayOutputStream whole = new ByteArrayOutputStream();
+		PackStatistics wholeStats = pack(repo, tip, false, whole);
+		assertEquals(0, wholeStats.byObjectType(OBJ_BLOB).getDeltas());
+		assertEquals(0, wholeStats.getDeltasFound());
+
+		ByteArrayOutputStream deltas = new ByteArrayOutputStream();
+		PackStatistics deltaStats = pack(repo, tip, true, deltas);
+		assertEquals(1, deltaStats.byObjectType(OBJ_BLOB).getDeltas());
+		assertEquals(1, deltaStats.getDeltasFound());
+		assertEquals(wholeStats.getDeltaSearchNonEdgeObjects() + 1,
+				deltaStats.getDeltaSearchNonEdgeObjects());
+		assertTrue(deltas.size() < whole.size() - data.length / 2);
+
+		InMemoryRepository dst = new InMemoryRepository(
+				new DfsRepositoryDescription("dst"));
+		try (ObjectInserter ins = dst.newObjectInserter()) {
+			PackParser p = ins.newPackParser(
+					new ByteArrayInputStream(deltas.toByteArray()));
+			p.parse(NullProgressMonitor.INSTANCE);
+			ins.flush();
+		}
+		try (ObjectReader or = dst.newObjectReader()) {
+			assertArrayEquals(data, or.open(v2, OBJ_BLOB).getCachedBytes());
+		}
+		repo.close();
+		dst.close();
+	}
+
+	private static PackStatistics pack(InMemoryRepository repo,
+			RevCommit tip, boolean bigFileDeltas, ByteArrayOutputStream out)
+			throws Exception {
+		PackConfig pc = new PackConfig();
+		pc.setBigFileThreshold(64 * 1024);
+		pc.setBigFileDeltas(bigFileDeltas);
+		try (PackWriter pw = new PackWriter(pc, repo.newObjectReader())) {
+			pw.preparePack(NullProgressMonitor.INSTANCE,
+					Collections.singleton(tip.copy()),
+					Collections.<ObjectId> emptySet());
+			pw.writePack(NullProgressMonitor.INSTANCE,
+					NullProgressMonitor.INSTANCE, out);
+			return pw.getStatistics();
+		}
+	}
+}
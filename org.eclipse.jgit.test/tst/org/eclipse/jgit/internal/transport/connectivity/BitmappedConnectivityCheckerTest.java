@@ -0,0 +1,167 @@
+/*
+ * Copyright (C) 2023, Google LLC and others
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Distribution License v. 1.0 which is available at
+ * https://www.eclipse.org/org/documents/edl-v10.php.
+ *
+ * SPDX-License-Identifier: BSD-3-Clause
+ */
+
+package org.eclipse.jgit.internal.transport.connectivity;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.Collections;
+import java.util.Set;
+
+import org.eclipse.jgit.errors.MissingObjectException;
+import org.eclipse.jgit.internal.storage.dfs.DfsGarbageCollector;
+import org.eclipse.jgit.internal.storage.dfs.DfsRepositoryDescription;
+import org.eclipse.jgit.internal.storage.dfs.InMemoryRepository;
+import org.eclipse.jgit.internal.storage.pack.PackWriter;
+import org.eclipse.jgit.junit.TestRepository;
+import org.eclipse.jgit.lib.NullProgressMonitor;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectInserter;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.transport.ConnectivityChecker.ConnectivityCheckInfo;
+import org.eclipse.jgit.transport.PackParser;
+import org.eclipse.jgit.transport.ReceiveCommand;
+import org.junit.Before;
+import org.junit.Test;
+
+public class BitmappedConnectivityCheckerTest {
+	private TestRepository<InMemoryRepository> tr;
+
+	private RevCommit master;
+
+	private ConnectivityCheckInfo info;
+
+	private int fallbackCalls;
+
+	private BitmappedConnectivityChecker checker;
+
+	@Before
+	public void setUp() throws Exception {
+		tr = new TestRepository<>(
+				new InMemoryRepository(new DfsRepositoryDescription("test")));
+		RevCommit c = tr.commit().add("file", "content").create();
+		for (int i = 0; i < 20; i++) {
+			c = tr.commit().parent(c).add("file" + i, "content " + i)
+					.create();
+		}
+		master = c;
+		tr.update("master", master);
+
+		info = new ConnectivityCheckInfo();
+		info.setRepository(tr.getRepository());
+		info.setWalk(tr.getRevWalk());
+		info.setCheckObjects(true);
+		checker = new BitmappedConnectivityChecker(
+				(i, haves, pm) -> fallbackCalls++);
+	}
+
+	private void gc() throws Exception {
+		DfsGarbageCollector gc = new DfsGarbageCollector(tr.getRepository());
+		gc.pack(NullProgressMonitor.INSTANCE);
+		try (ObjectReader reader = tr.getRepository().newObjectReader()) {
+			assertNotNull(reader.getBitmapIndex());
+		}
+	}
+
+	/** Parse a pack of the objects reachable from want but not have. */
+	private PackParser receive(ObjectId want, Set<ObjectId> have)
+			throws Exception {
+		ByteArrayOutputStream pack = new ByteArrayOutputStream();
+		try (PackWriter pw = new PackWriter(tr.getRepository())) {
+			pw.setThin(true);
+			pw.preparePack(NullProgressMonitor.INSTANCE,
+					Collections.singleton(want), have);
+			pw.writePack(NullProgressMonitor.INSTANCE,
+					NullProgressMonitor.INSTANCE, pack);
+		}
+		try (ObjectInserter ins = tr.getRepository().newObjectInserter()) {
+			PackParser p = ins.newPackParser(
+					new ByteArrayInputStream(pack.toByteArray()));
+			p.setAllowThin(true);
+			p.setNeedNewObjectIds(true);
+			p.setNeedBaseObjectIds(true);
+			p.parse(NullProgressMonitor.INSTANCE);
+			ins.flush();
+			return p;
+		}
+	}
+
+	private void check(RevCommit tip, Set<ObjectId> haves) throws Exception {
+		info.setCommands(Collections.singletonList(new ReceiveCommand(
+				ObjectId.zeroId(), tip, "refs/heads/new")));
+		checker.checkConnectivity(info, haves, NullProgressMonitor.INSTANCE);
+	}
+
+	@Test
+	public void testFallbackWithoutBitmaps() throws Exception {
+		RevCommit tip = tr.commit().parent(master).add("new", "new").create();
+		info.setParser(receive(tip, Collections.singleton(master)));
+
+		check(tip, Collections.singleton(master));
+		assertEquals(1, fallbackCalls);
+	}
+
+	@Test
+	public void testReceivedCommitsAreConnected() throws Exception {
+		gc();
+		RevCommit tip = master;
+		for (int i = 0; i < 3; i++) {
+			tip = tr.commit().parent(tip).add("file" + i, "changed " + i)
+					.create();
+		}
+		info.setParser(receive(tip, Collections.singleton(master)));
+		check(tip, Collections.singleton(master));
+		assertEquals(0, fallbackCalls);
+	}
+
+	@Test
+	public void testHaveNotCoveredByBitmap() throws Exception {
+		gc();
+		RevCommit side = tr.commit().parent(master).add("side", "side")
+				.create();
+		tr.update("side", side);
+		RevCommit tip = tr.commit().parent(side).add("new", "new").create();
+		info.setParser(receive(tip, Collections.singleton(side)));
+
+		check(tip, Collections.singleton(side));
+		assertEquals(0, fallbackCalls);
+	}
+
+	@Test
+	public void testUnreachableCommitNotInPackIsRejected() throws Exception {
+		gc();
+		RevCommit hidden = tr.commit().parent(master).add("x", "x").create();
+		RevCommit tip = tr.commit().parent(hidden).add("y", "y").create();
+		info.setParser(receive(tip, Collections.singleton(hidden)));
+
+		try {
+			check(tip, Collections.singleton(master));
+			fail("expected MissingObjectException");
+		} catch (MissingObjectException e) {
+			assertEquals(hidden, e.getObjectId());
+		}
+	}
+
+	@Test
+	public void testAdvertisedTipNeedsNoPack() throws Exception {
+		gc();
+		info.setParser(receive(master, Collections.singleton(master)));
+		assertNull(info.getParser().getNewObjectIds().get(master));
+
+		check(master, Collections.singleton(master));
+		assertEquals(0, fallbackCalls);
+	}
+}
@@ -0,0 +1,284 @@
+/*
+ * Copyright (C) 2023, Google LLC and others
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Distribution License v. 1.0 which is available at
+ * https://www.eclipse.org/org/documents/edl-v10.php.
+ *
+ * SPDX-License-Identifier: BSD-3-Clause
+ */
+
+package org.eclipse.jgit.transport;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.List;
+
+import org.eclipse.jgit.api.CloneCommand;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.internal.storage.dfs.DfsRepositoryDescription;
+import org.eclipse.jgit.internal.storage.dfs.InMemoryRepository;
+import org.eclipse.jgit.junit.LocalDiskRepositoryTestCase;
+import org.eclipse.jgit.junit.TestRepository;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.NullProgressMonitor;
+import org.eclipse.jgit.lib.Ref;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.storage.pack.PackStatistics;
+import org.eclipse.jgit.util.HttpSupport;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+public class BundleUriTest extends LocalDiskRepositoryTestCase {
+	private InMemoryRepository server;
+
+	private TestRepository<InMemoryRepository> remote;
+
+	private Daemon daemon;
+
+	private String uri;
+
+	private List<BundleUri> advertised = Collections.emptyList();
+
+	private final List<PackStatistics> stats = new ArrayList<>();
+
+	private RevCommit bundled;
+
+	private RevCommit tip;
+
+	private File bundleFile;
+
+	private HttpServer http;
+
+	private String bundleUrl;
+
+	/** Authorization required by the bundle server, if any. */
+	private volatile String authorization;
+
+	/** Requests received by the bundle server, with their status. */
+	private final List<String> bundleRequests = Collections
+			.synchronizedList(new ArrayList<>());
+
+	/** Authorization headers received by the bundle server. */
+	private final List<String> authorizations = Collections
+			.synchronizedList(new ArrayList<>());
+
+	@Override
+	@Before
+	public void setUp() throws Exception {
+		super.setUp();
+		server = new InMemoryRepository(new DfsRepositoryDescription("server"));
+		remote = new TestRepository<>(server);
+		server.updateRef(Constants.HEAD).link("refs/heads/master");
+
+		bundled = remote.commit().add("a", "1").add("b", "2").create();
+		remote.update("master", bundled);
+		bundleFile = new File(createTempDirectory("bundles"), "1.bundle");
+		writeBundle(bundleFile);
+		tip = remote.commit().parent(bundled).add("a", "3").create();
+		remote.update("master", tip);
+
+		daemon = new Daemon(new InetSocketAddress("localhost", 0));
+		daemon.setRepositoryResolver((DaemonClient req, String name) -> {
+			server.incrementOpen();
+			return server;
+		});
+		daemon.setUploadPackFactory((DaemonClient req, Repository db) -> {
+			UploadPack up = new UploadPack(db);
+			up.setBundleUriProvider(repo -> advertised);
+			up.setPostUploadHook(stats::add);
+			return up;
+		});
+		daemon.start();
+		uri = "git://localhost:" + daemon.getAddress().getPort() + "/server";
+
+		http = HttpServer.create(
+				new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+		http.createContext("/", this::serveBundle);
+		http.start();
+		bundleUrl = "http://localhost:" + http.getAddress().getPort()
+				+ "/bundles/1.bundle";
+	}
+
+	private void serveBundle(HttpExchange exchange) throws IOException {
+		try (InputStream in = exchange.getRequestBody()) {
+			in.transferTo(OutputStream.nullOutputStream());
+		}
+		String auth = exchange.getRequestHeaders()
+				.getFirst(HttpSupport.HDR_AUTHORIZATION);
+		authorizations.add(auth);
+		int status;
+		if (authorization != null && !authorization.equals(auth)) {
+			status = 401;
+			exchange.getResponseHeaders().set(
+					HttpSupport.HDR_WWW_AUTHENTICATE,
+					"Basic realm=\"bundles\"");
+		} else if (exchange.getRequestURI().getPath()
+				.equals("/bundles/1.bundle")) {
+			status = 200;
+		} else {
+			status = 404;
+		}
+		bundleRequests.add(status + " " + exchange.getRequestURI().getPath());
+		if (status != 200) {
+			exchange.sendResponseHeaders(status, -1);
+			exchange.close();
+			return;
+		}
+		exchange.sendResponseHeaders(status, bundleFile.length());
+		try (OutputStream out = exchange.getResponseBody()) {
+			Files.copy(bundleFile.toPath(), out);
+		}
+	}
+
+	@Override
+	@After
+	public void tearDown() throws Exception {
+		daemon.stopAndWait();
+		http.stop(0);
+		remote.close();
+		super.tearDown();
+	}
+
+	private void writeBundle(File file) throws Exception {
+		BundleWriter bw = new BundleWriter(server);
+		bw.include("refs/heads/master", bundled);
+		try (OutputStream out = new FileOutputStream(file)) {
+			bw.writeBundle(NullProgressMonitor.INSTANCE, out);
+		}
+	}
+
+	private Repository cloneWith(boolean useBundleUris, String... bundles)
+			throws Exception {
+		return cloneWith(useBundleUris, null, bundles);
+	}
+
+	private Repository cloneWith(boolean useBundleUris,
+			CredentialsProvider credentials, String... bundles)
+			throws Exception {
+		File dir = createTempDirectory("clone");
+		CloneCommand clone = Git.cloneRepository()
+				.setURI(uri).setDirectory(dir)
+				.setUseBundleUris(useBundleUris)
+				.setCredentialsProvider(credentials);
+		for (String b : bundles) {
+			clone.addBundleUri(b);
+		}
+		Repository repo = clone.call().getRepository();
+		addRepoToClose(repo);
+		return repo;
+	}
+
+	private void assertOnlyDeltaFetched(Repository repo) throws Exception {
+		Ref b = repo.exactRef("refs/bundles/heads/master");
+		assertEquals(bundled, b.getObjectId());
+		assertEquals(tip, repo.resolve("refs/remotes/origin/master"));
+		assertEquals(1, stats.size());
+		// The new commit, its tree and the changed blob.
+		assertEquals(3, stats.get(0).getTotalObjects());
+	}
+
+	private void assertAllFetched(Repository repo) throws Exception {
+		assertNull(repo.exactRef("refs/bundles/heads/master"));
+		assertEquals(tip, repo.resolve("refs/remotes/origin/master"));
+		assertEquals(7, stats.get(0).getTotalObjects());
+	}
+
+	@Test
+	public void testCloneWithAdvertisedBundle() throws Exception {
+		advertised = Collections
+				.singletonList(new BundleUri("1", bundleUrl, 1));
+		Repository repo = cloneWith(true);
+		assertOnlyDeltaFetched(repo);
+		assertEquals(List.of("200 /bundles/1.bundle"), bundleRequests);
+	}
+
+	@Test
+	public void testCloneIgnoresAdvertisedBundleUnlessEnabled()
+			throws Exception {
+		advertised = Collections
+				.singletonList(new BundleUri("1", bundleUrl, 1));
+		Repository repo = cloneWith(false);
+		assertAllFetched(repo);
+		assertTrue(bundleRequests.isEmpty());
+	}
+
+	@Test
+	public void testCloneIgnoresAdvertisedLocalBundle() throws Exception {
+		advertised = Collections.singletonList(
+				new BundleUri("1", bundleFile.getAbsolutePath(), 1));
+		Repository repo = cloneWith(true);
+		assertAllFetched(repo);
+	}
+
+	@Test
+	public void testCloneSkipsBundleNotFound() throws Exception {
+		advertised = Collections.singletonList(new BundleUri("1",
+				bundleUrl.replace("1.bundle", "2.bundle"), 1));
+		Repository repo = cloneWith(true);
+		assertAllFetched(repo);
+		assertEquals(List.of("404 /bundles/2.bundle"), bundleRequests);
+	}
+
+	@Test
+	public void testCloneWithAuthenticatedBundle() throws Exception {
+		authorization = "Basic " + Base64.getEncoder()
+				.encodeToString("user:secret".getBytes(UTF_8));
+		Repository repo = cloneWith(false,
+				new UsernamePasswordCredentialsProvider("user", "secret"),
+				bundleUrl);
+		assertOnlyDeltaFetched(repo);
+		assertEquals(List.of("401 /bundles/1.bundle", "200 /bundles/1.bundle"),
+				bundleRequests);
+		assertEquals(Arrays.asList(null, authorization), authorizations);
+	}
+
+	@Test
+	public void testCloneSendsNoCredentialsToAdvertisedBundleOfOtherOrigin()
+			throws Exception {
+		authorization = "Basic " + Base64.getEncoder()
+				.encodeToString("user:secret".getBytes(UTF_8));
+		advertised = Collections
+				.singletonList(new BundleUri("1", bundleUrl, 1));
+		Repository repo = cloneWith(true,
+				new UsernamePasswordCredentialsProvider("user", "secret"));
+		assertAllFetched(repo);
+		assertEquals(List.of("401 /bundles/1.bundle"), bundleRequests);
+		assertEquals(Collections.singletonList(null), authorizations);
+	}
+
+	@Test
+	public void testCloneWithExplicitBundle() throws Exception {
+		Repository repo = cloneWith(false, bundleFile.getAbsolutePath());
+		assertOnlyDeltaFetched(repo);
+	}
+
+	@Test
+	public void testCloneSkipsMissingBundle() throws Exception {
+		File missing = new File(bundleFile.getParentFile(), "missing.bundle");
+		Repository repo = cloneWith(false, missing.getAbsolutePath(),
+				bundleFile.getAbsolutePath());
+		assertOnlyDeltaFetched(repo);
+		assertTrue(repo.getObjectDatabase().has(tip));
+	}
+}
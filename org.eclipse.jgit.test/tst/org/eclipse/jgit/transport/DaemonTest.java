@@ -14,7 +14,14 @@
 import static org.junit.Assert.assertTrue;
 
 import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
 
+import org.eclipse.jgit.internal.storage.dfs.DfsRepositoryDescription;
+import org.eclipse.jgit.internal.storage.dfs.InMemoryRepository;
+import org.eclipse.jgit.lib.Repository;
 import org.junit.Test;
 
 /**
@@ -60,4 +67,67 @@ public void testDaemonRestart() throws Exception {
 		Thread.sleep(1000);
 		d.stopAndWait();
 	}
+
+	@Test
+	public void testExecutorSessionLimit() throws Exception {
+		InMemoryRepository repo = new InMemoryRepository(
+				new DfsRepositoryDescription("repo"));
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		ExecutorService executor = Daemon.newClientExecutor(4);
+		Daemon d = new Daemon(new InetSocketAddress("localhost", 0));
+		d.setExecutor(executor);
+		d.setRepositoryResolver((DaemonClient req, String name) -> {
+			repo.incrementOpen();
+			return repo;
+		});
+		d.setUploadPackFactory((DaemonClient req, Repository db) -> {
+			started.countDown();
+			try {
+				release.await(10, TimeUnit.SECONDS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			return new UploadPack(db);
+		});
+		DaemonService service = d.getService("upload-pack");
+		service.setMaxSessions(1);
+		service.setQueueTimeout(1);
+		d.start();
+		// The first session holds the single slot until released.
+		Socket first = connect(d);
+		try {
+			assertTrue(started.await(10, TimeUnit.SECONDS));
+			assertEquals(1, service.getActiveSessions());
+
+			// Only connect once the first session holds the single slot, so
+			// that it is the second one which waits and is rejected.
+			try (Socket second = connect(d)) {
+				String line = new PacketLineIn(second.getInputStream())
+						.readString();
+				assertEquals("ERR Too many git-upload-pack sessions,"
+						+ " try again later", line);
+				assertEquals(1, service.getRejectedSessions());
+			}
+			release.countDown();
+		} finally {
+			first.close();
+			d.stopAndWait();
+			executor.shutdown();
+			assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+		}
+		assertEquals(0, service.getActiveSessions());
+		assertEquals(0, service.getQueuedSessions());
+		assertEquals(1, service.getCompletedSessions());
+		assertTrue(service.getTotalQueueTime() >= 1000);
+	}
+
+	private static Socket connect(Daemon d) throws Exception {
+		Socket s = new Socket(d.getAddress().getAddress(),
+				d.getAddress().getPort());
+		PacketLineOut out = new PacketLineOut(s.getOutputStream());
+		out.writeString("git-upload-pack /repo\0host=localhost\0");
+		out.flush();
+		return s;
+	}
 }
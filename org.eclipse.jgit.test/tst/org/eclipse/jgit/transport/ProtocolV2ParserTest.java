@@ -30,6 +30,7 @@
 import org.eclipse.jgit.internal.storage.dfs.InMemoryRepository;
 import org.eclipse.jgit.junit.TestRepository;
 import org.eclipse.jgit.lib.Config;
+import org.eclipse.jgit.lib.ObjectId;
 import org.eclipse.jgit.revwalk.RevCommit;
 import org.junit.Before;
 import org.junit.Test;
@@ -239,6 +240,36 @@ public void testFetchWithTreeDepthFilter() throws IOException {
 		assertEquals(3, request.getFilterSpec().getTreeDepthLimit());
 	}
 
+	@Test
+	public void testFetchWithSparseOidFilter() throws IOException {
+		String oid = "6c2f2a5b18b6e29f14d7d07e5b6c7e6b3fbb2b47";
+		PacketLineIn pckIn = formatAsPacketLine(PacketLineIn.delimiter(),
+				"filter sparse:oid=" + oid,
+				PacketLineIn.end());
+		ProtocolV2Parser parser = new ProtocolV2Parser(
+				ConfigBuilder.start().allowFilter().done());
+		FetchV2Request request = parser.parseFetchRequest(pckIn);
+		assertTrue(request.getFilterSpec().allowsType(OBJ_BLOB));
+		assertEquals(-1, request.getFilterSpec().getBlobLimit());
+		assertEquals(-1, request.getFilterSpec().getTreeDepthLimit());
+		assertEquals(ObjectId.fromString(oid),
+				request.getFilterSpec().getSparseOid());
+		assertEquals("filter sparse:oid=" + oid,
+				request.getFilterSpec().filterLine());
+	}
+
+	@Test
+	public void testFetchWithInvalidSparseOidFilter() throws IOException {
+		PacketLineIn pckIn = formatAsPacketLine(PacketLineIn.delimiter(),
+				"filter sparse:oid=master:.sparse",
+				PacketLineIn.end());
+		ProtocolV2Parser parser = new ProtocolV2Parser(
+				ConfigBuilder.start().allowFilter().done());
+
+		assertThrows(PackProtocolException.class,
+				() -> parser.parseFetchRequest(pckIn));
+	}
+
 	@Test
 	public void testFetchMustNotHaveMultipleFilters() throws IOException {
 		PacketLineIn pckIn = formatAsPacketLine(PacketLineIn.delimiter(),
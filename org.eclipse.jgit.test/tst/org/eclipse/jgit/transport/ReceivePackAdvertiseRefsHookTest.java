@@ -180,6 +180,47 @@ ReceivePack createReceivePack(Repository db) {
 		};
 	}
 
+	@Test
+	public void testAdvertisementCachedWithPushCertNonce() throws Exception {
+		try (RefAdvertisementCache cache = new RefAdvertisementCache(dst)) {
+			String[] nonces = new String[2];
+			String[] refs = new String[2];
+			for (int i = 0; i < 2; i++) {
+				// A different seed gives a different nonce.
+				dst.getConfig().setString("receive", null, "certNonceSeed",
+						"seed" + i);
+				ReceivePack rp = new ReceivePack(dst);
+				rp.setRefAdvertisementCache(cache);
+				TemporaryBuffer.Heap buf = new TemporaryBuffer.Heap(1024);
+				rp.sendAdvertisedRefs(
+						new RefAdvertiser.PacketLineOutRefAdvertiser(
+								new PacketLineOut(buf)));
+
+				PacketLineIn pckIn = asPacketLineIn(buf);
+				String first = pckIn.readString();
+				int nul = first.indexOf('\0');
+				assertTrue(nul > 0);
+				for (String cap : first.substring(nul + 1).split(" ")) {
+					if (cap.startsWith("push-cert=")) {
+						nonces[i] = cap;
+					}
+				}
+				StringBuilder rest = new StringBuilder(first.substring(0, nul));
+				for (String line = pckIn.readString(); !PacketLineIn
+						.isEnd(line); line = pckIn.readString()) {
+					rest.append('\n').append(line);
+				}
+				refs[i] = rest.toString();
+			}
+			assertNotNull(nonces[0]);
+			assertNotNull(nonces[1]);
+			assertFalse(nonces[0].equals(nonces[1]));
+			assertEquals(refs[0], refs[1]);
+			assertEquals(1, cache.getMissCount());
+			assertEquals(1, cache.getHitCount());
+		}
+	}
+
 	@Test
 	public void testSuccess() throws Exception {
 		// Manually force a delta of an object so we reuse it later.
@@ -0,0 +1,126 @@
+/*
+ * Copyright (C) 2023, Google LLC and others
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Distribution License v. 1.0 which is available at
+ * https://www.eclipse.org/org/documents/edl-v10.php.
+ *
+ * SPDX-License-Identifier: BSD-3-Clause
+ */
+package org.eclipse.jgit.transport;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.eclipse.jgit.internal.storage.dfs.DfsRepositoryDescription;
+import org.eclipse.jgit.internal.storage.dfs.InMemoryRepository;
+import org.eclipse.jgit.junit.TestRepository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevFlag;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class SkippingFetchNegotiatorTest {
+	private TestRepository<InMemoryRepository> util;
+
+	private RevWalk rw;
+
+	private RevFlag common;
+
+	private RevFlag advertised;
+
+	@Before
+	public void setUp() throws Exception {
+		util = new TestRepository<>(
+				new InMemoryRepository(new DfsRepositoryDescription("test")));
+		rw = util.getRevWalk();
+		common = rw.newFlag("COMMON");
+		advertised = rw.newFlag("ADVERTISED");
+	}
+
+	@After
+	public void tearDown() {
+		util.close();
+	}
+
+	/** Build a linear history; index 0 is the root. */
+	private List<RevCommit> chain(int n) throws Exception {
+		List<RevCommit> commits = new ArrayList<>(n);
+		RevCommit c = null;
+		for (int i = 0; i < n; i++) {
+			c = c == null ? util.commit().create()
+					: util.commit().parent(c).create();
+			commits.add(c);
+		}
+		return commits;
+	}
+
+	private FetchNegotiator begin(RevCommit tip) throws Exception {
+		FetchNegotiator n = new SkippingFetchNegotiator();
+		n.begin(rw, Collections.singletonList(rw.parseCommit(tip)), common,
+				advertised);
+		return n;
+	}
+
+	@Test
+	public void testSkipsInIncreasingSteps() throws Exception {
+		List<RevCommit> commits = chain(100);
+		FetchNegotiator n = begin(commits.get(99));
+
+		List<Integer> sent = new ArrayList<>();
+		RevCommit c;
+		while ((c = n.next()) != null) {
+			sent.add(Integer.valueOf(commits.indexOf(c)));
+		}
+
+		assertEquals(Integer.valueOf(99), sent.get(0));
+		assertEquals(Integer.valueOf(0), sent.get(sent.size() - 1));
+		assertTrue(sent.size() < 20);
+		for (int i = 2; i < sent.size() - 1; i++) {
+			int prevStep = sent.get(i - 2).intValue() - sent.get(i - 1).intValue();
+			int step = sent.get(i - 1).intValue() - sent.get(i).intValue();
+			assertTrue(step >= prevStep);
+		}
+	}
+
+	@Test
+	public void testAckedAncestorsAreNotSent() throws Exception {
+		List<RevCommit> commits = chain(50);
+		FetchNegotiator n = begin(commits.get(49));
+
+		RevCommit first = n.next();
+		assertEquals(commits.get(49), first);
+		RevCommit second = n.next();
+		n.ack(second);
+		second.add(common);
+
+		assertNull(n.next());
+	}
+
+	@Test
+	public void testAdvertisedIsSentAndEndsLine() throws Exception {
+		List<RevCommit> commits = chain(30);
+		RevCommit adv = rw.parseCommit(commits.get(20));
+		adv.add(advertised);
+		FetchNegotiator n = begin(commits.get(29));
+
+		List<RevCommit> sent = new ArrayList<>();
+		RevCommit c;
+		while ((c = n.next()) != null) {
+			sent.add(c);
+		}
+
+		assertTrue(sent.contains(adv));
+		for (int i = 0; i < 20; i++) {
+			assertFalse(sent.contains(commits.get(i)));
+		}
+	}
+}
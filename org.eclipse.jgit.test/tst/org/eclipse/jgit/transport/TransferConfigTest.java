@@ -83,4 +83,55 @@ public void testParseAdvertiseSIDSet() {
 		TransferConfig tc = new TransferConfig(rc);
 		assertTrue(tc.isAllowReceiveClientSID());
 	}
+
+	@Test
+	public void testParseNegotiationAlgorithmDefault() {
+		Config rc = new Config();
+		TransferConfig tc = new TransferConfig(rc);
+		assertEquals(TransferConfig.NegotiationAlgorithm.DEFAULT,
+				tc.getNegotiationAlgorithm());
+	}
+
+	@Test
+	public void testParseNegotiationAlgorithmSkipping() {
+		Config rc = new Config();
+		rc.setString("fetch", null, "negotiationAlgorithm", "skipping");
+		TransferConfig tc = new TransferConfig(rc);
+		assertEquals(TransferConfig.NegotiationAlgorithm.SKIPPING,
+				tc.getNegotiationAlgorithm());
+		assertTrue(tc.getNegotiationAlgorithm()
+				.newNegotiator() instanceof SkippingFetchNegotiator);
+	}
+
+	@Test
+	public void testParseNegotiationAlgorithmNoop() throws Exception {
+		Config rc = new Config();
+		rc.setString("fetch", null, "negotiationAlgorithm", "noop");
+		TransferConfig tc = new TransferConfig(rc);
+		assertEquals(TransferConfig.NegotiationAlgorithm.NOOP,
+				tc.getNegotiationAlgorithm());
+		FetchNegotiator negotiator = tc.getNegotiationAlgorithm()
+				.newNegotiator();
+		assertTrue(negotiator instanceof NoopFetchNegotiator);
+		assertNull(negotiator.next());
+	}
+
+	@Test
+	public void testParseNegotiationAlgorithmUnknown() {
+		Config rc = new Config();
+		rc.setString("fetch", null, "negotiationAlgorithm", "garbage");
+		TransferConfig tc = new TransferConfig(rc);
+		assertEquals(TransferConfig.NegotiationAlgorithm.DEFAULT,
+				tc.getNegotiationAlgorithm());
+	}
+
+	@Test
+	public void testParseWalkConcurrency() {
+		Config rc = new Config();
+		assertEquals(4, new TransferConfig(rc).getWalkConcurrency());
+		rc.setInt("fetch", null, "walkConcurrency", 16);
+		assertEquals(16, new TransferConfig(rc).getWalkConcurrency());
+		rc.setInt("fetch", null, "walkConcurrency", 0);
+		assertEquals(1, new TransferConfig(rc).getWalkConcurrency());
+	}
 }
@@ -647,6 +647,72 @@ public void testV2LsRefsSymrefs() throws Exception {
 		assertTrue(PacketLineIn.isEnd(pckIn.readString()));
 	}
 
+	@Test
+	public void testV2LsRefsCached() throws Exception {
+		RevCommit tip = remote.commit().message("message").create();
+		remote.update("master", tip);
+		server.updateRef("HEAD").link("refs/heads/master");
+		RevTag tag = remote.tag("tag", tip);
+		remote.update("refs/tags/tag", tag);
+
+		try (RefAdvertisementCache cache = new RefAdvertisementCache(
+				server)) {
+			for (int i = 0; i < 2; i++) {
+				ByteArrayInputStream recvStream = uploadPackV2(
+						(UploadPack up) -> up.setRefAdvertisementCache(cache),
+						"command=ls-refs\n", PacketLineIn.delimiter(), "peel",
+						PacketLineIn.end());
+				PacketLineIn pckIn = new PacketLineIn(recvStream);
+				assertThat(pckIn.readString(),
+						is(tip.toObjectId().getName() + " HEAD"));
+				assertThat(pckIn.readString(), is(
+						tip.toObjectId().getName() + " refs/heads/master"));
+				assertThat(pckIn.readString(),
+						is(tag.toObjectId().getName() + " refs/tags/tag peeled:"
+								+ tip.toObjectId().getName()));
+				assertTrue(PacketLineIn.isEnd(pckIn.readString()));
+			}
+			assertEquals(1, cache.getMissCount());
+			assertEquals(1, cache.getHitCount());
+
+			RevCommit next = remote.commit().parent(tip).create();
+			remote.update("master", next);
+			ByteArrayInputStream recvStream = uploadPackV2(
+					(UploadPack up) -> up.setRefAdvertisementCache(cache),
+					"command=ls-refs\n", PacketLineIn.delimiter(), "peel",
+					PacketLineIn.end());
+			PacketLineIn pckIn = new PacketLineIn(recvStream);
+			assertThat(pckIn.readString(),
+					is(next.toObjectId().getName() + " HEAD"));
+			assertEquals(2, cache.getMissCount());
+		}
+	}
+
+	@Test
+	public void testV0AdvertisementCached() throws Exception {
+		RevCommit tip = remote.commit().message("message").create();
+		remote.update("master", tip);
+		RevTag tag = remote.tag("tag", tip);
+		remote.update("refs/tags/tag", tag);
+
+		try (RefAdvertisementCache cache = new RefAdvertisementCache(
+				server)) {
+			String[] adv = new String[2];
+			for (int i = 0; i < adv.length; i++) {
+				UploadPack up = new UploadPack(server);
+				up.setRefAdvertisementCache(cache);
+				ByteArrayOutputStream out = new ByteArrayOutputStream();
+				up.sendAdvertisedRefs(new RefAdvertiser.PacketLineOutRefAdvertiser(
+						new PacketLineOut(out)));
+				adv[i] = out.toString("UTF-8");
+			}
+			assertEquals(adv[0], adv[1]);
+			assertThat(adv[1], containsString(
+					tip.toObjectId().getName() + " refs/tags/tag^{}"));
+			assertEquals(1, cache.getHitCount());
+		}
+	}
+
 	@Test
 	public void testV2LsRefsPeel() throws Exception {
 		RevCommit tip = remote.commit().message("message").create();
@@ -1851,8 +1917,8 @@ public void testV2FetchFilterTreeDepth1_serverHasBitmap() throws Exception {
 		DeepTreePreparator preparator = new DeepTreePreparator();
 		remote.update("master", preparator.commit);
 
-		// The bitmap should be ignored since we need to track the depth while
-		// traversing the trees.
+		// The bitmap is used; only the root tree needs to be read to apply
+		// the depth limit.
 		generateBitmaps(server);
 
 		uploadV2WithTreeDepthFilter(1, preparator.commit.toObjectId());
@@ -1886,6 +1952,25 @@ public void testV2FetchFilterTreeDepth2() throws Exception {
 		assertEquals(2, stats.getTreesTraversed());
 	}
 
+	@Test
+	public void testV2FetchFilterTreeDepth2_serverHasBitmap() throws Exception {
+		DeepTreePreparator preparator = new DeepTreePreparator();
+		remote.update("master", preparator.commit);
+		generateBitmaps(server);
+
+		uploadV2WithTreeDepthFilter(2, preparator.commit.toObjectId());
+
+		assertTrue(client.getObjectDatabase()
+				.has(preparator.rootTree.toObjectId()));
+		assertTrue(client.getObjectDatabase()
+				.has(preparator.subtree.toObjectId()));
+		assertTrue(client.getObjectDatabase()
+				.has(preparator.blobLowDepth.toObjectId()));
+		assertFalse(client.getObjectDatabase()
+				.has(preparator.blobHighDepth.toObjectId()));
+		assertEquals(2, stats.getTreesTraversed());
+	}
+
 	/**
 	 * Creates a commit with the following files:
 	 * <pre>
@@ -1940,6 +2025,19 @@ public void testV2FetchFilterTreeDepth_iterateOverTreeAtTwoLevels()
 				.has(preparator.foo.toObjectId()));
 	}
 
+	@Test
+	public void testV2FetchFilterTreeDepth_iterateOverTreeAtTwoLevels_serverHasBitmap()
+			throws Exception {
+		RepeatedSubtreePreparator preparator = new RepeatedSubtreePreparator();
+		remote.update("master", preparator.commit);
+		generateBitmaps(server);
+
+		uploadV2WithTreeDepthFilter(4, preparator.commit.toObjectId());
+
+		assertTrue(client.getObjectDatabase()
+				.has(preparator.foo.toObjectId()));
+	}
+
 	/**
 	 * Creates a commit with the following files:
 	 * <pre>
@@ -2062,6 +2160,116 @@ public void testV2FetchFilterTreeDepth_repeatTreeAtSameLevelExcludeFile()
 		assertEquals(8, stats.getTreesTraversed());
 	}
 
+	/**
+	 * Creates a commit with the following files:
+	 * <pre>
+	 * docs/readme
+	 * src/main
+	 * src/docs/readme
+	 * </pre>
+	 * where both readme files have the same content, and a sparse
+	 * specification including the "src" directory only.
+	 */
+	class SparsePreparator {
+		RevBlob readme = remote.blob("readme");
+
+		RevBlob main = remote.blob("main");
+
+		RevBlob other = remote.blob("other");
+
+		RevTree docs = remote.tree(remote.file("readme", readme));
+
+		RevTree src = (new TreeBuilder() {
+			@Override
+			void addElements(DirCacheBuilder dcBuilder) throws Exception {
+				dcBuilder.addTree(new byte[] { 'd', 'o', 'c', 's' },
+						DirCacheEntry.STAGE_0,
+						remote.getRevWalk().getObjectReader(), docs);
+				dcBuilder.add(remote.file("main", main));
+			}
+		}).build();
+
+		RevTree rootTree = (new TreeBuilder() {
+			@Override
+			void addElements(DirCacheBuilder dcBuilder) throws Exception {
+				dcBuilder.addTree(new byte[] { 'd', 'o', 'c', 's' },
+						DirCacheEntry.STAGE_0,
+						remote.getRevWalk().getObjectReader(), docs);
+				dcBuilder.add(remote.file("other", other));
+				dcBuilder.addTree(new byte[] { 's', 'r', 'c' },
+						DirCacheEntry.STAGE_0,
+						remote.getRevWalk().getObjectReader(), src);
+			}
+		}).build();
+
+		RevCommit commit = remote.commit(rootTree);
+
+		RevBlob sparse = remote.blob("/src/\n");
+
+		SparsePreparator() throws Exception {}
+	}
+
+	private void uploadV2WithSparseFilter(ObjectId sparse, ObjectId want)
+			throws Exception {
+		server.getConfig().setBoolean("uploadpack", null, "allowfilter", true);
+
+		ByteArrayInputStream recvStream = uploadPackV2(
+				(UploadPack up) -> {
+					up.setRequestPolicy(RequestPolicy.ANY);
+				},
+				"command=fetch\n",
+				PacketLineIn.delimiter(),
+				"want " + want.getName() + "\n",
+				"filter sparse:oid=" + sparse.getName() + "\n",
+				"done\n",
+				PacketLineIn.end());
+		PacketLineIn pckIn = new PacketLineIn(recvStream);
+		assertThat(pckIn.readString(), is("packfile"));
+		parsePack(recvStream);
+	}
+
+	private void assertSparseFetched(SparsePreparator preparator)
+			throws Exception {
+		assertTrue(client.getObjectDatabase()
+				.has(preparator.rootTree.toObjectId()));
+		assertTrue(client.getObjectDatabase()
+				.has(preparator.docs.toObjectId()));
+		assertTrue(client.getObjectDatabase()
+				.has(preparator.src.toObjectId()));
+		assertTrue(client.getObjectDatabase()
+				.has(preparator.main.toObjectId()));
+		// Excluded at docs/readme, but included at src/docs/readme.
+		assertTrue(client.getObjectDatabase()
+				.has(preparator.readme.toObjectId()));
+		assertFalse(client.getObjectDatabase()
+				.has(preparator.other.toObjectId()));
+	}
+
+	@Test
+	public void testV2FetchFilterSparseOid() throws Exception {
+		SparsePreparator preparator = new SparsePreparator();
+		remote.update("master", preparator.commit);
+
+		uploadV2WithSparseFilter(preparator.sparse,
+				preparator.commit.toObjectId());
+
+		assertSparseFetched(preparator);
+	}
+
+	@Test
+	public void testV2FetchFilterSparseOid_serverHasBitmap() throws Exception {
+		SparsePreparator preparator = new SparsePreparator();
+		remote.update("master", preparator.commit);
+		remote.update("sparse", preparator.sparse);
+		generateBitmaps(server);
+
+		uploadV2WithSparseFilter(preparator.sparse,
+				preparator.commit.toObjectId());
+
+		assertSparseFetched(preparator);
+		assertEquals(4, stats.getTreesTraversed());
+	}
+
 	@Test
 	public void testWantFilteredObject() throws Exception {
 		RepeatedSubtreePreparator preparator = new RepeatedSubtreePreparator();
@@ -2895,6 +3103,54 @@ public void testObjectInfo() throws Exception {
 		assertTrue(PacketLineIn.isEnd(pckIn.readString()));
 	}
 
+	@Test
+	public void testV2BundleUri() throws Exception {
+		BundleUriProvider provider = repo -> Arrays.asList(
+				new BundleUri("base", "https://cdn.example.com/base.bundle",
+						1),
+				new BundleUri("recent", "recent.bundle", 2));
+		ByteArrayInputStream recvStream = uploadPackSetup(
+				TransferConfig.ProtocolVersion.V2.version(),
+				(UploadPack up) -> up.setBundleUriProvider(provider),
+				PacketLineIn.end());
+		PacketLineIn pckIn = new PacketLineIn(recvStream);
+		List<String> caps = new ArrayList<>();
+		String line;
+		while (!PacketLineIn.isEnd(line = pckIn.readString())) {
+			caps.add(line);
+		}
+		assertThat(caps, hasItems("bundle-uri"));
+
+		recvStream = uploadPackV2(
+				(UploadPack up) -> up.setBundleUriProvider(provider),
+				"command=bundle-uri\n", PacketLineIn.end());
+		pckIn = new PacketLineIn(recvStream);
+		assertThat(pckIn.readString(), is("bundle.version=1"));
+		assertThat(pckIn.readString(), is("bundle.mode=all"));
+		assertThat(pckIn.readString(), is("bundle.heuristic=creationToken"));
+		assertThat(pckIn.readString(),
+				is("bundle.base.uri=https://cdn.example.com/base.bundle"));
+		assertThat(pckIn.readString(), is("bundle.base.creationToken=1"));
+		assertThat(pckIn.readString(), is("bundle.recent.uri=recent.bundle"));
+		assertThat(pckIn.readString(), is("bundle.recent.creationToken=2"));
+		assertTrue(PacketLineIn.isEnd(pckIn.readString()));
+	}
+
+	@Test
+	public void testV2BundleUriNotAdvertisedWithoutProvider() throws Exception {
+		ByteArrayInputStream recvStream = uploadPackSetup(
+				TransferConfig.ProtocolVersion.V2.version(), null,
+				PacketLineIn.end());
+		PacketLineIn pckIn = new PacketLineIn(recvStream);
+		String line;
+		while (!PacketLineIn.isEnd(line = pckIn.readString())) {
+			assertFalse(line.equals("bundle-uri"));
+		}
+		assertThrows(UploadPackInternalServerErrorException.class,
+				() -> uploadPackV2("command=bundle-uri\n",
+						PacketLineIn.end()));
+	}
+
 	@Test
 	public void testObjectInfo_invalidOid() throws Exception {
 		server.getConfig().setBoolean("uploadpack", null, "advertiseobjectinfo",
@@ -0,0 +1,380 @@
+/*
+ * Copyright (C) 2023, Google LLC and others
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Distribution License v. 1.0 which is available at
+ * https://www.eclipse.org/org/documents/edl-v10.php.
+ *
+ * SPDX-License-Identifier: BSD-3-Clause
+ */
+package org.eclipse.jgit.transport;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.jgit.errors.NotSupportedException;
+import org.eclipse.jgit.internal.storage.file.FileRepository;
+import org.eclipse.jgit.internal.storage.pack.PackWriter;
+import org.eclipse.jgit.junit.LocalDiskRepositoryTestCase;
+import org.eclipse.jgit.junit.TestRepository;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.NullProgressMonitor;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectIdRef;
+import org.eclipse.jgit.lib.ObjectInserter;
+import org.eclipse.jgit.lib.Ref;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.lib.StoredConfig;
+import org.eclipse.jgit.revwalk.ObjectWalk;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevObject;
+import org.junit.Before;
+import org.junit.Test;
+
+public class WalkFetchConnectionTest extends LocalDiskRepositoryTestCase {
+	private static final String LOOSE = "[0-9a-f]{2}/[0-9a-f]{38}";
+
+	private FileRepository server;
+
+	private TestRepository<FileRepository> src;
+
+	private FileRepository local;
+
+	private RemoteDatabase remote;
+
+	@Override
+	@Before
+	public void setUp() throws Exception {
+		super.setUp();
+		server = createBareRepository();
+		src = new TestRepository<>(createBareRepository());
+		local = createBareRepository();
+		remote = new RemoteDatabase(server.getObjectDatabase().getDirectory());
+	}
+
+	private void setConcurrency(int n) throws IOException {
+		StoredConfig cfg = local.getConfig();
+		cfg.setInt("fetch", null, "walkConcurrency", n);
+		cfg.save();
+	}
+
+	private WalkFetchConnection fetch(ObjectId tip) throws Exception {
+		WalkFetchConnection conn = new WalkFetchConnection(
+				new TestWalkTransport(local), remote);
+		Ref want = new ObjectIdRef.Unpeeled(Ref.Storage.NETWORK,
+				"refs/heads/master", tip);
+		conn.fetch(NullProgressMonitor.INSTANCE,
+				Collections.singleton(want), Collections.emptySet());
+		return conn;
+	}
+
+	private RevCommit looseHistory(int n) throws Exception {
+		try (TestRepository<FileRepository> tr = new TestRepository<>(
+				server)) {
+			RevCommit c = null;
+			for (int i = 0; i < n; i++) {
+				TestRepository<FileRepository>.CommitBuilder b = tr.commit();
+				if (c != null) {
+					b.parent(c);
+				}
+				c = b.add("f" + i, "content " + i).create();
+			}
+			return c;
+		}
+	}
+
+	private RevCommit history(RevCommit parent, String prefix, int n)
+			throws Exception {
+		RevCommit c = parent;
+		for (int i = 0; i < n; i++) {
+			TestRepository<FileRepository>.CommitBuilder b = src.commit();
+			if (c != null) {
+				b.parent(c);
+			}
+			c = b.add(prefix + i, prefix + " " + i).create();
+		}
+		return c;
+	}
+
+	/** Copy the objects reachable from want but not have into a pack. */
+	private String pack(ObjectId want, ObjectId have) throws Exception {
+		File dir = new File(server.getObjectDatabase().getDirectory(),
+				"pack");
+		Set<String> before = packNames(dir);
+		ByteArrayOutputStream buf = new ByteArrayOutputStream();
+		try (PackWriter pw = new PackWriter(src.getRepository())) {
+			pw.preparePack(NullProgressMonitor.INSTANCE,
+					Collections.singleton(want),
+					have != null ? Collections.singleton(have)
+							: Collections.<ObjectId> emptySet());
+			pw.writePack(NullProgressMonitor.INSTANCE,
+					NullProgressMonitor.INSTANCE, buf);
+		}
+		try (ObjectInserter ins = server.newObjectInserter()) {
+			ins.newPackParser(new ByteArrayInputStream(buf.toByteArray()))
+					.parse(NullProgressMonitor.INSTANCE);
+			ins.flush();
+		}
+		Set<String> after = packNames(dir);
+		after.removeAll(before);
+		assertEquals(1, after.size());
+		return after.iterator().next();
+	}
+
+	private static Set<String> packNames(File dir) {
+		Set<String> names = new HashSet<>();
+		String[] files = dir.list();
+		if (files != null) {
+			for (String f : files) {
+				if (f.endsWith(".pack")) {
+					names.add(f);
+				}
+			}
+		}
+		return names;
+	}
+
+	private void assertHasAll(Repository from, ObjectId tip)
+			throws Exception {
+		int n = 0;
+		try (ObjectWalk ow = new ObjectWalk(from)) {
+			ow.markStart(ow.parseCommit(tip));
+			RevObject o;
+			while ((o = ow.next()) != null) {
+				assertTrue(local.getObjectDatabase().has(o));
+				n++;
+			}
+			while ((o = ow.nextObject()) != null) {
+				assertTrue(local.getObjectDatabase().has(o));
+				n++;
+			}
+		}
+		assertTrue(n > 0);
+	}
+
+	private static int countTempIndexes() {
+		String[] files = new File(System.getProperty("java.io.tmpdir"))
+				.list((dir, name) -> name.startsWith("jgit-walk-"));
+		return files != null ? files.length : 0;
+	}
+
+	@Test
+	public void testLooseObjectsDownloadedConcurrently() throws Exception {
+		RevCommit tip = looseHistory(10);
+		setConcurrency(4);
+		fetch(tip).close();
+
+		assertHasAll(server, tip);
+		assertTrue(remote.maxRunning.get() > 1);
+		List<String> loose = remote.opened(LOOSE);
+		assertEquals(30, loose.size());
+		assertEquals(loose.size(), new HashSet<>(loose).size());
+	}
+
+	@Test
+	public void testLooseObjectsDownloadedSequentially() throws Exception {
+		RevCommit tip = looseHistory(10);
+		setConcurrency(1);
+		fetch(tip).close();
+
+		assertHasAll(server, tip);
+		assertEquals(1, remote.maxRunning.get());
+		assertEquals(30, remote.opened(LOOSE).size());
+	}
+
+	@Test
+	public void testPackIndexesDownloadedAhead() throws Exception {
+		RevCommit a = history(null, "a", 3);
+		RevCommit b = history(a, "b", 3);
+		RevCommit c = history(b, "c", 3);
+		RevCommit d = history(c, "d", 3);
+		remote.packs.add(pack(d, c));
+		remote.packs.add(pack(c, b));
+		remote.packs.add(pack(b, a));
+		remote.packs.add(pack(a, null));
+		setConcurrency(4);
+		fetch(d).close();
+
+		assertHasAll(src.getRepository(), d);
+		List<String> indexes = remote.opened("pack/.*\\.idx");
+		assertEquals(4, indexes.size());
+		assertEquals(4, new HashSet<>(indexes).size());
+		assertTrue(remote.maxRunning.get() > 1);
+		assertEquals(0, remote.openStreams.get());
+	}
+
+	@Test
+	public void testCloseWaitsForIndexDownload() throws Exception {
+		RevCommit tip = history(null, "a", 3);
+		remote.packs.add(pack(tip, null));
+		remote.packs.add(pack(history(null, "b", 2), null));
+		remote.packs.add(pack(history(null, "c", 2), null));
+		int tempIndexes = countTempIndexes();
+
+		// The first pack has everything, the indexes of the other ones are
+		// still being downloaded when the fetch completes.
+		CountDownLatch release = new CountDownLatch(1);
+		remote.blockedIndexes = release;
+		remote.unblockedIndex = remote.packs.get(0).replace(".pack", ".idx");
+		setConcurrency(4);
+		WalkFetchConnection conn = fetch(tip);
+		assertHasAll(src.getRepository(), tip);
+
+		Thread closer = new Thread(conn::close);
+		closer.start();
+		closer.join(200);
+		assertTrue(closer.isAlive());
+
+		release.countDown();
+		closer.join(TimeUnit.SECONDS.toMillis(10));
+		assertFalse(closer.isAlive());
+		assertEquals(0, remote.openStreams.get());
+		assertEquals(tempIndexes, countTempIndexes());
+	}
+
+	/** Object database of a local directory, recording the reads. */
+	private static class RemoteDatabase extends WalkRemoteObjectDatabase {
+		private final File objects;
+
+		/** Pack names, in the order they are listed. */
+		final List<String> packs = new ArrayList<>();
+
+		final List<String> opens = Collections
+				.synchronizedList(new ArrayList<>());
+
+		final AtomicInteger running = new AtomicInteger();
+
+		final AtomicInteger maxRunning = new AtomicInteger();
+
+		final AtomicInteger openStreams = new AtomicInteger();
+
+		volatile CountDownLatch blockedIndexes;
+
+		volatile String unblockedIndex;
+
+		RemoteDatabase(File objects) {
+			this.objects = objects;
+		}
+
+		List<String> opened(String regex) {
+			List<String> r = new ArrayList<>();
+			synchronized (opens) {
+				for (String p : opens) {
+					if (p.matches(regex)) {
+						r.add(p);
+					}
+				}
+			}
+			return r;
+		}
+
+		@Override
+		URIish getURI() {
+			return new URIish().setPath(objects.getPath());
+		}
+
+		@Override
+		Collection<String> getPackNames() throws IOException {
+			return new ArrayList<>(packs);
+		}
+
+		@Override
+		Collection<WalkRemoteObjectDatabase> getAlternates()
+				throws IOException {
+			return null;
+		}
+
+		@Override
+		FileStream open(String path) throws IOException {
+			opens.add(path);
+			maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+			try {
+				// Give concurrent requests the time to overlap.
+				Thread.sleep(20);
+				CountDownLatch block = blockedIndexes;
+				if (block != null && path.endsWith(".idx")
+						&& !path.endsWith(unblockedIndex)) {
+					block.await();
+				}
+			} catch (InterruptedException e) {
+				throw new InterruptedIOException();
+			} finally {
+				running.decrementAndGet();
+			}
+			File f = new File(objects, path);
+			if (!f.isFile()) {
+				throw new FileNotFoundException(path);
+			}
+			byte[] data = Files.readAllBytes(f.toPath());
+			openStreams.incrementAndGet();
+			return new FileStream(new ByteArrayInputStream(data) {
+				private boolean closed;
+
+				@Override
+				public void close() throws IOException {
+					if (!closed) {
+						closed = true;
+						openStreams.decrementAndGet();
+					}
+					super.close();
+				}
+			}, data.length);
+		}
+
+		@Override
+		boolean supportsConcurrentOpen() {
+			return true;
+		}
+
+		@Override
+		WalkRemoteObjectDatabase openAlternate(String location)
+				throws IOException {
+			throw new IOException(location);
+		}
+
+		@Override
+		void close() {
+			// Nothing to release.
+		}
+	}
+
+	private static class TestWalkTransport extends Transport
+			implements WalkTransport {
+		TestWalkTransport(Repository local) {
+			super(local, new URIish().setPath(Constants.DOT_GIT));
+		}
+
+		@Override
+		public FetchConnection openFetch() throws NotSupportedException {
+			throw new NotSupportedException("fetch");
+		}
+
+		@Override
+		public PushConnection openPush() throws NotSupportedException {
+			throw new NotSupportedException("push");
+		}
+
+		@Override
+		public void close() {
+			// Nothing to release.
+		}
+	}
+}
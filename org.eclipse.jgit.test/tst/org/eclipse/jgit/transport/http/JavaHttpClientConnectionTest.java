@@ -0,0 +1,274 @@
+/*
+ * Copyright (C) 2023, Google LLC and others
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Distribution License v. 1.0 which is available at
+ * https://www.eclipse.org/org/documents/edl-v10.php.
+ *
+ * SPDX-License-Identifier: BSD-3-Clause
+ */
+package org.eclipse.jgit.transport.http;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.net.URL;
+import java.net.http.HttpClient.Version;
+import java.nio.file.Files;
+import java.security.KeyStore;
+import java.security.cert.Certificate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import javax.net.ssl.HostnameVerifier;
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.TrustManager;
+
+import org.eclipse.jgit.util.FileUtils;
+import org.eclipse.jgit.util.HttpSupport;
+import org.eclipse.jgit.util.IO;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import com.sun.net.httpserver.HttpsConfigurator;
+import com.sun.net.httpserver.HttpsServer;
+
+public class JavaHttpClientConnectionTest {
+	private static final String PASSWORD = "password";
+
+	private ExecutorService executor;
+
+	private HttpServer server;
+
+	private JavaHttpClientConnectionFactory factory;
+
+	private final List<InetSocketAddress> remotes = Collections
+			.synchronizedList(new ArrayList<>());
+
+	private final CountDownLatch bodyStarted = new CountDownLatch(1);
+
+	private volatile String contentLength;
+
+	private File keyDir;
+
+	@Before
+	public void setUp() throws Exception {
+		executor = Executors.newCachedThreadPool();
+		factory = new JavaHttpClientConnectionFactory(Version.HTTP_1_1);
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		if (server != null) {
+			server.stop(0);
+		}
+		executor.shutdownNow();
+		if (keyDir != null) {
+			FileUtils.delete(keyDir, FileUtils.RECURSIVE);
+		}
+	}
+
+	private URL start(HttpServer s) throws IOException {
+		server = s;
+		server.createContext("/", this::handle);
+		server.setExecutor(executor);
+		server.start();
+		String scheme = s instanceof HttpsServer ? "https" : "http";
+		return new URL(scheme + "://localhost:" + s.getAddress().getPort()
+				+ "/");
+	}
+
+	private URL startHttp() throws IOException {
+		return start(HttpServer.create(
+				new InetSocketAddress(InetAddress.getLoopbackAddress(), 0),
+				0));
+	}
+
+	private URL startHttps() throws Exception {
+		keyDir = Files.createTempDirectory("jks").toFile();
+		File keyStore = new File(keyDir, "keystore.p12");
+		File keytool = new File(
+				new File(new File(System.getProperty("java.home")), "bin"),
+				"keytool");
+		// The certificate does not name localhost.
+		Process p = new ProcessBuilder(keytool.getAbsolutePath(), //
+				"-keystore", keyStore.getAbsolutePath(), //
+				"-storetype", "PKCS12", //
+				"-storepass", PASSWORD, //
+				"-alias", "server", //
+				"-ext", "san=DNS:git.example.org", //
+				"-genkeypair", //
+				"-keyalg", "RSA", //
+				"-dname", "CN=git.example.org", //
+				"-validity", "2").redirectErrorStream(true).start();
+		p.getInputStream().transferTo(OutputStream.nullOutputStream());
+		assertEquals(0, p.waitFor());
+
+		KeyStore ks = KeyStore.getInstance("PKCS12");
+		try (InputStream in = new FileInputStream(keyStore)) {
+			ks.load(in, PASSWORD.toCharArray());
+		}
+		KeyManagerFactory kmf = KeyManagerFactory
+				.getInstance(KeyManagerFactory.getDefaultAlgorithm());
+		kmf.init(ks, PASSWORD.toCharArray());
+		SSLContext ctx = SSLContext.getInstance("TLS");
+		ctx.init(kmf.getKeyManagers(), null, null);
+
+		HttpsServer s = HttpsServer.create(
+				new InetSocketAddress(InetAddress.getLoopbackAddress(), 0),
+				0);
+		s.setHttpsConfigurator(new HttpsConfigurator(ctx));
+		return start(s);
+	}
+
+	private void handle(HttpExchange exchange) throws IOException {
+		remotes.add(exchange.getRemoteAddress());
+		long n = 0;
+		byte[] buf = new byte[1024];
+		try (InputStream in = exchange.getRequestBody()) {
+			int r;
+			while ((r = in.read(buf)) > 0) {
+				n += r;
+				bodyStarted.countDown();
+			}
+		}
+		contentLength = exchange.getRequestHeaders()
+				.getFirst(HttpSupport.HDR_CONTENT_LENGTH);
+		byte[] reply = Long.toString(n).getBytes(UTF_8);
+		exchange.sendResponseHeaders(200, reply.length);
+		try (OutputStream out = exchange.getResponseBody()) {
+			out.write(reply);
+		}
+	}
+
+	private static String read(HttpConnection c) throws IOException {
+		assertEquals(200, c.getResponseCode());
+		try (InputStream in = c.getInputStream()) {
+			return new String(IO.readWholeStream(in, 0).array(), UTF_8)
+					.trim();
+		}
+	}
+
+	@Test
+	public void testRequestsShareClientAndConnection() throws Exception {
+		URL url = startHttp();
+		assertEquals("0", read(factory.create(url)));
+		assertEquals("0", read(factory.create(url, Proxy.NO_PROXY)));
+
+		assertEquals(2, remotes.size());
+		assertEquals(remotes.get(0), remotes.get(1));
+		assertSame(factory.getClient(null, 0, null),
+				factory.getClient(Proxy.NO_PROXY, 0, null));
+	}
+
+	@Test
+	public void testBodyStreamedWhileWritten() throws Exception {
+		URL url = startHttp();
+		HttpConnection c = factory.create(url);
+		c.setRequestMethod(HttpSupport.METHOD_POST);
+		c.setDoOutput(true);
+		c.setChunkedStreamingMode(0);
+		try (OutputStream out = c.getOutputStream()) {
+			out.write(new byte[1000]);
+			out.flush();
+			// The server reads the body before it was written completely.
+			assertTrue(bodyStarted.await(10, TimeUnit.SECONDS));
+			out.write(new byte[2000]);
+		}
+		assertEquals("3000", read(c));
+		assertNull(contentLength);
+	}
+
+	@Test
+	public void testFixedLengthBody() throws Exception {
+		URL url = startHttp();
+		HttpConnection c = factory.create(url);
+		c.setRequestMethod(HttpSupport.METHOD_POST);
+		c.setDoOutput(true);
+		c.setFixedLengthStreamingMode(500);
+		try (OutputStream out = c.getOutputStream()) {
+			out.write(new byte[500]);
+		}
+		assertEquals("500", read(c));
+		assertEquals("500", contentLength);
+	}
+
+	@Test
+	public void testSocksProxyRejected() throws Exception {
+		URL url = new URL("http://localhost/");
+		assertThrows(IOException.class,
+				() -> factory.create(url, new Proxy(Proxy.Type.SOCKS,
+						new InetSocketAddress("localhost", 1080))));
+	}
+
+	@Test
+	public void testConfiguredConnectionsShareClient() throws Exception {
+		HostnameVerifier any = (host, session) -> true;
+		SSLContext a = factory.getSSLContext(null,
+				new TrustManager[] { new NoCheckX509TrustManager() }, null,
+				any);
+		SSLContext b = factory.getSSLContext(null,
+				new TrustManager[] { new NoCheckX509TrustManager() }, null,
+				any);
+		assertSame(a, b);
+		assertSame(factory.getClient(null, 0, a),
+				factory.getClient(null, 0, b));
+	}
+
+	@Test
+	public void testHostnameVerifier() throws Exception {
+		URL url = startHttps();
+
+		// The trust managers accept the certificate, but not for localhost.
+		HttpConnection c = factory.create(url);
+		c.configure(null,
+				new TrustManager[] { new NoCheckX509TrustManager() }, null);
+		assertThrows(IOException.class, () -> c.getResponseCode());
+
+		List<Certificate> seen = new ArrayList<>();
+		HttpConnection accepted = factory.create(url);
+		accepted.configure(null,
+				new TrustManager[] { new NoCheckX509TrustManager() }, null);
+		accepted.setHostnameVerifier((host, session) -> {
+			assertEquals("localhost", host);
+			try {
+				seen.add(session.getPeerCertificates()[0]);
+			} catch (IOException e) {
+				return false;
+			}
+			return true;
+		});
+		assertEquals("0", read(accepted));
+		assertFalse(seen.isEmpty());
+		assertNotNull(seen.get(0));
+
+		HttpConnection rejected = factory.create(url);
+		rejected.configure(null,
+				new TrustManager[] { new NoCheckX509TrustManager() }, null);
+		rejected.setHostnameVerifier((host, session) -> false);
+		assertThrows(IOException.class, () -> rejected.getResponseCode());
+	}
+}
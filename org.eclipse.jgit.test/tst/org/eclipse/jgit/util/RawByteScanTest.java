@@ -0,0 +1,101 @@
+/*
+ * Copyright (C) 2023, Google LLC and others
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Distribution License v. 1.0 which is available at
+ * https://www.eclipse.org/org/documents/edl-v10.php.
+ *
+ * SPDX-License-Identifier: BSD-3-Clause
+ */
+
+package org.eclipse.jgit.util;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+
+import org.eclipse.jgit.errors.BinaryBlobException;
+import org.junit.Test;
+
+public class RawByteScanTest {
+	private static final byte[] ALPHABET = " \t\r\n\0ab{}\u00e9"
+			.getBytes(UTF_8);
+
+	@Test
+	public void testNextLF() {
+		byte[] buf = "0123456789abcdef\n0123\n".getBytes(UTF_8);
+		assertEquals(17, RawByteScan.nextLFWords(buf, 0, buf.length));
+		assertEquals(22, RawByteScan.nextLFWords(buf, 17, buf.length));
+		assertEquals(10, RawByteScan.nextLFWords(buf, 0, 10));
+		assertEquals(buf.length, RawByteScan.nextLFWords(buf, 22, buf.length));
+	}
+
+	@Test
+	public void testWordsMatchBytes() {
+		Random rng = new Random(7);
+		for (int i = 0; i < 2000; i++) {
+			byte[] buf = random(rng, rng.nextInt(64));
+			int ptr = buf.length == 0 ? 0 : rng.nextInt(buf.length);
+			int end = buf.length;
+
+			assertEquals(RawByteScan.nextLFBytes(buf, ptr, end),
+					RawByteScan.nextLFWords(buf, ptr, end));
+			assertEquals(RawByteScan.djbHashBytes(5381, buf, ptr, end),
+					RawByteScan.djbHash(5381, buf, ptr, end));
+			assertEquals(
+					RawByteScan.djbHashNonWhitespace(5381, buf, ptr, end),
+					RawByteScan.djbHashIgnoreWhitespace(5381, buf, ptr, end));
+		}
+	}
+
+	@Test
+	public void testCollapseWhitespace() {
+		byte[] a = "if  (a)\t{ return   b; }".getBytes(UTF_8);
+		byte[] b = "if (a) { return b; }".getBytes(UTF_8);
+		assertEquals(RawByteScan.djbHash(5381, b, 0, b.length),
+				RawByteScan.djbHashCollapseWhitespace(5381, a, 0, a.length));
+	}
+
+	@Test
+	public void testLineMapOrBinary() throws Exception {
+		Random rng = new Random(11);
+		for (int i = 0; i < 2000; i++) {
+			byte[] buf = random(rng, rng.nextInt(80));
+			boolean binary = false;
+			try {
+				IntList map = RawParseUtils.lineMapOrBinary(buf, 0,
+						buf.length);
+				IntList expected = RawParseUtils.lineMap(buf, 0, buf.length);
+				assertEquals(expected.size(), map.size());
+				for (int l = 1; l < map.size(); l++) {
+					assertEquals(expected.get(l), map.get(l));
+				}
+			} catch (BinaryBlobException e) {
+				binary = true;
+			}
+			assertEquals(isBinary(buf), binary);
+		}
+	}
+
+	private static boolean isBinary(byte[] buf) {
+		byte last = '\n';
+		for (byte b : buf) {
+			if (b == '\0' || (last == '\r' && b != '\n')) {
+				return true;
+			}
+			last = b;
+		}
+		return last == '\r';
+	}
+
+	private static byte[] random(Random rng, int len) {
+		byte[] buf = new byte[len];
+		for (int i = 0; i < len; i++) {
+			// Mostly plain text, so that word-at-a-time paths are exercised.
+			buf[i] = rng.nextInt(4) == 0 ? ALPHABET[rng.nextInt(ALPHABET.length)]
+					: (byte) ('a' + rng.nextInt(26));
+		}
+		return buf;
+	}
+}
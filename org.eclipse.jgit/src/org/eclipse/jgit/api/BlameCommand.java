@@ -13,9 +13,11 @@
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.concurrent.Executor;
 
 import org.eclipse.jgit.api.errors.GitAPIException;
 import org.eclipse.jgit.api.errors.JGitInternalException;
+import org.eclipse.jgit.blame.BlameCache;
 import org.eclipse.jgit.blame.BlameGenerator;
 import org.eclipse.jgit.blame.BlameResult;
 import org.eclipse.jgit.diff.DiffAlgorithm;
@@ -42,6 +44,10 @@ public class BlameCommand extends GitCommand<BlameResult> {
 
 	private Boolean followFileRenames;
 
+	private BlameCache blameCache;
+
+	private Executor executor;
+
 	/**
 	 * Constructor for BlameCommand
 	 *
@@ -117,6 +123,34 @@ public BlameCommand setFollowFileRenames(boolean follow) {
 		return this;
 	}
 
+	/**
+	 * Set the cache of previously computed blame results.
+	 *
+	 * @param cache
+	 *            the cache to consult and update; null to not use a cache.
+	 * @return {@code this}
+	 * @see BlameGenerator#setBlameCache(BlameCache)
+	 * @since 6.6
+	 */
+	public BlameCommand setBlameCache(BlameCache cache) {
+		blameCache = cache;
+		return this;
+	}
+
+	/**
+	 * Set an executor to compare the parents of merges concurrently.
+	 *
+	 * @param executor
+	 *            the executor to use; null to compare parents one at a time.
+	 * @return {@code this}
+	 * @see BlameGenerator#setExecutor(Executor)
+	 * @since 6.6
+	 */
+	public BlameCommand setExecutor(Executor executor) {
+		this.executor = executor;
+		return this;
+	}
+
 	/**
 	 * Configure the command to compute reverse blame (history of deletes).
 	 *
@@ -171,6 +205,8 @@ public BlameResult call() throws GitAPIException {
 				gen.setTextComparator(textComparator);
 			if (followFileRenames != null)
 				gen.setFollowFileRenames(followFileRenames.booleanValue());
+			gen.setBlameCache(blameCache);
+			gen.setExecutor(executor);
 
 			if (reverseEndCommits != null)
 				gen.reverse(startCommit, reverseEndCommits);
@@ -100,6 +100,10 @@ public class CloneCommand extends TransportCommand<CloneCommand, Git> {
 
 	private List<String> shallowExcludes = new ArrayList<>();
 
+	private List<String> bundleUris = new ArrayList<>();
+
+	private Boolean useBundleUris;
+
 	private enum FETCH_TYPE {
 		MULTIPLE_BRANCHES, ALL_BRANCHES, MIRROR
 	}
@@ -320,6 +324,10 @@ private FetchResult fetch(Repository clonedRepo, URIish u)
 			command.setShallowSince(shallowSince);
 		}
 		command.setShallowExcludes(shallowExcludes);
+		command.setBundleUris(bundleUris);
+		if (useBundleUris != null) {
+			command.setUseBundleUris(useBundleUris.booleanValue());
+		}
 		configure(command);
 
 		return command.call();
@@ -827,6 +835,43 @@ public CloneCommand addShallowExclude(@NonNull ObjectId shallowExclude) {
 		return this;
 	}
 
+	/**
+	 * Unbundle a bundle before fetching from the remote, like
+	 * {@code git clone --bundle-uri}.
+	 * <p>
+	 * Only the objects the bundle does not contain are fetched from the
+	 * remote. The clone continues without the bundle if it cannot be read.
+	 *
+	 * @param uri
+	 *            location of the bundle; a local path, {@code file:} or
+	 *            HTTP(S) URL; must not be {@code null}
+	 * @return {@code this}
+	 *
+	 * @since 6.6
+	 */
+	public CloneCommand addBundleUri(@NonNull String uri) {
+		bundleUris.add(uri);
+		return this;
+	}
+
+	/**
+	 * Set whether to unbundle the bundles the remote advertises through the
+	 * protocol V2 {@code bundle-uri} command before fetching.
+	 * <p>
+	 * By default the {@code transfer.bundleURI} of the cloned repository is
+	 * used.
+	 *
+	 * @param use
+	 *            whether to use the bundles advertised by the remote
+	 * @return {@code this}
+	 *
+	 * @since 6.6
+	 */
+	public CloneCommand setUseBundleUris(boolean use) {
+		useBundleUris = Boolean.valueOf(use);
+		return this;
+	}
+
 	private static void validateDirs(File directory, File gitDir, boolean bare)
 			throws IllegalStateException {
 		if (directory != null) {
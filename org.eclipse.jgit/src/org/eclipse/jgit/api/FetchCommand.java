@@ -18,6 +18,7 @@
 import java.time.OffsetDateTime;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
 import org.eclipse.jgit.annotations.NonNull;
@@ -44,6 +45,7 @@
 import org.eclipse.jgit.transport.FetchResult;
 import org.eclipse.jgit.transport.RefSpec;
 import org.eclipse.jgit.transport.TagOpt;
+import org.eclipse.jgit.transport.TransferConfig.NegotiationAlgorithm;
 import org.eclipse.jgit.transport.Transport;
 
 /**
@@ -87,6 +89,12 @@ public class FetchCommand extends TransportCommand<FetchCommand, FetchResult> {
 
 	private boolean unshallow;
 
+	private NegotiationAlgorithm negotiationAlgorithm;
+
+	private List<String> bundleUris = Collections.emptyList();
+
+	private Boolean useBundleUris;
+
 	/**
 	 * Callback for status of fetch operation.
 	 *
@@ -234,6 +242,14 @@ public FetchResult call() throws GitAPIException, InvalidRemoteException,
 				transport.setDeepenSince(deepenSince);
 			}
 			transport.setDeepenNots(shallowExcludes);
+			if (negotiationAlgorithm != null) {
+				transport.setFetchNegotiator(
+						negotiationAlgorithm::newNegotiator);
+			}
+			transport.setBundleUris(bundleUris);
+			if (useBundleUris != null) {
+				transport.setUseBundleUris(useBundleUris.booleanValue());
+			}
 			configure(transport);
 			FetchResult result = transport.fetch(monitor,
 					applyOptions(refSpecs), initialBranch);
@@ -665,6 +681,66 @@ public FetchCommand setUnshallow(boolean unshallow) {
 		return this;
 	}
 
+	/**
+	 * Set how the commits the local repository has are selected during
+	 * negotiation with the remote.
+	 * <p>
+	 * By default the {@code fetch.negotiationAlgorithm} of the local
+	 * repository is used.
+	 *
+	 * @param algorithm
+	 *            the negotiation algorithm; {@code null} to use the
+	 *            configured algorithm.
+	 * @return {@code this}
+	 *
+	 * @since 6.6
+	 */
+	public FetchCommand setNegotiationAlgorithm(
+			NegotiationAlgorithm algorithm) {
+		checkCallable();
+		this.negotiationAlgorithm = algorithm;
+		return this;
+	}
+
+	/**
+	 * Set bundles to unbundle before fetching from the remote.
+	 * <p>
+	 * The refs of the bundles are stored in {@code refs/bundles/*}, and only
+	 * the objects the bundles do not contain are fetched from the remote.
+	 * Bundles which cannot be read are skipped.
+	 *
+	 * @param uris
+	 *            locations of the bundles, applied in the given order; local
+	 *            paths, {@code file:} or HTTP(S) URLs
+	 * @return {@code this}
+	 *
+	 * @since 6.6
+	 */
+	public FetchCommand setBundleUris(@NonNull List<String> uris) {
+		checkCallable();
+		this.bundleUris = uris;
+		return this;
+	}
+
+	/**
+	 * Set whether to unbundle the bundles advertised by the remote when
+	 * fetching into a repository without refs.
+	 * <p>
+	 * By default the {@code transfer.bundleURI} of the local repository is
+	 * used.
+	 *
+	 * @param use
+	 *            whether to use the bundles advertised by the remote
+	 * @return {@code this}
+	 *
+	 * @since 6.6
+	 */
+	public FetchCommand setUseBundleUris(boolean use) {
+		checkCallable();
+		this.useBundleUris = Boolean.valueOf(use);
+		return this;
+	}
+
 	void setShallowExcludes(List<String> shallowExcludes) {
 		this.shallowExcludes = shallowExcludes;
 	}
@@ -0,0 +1,76 @@
+/*
+ * Copyright (C) 2023, Google LLC and others
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Distribution License v. 1.0 which is available at
+ * https://www.eclipse.org/org/documents/edl-v10.php.
+ *
+ * SPDX-License-Identifier: BSD-3-Clause
+ */
+
+package org.eclipse.jgit.blame;
+
+import java.io.IOException;
+import java.util.List;
+
+import org.eclipse.jgit.annotations.Nullable;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Repository;
+
+/**
+ * Storage of previously computed blame results.
+ * <p>
+ * When a {@link org.eclipse.jgit.blame.BlameGenerator} reaches a commit whose
+ * blame for the file being traversed is available in the cache, it takes the
+ * remaining regions from the cache instead of walking further back in history.
+ * Only the commits between the requested revision and the nearest cached
+ * ancestor need to be examined.
+ * <p>
+ * Results are identified by commit and path only. Generators therefore only
+ * use the cache with the default diff algorithm and text comparator and with
+ * renames followed, so all cached results are computed with the same
+ * settings.
+ * <p>
+ * Implementations may keep the regions in memory (see
+ * {@link org.eclipse.jgit.blame.InMemoryBlameCache}) or persist them, and must
+ * be safe for use by multiple threads if shared by concurrent generators.
+ *
+ * @since 6.6
+ */
+public interface BlameCache {
+	/**
+	 * Look up the blame of a file.
+	 *
+	 * @param repo
+	 *            repository the blame is computed in.
+	 * @param commitId
+	 *            commit the file is blamed at.
+	 * @param path
+	 *            path of the file in {@code commitId}.
+	 * @return regions covering every line of the file, sorted by
+	 *         {@link CacheRegion#getStart()}; null if not cached.
+	 * @throws IOException
+	 *             the cache cannot be read.
+	 */
+	@Nullable
+	List<CacheRegion> get(Repository repo, ObjectId commitId, String path)
+			throws IOException;
+
+	/**
+	 * Store the blame of a file.
+	 *
+	 * @param repo
+	 *            repository the blame was computed in.
+	 * @param commitId
+	 *            commit the file was blamed at.
+	 * @param path
+	 *            path of the file in {@code commitId}.
+	 * @param regions
+	 *            regions covering every line of the file, sorted by
+	 *            {@link CacheRegion#getStart()}.
+	 * @throws IOException
+	 *             the cache cannot be written.
+	 */
+	void put(Repository repo, ObjectId commitId, String path,
+			List<CacheRegion> regions) throws IOException;
+}
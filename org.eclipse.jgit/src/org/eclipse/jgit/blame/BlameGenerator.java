@@ -11,16 +11,25 @@
 package org.eclipse.jgit.blame;
 
 import static org.eclipse.jgit.lib.Constants.OBJ_BLOB;
+import static org.eclipse.jgit.lib.Constants.OBJ_COMMIT;
 import static org.eclipse.jgit.lib.FileMode.TYPE_FILE;
 import static org.eclipse.jgit.lib.FileMode.TYPE_MASK;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
 import java.text.MessageFormat;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
 
 import org.eclipse.jgit.annotations.Nullable;
 import org.eclipse.jgit.api.errors.NoHeadException;
@@ -117,10 +126,34 @@ public class BlameGenerator implements AutoCloseable {
 
 	private DiffAlgorithm diffAlgorithm = new HistogramDiff();
 
+	/** Whether {@link #diffAlgorithm} was replaced by the application. */
+	private boolean customDiffAlgorithm;
+
 	private RawTextComparator textComparator = RawTextComparator.DEFAULT;
 
 	private RenameDetector renameDetector;
 
+	private BlameCache blameCache;
+
+	/** Runs the comparisons against the parents of a merge, if set. */
+	private Executor executor;
+
+	/**
+	 * Commit pushed first, whose blame of the file can be stored in
+	 * {@link #blameCache}; null otherwise. Blobs such as the index and the
+	 * working tree may be pushed on top of it.
+	 */
+	private RevCommit resultCommit;
+
+	/** Number of lines of the file in {@link #resultCommit}. */
+	private int resultCommitLines;
+
+	/**
+	 * Result line of each line of the file in {@link #resultCommit}, once the
+	 * candidate of that commit was reached with all of its lines.
+	 */
+	private int[] resultCommitMap;
+
 	/** Potential candidates, sorted by commit time descending. */
 	private Candidate queue;
 
@@ -197,6 +230,7 @@ public String getResultPath() {
 	 */
 	public BlameGenerator setDiffAlgorithm(DiffAlgorithm algorithm) {
 		diffAlgorithm = algorithm;
+		customDiffAlgorithm = true;
 		return this;
 	}
 
@@ -244,6 +278,67 @@ public RenameDetector getRenameDetector() {
 		return renameDetector;
 	}
 
+	/**
+	 * Set an executor to compare the parents of merges concurrently.
+	 * <p>
+	 * At a merge commit the file of each parent is loaded (using a separate
+	 * {@link org.eclipse.jgit.lib.ObjectReader} per parent) and compared to
+	 * the merge concurrently. Blame is still assigned to the parents in their
+	 * order, so the output is identical to the output of a generator without
+	 * an executor. Parents are compared eagerly, even if the comparison with
+	 * an earlier parent would have made later comparisons unnecessary.
+	 *
+	 * @param executor
+	 *            the executor to run comparisons on, or {@code null} to
+	 *            compare parents one at a time on the calling thread.
+	 * @return {@code this}
+	 * @since 6.6
+	 */
+	public BlameGenerator setExecutor(@Nullable Executor executor) {
+		this.executor = executor;
+		return this;
+	}
+
+	/**
+	 * Set the cache of previously computed blame results.
+	 * <p>
+	 * The generator stops traversing history at commits whose blame of the
+	 * file is found in the cache and takes the remaining regions from the
+	 * cache. {@link #computeBlameResult()} stores the blame of the commit
+	 * first pushed with {@link #push(String, AnyObjectId)}, such as HEAD by
+	 * {@link #prepareHead()}, if none of its lines were changed by the index
+	 * or working tree pushed on top of it. Cached results naming commits
+	 * missing from the repository are ignored.
+	 * <p>
+	 * Regions taken from the cache do not provide
+	 * {@link #getSourceContents()}, and the cache is not used for reverse
+	 * blame. As the cache is keyed by commit and path only, it is neither
+	 * read nor written unless the generator uses the default diff algorithm
+	 * and text comparator and follows renames; a cache shared by generators
+	 * with other settings would otherwise return blame computed with
+	 * different settings.
+	 *
+	 * @param cache
+	 *            the cache to use, or {@code null} to not use a cache.
+	 * @return {@code this}
+	 * @since 6.6
+	 */
+	public BlameGenerator setBlameCache(@Nullable BlameCache cache) {
+		blameCache = cache;
+		return this;
+	}
+
+	/**
+	 * Get the cache of previously computed blame results.
+	 *
+	 * @return the cache, or {@code null} if none is used.
+	 * @since 6.6
+	 */
+	@Nullable
+	public BlameCache getBlameCache() {
+		return blameCache;
+	}
+
 	/**
 	 * Push a candidate blob onto the generator's traversal stack.
 	 * <p>
@@ -358,6 +453,7 @@ public BlameGenerator prepareHead() throws NoHeadException, IOException {
 				c.sourceText = inTree;
 				c.regionList = new Region(0, 0, inTree.size());
 				remaining = inTree.size();
+				resultCommit = null;
 				push(c);
 			}
 		}
@@ -436,6 +532,8 @@ public BlameGenerator push(String description, AnyObjectId id)
 		c.loadText(reader);
 		c.regionList = new Region(0, 0, c.sourceText.size());
 		remaining = c.sourceText.size();
+		resultCommit = queue == null ? commit : null;
+		resultCommitLines = c.sourceText.size();
 		push(c);
 		return this;
 	}
@@ -502,6 +600,7 @@ public BlameGenerator reverse(AnyObjectId start, AnyObjectId end)
 	public BlameGenerator reverse(AnyObjectId start,
 			Collection<? extends ObjectId> end) throws IOException {
 		initRevPool(true);
+		resultCommit = null;
 
 		ReverseCommit result = (ReverseCommit) revPool.parseCommit(start);
 		if (!find(result, resultPath))
@@ -547,8 +646,19 @@ public RevFlag newFlag(String name) {
 	public BlameResult computeBlameResult() throws IOException {
 		try {
 			BlameResult r = BlameResult.create(this);
-			if (r != null)
+			if (r != null) {
 				r.computeAll();
+				RevCommit commit = resultCommit;
+				int[] map = resultCommitMap;
+				if (useBlameCache() && commit != null && map != null) {
+					List<CacheRegion> regions = CacheRegion
+							.fromBlameResult(r, map);
+					if (regions != null) {
+						blameCache.put(getRepository(), commit,
+								getResultPath(), regions);
+					}
+				}
+			}
 			return r;
 		} finally {
 			close();
@@ -592,6 +702,16 @@ public boolean next() throws IOException {
 			if (n == null)
 				return done();
 
+			if (useBlameCache()) {
+				if (resultCommit != null && resultCommitMap == null
+						&& n.sourceCommit == resultCommit) {
+					mapResultCommit(n);
+				}
+				Candidate cached = fromCache(n);
+				if (cached != null)
+					return result(cached);
+			}
+
 			int pCnt = n.getParentCount();
 			if (pCnt == 1) {
 				if (processOne(n))
@@ -625,6 +745,125 @@ private boolean result(Candidate n) throws IOException {
 		return outRegion != null;
 	}
 
+	/**
+	 * Remember which result line each line of {@link #resultCommit}'s file
+	 * became, so that the blame of the commit can be cached once computed.
+	 * Lines changed by the blobs pushed on top of the commit are not blamed,
+	 * and such a commit cannot be cached.
+	 */
+	private void mapResultCommit(Candidate n) {
+		int[] map = new int[resultCommitLines];
+		int mapped = 0;
+		for (Region r = n.regionList; r != null; r = r.next) {
+			for (int i = 0; i < r.length; i++) {
+				map[r.sourceStart + i] = r.resultStart + i;
+			}
+			mapped += r.length;
+		}
+		if (mapped == map.length) {
+			resultCommitMap = map;
+		} else {
+			resultCommit = null;
+		}
+	}
+
+	/**
+	 * Whether blame may be taken from and stored in {@link #blameCache}.
+	 * Cached results are only valid for the default settings of the
+	 * generator, as the cache is not keyed by them.
+	 */
+	private boolean useBlameCache() {
+		return blameCache != null && !customDiffAlgorithm
+				&& textComparator == RawTextComparator.DEFAULT
+				&& renameDetector != null;
+	}
+
+	/**
+	 * Resolve the candidate's regions from {@link #blameCache}.
+	 *
+	 * @return chain of candidates (linked by {@code queueNext}) holding the
+	 *         cached blame of all regions of {@code n}; null if the candidate
+	 *         is not completely covered by the cache.
+	 */
+	private Candidate fromCache(Candidate n) throws IOException {
+		if (n.sourceCommit == null || n instanceof ReverseCandidate
+				|| n.regionList == null) {
+			return null;
+		}
+		List<CacheRegion> cached = blameCache.get(getRepository(),
+				n.sourceCommit, n.sourcePath.getPath());
+		if (cached == null || cached.isEmpty()) {
+			return null;
+		}
+
+		// Sources in order of first appearance, and the last region of each.
+		Map<ObjectId, Map<String, Candidate>> bySource = new HashMap<>();
+		Map<Candidate, Region> tails = new LinkedHashMap<>();
+		int cIdx = 0;
+		for (Region r = n.regionList; r != null; r = r.next) {
+			int pos = r.sourceStart;
+			int end = r.sourceStart + r.length;
+			while (pos < end) {
+				while (cIdx < cached.size()
+						&& cached.get(cIdx).getEnd() <= pos) {
+					cIdx++;
+				}
+				if (cIdx == cached.size()
+						|| pos < cached.get(cIdx).getStart()) {
+					// Cache does not describe this line; ignore it.
+					return null;
+				}
+				CacheRegion c = cached.get(cIdx);
+				int len = Math.min(end, c.getEnd()) - pos;
+				Region out = new Region(r.resultStart + (pos - r.sourceStart),
+						c.getSourceStart() + (pos - c.getStart()), len);
+
+				Map<String, Candidate> byPath = bySource
+						.get(c.getSourceCommit());
+				if (byPath == null) {
+					// The cache may be shared with other repositories.
+					if (!reader.has(c.getSourceCommit(), OBJ_COMMIT)) {
+						return null;
+					}
+					byPath = new HashMap<>();
+					bySource.put(c.getSourceCommit(), byPath);
+				}
+				Candidate dst = byPath.get(c.getSourcePath());
+				if (dst == null) {
+					dst = new Candidate(getRepository(),
+							revPool.parseCommit(c.getSourceCommit()),
+							PathFilter.create(c.getSourcePath()));
+					byPath.put(c.getSourcePath(), dst);
+					dst.regionList = out;
+				} else {
+					Region tail = tails.get(dst);
+					if (tail.resultStart + tail.length == out.resultStart
+							&& tail.sourceStart + tail.length
+									== out.sourceStart) {
+						tail.length += out.length;
+						out = tail;
+					} else {
+						tail.next = out;
+					}
+				}
+				tails.put(dst, out);
+				pos += len;
+			}
+		}
+
+		Candidate head = null;
+		Candidate tail = null;
+		for (Candidate c : tails.keySet()) {
+			if (tail == null) {
+				head = c;
+			} else {
+				tail.queueNext = c;
+			}
+			tail = c;
+		}
+		return head;
+	}
+
 	private boolean reverseResult(Candidate parent, Candidate source)
 			throws IOException {
 		// On a reverse blame present the application the parent
@@ -821,7 +1060,7 @@ private boolean processMerge(Candidate n) throws IOException {
 		}
 
 		// Construct the candidate for each parent.
-		Candidate[] parents = new Candidate[pCnt];
+		Candidate[] created = new Candidate[pCnt];
 		for (int pIdx = 0; pIdx < pCnt; pIdx++) {
 			RevCommit parent = n.getParent(pIdx);
 
@@ -837,51 +1076,74 @@ private boolean processMerge(Candidate n) throws IOException {
 			} else {
 				continue;
 			}
+			created[pIdx] = p;
+		}
 
-			EditList editList;
-			if (n instanceof ReverseCandidate
-					&& p.sourceBlob.equals(n.sourceBlob)) {
-				// This special case happens on ReverseCandidate forks.
-				p.sourceText = n.sourceText;
-				editList = new EditList(0);
-			} else {
-				p.loadText(reader);
-				editList = diffAlgorithm.diff(textComparator,
-						p.sourceText, n.sourceText);
-			}
+		// Load and diff the parents concurrently, if configured. Blame is
+		// still assigned below in parent order, so the result is the same
+		// as if the parents were compared one at a time.
+		List<Future<EditList>> diffs = null;
+		if (executor != null) {
+			diffs = diffParents(n, created);
+		}
 
-			if (editList.isEmpty()) {
-				// Ignoring whitespace (or some other special comparator) can
-				// cause non-identical blobs to have an empty edit list. In
-				// a case like this push the parent alone.
-				if (n instanceof ReverseCandidate) {
-					parents[pIdx] = p;
+		Candidate[] parents = new Candidate[pCnt];
+		try {
+			for (int pIdx = 0; pIdx < pCnt; pIdx++) {
+				Candidate p = created[pIdx];
+				if (p == null) {
 					continue;
 				}
 
-				p.regionList = n.regionList;
-				n.regionList = null;
-				parents[pIdx] = p;
-				break;
-			}
+				EditList editList;
+				if (n instanceof ReverseCandidate
+						&& p.sourceBlob.equals(n.sourceBlob)) {
+					// This special case happens on ReverseCandidate forks.
+					p.sourceText = n.sourceText;
+					editList = new EditList(0);
+				} else if (diffs != null) {
+					editList = get(diffs.get(pIdx));
+				} else {
+					p.loadText(reader);
+					editList = diffAlgorithm.diff(textComparator,
+							p.sourceText, n.sourceText);
+				}
 
-			p.takeBlame(editList, n);
+				if (editList.isEmpty()) {
+					// Ignoring whitespace (or some other special comparator)
+					// can cause non-identical blobs to have an empty edit
+					// list. In a case like this push the parent alone.
+					if (n instanceof ReverseCandidate) {
+						parents[pIdx] = p;
+						continue;
+					}
 
-			// Only remember this parent candidate if there is at least
-			// one region that was blamed on the parent.
-			if (p.regionList != null) {
-				// Reverse blame requires inverting the regions. This puts
-				// the regions the parent deleted from us into the parent,
-				// and retains the common regions to look at other parents
-				// for deletions.
-				if (n instanceof ReverseCandidate) {
-					Region r = p.regionList;
 					p.regionList = n.regionList;
-					n.regionList = r;
+					n.regionList = null;
+					parents[pIdx] = p;
+					break;
 				}
 
-				parents[pIdx] = p;
+				p.takeBlame(editList, n);
+
+				// Only remember this parent candidate if there is at least
+				// one region that was blamed on the parent.
+				if (p.regionList != null) {
+					// Reverse blame requires inverting the regions. This puts
+					// the regions the parent deleted from us into the parent,
+					// and retains the common regions to look at other parents
+					// for deletions.
+					if (n instanceof ReverseCandidate) {
+						Region r = p.regionList;
+						p.regionList = n.regionList;
+						n.regionList = r;
+					}
+
+					parents[pIdx] = p;
+				}
 			}
+		} finally {
+			cancel(diffs);
 		}
 
 		if (n instanceof ReverseCandidate) {
@@ -928,6 +1190,88 @@ private boolean processMerge(Candidate n) throws IOException {
 		return false;
 	}
 
+	/**
+	 * Start loading and diffing the parents of a merge on {@link #executor}.
+	 *
+	 * @return one future per parent (null for parents which are not
+	 *         compared), or null if there are not enough parents to compare
+	 *         to make running them concurrently worthwhile.
+	 */
+	private List<Future<EditList>> diffParents(Candidate n,
+			Candidate[] created) {
+		int cnt = 0;
+		for (Candidate p : created) {
+			if (needsDiff(n, p)) {
+				cnt++;
+			}
+		}
+		if (cnt < 2) {
+			return null;
+		}
+
+		List<Future<EditList>> diffs = new ArrayList<>(created.length);
+		for (Candidate p : created) {
+			if (!needsDiff(n, p)) {
+				diffs.add(null);
+				continue;
+			}
+			FutureTask<EditList> task = new FutureTask<>(() -> {
+				try (ObjectReader r = reader.newReader()) {
+					p.loadText(r);
+				}
+				return diffAlgorithm.diff(textComparator, p.sourceText,
+						n.sourceText);
+			});
+			diffs.add(task);
+			executor.execute(task);
+		}
+		return diffs;
+	}
+
+	/**
+	 * Cancel the comparisons not needed once blame was assigned to a parent
+	 * or a comparison failed.
+	 */
+	private static void cancel(List<Future<EditList>> diffs) {
+		if (diffs == null) {
+			return;
+		}
+		for (Future<EditList> diff : diffs) {
+			// Comparisons already running are not interrupted, as that
+			// would close the channels of packs shared with other readers.
+			if (diff != null) {
+				diff.cancel(false);
+			}
+		}
+	}
+
+	private static boolean needsDiff(Candidate n, Candidate p) {
+		return p != null && !(n instanceof ReverseCandidate
+				&& p.sourceBlob.equals(n.sourceBlob));
+	}
+
+	private static EditList get(Future<EditList> diff) throws IOException {
+		try {
+			return diff.get();
+		} catch (InterruptedException e) {
+			InterruptedIOException err = new InterruptedIOException();
+			err.initCause(e);
+			throw err;
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof IOException) {
+				throw (IOException) cause;
+			}
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw new IOException(cause.getMessage(), cause);
+		}
+	}
+
 	/**
 	 * Get the revision blamed for the current region.
 	 * <p>
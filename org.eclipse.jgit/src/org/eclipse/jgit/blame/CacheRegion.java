@@ -0,0 +1,193 @@
+/*
+ * Copyright (C) 2023, Google LLC and others
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Distribution License v. 1.0 which is available at
+ * https://www.eclipse.org/org/documents/edl-v10.php.
+ *
+ * SPDX-License-Identifier: BSD-3-Clause
+ */
+
+package org.eclipse.jgit.blame;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.eclipse.jgit.annotations.Nullable;
+import org.eclipse.jgit.lib.AnyObjectId;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.revwalk.RevCommit;
+
+/**
+ * Range of lines of a file blamed on one source, as stored in a
+ * {@link org.eclipse.jgit.blame.BlameCache}.
+ * <p>
+ * The range {@code [start, end)} refers to 0 based line numbers of the file
+ * the cached blame was computed for. The lines were introduced by
+ * {@link #getSourceCommit()} in file {@link #getSourcePath()}, starting at
+ * line {@link #getSourceStart()} of that file.
+ *
+ * @since 6.6
+ */
+public final class CacheRegion implements Comparable<CacheRegion> {
+	/**
+	 * Convert a completely computed blame into cacheable regions.
+	 *
+	 * @param result
+	 *            the blame to convert, which must have been computed for a
+	 *            commit. Consecutive lines blamed on the same source are
+	 *            combined into one region.
+	 * @return the regions sorted by {@link #getStart()}; null if the result
+	 *         is not complete, or blames some lines on content which was not
+	 *         committed (e.g. the working tree) and thus cannot be cached.
+	 */
+	@Nullable
+	public static List<CacheRegion> fromBlameResult(BlameResult result) {
+		int cnt = result.getResultContents().size();
+		int[] map = new int[cnt];
+		for (int i = 0; i < cnt; i++) {
+			map[i] = i;
+		}
+		return fromBlameResult(result, map);
+	}
+
+	/**
+	 * Convert the blame of a commit's file into cacheable regions.
+	 *
+	 * @param result
+	 *            the completely computed blame of a file derived from the
+	 *            commit's file, e.g. its working tree copy.
+	 * @param map
+	 *            line of {@code result} each line of the commit's file
+	 *            became.
+	 * @return the regions sorted by {@link #getStart()}; null if some line
+	 *         of the commit's file is not blamed on a commit.
+	 */
+	@Nullable
+	static List<CacheRegion> fromBlameResult(BlameResult result, int[] map) {
+		List<CacheRegion> regions = new ArrayList<>();
+		int line = 0;
+		while (line < map.length) {
+			int res = map[line];
+			if (!result.hasSourceData(res)) {
+				return null;
+			}
+			RevCommit commit = result.getSourceCommit(res);
+			if (commit == null) {
+				return null;
+			}
+			String path = result.getSourcePath(res);
+			int sourceStart = result.getSourceLine(res);
+
+			int end = line + 1;
+			while (end < map.length && result.hasSourceData(map[end])
+					&& result.getSourceCommit(map[end]) == commit
+					&& path.equals(result.getSourcePath(map[end]))
+					&& result.getSourceLine(map[end]) == sourceStart + end
+							- line) {
+				end++;
+			}
+			regions.add(new CacheRegion(path, commit, line, end, sourceStart));
+			line = end;
+		}
+		return Collections.unmodifiableList(regions);
+	}
+
+	private final String sourcePath;
+
+	private final ObjectId sourceCommit;
+
+	private final int start;
+
+	private final int end;
+
+	private final int sourceStart;
+
+	/**
+	 * Create a region.
+	 *
+	 * @param sourcePath
+	 *            path of the file the lines were introduced in.
+	 * @param sourceCommit
+	 *            commit which introduced the lines.
+	 * @param start
+	 *            first line of the region, 0 based.
+	 * @param end
+	 *            one past the last line of the region.
+	 * @param sourceStart
+	 *            line of {@code sourcePath} in {@code sourceCommit}
+	 *            corresponding to {@code start}, 0 based.
+	 */
+	public CacheRegion(String sourcePath, AnyObjectId sourceCommit, int start,
+			int end, int sourceStart) {
+		if (end <= start) {
+			throw new IllegalArgumentException();
+		}
+		this.sourcePath = sourcePath;
+		this.sourceCommit = sourceCommit.copy();
+		this.start = start;
+		this.end = end;
+		this.sourceStart = sourceStart;
+	}
+
+	/**
+	 * Get the source path
+	 *
+	 * @return path of the file the lines were introduced in.
+	 */
+	public String getSourcePath() {
+		return sourcePath;
+	}
+
+	/**
+	 * Get the source commit
+	 *
+	 * @return commit which introduced the lines.
+	 */
+	public ObjectId getSourceCommit() {
+		return sourceCommit;
+	}
+
+	/**
+	 * Get the first line of the region
+	 *
+	 * @return first line of the region, 0 based.
+	 */
+	public int getStart() {
+		return start;
+	}
+
+	/**
+	 * Get one past the last line of the region
+	 *
+	 * @return one past the last line of the region.
+	 */
+	public int getEnd() {
+		return end;
+	}
+
+	/**
+	 * Get the first line of the region in the source file
+	 *
+	 * @return line of {@link #getSourcePath()} in {@link #getSourceCommit()}
+	 *         corresponding to {@link #getStart()}, 0 based.
+	 */
+	public int getSourceStart() {
+		return sourceStart;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public int compareTo(CacheRegion o) {
+		return Integer.compare(start, o.start);
+	}
+
+	/** {@inheritDoc} */
+	@SuppressWarnings("nls")
+	@Override
+	public String toString() {
+		return "CacheRegion[" + start + '-' + end + " " + sourcePath + " @ "
+				+ sourceCommit.abbreviate(6).name() + ":" + sourceStart + "]";
+	}
+}
@@ -0,0 +1,151 @@
+/*
+ * Copyright (C) 2023, Google LLC and others
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Distribution License v. 1.0 which is available at
+ * https://www.eclipse.org/org/documents/edl-v10.php.
+ *
+ * SPDX-License-Identifier: BSD-3-Clause
+ */
+
+package org.eclipse.jgit.blame;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Repository;
+
+/**
+ * {@link org.eclipse.jgit.blame.BlameCache} holding a bounded number of
+ * regions in memory.
+ * <p>
+ * Blame results are keyed by commit and path only; as commit ids name the
+ * entire history leading to them, one cache may be shared by repositories
+ * containing the same commits. Results naming commits a repository does not
+ * have are not used by its blame. The least recently used results are evicted
+ * once more than {@link #getMaxRegions()} regions are held. This class is
+ * thread-safe.
+ *
+ * @since 6.6
+ */
+public class InMemoryBlameCache implements BlameCache {
+	/** Default limit of the cache, in regions. */
+	public static final int DEFAULT_MAX_REGIONS = 100000;
+
+	private final int maxRegions;
+
+	private final LinkedHashMap<Key, List<CacheRegion>> map;
+
+	private int regionCount;
+
+	/**
+	 * Create a cache holding at most {@link #DEFAULT_MAX_REGIONS} regions.
+	 */
+	public InMemoryBlameCache() {
+		this(DEFAULT_MAX_REGIONS);
+	}
+
+	/**
+	 * Create a cache with the given limit.
+	 *
+	 * @param maxRegions
+	 *            maximum number of regions held by the cache. Results with
+	 *            more regions than this are never cached.
+	 */
+	public InMemoryBlameCache(int maxRegions) {
+		this.maxRegions = maxRegions;
+		this.map = new LinkedHashMap<>(16, 0.75f, true);
+	}
+
+	/**
+	 * Get the limit of this cache
+	 *
+	 * @return maximum number of regions held by the cache.
+	 */
+	public int getMaxRegions() {
+		return maxRegions;
+	}
+
+	/**
+	 * Get the number of regions currently held
+	 *
+	 * @return number of regions of all cached results.
+	 */
+	public synchronized int getRegionCount() {
+		return regionCount;
+	}
+
+	/**
+	 * Get the number of cached results
+	 *
+	 * @return number of (commit, path) pairs held by the cache.
+	 */
+	public synchronized int getEntryCount() {
+		return map.size();
+	}
+
+	/**
+	 * Remove all results from the cache.
+	 */
+	public synchronized void clear() {
+		map.clear();
+		regionCount = 0;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public synchronized List<CacheRegion> get(Repository repo,
+			ObjectId commitId, String path) {
+		return map.get(new Key(commitId, path));
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public synchronized void put(Repository repo, ObjectId commitId,
+			String path, List<CacheRegion> regions) {
+		if (regions.size() > maxRegions) {
+			return; // Too large to cache.
+		}
+		List<CacheRegion> old = map.put(new Key(commitId.copy(), path),
+				List.copyOf(regions));
+		if (old != null) {
+			regionCount -= old.size();
+		}
+		regionCount += regions.size();
+
+		Iterator<Map.Entry<Key, List<CacheRegion>>> itr = map.entrySet()
+				.iterator();
+		while (regionCount > maxRegions && itr.hasNext()) {
+			regionCount -= itr.next().getValue().size();
+			itr.remove();
+		}
+	}
+
+	private static final class Key {
+		final ObjectId commitId;
+
+		final String path;
+
+		Key(ObjectId commitId, String path) {
+			this.commitId = commitId;
+			this.path = path;
+		}
+
+		@Override
+		public int hashCode() {
+			return commitId.hashCode() * 31 + path.hashCode();
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof Key)) {
+				return false;
+			}
+			Key k = (Key) obj;
+			return commitId.equals(k.commitId) && path.equals(k.path);
+		}
+	}
+}
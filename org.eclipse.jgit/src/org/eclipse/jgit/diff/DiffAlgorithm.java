@@ -10,6 +10,8 @@
 
 package org.eclipse.jgit.diff;
 
+import org.eclipse.jgit.annotations.Nullable;
+
 /**
  * Compares two {@link org.eclipse.jgit.diff.Sequence}s to create an
  * {@link org.eclipse.jgit.diff.EditList} of changes.
@@ -76,6 +78,34 @@ public static DiffAlgorithm getAlgorithm(SupportedAlgorithm alg) {
 	 */
 	public <S extends Sequence> EditList diff(
 			SequenceComparator<? super S> cmp, S a, S b) {
+		return diff(cmp, a, b, null);
+	}
+
+	/**
+	 * Compare two sequences and identify a list of edits between them, using
+	 * a workspace for temporary tables.
+	 * <p>
+	 * Reusing one workspace across many invocations on the same thread avoids
+	 * allocating the algorithm's temporary tables for each comparison.
+	 *
+	 * @param cmp
+	 *            the comparator supplying the element equivalence function.
+	 * @param a
+	 *            the first (also known as old or pre-image) sequence.
+	 * @param b
+	 *            the second (also known as new or post-image) sequence.
+	 * @param ws
+	 *            workspace to take temporary tables from; null to allocate
+	 *            them for this invocation only.
+	 * @return a modifiable edit list comparing the two sequences. If empty, the
+	 *         sequences are identical according to {@code cmp}'s rules. The
+	 *         result list is never null.
+	 * @see #diff(SequenceComparator, Sequence, Sequence)
+	 * @since 6.6
+	 */
+	public <S extends Sequence> EditList diff(
+			SequenceComparator<? super S> cmp, S a, S b,
+			@Nullable DiffWorkspace ws) {
 		Edit region = cmp.reduceCommonStartEnd(a, b, coverEdit(a, b));
 
 		switch (region.getType()) {
@@ -90,8 +120,17 @@ public <S extends Sequence> EditList diff(
 			SubsequenceComparator<S> cs = new SubsequenceComparator<>(cmp);
 			Subsequence<S> as = Subsequence.a(a, region);
 			Subsequence<S> bs = Subsequence.b(b, region);
-			EditList e = Subsequence.toBase(diffNonCommon(cs, as, bs), as, bs);
-			return normalize(cmp, e, a, b);
+			EditList e;
+			if (ws != null) {
+				try {
+					e = diffNonCommon(cs, as, bs, ws);
+				} finally {
+					ws.trim();
+				}
+			} else {
+				e = diffNonCommon(cs, as, bs);
+			}
+			return normalize(cmp, Subsequence.toBase(e, as, bs), a, b);
 		}
 
 		case EMPTY:
@@ -233,4 +272,27 @@ private static <S extends Sequence> EditList normalize(
 	 */
 	public abstract <S extends Sequence> EditList diffNonCommon(
 			SequenceComparator<? super S> cmp, S a, S b);
+
+	/**
+	 * Compare two sequences and identify a list of edits between them, using
+	 * a workspace for temporary tables.
+	 * <p>
+	 * The default implementation ignores the workspace and invokes
+	 * {@link #diffNonCommon(SequenceComparator, Sequence, Sequence)}.
+	 *
+	 * @param cmp
+	 *            the comparator supplying the element equivalence function.
+	 * @param a
+	 *            the first (also known as old or pre-image) sequence.
+	 * @param b
+	 *            the second (also known as new or post-image) sequence.
+	 * @param ws
+	 *            workspace to take temporary tables from.
+	 * @return a modifiable edit list comparing the two sequences.
+	 * @since 6.6
+	 */
+	public <S extends Sequence> EditList diffNonCommon(
+			SequenceComparator<? super S> cmp, S a, S b, DiffWorkspace ws) {
+		return diffNonCommon(cmp, a, b);
+	}
 }
@@ -95,6 +95,8 @@ public class DiffFormatter implements AutoCloseable {
 
 	private DiffAlgorithm diffAlgorithm;
 
+	private DiffWorkspace diffWorkspace;
+
 	private RawTextComparator comparator = RawTextComparator.DEFAULT;
 
 	private int binaryFileThreshold = DEFAULT_BINARY_FILE_THRESHOLD;
@@ -1035,7 +1037,10 @@ private FormatResult createFormatResult(DiffEntry ent) throws IOException,
 	}
 
 	private EditList diff(RawText a, RawText b) {
-		return diffAlgorithm.diff(comparator, a, b);
+		if (diffWorkspace == null) {
+			diffWorkspace = new DiffWorkspace();
+		}
+		return diffAlgorithm.diff(comparator, a, b, diffWorkspace);
 	}
 
 	private void assertHaveReader() {
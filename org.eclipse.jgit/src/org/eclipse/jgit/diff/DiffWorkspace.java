@@ -0,0 +1,158 @@
+/*
+ * Copyright (C) 2023, Google LLC and others
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Distribution License v. 1.0 which is available at
+ * https://www.eclipse.org/org/documents/edl-v10.php.
+ *
+ * SPDX-License-Identifier: BSD-3-Clause
+ */
+
+package org.eclipse.jgit.diff;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Scratch space reused by consecutive invocations of a
+ * {@link org.eclipse.jgit.diff.DiffAlgorithm}.
+ * <p>
+ * Computing a difference needs temporary tables proportional to the size of
+ * the compared sequences: hash codes of both sequences and the hash index of
+ * {@link org.eclipse.jgit.diff.HistogramDiff}. Passing the same workspace to
+ * {@link DiffAlgorithm#diff(SequenceComparator, Sequence, Sequence, DiffWorkspace)}
+ * reuses these tables, so comparing many files in a row allocates little more
+ * than the resulting {@link org.eclipse.jgit.diff.EditList}.
+ * <p>
+ * Tables grow to the largest sequences compared so far, but tables longer than
+ * {@link #getMaxRetainedLength()} are not kept once the diff completes.
+ * <p>
+ * A workspace is not thread-safe; each thread must use its own instance.
+ *
+ * @since 6.6
+ */
+public final class DiffWorkspace {
+	/** Default of {@link #getMaxRetainedLength()}. */
+	public static final int DEFAULT_MAX_RETAINED_LENGTH = 1 << 20;
+
+	private static final int[] EMPTY_INTS = {};
+
+	private static final long[] EMPTY_LONGS = {};
+
+	private final int maxRetainedLength;
+
+	private int[] hashesA = EMPTY_INTS;
+
+	private int[] hashesB = EMPTY_INTS;
+
+	private int[] table = EMPTY_INTS;
+
+	private long[] recs = EMPTY_LONGS;
+
+	private int[] next = EMPTY_INTS;
+
+	private int[] recIdx = EMPTY_INTS;
+
+	private final List<Edit> queue = new ArrayList<>();
+
+	/**
+	 * Create a workspace retaining tables up to
+	 * {@link #DEFAULT_MAX_RETAINED_LENGTH} elements.
+	 */
+	public DiffWorkspace() {
+		this(DEFAULT_MAX_RETAINED_LENGTH);
+	}
+
+	/**
+	 * Create a workspace.
+	 *
+	 * @param maxRetainedLength
+	 *            largest number of elements of a table kept for reuse after a
+	 *            diff completes.
+	 */
+	public DiffWorkspace(int maxRetainedLength) {
+		this.maxRetainedLength = maxRetainedLength;
+	}
+
+	/**
+	 * Get the largest table length kept between diffs
+	 *
+	 * @return largest number of elements of a table kept for reuse after a
+	 *         diff completes.
+	 */
+	public int getMaxRetainedLength() {
+		return maxRetainedLength;
+	}
+
+	int[] hashesA(int n) {
+		if (hashesA.length < n)
+			hashesA = new int[n];
+		return hashesA;
+	}
+
+	int[] hashesB(int n) {
+		if (hashesB.length < n)
+			hashesB = new int[n];
+		return hashesB;
+	}
+
+	/** @return table of at least {@code n} elements; the first n are 0. */
+	int[] table(int n) {
+		if (table.length < n)
+			table = new int[n];
+		else
+			Arrays.fill(table, 0, n, 0);
+		return table;
+	}
+
+	/** @return records table of at least {@code n} elements. */
+	long[] recs(int n) {
+		if (recs.length < n)
+			recs = new long[n];
+		return recs;
+	}
+
+	/** Retain a records table which was grown during the scan. */
+	void recs(long[] grown) {
+		recs = grown;
+	}
+
+	/** @return chain table of at least {@code n} elements; all are 0. */
+	int[] next(int n) {
+		if (next.length < n)
+			next = new int[n];
+		else
+			Arrays.fill(next, 0, n, 0);
+		return next;
+	}
+
+	int[] recIdx(int n) {
+		if (recIdx.length < n)
+			recIdx = new int[n];
+		return recIdx;
+	}
+
+	/** @return empty work queue of regions still to compare. */
+	List<Edit> queue() {
+		queue.clear();
+		return queue;
+	}
+
+	/** Drop tables which exceed {@link #maxRetainedLength}. */
+	void trim() {
+		if (hashesA.length > maxRetainedLength)
+			hashesA = EMPTY_INTS;
+		if (hashesB.length > maxRetainedLength)
+			hashesB = EMPTY_INTS;
+		if (table.length > maxRetainedLength)
+			table = EMPTY_INTS;
+		if (recs.length > maxRetainedLength)
+			recs = EMPTY_LONGS;
+		if (next.length > maxRetainedLength)
+			next = EMPTY_INTS;
+		if (recIdx.length > maxRetainedLength)
+			recIdx = EMPTY_INTS;
+		queue.clear();
+	}
+}
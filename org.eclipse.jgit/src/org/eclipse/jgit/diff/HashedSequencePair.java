@@ -31,6 +31,8 @@
 
 	private HashedSequence<S> cachedB;
 
+	private final DiffWorkspace ws;
+
 	/**
 	 * Construct a pair to provide fast hash codes.
 	 *
@@ -42,9 +44,15 @@
 	 *            the B sequence.
 	 */
 	public HashedSequencePair(SequenceComparator<? super S> cmp, S a, S b) {
+		this(cmp, a, b, null);
+	}
+
+	HashedSequencePair(SequenceComparator<? super S> cmp, S a, S b,
+			DiffWorkspace ws) {
 		this.cmp = cmp;
 		this.baseA = a;
 		this.baseB = b;
+		this.ws = ws;
 	}
 
 	/**
@@ -63,7 +71,8 @@ public HashedSequenceComparator<S> getComparator() {
 	 */
 	public HashedSequence<S> getA() {
 		if (cachedA == null)
-			cachedA = wrap(baseA);
+			cachedA = wrap(baseA,
+					ws != null ? ws.hashesA(baseA.size()) : null);
 		return cachedA;
 	}
 
@@ -74,13 +83,15 @@ public HashedSequence<S> getA() {
 	 */
 	public HashedSequence<S> getB() {
 		if (cachedB == null)
-			cachedB = wrap(baseB);
+			cachedB = wrap(baseB,
+					ws != null ? ws.hashesB(baseB.size()) : null);
 		return cachedB;
 	}
 
-	private HashedSequence<S> wrap(S base) {
+	private HashedSequence<S> wrap(S base, int[] hashes) {
 		final int end = base.size();
-		final int[] hashes = new int[end];
+		if (hashes == null)
+			hashes = new int[end];
 		for (int ptr = 0; ptr < end; ptr++)
 			hashes[ptr] = cmp.hash(base, ptr);
 		return new HashedSequence<>(base, hashes);
@@ -103,24 +103,36 @@ public void setMaxChainLength(int maxLen) {
 	public <S extends Sequence> void diffNonCommon(EditList edits,
 			HashedSequenceComparator<S> cmp, HashedSequence<S> a,
 			HashedSequence<S> b, Edit region) {
-		new State<>(edits, cmp, a, b).diffRegion(region);
+		new State<>(edits, cmp, a, b, null).diffRegion(region);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public <S extends Sequence> void diffNonCommon(EditList edits,
+			HashedSequenceComparator<S> cmp, HashedSequence<S> a,
+			HashedSequence<S> b, Edit region, DiffWorkspace ws) {
+		new State<>(edits, cmp, a, b, ws).diffRegion(region);
 	}
 
 	private class State<S extends Sequence> {
 		private final HashedSequenceComparator<S> cmp;
 		private final HashedSequence<S> a;
 		private final HashedSequence<S> b;
-		private final List<Edit> queue = new ArrayList<>();
+		private final List<Edit> queue;
+
+		private final DiffWorkspace ws;
 
 		/** Result edits we have determined that must be made to convert a to b. */
 		final EditList edits;
 
 		State(EditList edits, HashedSequenceComparator<S> cmp,
-				HashedSequence<S> a, HashedSequence<S> b) {
+				HashedSequence<S> a, HashedSequence<S> b, DiffWorkspace ws) {
 			this.cmp = cmp;
 			this.a = a;
 			this.b = b;
 			this.edits = edits;
+			this.ws = ws;
+			this.queue = ws != null ? ws.queue() : new ArrayList<>();
 		}
 
 		void diffRegion(Edit r) {
@@ -130,7 +142,7 @@ void diffRegion(Edit r) {
 		}
 
 		private void diffReplace(Edit r) {
-			Edit lcs = new HistogramDiffIndex<>(maxChainLength, cmp, a, b, r)
+			Edit lcs = new HistogramDiffIndex<>(maxChainLength, cmp, a, b, r, ws)
 					.findLongestCommonSequence();
 			if (lcs != null) {
 				// If we were given an edit, we can prove a result here.
@@ -105,6 +105,9 @@
 	/** Value to subtract from element indexes to key {@link #next} array. */
 	private int ptrShift;
 
+	/** Workspace the tables were taken from; null if allocated. */
+	private final DiffWorkspace ws;
+
 	private Edit lcs;
 
 	private int cnt;
@@ -112,12 +115,14 @@
 	private boolean hasCommon;
 
 	HistogramDiffIndex(int maxChainLength, HashedSequenceComparator<S> cmp,
-			HashedSequence<S> a, HashedSequence<S> b, Edit r) {
+			HashedSequence<S> a, HashedSequence<S> b, Edit r,
+			DiffWorkspace ws) {
 		this.maxChainLength = maxChainLength;
 		this.cmp = cmp;
 		this.a = a;
 		this.b = b;
 		this.region = r;
+		this.ws = ws;
 
 		if (region.endA >= MAX_PTR)
 			throw new IllegalArgumentException(
@@ -125,13 +130,20 @@
 
 		final int sz = r.getLengthA();
 		final int tableBits = tableBits(sz);
-		table = new int[1 << tableBits];
 		keyShift = 32 - tableBits;
 		ptrShift = r.beginA;
 
-		recs = new long[Math.max(4, sz >>> 3)];
-		next = new int[sz];
-		recIdx = new int[sz];
+		if (ws != null) {
+			table = ws.table(1 << tableBits);
+			recs = ws.recs(Math.max(4, sz >>> 3));
+			next = ws.next(sz);
+			recIdx = ws.recIdx(sz);
+		} else {
+			table = new int[1 << tableBits];
+			recs = new long[Math.max(4, sz >>> 3)];
+			next = new int[sz];
+			recIdx = new int[sz];
+		}
 	}
 
 	Edit findLongestCommonSequence() {
@@ -188,6 +200,8 @@ private boolean scanA() {
 				long[] n = new long[sz];
 				System.arraycopy(recs, 0, n, 0, recs.length);
 				recs = n;
+				if (ws != null)
+					ws.recs(n);
 			}
 
 			recs[rIdx] = recCreate(table[tIdx], ptr, 1);
@@ -30,6 +30,22 @@ public <S extends Sequence> EditList diffNonCommon(
 		return res;
 	}
 
+	/** {@inheritDoc} */
+	@Override
+	public <S extends Sequence> EditList diffNonCommon(
+			SequenceComparator<? super S> cmp, S a, S b, DiffWorkspace ws) {
+		HashedSequencePair<S> p = new HashedSequencePair<>(cmp, a, b, ws);
+		HashedSequenceComparator<S> hc = p.getComparator();
+		HashedSequence<S> ha = p.getA();
+		HashedSequence<S> hb = p.getB();
+		p = null;
+
+		EditList res = new EditList();
+		Edit region = new Edit(0, a.size(), 0, b.size());
+		diffNonCommon(res, hc, ha, hb, region, ws);
+		return res;
+	}
+
 	/**
 	 * Compare two sequences and identify a list of edits between them.
 	 *
@@ -60,4 +76,31 @@ public <S extends Sequence> EditList diffNonCommon(
 	public abstract <S extends Sequence> void diffNonCommon(EditList edits,
 			HashedSequenceComparator<S> cmp, HashedSequence<S> a,
 			HashedSequence<S> b, Edit region);
+
+	/**
+	 * Compare two sequences and identify a list of edits between them, using
+	 * a workspace for temporary tables.
+	 * <p>
+	 * The default implementation ignores the workspace and invokes
+	 * {@link #diffNonCommon(EditList, HashedSequenceComparator, HashedSequence, HashedSequence, Edit)}.
+	 *
+	 * @param edits
+	 *            result list to append the region's edits onto.
+	 * @param cmp
+	 *            the comparator supplying the element equivalence function.
+	 * @param a
+	 *            the first (also known as old or pre-image) sequence.
+	 * @param b
+	 *            the second (also known as new or post-image) sequence.
+	 * @param region
+	 *            the region being compared within the two sequences.
+	 * @param ws
+	 *            workspace to take temporary tables from.
+	 * @since 6.6
+	 */
+	public <S extends Sequence> void diffNonCommon(EditList edits,
+			HashedSequenceComparator<S> cmp, HashedSequence<S> a,
+			HashedSequence<S> b, Edit region, DiffWorkspace ws) {
+		diffNonCommon(edits, cmp, a, b, region);
+	}
 }
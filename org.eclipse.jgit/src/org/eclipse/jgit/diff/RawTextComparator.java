@@ -16,6 +16,7 @@
 import static org.eclipse.jgit.util.RawCharUtil.trimTrailingWhitespace;
 
 import org.eclipse.jgit.util.IntList;
+import org.eclipse.jgit.util.RawByteScan;
 
 /**
  * Equivalence function for {@link org.eclipse.jgit.diff.RawText}.
@@ -45,10 +46,7 @@ public boolean equals(RawText a, int ai, RawText b, int bi) {
 
 		@Override
 		protected int hashRegion(byte[] raw, int ptr, int end) {
-			int hash = 5381;
-			for (; ptr < end; ptr++)
-				hash = ((hash << 5) + hash) + (raw[ptr] & 0xff);
-			return hash;
+			return RawByteScan.djbHash(5381, raw, ptr, end);
 		}
 	};
 
@@ -93,13 +91,7 @@ public boolean equals(RawText a, int ai, RawText b, int bi) {
 
 		@Override
 		protected int hashRegion(byte[] raw, int ptr, int end) {
-			int hash = 5381;
-			for (; ptr < end; ptr++) {
-				byte c = raw[ptr];
-				if (!isWhitespace(c))
-					hash = ((hash << 5) + hash) + (c & 0xff);
-			}
-			return hash;
+			return RawByteScan.djbHashIgnoreWhitespace(5381, raw, ptr, end);
 		}
 	};
 
@@ -132,11 +124,8 @@ public boolean equals(RawText a, int ai, RawText b, int bi) {
 
 		@Override
 		protected int hashRegion(byte[] raw, int ptr, int end) {
-			int hash = 5381;
 			ptr = trimLeadingWhitespace(raw, ptr, end);
-			for (; ptr < end; ptr++)
-				hash = ((hash << 5) + hash) + (raw[ptr] & 0xff);
-			return hash;
+			return RawByteScan.djbHash(5381, raw, ptr, end);
 		}
 	};
 
@@ -167,11 +156,8 @@ public boolean equals(RawText a, int ai, RawText b, int bi) {
 
 		@Override
 		protected int hashRegion(byte[] raw, int ptr, int end) {
-			int hash = 5381;
 			end = trimTrailingWhitespace(raw, ptr, end);
-			for (; ptr < end; ptr++)
-				hash = ((hash << 5) + hash) + (raw[ptr] & 0xff);
-			return hash;
+			return RawByteScan.djbHash(5381, raw, ptr, end);
 		}
 	};
 
@@ -206,17 +192,8 @@ public boolean equals(RawText a, int ai, RawText b, int bi) {
 
 		@Override
 		protected int hashRegion(byte[] raw, int ptr, int end) {
-			int hash = 5381;
 			end = trimTrailingWhitespace(raw, ptr, end);
-			while (ptr < end) {
-				byte c = raw[ptr++];
-				if (isWhitespace(c)) {
-					ptr = trimLeadingWhitespace(raw, ptr, end);
-					c = ' ';
-				}
-				hash = ((hash << 5) + hash) + (c & 0xff);
-			}
-			return hash;
+			return RawByteScan.djbHashCollapseWhitespace(5381, raw, ptr, end);
 		}
 	};
 
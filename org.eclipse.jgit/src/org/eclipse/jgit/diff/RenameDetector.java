@@ -30,6 +30,7 @@
 import org.eclipse.jgit.lib.AbbreviatedObjectId;
 import org.eclipse.jgit.lib.FileMode;
 import org.eclipse.jgit.lib.NullProgressMonitor;
+import org.eclipse.jgit.lib.ObjectId;
 import org.eclipse.jgit.lib.ObjectReader;
 import org.eclipse.jgit.lib.ProgressMonitor;
 import org.eclipse.jgit.lib.Repository;
@@ -112,6 +113,9 @@ private int sortOf(ChangeType changeType) {
 	 */
 	private boolean skipContentRenamesForBinaryFiles = false;
 
+	/** Optional cache of similarity indexes shared across detectors. */
+	private SimilarityIndexCache similarityIndexCache;
+
 	/** Set if the number of adds or deletes was over the limit. */
 	private boolean overRenameLimit;
 
@@ -263,6 +267,32 @@ public void setSkipContentRenamesForBinaryFiles(boolean value) {
 		this.skipContentRenamesForBinaryFiles = value;
 	}
 
+	/**
+	 * Get the cache of similarity indexes used by this detector.
+	 *
+	 * @return the cache; null if indexes are not cached.
+	 * @since 6.6
+	 */
+	public SimilarityIndexCache getSimilarityIndexCache() {
+		return similarityIndexCache;
+	}
+
+	/**
+	 * Set a cache of similarity indexes to use for content rename detection.
+	 * <p>
+	 * The same cache may be shared by all detectors working on one repository
+	 * (for example across all commits of a walk following renames), so that
+	 * the content of each blob is hashed at most once while it stays in the
+	 * cache.
+	 *
+	 * @param cache
+	 *            the cache to use; null to disable caching.
+	 * @since 6.6
+	 */
+	public void setSimilarityIndexCache(SimilarityIndexCache cache) {
+		this.similarityIndexCache = cache;
+	}
+
 	/**
 	 * Check if the detector is over the rename limit.
 	 * <p>
@@ -521,13 +551,8 @@ private void rejoinModifies(ProgressMonitor pm) throws CanceledException {
 	private int calculateModifyScore(ContentSource.Pair reader, DiffEntry d)
 			throws IOException {
 		try {
-			SimilarityIndex src = new SimilarityIndex();
-			src.hash(reader.open(OLD, d));
-			src.sort();
-
-			SimilarityIndex dst = new SimilarityIndex();
-			dst.hash(reader.open(NEW, d));
-			dst.sort();
+			SimilarityIndex src = index(reader, OLD, d);
+			SimilarityIndex dst = index(reader, NEW, d);
 			return src.score(dst, 100);
 		} catch (TableFullException tableFull) {
 			// If either table overflowed while being constructed, don't allow
@@ -539,6 +564,27 @@ private int calculateModifyScore(ContentSource.Pair reader, DiffEntry d)
 		}
 	}
 
+	private SimilarityIndex index(ContentSource.Pair reader,
+			DiffEntry.Side side, DiffEntry d)
+			throws IOException, TableFullException {
+		ObjectId id = SimilarityRenameDetector.cacheKey(similarityIndexCache,
+				d.getId(side));
+		if (id != null) {
+			SimilarityIndex idx = similarityIndexCache.get(id);
+			if (idx != null) {
+				return idx;
+			}
+		}
+
+		SimilarityIndex idx = new SimilarityIndex();
+		idx.hash(reader.open(side, d));
+		idx.sort();
+		if (id != null) {
+			similarityIndexCache.put(id, idx);
+		}
+		return idx;
+	}
+
 	private void findContentRenames(ContentSource.Pair reader,
 			ProgressMonitor pm)
 			throws IOException, CanceledException {
@@ -550,6 +596,7 @@ private void findContentRenames(ContentSource.Pair reader,
 			d.setRenameScore(getRenameScore());
 			d.setBigFileThreshold(getBigFileThreshold());
 			d.setSkipBinaryFiles(getSkipContentRenamesForBinaryFiles());
+			d.setSimilarityIndexCache(getSimilarityIndexCache());
 			d.compute(pm);
 			overRenameLimit |= d.isTableOverflow();
 			deleted = d.getLeftOverSources();
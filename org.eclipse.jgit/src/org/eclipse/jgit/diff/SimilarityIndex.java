@@ -76,6 +76,9 @@ public class SimilarityIndex {
 	/** {@code idHash.length == 1 << idHashBits}. */
 	private int idHashBits;
 
+	/** Whether the content was hashed as binary (no CRLF folding). */
+	private boolean binary;
+
 	/**
 	 * Create a new similarity index for the given object
 	 *
@@ -134,6 +137,7 @@ private void hashLargeObject(ObjectLoader obj) throws IOException,
 
 	void hash(byte[] raw, int ptr, int end) throws TableFullException {
 		final boolean text = !RawText.isBinary(raw, raw.length, true);
+		binary = !text;
 		hashedCnt = 0;
 		while (ptr < end) {
 			int hash = 5381;
@@ -158,6 +162,7 @@ void hash(byte[] raw, int ptr, int end) throws TableFullException {
 
 	void hash(InputStream in, long remaining, boolean text) throws IOException,
 			TableFullException {
+		binary = !text;
 		byte[] buf = new byte[4096];
 		int ptr = 0;
 		int cnt = 0;
@@ -205,6 +210,41 @@ void sort() {
 		Arrays.sort(idHash);
 	}
 
+	/**
+	 * Discard the empty slots of a sorted table.
+	 * <p>
+	 * Only the back {@link #idSize} entries of a sorted table are used when
+	 * scoring, so the leading zeros can be dropped to reduce the memory held
+	 * by a long lived (e.g. cached) index. Like {@link #sort()}, no further
+	 * lines/blocks can be added afterwards.
+	 */
+	void compact() {
+		if (idSize < idHash.length) {
+			idHash = Arrays.copyOfRange(idHash, idHash.length - idSize,
+					idHash.length);
+		}
+	}
+
+	/**
+	 * Get whether the hashed content was treated as binary.
+	 *
+	 * @return true if the content was hashed as binary data; false if it was
+	 *         hashed as text, folding CRLF into LF.
+	 */
+	boolean isBinary() {
+		return binary;
+	}
+
+	/**
+	 * Estimate the memory held by this index.
+	 *
+	 * @return approximate number of bytes of heap used by this instance.
+	 */
+	long getMemoryUsage() {
+		// Object header and fields, plus the array header and its slots.
+		return 48 + 16 + 8L * idHash.length;
+	}
+
 	/**
 	 * Compute the similarity score between this index and another.
 	 * <p>
@@ -0,0 +1,187 @@
+/*
+ * Copyright (C) 2023, Google LLC and others
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Distribution License v. 1.0 which is available at
+ * https://www.eclipse.org/org/documents/edl-v10.php.
+ *
+ * SPDX-License-Identifier: BSD-3-Clause
+ */
+
+package org.eclipse.jgit.diff;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.eclipse.jgit.lib.AnyObjectId;
+import org.eclipse.jgit.lib.ObjectId;
+
+/**
+ * Bounded cache of {@link org.eclipse.jgit.diff.SimilarityIndex} instances
+ * keyed by blob id.
+ * <p>
+ * Computing a similarity index requires reading and hashing the entire
+ * content of a blob. When renames are detected repeatedly over the same
+ * history (e.g. following a file through {@code log --follow} or blame) the
+ * same blobs are hashed again and again. A cache can be shared by any number
+ * of {@link org.eclipse.jgit.diff.RenameDetector}s working on the same
+ * repository, see
+ * {@link org.eclipse.jgit.diff.RenameDetector#setSimilarityIndexCache(SimilarityIndexCache)}.
+ * <p>
+ * The cache holds at most {@link #getMaxBytes()} bytes of index tables,
+ * evicting the least recently used entries first. Indexes are stored in a
+ * compacted form which drops the unused slots of the hash table. This class
+ * is thread-safe.
+ *
+ * @since 6.6
+ */
+public class SimilarityIndexCache {
+	/** Default limit of the cache, in bytes. */
+	public static final long DEFAULT_MAX_BYTES = 16 * 1024 * 1024;
+
+	private final long maxBytes;
+
+	private final LinkedHashMap<ObjectId, SimilarityIndex> map;
+
+	private long currentBytes;
+
+	private long hitCount;
+
+	private long missCount;
+
+	private long evictionCount;
+
+	/**
+	 * Create a cache limited to {@link #DEFAULT_MAX_BYTES}.
+	 */
+	public SimilarityIndexCache() {
+		this(DEFAULT_MAX_BYTES);
+	}
+
+	/**
+	 * Create a cache with the given memory limit.
+	 *
+	 * @param maxBytes
+	 *            maximum number of bytes the cached indexes may use. Indexes
+	 *            larger than this limit are never cached.
+	 */
+	public SimilarityIndexCache(long maxBytes) {
+		this.maxBytes = maxBytes;
+		this.map = new LinkedHashMap<>(16, 0.75f, true);
+	}
+
+	/**
+	 * Get the memory limit of this cache
+	 *
+	 * @return maximum number of bytes the cached indexes may use.
+	 */
+	public long getMaxBytes() {
+		return maxBytes;
+	}
+
+	/**
+	 * Get the memory currently used by this cache
+	 *
+	 * @return approximate number of bytes used by the cached indexes.
+	 */
+	public synchronized long getCurrentBytes() {
+		return currentBytes;
+	}
+
+	/**
+	 * Get the number of cached indexes
+	 *
+	 * @return number of indexes currently held by the cache.
+	 */
+	public synchronized int getEntryCount() {
+		return map.size();
+	}
+
+	/**
+	 * Get the number of lookups which found an index
+	 *
+	 * @return number of successful lookups since creation or the last
+	 *         {@link #clear()}.
+	 */
+	public synchronized long getHitCount() {
+		return hitCount;
+	}
+
+	/**
+	 * Get the number of lookups which did not find an index
+	 *
+	 * @return number of failed lookups since creation or the last
+	 *         {@link #clear()}.
+	 */
+	public synchronized long getMissCount() {
+		return missCount;
+	}
+
+	/**
+	 * Get the number of indexes evicted to stay within the memory limit
+	 *
+	 * @return number of evicted indexes since creation or the last
+	 *         {@link #clear()}.
+	 */
+	public synchronized long getEvictionCount() {
+		return evictionCount;
+	}
+
+	/**
+	 * Remove all indexes from the cache and reset its statistics.
+	 */
+	public synchronized void clear() {
+		map.clear();
+		currentBytes = 0;
+		hitCount = 0;
+		missCount = 0;
+		evictionCount = 0;
+	}
+
+	synchronized SimilarityIndex get(AnyObjectId id) {
+		SimilarityIndex idx = map.get(id);
+		if (idx != null) {
+			hitCount++;
+		} else {
+			missCount++;
+		}
+		return idx;
+	}
+
+	/**
+	 * Store a sorted index, compacting it first.
+	 *
+	 * @param id
+	 *            id of the blob the index was computed from.
+	 * @param idx
+	 *            the sorted index. Must not be modified afterwards.
+	 */
+	void put(AnyObjectId id, SimilarityIndex idx) {
+		idx.compact();
+		long size = idx.getMemoryUsage();
+		if (size > maxBytes) {
+			return; // Too large to cache.
+		}
+
+		synchronized (this) {
+			SimilarityIndex old = map.put(id.copy(), idx);
+			if (old != null) {
+				currentBytes -= old.getMemoryUsage();
+			}
+			currentBytes += size;
+			releaseMemory();
+		}
+	}
+
+	private void releaseMemory() {
+		Iterator<Map.Entry<ObjectId, SimilarityIndex>> itr = map.entrySet()
+				.iterator();
+		while (currentBytes > maxBytes && itr.hasNext()) {
+			SimilarityIndex idx = itr.next().getValue();
+			itr.remove();
+			currentBytes -= idx.getMemoryUsage();
+			evictionCount++;
+		}
+	}
+}
@@ -24,8 +24,10 @@
 import org.eclipse.jgit.diff.DiffEntry.ChangeType;
 import org.eclipse.jgit.diff.SimilarityIndex.TableFullException;
 import org.eclipse.jgit.internal.JGitText;
+import org.eclipse.jgit.lib.AbbreviatedObjectId;
 import org.eclipse.jgit.lib.FileMode;
 import org.eclipse.jgit.lib.NullProgressMonitor;
+import org.eclipse.jgit.lib.ObjectId;
 import org.eclipse.jgit.lib.ObjectLoader;
 import org.eclipse.jgit.lib.ProgressMonitor;
 
@@ -91,6 +93,9 @@ class SimilarityRenameDetector {
 	/** Skip content renames for binary files. */
 	private boolean skipBinaryFiles = false;
 
+	/** Optional cache of indexes shared with other detectors. */
+	private SimilarityIndexCache cache;
+
 	/** Set if any {@link SimilarityIndex.TableFullException} occurs. */
 	private boolean tableOverflow;
 
@@ -115,6 +120,10 @@ void setSkipBinaryFiles(boolean value) {
 		skipBinaryFiles = value;
 	}
 
+	void setSimilarityIndexCache(SimilarityIndexCache c) {
+		cache = c;
+	}
+
 	void compute(ProgressMonitor pm) throws IOException, CanceledException {
 		if (pm == null)
 			pm = NullProgressMonitor.INSTANCE;
@@ -274,26 +283,25 @@ private int buildMatrix(ProgressMonitor pm)
 
 				if (s == null) {
 					try {
-						ObjectLoader loader = reader.open(OLD, srcEnt);
-						if (skipBinaryFiles && SimilarityIndex.isBinary(loader)) {
-							pm.update(1);
-							continue SRC;
-						}
-						s = hash(loader);
+						s = index(OLD, srcEnt);
 					} catch (TableFullException tableFull) {
 						tableOverflow = true;
 						continue SRC;
 					}
+					if (s == null) {
+						// Binary file and skipBinaryFiles is set.
+						pm.update(1);
+						continue SRC;
+					}
 				}
 
 				SimilarityIndex d;
 				try {
-					ObjectLoader loader = reader.open(NEW, dstEnt);
-					if (skipBinaryFiles && SimilarityIndex.isBinary(loader)) {
+					d = index(NEW, dstEnt);
+					if (d == null) {
 						pm.update(1);
 						continue;
 					}
-					d = hash(loader);
 				} catch (TableFullException tableFull) {
 					if (dstTooLarge == null)
 						dstTooLarge = new BitSet(dsts.size());
@@ -377,6 +385,47 @@ static int nameScore(String a, String b) {
 		return (((dirScoreLtr + dirScoreRtl) * 25) + (fileScore * 50)) / 100;
 	}
 
+	/**
+	 * Get the similarity index of one side of an entry.
+	 *
+	 * @return the index; null if the content is binary and
+	 *         {@link #skipBinaryFiles} is set.
+	 */
+	private SimilarityIndex index(DiffEntry.Side side, DiffEntry ent)
+			throws IOException, TableFullException {
+		ObjectId id = cacheKey(cache, ent.getId(side));
+		if (id != null) {
+			SimilarityIndex r = cache.get(id);
+			if (r != null) {
+				return skipBinaryFiles && r.isBinary() ? null : r;
+			}
+		}
+
+		ObjectLoader loader = reader.open(side, ent);
+		if (skipBinaryFiles && SimilarityIndex.isBinary(loader)) {
+			return null;
+		}
+		SimilarityIndex r = hash(loader);
+		if (id != null) {
+			cache.put(id, r);
+		}
+		return r;
+	}
+
+	/**
+	 * Get the key to use for an entry's index in a cache.
+	 *
+	 * @return the key; null if there is no cache or the id cannot identify
+	 *         the content.
+	 */
+	static ObjectId cacheKey(SimilarityIndexCache c, AbbreviatedObjectId id) {
+		if (c == null || id == null || !id.isComplete()) {
+			return null;
+		}
+		ObjectId objectId = id.toObjectId();
+		return ObjectId.zeroId().equals(objectId) ? null : objectId;
+	}
+
 	private SimilarityIndex hash(ObjectLoader objectLoader)
 			throws IOException, TableFullException {
 		SimilarityIndex r = new SimilarityIndex();
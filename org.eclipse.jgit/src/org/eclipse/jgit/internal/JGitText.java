@@ -37,6 +37,7 @@ public static JGitText get() {
 	/***/ public String advertisementOfCameBefore;
 	/***/ public String amazonS3ActionFailed;
 	/***/ public String amazonS3ActionFailedGivingUp;
+	/***/ public String amazonS3TooManyParts;
 	/***/ public String ambiguousObjectAbbreviation;
 	/***/ public String aNewObjectIdIsRequired;
 	/***/ public String anExceptionOccurredWhileTryingToAddTheIdOfHEAD;
@@ -195,6 +196,7 @@ public static JGitText get() {
 	/***/ public String cookieFilePathRelative;
 	/***/ public String copyFileFailedNullFiles;
 	/***/ public String corruptCommitGraph;
+	/***/ public String corruptDeltaSearchCache;
 	/***/ public String corruptionDetectedReReadingAt;
 	/***/ public String corruptObjectBadDate;
 	/***/ public String corruptObjectBadEmail;
@@ -245,6 +247,7 @@ public static JGitText get() {
 	/***/ public String corruptObjectTruncatedInObjectId;
 	/***/ public String corruptObjectZeroId;
 	/***/ public String corruptPack;
+	/***/ public String corruptPackMtimes;
 	/***/ public String corruptUseCnt;
 	/***/ public String couldNotFindTabInLine;
 	/***/ public String couldNotFindSixTabsInLine;
@@ -268,6 +271,7 @@ public static JGitText get() {
 	/***/ public String credentialPassphrase;
 	/***/ public String credentialUsername;
 	/***/ public String daemonAlreadyRunning;
+	/***/ public String daemonTooManySessions;
 	/***/ public String daysAgo;
 	/***/ public String deepenNotWithDeepen;
 	/***/ public String deepenSinceWithDeepen;
@@ -382,6 +386,7 @@ public static JGitText get() {
 	/***/ public String httpConfigInvalidURL;
 	/***/ public String httpFactoryInUse;
 	/***/ public String httpPreAuthTooLate;
+	/***/ public String httpProxyNotSupported;
 	/***/ public String httpUserInfoDecodeError;
 	/***/ public String httpWrongConnectionType;
 	/***/ public String hugeIndexesAreNotSupportedByJgitYet;
@@ -741,6 +746,7 @@ public static JGitText get() {
 	/***/ public String sslFailureInfo;
 	/***/ public String sslFailureCause;
 	/***/ public String sslFailureTrustExplanation;
+	/***/ public String sslHostnameNotVerified;
 	/***/ public String sslTrustAlways;
 	/***/ public String sslTrustForRepo;
 	/***/ public String sslTrustNow;
@@ -844,7 +850,9 @@ public static JGitText get() {
 	/***/ public String unmergedPaths;
 	/***/ public String unpackException;
 	/***/ public String unreadableCommitGraph;
+	/***/ public String unreadableDeltaSearchCache;
 	/***/ public String unreadablePackIndex;
+	/***/ public String unreadablePackMtimes;
 	/***/ public String unrecognizedPackExtension;
 	/***/ public String unrecognizedRef;
 	/***/ public String unsetMark;
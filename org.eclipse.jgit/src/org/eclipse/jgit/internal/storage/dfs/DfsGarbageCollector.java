@@ -41,14 +41,19 @@
 import org.eclipse.jgit.internal.storage.commitgraph.CommitGraphWriter;
 import org.eclipse.jgit.internal.storage.commitgraph.GraphCommits;
 import org.eclipse.jgit.internal.storage.dfs.DfsObjDatabase.PackSource;
+import org.eclipse.jgit.internal.storage.file.BitmapIndexImpl;
+import org.eclipse.jgit.internal.storage.file.PackBitmapIndex;
 import org.eclipse.jgit.internal.storage.file.PackIndex;
 import org.eclipse.jgit.internal.storage.file.PackReverseIndex;
+import org.eclipse.jgit.internal.storage.pack.DeltaIslands;
 import org.eclipse.jgit.internal.storage.pack.PackExt;
 import org.eclipse.jgit.internal.storage.pack.PackWriter;
 import org.eclipse.jgit.internal.storage.reftable.ReftableCompactor;
 import org.eclipse.jgit.internal.storage.reftable.ReftableConfig;
 import org.eclipse.jgit.internal.storage.reftable.ReftableWriter;
 import org.eclipse.jgit.lib.AnyObjectId;
+import org.eclipse.jgit.lib.BitmapIndex.BitmapBuilder;
+import org.eclipse.jgit.lib.BitmapObject;
 import org.eclipse.jgit.lib.Constants;
 import org.eclipse.jgit.lib.NullProgressMonitor;
 import org.eclipse.jgit.lib.ObjectId;
@@ -56,6 +61,9 @@
 import org.eclipse.jgit.lib.ProgressMonitor;
 import org.eclipse.jgit.lib.Ref;
 import org.eclipse.jgit.lib.RefDatabase;
+import org.eclipse.jgit.revwalk.BitmapWalker;
+import org.eclipse.jgit.revwalk.ObjectWalk;
+import org.eclipse.jgit.revwalk.RevObject;
 import org.eclipse.jgit.revwalk.RevWalk;
 import org.eclipse.jgit.storage.pack.PackConfig;
 import org.eclipse.jgit.storage.pack.PackStatistics;
@@ -80,6 +88,7 @@ public class DfsGarbageCollector {
 	private ReftableConfig reftableConfig;
 	private boolean convertToReftable = true;
 	private boolean writeCommitGraph;
+	private boolean incremental;
 	private boolean includeDeletes;
 	private long reftableInitialMinUpdateIndex = 1;
 	private long reftableInitialMaxUpdateIndex = 1;
@@ -93,6 +102,7 @@ public class DfsGarbageCollector {
 	private List<DfsPackFile> packsBefore;
 	private List<DfsReftable> reftablesBefore;
 	private List<DfsPackFile> expiredGarbagePacks;
+	private List<DfsPackFile> keptPacks;
 
 	private Collection<Ref> refsBefore;
 	private Set<ObjectId> allHeadsAndTags;
@@ -297,6 +307,29 @@ public DfsGarbageCollector setWriteCommitGraph(boolean enable) {
 		return this;
 	}
 
+	/**
+	 * Toggle incremental collection.
+	 * <p>
+	 * If enabled and the previous {@code GC} pack is still fully reachable,
+	 * the {@code GC} pack and the {@code GC_REST} packs which are still fully
+	 * reachable are left untouched and only the objects reachable from the
+	 * references but not in those packs are combined into a new
+	 * {@code COMPACT} pack. Unreachable objects go to a
+	 * garbage pack as usual. Otherwise the collection falls back to writing
+	 * new {@code GC} and {@code GC_REST} packs.
+	 * <p>
+	 * False by default.
+	 *
+	 * @param enable
+	 *            whether to collect incrementally.
+	 * @return {@code this}
+	 * @since 6.6
+	 */
+	public DfsGarbageCollector setIncremental(boolean enable) {
+		incremental = enable;
+		return this;
+	}
+
 	/**
 	 * Create a single new pack file containing all of the live objects.
 	 * <p>
@@ -366,8 +399,10 @@ public boolean pack(ProgressMonitor pm) throws IOException {
 
 			boolean rollback = true;
 			try {
-				packHeads(pm);
-				packRest(pm);
+				if (!incremental || !packIncremental(pm)) {
+					packHeads(pm);
+					packRest(pm);
+				}
 				packGarbage(pm);
 				objdb.commitPack(newPackDesc, toPrune());
 				rollback = false;
@@ -402,6 +437,7 @@ private void readPacksBefore() throws IOException {
 		DfsPackFile[] packs = objdb.getPacks();
 		packsBefore = new ArrayList<>(packs.length);
 		expiredGarbagePacks = new ArrayList<>(packs.length);
+		keptPacks = new ArrayList<>(2);
 
 		long now = SystemReader.getInstance().getCurrentTime();
 		for (DfsPackFile p : packs) {
@@ -571,6 +607,138 @@ private void packRest(ProgressMonitor pm) throws IOException {
 		}
 	}
 
+	private boolean packIncremental(ProgressMonitor pm) throws IOException {
+		DfsPackFile gcPack = null;
+		List<DfsPackFile> restPacks = new ArrayList<>(1);
+		for (DfsPackFile pack : packsBefore) {
+			PackSource source = pack.getPackDescription().getPackSource();
+			if (source == GC) {
+				if (gcPack != null) {
+					return false;
+				}
+				gcPack = pack;
+			} else if (source == GC_REST) {
+				restPacks.add(pack);
+			}
+		}
+		if (gcPack == null) {
+			return false;
+		}
+		BitmapBuilder reachable = findReachable(gcPack, pm);
+		if (reachable == null || !isFullyReachable(gcPack, reachable)) {
+			return false;
+		}
+		List<DfsPackFile> kept = new ArrayList<>(2);
+		kept.add(gcPack);
+		for (DfsPackFile pack : restPacks) {
+			// Objects of a GC_REST pack no longer referenced are garbage; the
+			// pack is then pruned, its reachable objects are packed again.
+			if (isFullyReachable(pack, reachable)) {
+				kept.add(pack);
+			}
+		}
+
+		// The kept packs are neither pruned nor searched for garbage.
+		packsBefore.removeAll(kept);
+		keptPacks = kept;
+		writeIncrementalReftable();
+
+		// The reachable objects not in the kept packs are already known,
+		// they are packed without walking the history again.
+		List<RevObject> objects = new ArrayList<>();
+		try (RevWalk rw = new RevWalk(ctx)) {
+			for (BitmapObject obj : reachable) {
+				ObjectId id = obj.getObjectId();
+				if (!anyKeptPackHas(id)) {
+					objects.add(rw.lookupAny(id, obj.getType()));
+				}
+			}
+		}
+		if (objects.isEmpty()) {
+			return true;
+		}
+		try (PackWriter pw = newPackWriter()) {
+			pw.preparePack(objects.iterator());
+			writePack(COMPACT, pw, pm,
+					estimateGcPackSize(INSERT, RECEIVE, COMPACT));
+		}
+		return true;
+	}
+
+	private boolean anyKeptPackHas(AnyObjectId id) throws IOException {
+		for (DfsPackFile pack : keptPacks) {
+			if (pack.hasObject(ctx, id)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Compact the reftables, except those of the kept packs.
+	 * <p>
+	 * The reftable of a kept GC pack cannot be pruned without the pack. It
+	 * stays below the compacted reftable, which then keeps the deletions
+	 * hiding its refs.
+	 */
+	private void writeIncrementalReftable() throws IOException {
+		if (reftableConfig == null) {
+			return;
+		}
+		List<DfsReftable> keptTables = new ArrayList<>(1);
+		for (DfsReftable table : reftablesBefore) {
+			for (DfsPackFile pack : keptPacks) {
+				if (table.getPackDescription()
+						.equals(pack.getPackDescription())) {
+					keptTables.add(table);
+				}
+			}
+		}
+		if (keptTables.isEmpty()) {
+			writeReftable();
+			return;
+		}
+		reftablesBefore.removeAll(keptTables);
+		if (!reftablesBefore.isEmpty()) {
+			DfsPackDescription pack = objdb.newPack(GC);
+			newPackDesc.add(pack);
+			newPackStats.add(null);
+			compactReftables(pack, true);
+		}
+	}
+
+	/**
+	 * Find the objects reachable from all references, using the bitmaps of
+	 * the GC pack.
+	 *
+	 * @return the reachable objects, or {@code null} if the pack has no
+	 *         bitmaps.
+	 */
+	private BitmapBuilder findReachable(DfsPackFile gcPack, ProgressMonitor pm)
+			throws IOException {
+		PackBitmapIndex bitmaps = gcPack.getBitmapIndex(ctx);
+		if (bitmaps == null) {
+			return null;
+		}
+		Set<ObjectId> refs = new HashSet<>(allHeadsAndTags);
+		refs.addAll(nonHeads);
+		try (ObjectWalk ow = new ObjectWalk(ctx)) {
+			BitmapWalker walker = new BitmapWalker(ow,
+					new BitmapIndexImpl(bitmaps), pm);
+			return walker.findObjects(refs, null, true);
+		}
+	}
+
+	private boolean isFullyReachable(DfsPackFile pack,
+			BitmapBuilder reachable) throws IOException {
+		for (PackIndex.MutableEntry ent : pack.getPackIndex(ctx)) {
+			if (!reachable.contains(ent.toObjectId())) {
+				return false;
+			}
+		}
+		return true;
+	}
+
 	private void packGarbage(ProgressMonitor pm) throws IOException {
 		PackConfig cfg = new PackConfig(packConfig);
 		cfg.setReuseDeltas(true);
@@ -609,10 +777,13 @@ private void packGarbage(ProgressMonitor pm) throws IOException {
 		}
 	}
 
-	private boolean anyPackHas(AnyObjectId id) {
+	private boolean anyPackHas(AnyObjectId id) throws IOException {
 		for (ObjectIdSet packedObjs : newPackObj)
 			if (packedObjs.contains(id))
 				return true;
+		for (DfsPackFile pack : keptPacks)
+			if (pack.hasObject(ctx, id))
+				return true;
 		return false;
 	}
 
@@ -635,6 +806,10 @@ private PackWriter newPackWriter() {
 		PackWriter pw = new PackWriter(packConfig, ctx);
 		pw.setDeltaBaseAsOffset(true);
 		pw.setReuseDeltaCommits(false);
+		if (packConfig.getDeltaIslands().length > 0) {
+			pw.setDeltaIslands(new DeltaIslands(
+					packConfig.getDeltaIslands(), refsBefore));
+		}
 		return pw;
 	}
 
@@ -661,7 +836,7 @@ private DfsPackDescription writePack(PackSource source, PackWriter pw,
 			writeReftable(pack);
 		}
 
-		if (source == GC) {
+		if (source == GC || source == COMPACT) {
 			writeCommitGraph(pack, pm);
 		}
 
@@ -714,11 +889,16 @@ private void writeReftable(DfsPackDescription pack) throws IOException {
 			return;
 		}
 
+		compactReftables(pack, includeDeletes);
+	}
+
+	private void compactReftables(DfsPackDescription pack,
+			boolean deletes) throws IOException {
 		try (DfsReftableStack stack = DfsReftableStack.open(ctx, reftablesBefore);
 		     DfsOutputStream out = objdb.writeFile(pack, REFTABLE)) {
 			ReftableCompactor compact = new ReftableCompactor(out);
 			compact.addAll(stack.readers());
-			compact.setIncludeDeletes(includeDeletes);
+			compact.setIncludeDeletes(deletes);
 			compact.setConfig(configureReftable(reftableConfig, out));
 			compact.compact();
 			pack.addFileExt(REFTABLE);
@@ -13,10 +13,13 @@
 import static org.eclipse.jgit.internal.storage.pack.PackExt.BITMAP_INDEX;
 import static org.eclipse.jgit.internal.storage.pack.PackExt.INDEX;
 import static org.eclipse.jgit.internal.storage.pack.PackExt.KEEP;
+import static org.eclipse.jgit.internal.storage.pack.PackExt.MTIMES;
 import static org.eclipse.jgit.internal.storage.pack.PackExt.PACK;
 import static org.eclipse.jgit.internal.storage.pack.PackExt.REVERSE_INDEX;
 
+import java.io.BufferedOutputStream;
 import java.io.File;
+import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
@@ -56,24 +59,34 @@
 import java.util.Set;
 import java.util.TreeMap;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 import org.eclipse.jgit.annotations.NonNull;
+import org.eclipse.jgit.annotations.Nullable;
 import org.eclipse.jgit.dircache.DirCacheIterator;
 import org.eclipse.jgit.errors.CancelledException;
 import org.eclipse.jgit.errors.CorruptObjectException;
 import org.eclipse.jgit.errors.IncorrectObjectTypeException;
+import org.eclipse.jgit.errors.LockFailedException;
 import org.eclipse.jgit.errors.MissingObjectException;
 import org.eclipse.jgit.errors.NoWorkTreeException;
 import org.eclipse.jgit.internal.JGitText;
 import org.eclipse.jgit.internal.storage.commitgraph.CommitGraphWriter;
 import org.eclipse.jgit.internal.storage.commitgraph.GraphCommits;
+import org.eclipse.jgit.internal.storage.pack.DeltaIslands;
+import org.eclipse.jgit.internal.storage.pack.DeltaSearchCache;
 import org.eclipse.jgit.internal.storage.pack.PackExt;
 import org.eclipse.jgit.internal.storage.pack.PackWriter;
+import org.eclipse.jgit.lib.AnyObjectId;
 import org.eclipse.jgit.lib.ConfigConstants;
 import org.eclipse.jgit.lib.Constants;
 import org.eclipse.jgit.lib.CoreConfig;
@@ -102,6 +115,7 @@
 import org.eclipse.jgit.util.GitDateParser;
 import org.eclipse.jgit.util.StringUtils;
 import org.eclipse.jgit.util.SystemReader;
+import org.eclipse.jgit.util.io.SilentFileInputStream;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -128,7 +142,7 @@ public class GC {
 	private static final Set<PackExt> PARENT_EXTS = Set.of(PACK, KEEP);
 
 	private static final Set<PackExt> CHILD_EXTS = Set.of(BITMAP_INDEX, INDEX,
-			REVERSE_INDEX);
+			REVERSE_INDEX, MTIMES);
 
 	private static final int DEFAULT_AUTOPACKLIMIT = 50;
 
@@ -136,6 +150,8 @@ public class GC {
 
 	private static final boolean DEFAULT_WRITE_COMMIT_GRAPH = false;
 
+	private static final String DELTA_SEARCH_CACHE = "delta-search-cache"; //$NON-NLS-1$
+
 	private static volatile ExecutorService executor;
 
 	/**
@@ -188,6 +204,12 @@ public static void setExecutor(ExecutorService e) {
 	 */
 	private boolean background;
 
+	private Boolean cruftPacks;
+
+	private int geometricFactor = -1;
+
+	private DeltaSearchCache deltaSearchCache;
+
 	/**
 	 * Creates a new garbage collector with default values. An expirationTime of
 	 * two weeks and <code>null</code> as progress monitor will be used.
@@ -282,7 +304,9 @@ private Collection<Pack> doGc() throws IOException, ParseException {
 			pm.start(6 /* tasks */);
 			packRefs();
 			// TODO: implement reflog_expire(pm, repo);
-			Collection<Pack> newPacks = repack();
+			Collection<Pack> newPacks = getGeometricFactor() > 1
+					? geometricRepack()
+					: repack();
 			prune(Collections.emptySet());
 			// TODO: implement rerere_gc(pm);
 			if (shouldWriteCommitGraphWhenGc()) {
@@ -327,7 +351,8 @@ private void loosen(ObjectDirectoryInserter inserter, ObjectReader reader, Pack
 	 * than the expirationDate will not be deleted nor preserved.
 	 * <p>
 	 * If we're not immediately expiring loose objects, loosen any objects
-	 * in the old pack files which aren't in the new pack files.
+	 * in the old pack files which aren't in the new pack files, or write them
+	 * to a cruft pack if cruft packs are enabled.
 	 *
 	 * @param oldPacks
 	 * @param newPacks
@@ -350,6 +375,7 @@ private void deleteOldPacks(Collection<Pack> oldPacks,
 
 		prunePreserved();
 		long packExpireDate = getPackExpireDate();
+		List<Pack> toDelete = new ArrayList<>();
 		oldPackLoop: for (Pack oldPack : oldPacks) {
 			checkCancelled();
 			String oldName = oldPack.getPackName();
@@ -363,19 +389,98 @@ private void deleteOldPacks(Collection<Pack> oldPacks,
 					&& repo.getFS()
 							.lastModifiedInstant(oldPack.getPackFile())
 							.toEpochMilli() < packExpireDate) {
-				if (shouldLoosen) {
-					loosen(inserter, reader, oldPack, ids);
-				}
-				oldPack.close();
-				prunePack(oldPack.getPackFile());
+				toDelete.add(oldPack);
+			}
+		}
+
+		Pack cruftPack = null;
+		if (shouldLoosen && useCruftPacks()) {
+			cruftPack = writeCruftPack(toDelete, ids);
+		} else if (shouldLoosen) {
+			for (Pack oldPack : toDelete) {
+				checkCancelled();
+				loosen(inserter, reader, oldPack, ids);
 			}
 		}
+		for (Pack oldPack : toDelete) {
+			if (cruftPack != null && oldPack.getPackName()
+					.equals(cruftPack.getPackName())) {
+				// The cruft pack was rewritten with the same objects.
+				continue;
+			}
+			oldPack.close();
+			prunePack(oldPack.getPackFile());
+		}
 
 		// close the complete object database. That's my only chance to force
 		// rescanning and to detect that certain pack files are now deleted.
 		repo.getObjectDatabase().close();
 	}
 
+	/**
+	 * Write the objects of old pack files which are not in the new pack
+	 * files to a cruft pack, together with their modification times. The
+	 * modification time of an object is the one recorded for it if it is
+	 * taken from a cruft pack, and the modification time of its pack file
+	 * otherwise. Objects which expired are left out, and thereby pruned once
+	 * the old pack files are deleted.
+	 *
+	 * @param oldPacks
+	 *            pack files about to be deleted
+	 * @param reachable
+	 *            objects in the new pack files
+	 * @return the cruft pack, or null if no object needs to be kept
+	 * @throws ParseException
+	 * @throws IOException
+	 */
+	private Pack writeCruftPack(Collection<Pack> oldPacks,
+			Set<ObjectId> reachable) throws ParseException, IOException {
+		long expireDate = getExpireDate();
+		Map<ObjectId, Long> mtimes = new HashMap<>();
+		try (WindowCursor curs = new WindowCursor(repo.getObjectDatabase());
+				RevWalk rw = new RevWalk(curs)) {
+			List<RevObject> objects = new ArrayList<>();
+			for (Pack pack : oldPacks) {
+				checkCancelled();
+				PackMtimes packMtimes = pack.getMtimes();
+				long packMtime = repo.getFS()
+						.lastModifiedInstant(pack.getPackFile()).toEpochMilli();
+				for (PackIndex.MutableEntry entry : pack) {
+					ObjectId id = entry.toObjectId();
+					if (reachable.contains(id)) {
+						continue;
+					}
+					long mtime = packMtimes != null ? packMtimes.getMtime(id)
+							: packMtime;
+					if (mtime < expireDate) {
+						continue;
+					}
+					Long prior = mtimes.put(id, Long.valueOf(mtime));
+					if (prior != null) {
+						if (prior.longValue() > mtime) {
+							mtimes.put(id, prior);
+						}
+						continue;
+					}
+					objects.add(rw.lookupAny(id,
+							pack.getObjectType(curs, entry.getOffset())));
+				}
+			}
+			if (objects.isEmpty()) {
+				return null;
+			}
+
+			try (PackWriter pw = new PackWriter(pconfig,
+					repo.newObjectReader())) {
+				pw.setDeltaBaseAsOffset(true);
+				pw.setReuseDeltaCommits(false);
+				pw.preparePack(objects.iterator());
+				checkCancelled();
+				return writePack(pw, id -> mtimes.get(id).longValue());
+			}
+		}
+	}
+
 	/**
 	 * Deletes old pack file, unless 'preserve-oldpacks' is set, in which case it
 	 * moves the pack file to the preserved directory
@@ -803,6 +908,7 @@ public void packRefs() throws IOException {
 	 */
 	public Collection<Pack> repack() throws IOException {
 		Collection<Pack> toBeDeleted = repo.getObjectDatabase().getPacks();
+		deltaSearchCache = readDeltaSearchCache();
 
 		long time = System.currentTimeMillis();
 		Collection<Ref> refsBefore = getAllRefs();
@@ -863,7 +969,8 @@ public Collection<Pack> repack() throws IOException {
 		Pack heads = null;
 		if (!allHeadsAndTags.isEmpty()) {
 			heads = writePack(allHeadsAndTags, PackWriter.NONE, allTags,
-					refsToExcludeFromBitmap, tagTargets, excluded);
+					refsToExcludeFromBitmap, tagTargets, excluded,
+					newDeltaIslands(refsBefore));
 			if (heads != null) {
 				ret.add(heads);
 				excluded.add(0, heads.getIndex());
@@ -871,16 +978,19 @@ public Collection<Pack> repack() throws IOException {
 		}
 		if (!nonHeads.isEmpty()) {
 			Pack rest = writePack(nonHeads, allHeadsAndTags, PackWriter.NONE,
-					PackWriter.NONE, tagTargets, excluded);
+					PackWriter.NONE, tagTargets, excluded,
+					newDeltaIslands(refsBefore));
 			if (rest != null)
 				ret.add(rest);
 		}
 		if (!txnHeads.isEmpty()) {
 			Pack txn = writePack(txnHeads, PackWriter.NONE, PackWriter.NONE,
-					PackWriter.NONE, null, excluded);
+					PackWriter.NONE, null, excluded,
+					newDeltaIslands(refsBefore));
 			if (txn != null)
 				ret.add(txn);
 		}
+		writeDeltaSearchCache();
 		try {
 			deleteOldPacks(toBeDeleted, ret);
 		} catch (ParseException e) {
@@ -902,6 +1012,172 @@ public Collection<Pack> repack() throws IOException {
 		return ret;
 	}
 
+	/**
+	 * Repack incrementally so that the pack files form a geometric
+	 * progression, like {@code git repack --geometric=<factor> -d}.
+	 * <p>
+	 * Pack files are ordered by their number of objects. The smallest ones
+	 * are combined, together with all loose objects, into one new pack file
+	 * until each remaining pack file has at least {@code factor} times as
+	 * many objects as all smaller ones together. Larger pack files, and their
+	 * bitmap indexes, are left untouched, so the cost of a repack depends on
+	 * the amount of new objects rather than on the size of the repository.
+	 * Pack files which are kept or cruft packs are never combined. If all
+	 * pack files need to be combined a full {@link #repack()} is done, which
+	 * also writes a new bitmap index.
+	 *
+	 * @return the newly created pack files
+	 * @throws IOException
+	 *             objects could not be read or written
+	 */
+	private Collection<Pack> geometricRepack() throws IOException {
+		List<Pack> packs = new ArrayList<>();
+		for (Pack p : repo.getObjectDatabase().getPacks()) {
+			checkCancelled();
+			if (!p.shouldBeKept() && !p.isCruft()) {
+				packs.add(p);
+			}
+		}
+		Map<Pack, Long> counts = new HashMap<>();
+		for (Pack p : packs) {
+			counts.put(p, Long.valueOf(p.getObjectCount()));
+		}
+		packs.sort(Comparator.comparing(counts::get));
+		long[] sizes = new long[packs.size()];
+		for (int i = 0; i < sizes.length; i++) {
+			sizes[i] = counts.get(packs.get(i)).longValue();
+		}
+		int split = geometricSplit(sizes, getGeometricFactor());
+		if (split == packs.size() && split > 0) {
+			return repack();
+		}
+
+		List<Pack> rollUp = packs.subList(0, split);
+		List<Pack> remaining = packs.subList(split, packs.size());
+		Set<ObjectId> seen = new HashSet<>();
+		List<RevObject> objects = new ArrayList<>();
+		try (WindowCursor curs = new WindowCursor(repo.getObjectDatabase());
+				RevWalk rw = new RevWalk(curs)) {
+			for (Pack pack : rollUp) {
+				for (PackIndex.MutableEntry entry : pack) {
+					checkCancelled();
+					ObjectId id = entry.toObjectId();
+					if (seen.add(id) && !contains(remaining, id)) {
+						objects.add(rw.lookupAny(id,
+								pack.getObjectType(curs, entry.getOffset())));
+					}
+				}
+			}
+			for (ObjectId id : listLooseObjects()) {
+				checkCancelled();
+				if (seen.add(id) && !contains(remaining, id)) {
+					objects.add(rw.lookupAny(id, curs.open(id).getType()));
+				}
+			}
+			if (objects.isEmpty()) {
+				return Collections.emptyList();
+			}
+
+			Pack pack;
+			try (PackWriter pw = new PackWriter(pconfig,
+					repo.newObjectReader())) {
+				pw.setDeltaBaseAsOffset(true);
+				pw.setReuseDeltaCommits(false);
+				pw.preparePack(objects.iterator());
+				checkCancelled();
+				pack = writePack(pw, null);
+			}
+			for (Pack oldPack : rollUp) {
+				if (!oldPack.getPackName().equals(pack.getPackName())) {
+					oldPack.close();
+					prunePack(oldPack.getPackFile());
+				}
+			}
+			repo.getObjectDatabase().close();
+			prunePacked();
+			deleteTempPacksIdx();
+			return Collections.singletonList(pack);
+		}
+	}
+
+	/**
+	 * Find the pack files to combine to restore a geometric progression,
+	 * following C Git.
+	 *
+	 * @param counts
+	 *            number of objects of each pack file, in increasing order
+	 * @param factor
+	 *            the factor of the progression
+	 * @return the number of smallest pack files to combine
+	 */
+	static int geometricSplit(long[] counts, int factor) {
+		if (counts.length == 0) {
+			return 0;
+		}
+		int split = counts.length - 1;
+		for (; split > 0; split--) {
+			if (counts[split] < factor * counts[split - 1]) {
+				break;
+			}
+		}
+		if (split > 0) {
+			// The larger pack of the last pair which is out of order can't
+			// be part of the progression either.
+			split++;
+		}
+
+		long total = 0;
+		for (int i = 0; i < split; i++) {
+			total += counts[i];
+		}
+		for (; split < counts.length; split++) {
+			if (factor * total < counts[split]) {
+				break;
+			}
+			total += counts[split];
+		}
+		return split;
+	}
+
+	private static boolean contains(List<Pack> packs, AnyObjectId id)
+			throws IOException {
+		for (Pack p : packs) {
+			if (p.hasObject(id)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private Set<ObjectId> listLooseObjects() {
+		Set<ObjectId> ids = new HashSet<>();
+		File objects = repo.getObjectsDirectory();
+		String[] fanout = objects.list();
+		if (fanout == null) {
+			return ids;
+		}
+		for (String d : fanout) {
+			if (d.length() != 2) {
+				continue;
+			}
+			String[] entries = new File(objects, d).list();
+			if (entries == null) {
+				continue;
+			}
+			for (String e : entries) {
+				if (e.length() != Constants.OBJECT_ID_STRING_LENGTH - 2) {
+					continue;
+				}
+				try {
+					ids.add(ObjectId.fromString(d + e));
+				} catch (IllegalArgumentException notAnObject) {
+					// ignoring the file that does not represent loose object
+				}
+			}
+		}
+		return ids;
+	}
+
 	private Set<ObjectId> refsToObjectIds(Collection<Ref> refs)
 			throws IOException {
 		Set<ObjectId> objectIds = new HashSet<>();
@@ -1251,31 +1527,17 @@ private Set<ObjectId> listNonHEADIndexObjects()
 	private Pack writePack(@NonNull Set<? extends ObjectId> want,
 			@NonNull Set<? extends ObjectId> have, @NonNull Set<ObjectId> tags,
 			@NonNull Set<ObjectId> excludedRefsTips,
-			Set<ObjectId> tagTargets, List<ObjectIdSet> excludeObjects)
-			throws IOException {
+			Set<ObjectId> tagTargets, List<ObjectIdSet> excludeObjects,
+			@Nullable DeltaIslands islands) throws IOException {
 		checkCancelled();
-		File tmpPack = null;
-		Map<PackExt, File> tmpExts = new TreeMap<>((o1, o2) -> {
-			// INDEX entries must be returned last, so the pack
-			// scanner does pick up the new pack until all the
-			// PackExt entries have been written.
-			if (o1 == o2) {
-				return 0;
-			}
-			if (o1 == PackExt.INDEX) {
-				return 1;
-			}
-			if (o2 == PackExt.INDEX) {
-				return -1;
-			}
-			return Integer.signum(o1.hashCode() - o2.hashCode());
-		});
 		try (PackWriter pw = new PackWriter(
 				pconfig,
 				repo.newObjectReader())) {
 			// prepare the PackWriter
 			pw.setDeltaBaseAsOffset(true);
 			pw.setReuseDeltaCommits(false);
+			pw.setDeltaIslands(islands);
+			pw.setDeltaSearchCache(deltaSearchCache);
 			if (tagTargets != null) {
 				pw.setTagTargets(tagTargets);
 			}
@@ -1287,7 +1549,40 @@ private Pack writePack(@NonNull Set<? extends ObjectId> want,
 			if (pw.getObjectCount() == 0)
 				return null;
 			checkCancelled();
+			return writePack(pw, null);
+		}
+	}
 
+	/**
+	 * Write a prepared pack and its index files, and open the new pack.
+	 *
+	 * @param pw
+	 *            writer with the objects of the pack prepared
+	 * @param mtimes
+	 *            modification time of each object, to write a cruft pack;
+	 *            null for other packs
+	 * @return the new pack
+	 * @throws IOException
+	 */
+	private Pack writePack(PackWriter pw,
+			@Nullable ToLongFunction<AnyObjectId> mtimes) throws IOException {
+		File tmpPack = null;
+		Map<PackExt, File> tmpExts = new TreeMap<>((o1, o2) -> {
+			// INDEX entries must be returned last, so the pack
+			// scanner does pick up the new pack until all the
+			// PackExt entries have been written.
+			if (o1 == o2) {
+				return 0;
+			}
+			if (o1 == PackExt.INDEX) {
+				return 1;
+			}
+			if (o2 == PackExt.INDEX) {
+				return -1;
+			}
+			return Integer.signum(o1.hashCode() - o2.hashCode());
+		});
+		try {
 			// create temporary files
 			ObjectId id = pw.computeName();
 			File packdir = repo.getObjectDatabase().getPackDirectory();
@@ -1311,13 +1606,26 @@ private Pack writePack(@NonNull Set<? extends ObjectId> want,
 				channel.force(true);
 			}
 
-			// write the packindex
-			try (FileOutputStream fos = new FileOutputStream(tmpIdx);
-					FileChannel idxChannel = fos.getChannel();
-					OutputStream idxStream = Channels
-							.newOutputStream(idxChannel)) {
-				pw.writeIndex(idxStream);
-				idxChannel.force(true);
+			// write the packindex, and the modification times of a cruft
+			// pack at the same time: both list the objects in name order
+			FutureTask<Void> mtimesWriter = null;
+			if (mtimes != null) {
+				File tmpMtimes = new File(packdir, tmpBase + ".mtimes_tmp"); //$NON-NLS-1$
+				tmpExts.put(MTIMES, tmpMtimes);
+				mtimesWriter = writeMtimes(pw, tmpMtimes, mtimes);
+			}
+			try {
+				try (FileOutputStream fos = new FileOutputStream(tmpIdx);
+						FileChannel idxChannel = fos.getChannel();
+						OutputStream idxStream = Channels
+								.newOutputStream(idxChannel)) {
+					pw.writeIndex(idxStream);
+					idxChannel.force(true);
+				}
+			} finally {
+				if (mtimesWriter != null) {
+					awaitMtimes(mtimesWriter);
+				}
 			}
 
 			if (pw.prepareBitmapIndex(pm)) {
@@ -1396,6 +1704,132 @@ private Pack writePack(@NonNull Set<? extends ObjectId> want,
 		}
 	}
 
+	@Nullable
+	/**
+	 * Start writing the {@code .mtimes} file of a cruft pack.
+	 * <p>
+	 * The file is written from the objects of the pack writer sorted by
+	 * name, which are only read while the pack index is written from them.
+	 * It is written by the executor of the pack configuration, or else by a
+	 * thread of its own.
+	 */
+	private FutureTask<Void> writeMtimes(PackWriter pw, File tmpMtimes,
+			ToLongFunction<AnyObjectId> mtimes) throws IOException {
+		List<? extends AnyObjectId> byName = pw.getObjectsInIndexOrder();
+		byte[] packChecksum = pw.getPackChecksum();
+		FutureTask<Void> task = new FutureTask<>(() -> {
+			try (FileOutputStream fos = new FileOutputStream(tmpMtimes);
+					FileChannel channel = fos.getChannel();
+					OutputStream out = new BufferedOutputStream(
+							Channels.newOutputStream(channel))) {
+				PackMtimes.write(out, byName, packChecksum, mtimes);
+				channel.force(true);
+			}
+			return null;
+		});
+		Executor executor = pconfig.getExecutor();
+		try {
+			if (executor != null) {
+				executor.execute(task);
+			} else {
+				Thread t = new Thread(task, "JGit-GC-mtimes"); //$NON-NLS-1$
+				t.setDaemon(true);
+				t.start();
+			}
+		} catch (RejectedExecutionException e) {
+			task.run();
+		}
+		return task;
+	}
+
+	private static void awaitMtimes(FutureTask<Void> task)
+			throws IOException {
+		boolean interrupted = false;
+		try {
+			// The temporary file is only deleted once it is written.
+			for (;;) {
+				try {
+					task.get();
+					return;
+				} catch (InterruptedException e) {
+					interrupted = true;
+				} catch (ExecutionException e) {
+					Throwable cause = e.getCause();
+					if (cause instanceof IOException) {
+						throw (IOException) cause;
+					}
+					if (cause instanceof RuntimeException) {
+						throw (RuntimeException) cause;
+					}
+					if (cause instanceof Error) {
+						throw (Error) cause;
+					}
+					throw new IOException(cause);
+				}
+			}
+		} finally {
+			if (interrupted) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	private DeltaSearchCache readDeltaSearchCache() {
+		if (!pconfig.isDeltaSearchCache()) {
+			return null;
+		}
+		File file = new File(repo.getObjectDatabase().getInfoDirectory(),
+				DELTA_SEARCH_CACHE);
+		try (SilentFileInputStream in = new SilentFileInputStream(file)) {
+			return DeltaSearchCache.read(in);
+		} catch (FileNotFoundException e) {
+			return new DeltaSearchCache();
+		} catch (IOException e) {
+			LOG.warn(MessageFormat.format(
+					JGitText.get().unreadableDeltaSearchCache, file), e);
+			return new DeltaSearchCache();
+		}
+	}
+
+	private void writeDeltaSearchCache() {
+		if (deltaSearchCache == null) {
+			return;
+		}
+		// The cache only speeds up the next garbage collection, failing to
+		// write it does not fail this one.
+		File dir = repo.getObjectDatabase().getInfoDirectory();
+		File file = new File(dir, DELTA_SEARCH_CACHE);
+		LockFile lf = new LockFile(file);
+		try {
+			FileUtils.mkdirs(dir, true);
+			if (!lf.lock()) {
+				throw new LockFailedException(file);
+			}
+			try (OutputStream out = new BufferedOutputStream(
+					lf.getOutputStream())) {
+				deltaSearchCache.write(out);
+			}
+			if (!lf.commit()) {
+				throw new IOException(MessageFormat.format(
+						JGitText.get().cannotCommitWriteTo, file));
+			}
+		} catch (IOException e) {
+			LOG.warn(e.getMessage(), e);
+		} finally {
+			lf.unlock();
+			deltaSearchCache = null;
+		}
+	}
+
+	@Nullable
+	private DeltaIslands newDeltaIslands(Collection<Ref> refs) {
+		String[] regexes = pconfig.getDeltaIslands();
+		if (regexes.length == 0) {
+			return null;
+		}
+		return new DeltaIslands(regexes, refs);
+	}
+
 	private Set<? extends ObjectId> union(Set<ObjectId> tags,
 			Set<ObjectId> excludedRefsHeadsTips) {
 		HashSet<ObjectId> unionSet = new HashSet<>(
@@ -1602,6 +2036,62 @@ public void setPackExpire(Date packExpire) {
 		packExpireAgeMillis = -1;
 	}
 
+	/**
+	 * Set whether unreachable objects which are not yet expired are written
+	 * to a cruft pack.
+	 * <p>
+	 * A cruft pack stores the objects of deleted pack files which are not
+	 * reachable anymore together with their modification times in a
+	 * {@code .mtimes} file, instead of storing each of them as a loose
+	 * object. Later garbage collections rewrite the cruft pack, leaving out
+	 * the objects which expired. By default the value of
+	 * {@code gc.cruftPacks} is used, which defaults to {@code false}.
+	 *
+	 * @param cruftPacks
+	 *            whether to write unreachable objects to a cruft pack
+	 * @since 6.6
+	 */
+	public void setCruftPacks(boolean cruftPacks) {
+		this.cruftPacks = Boolean.valueOf(cruftPacks);
+	}
+
+	private boolean useCruftPacks() {
+		if (cruftPacks != null) {
+			return cruftPacks.booleanValue();
+		}
+		return repo.getConfig().getBoolean(ConfigConstants.CONFIG_GC_SECTION,
+				ConfigConstants.CONFIG_KEY_CRUFT_PACKS, false);
+	}
+
+	/**
+	 * Set the factor of geometric repacking.
+	 * <p>
+	 * If the factor is at least 2, garbage collection does not rewrite all
+	 * reachable objects into a new pack file. Instead it only combines the
+	 * smallest pack files and the loose objects so that each pack file has
+	 * at least {@code factor} times as many objects as all smaller pack files
+	 * together, like {@code git repack --geometric=<factor>}. Unreachable
+	 * objects are only removed once all pack files need to be combined. By
+	 * default the value of {@code gc.geometricFactor} is used, which defaults
+	 * to {@code 0}, i.e. all reachable objects are always repacked.
+	 *
+	 * @param factor
+	 *            the factor of the geometric progression; values below 2
+	 *            disable geometric repacking
+	 * @since 6.6
+	 */
+	public void setGeometricFactor(int factor) {
+		this.geometricFactor = Math.max(0, factor);
+	}
+
+	private int getGeometricFactor() {
+		if (geometricFactor >= 0) {
+			return geometricFactor;
+		}
+		return repo.getConfig().getInt(ConfigConstants.CONFIG_GC_SECTION,
+				ConfigConstants.CONFIG_KEY_GEOMETRIC_FACTOR, 0);
+	}
+
 	/**
 	 * Set the {@code gc --auto} option.
 	 *
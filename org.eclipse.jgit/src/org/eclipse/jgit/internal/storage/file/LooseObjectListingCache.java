@@ -0,0 +1,209 @@
+/*
+ * Copyright (C) 2023, Google LLC and others
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Distribution License v. 1.0 which is available at
+ * https://www.eclipse.org/org/documents/edl-v10.php.
+ *
+ * SPDX-License-Identifier: BSD-3-Clause
+ */
+
+package org.eclipse.jgit.internal.storage.file;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.eclipse.jgit.lib.AnyObjectId;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+
+/**
+ * Remembers the listings of the fanout directories holding loose objects.
+ * <p>
+ * A directory is listed the first time one of its objects is looked up, and
+ * listed again only once its snapshot shows it was modified. Looking up an
+ * object then stats its directory instead of its file, and an object which
+ * is not loose is answered from memory. Listings are replaced as a whole,
+ * lookups never lock.
+ * <p>
+ * A directory is stat'ed at most once per round: the listing checked in the
+ * current round is trusted until the next one starts, which is when a new
+ * reader is opened. Objects inserted through this database invalidate the
+ * listing of their directory at once.
+ * <p>
+ * A directory modified while objects are written into it is not listed
+ * again on every lookup: lookups are answered {@link Presence#UNKNOWN}, so
+ * the caller checks the file, until they paid for listing it again.
+ */
+class LooseObjectListingCache {
+	/** Answer of a lookup. */
+	enum Presence {
+		/** The object is in its directory. */
+		FOUND,
+
+		/** The object is not in its directory. */
+		MISSING,
+
+		/** The directory changed since listed; the file must be checked. */
+		UNKNOWN;
+	}
+
+	private static final int FANOUT = 256;
+
+	/**
+	 * Number of objects listed for which a single lookup of a modified
+	 * directory is answered {@link Presence#UNKNOWN} before listing it again.
+	 */
+	private static final int RELIST_RATIO = 64;
+
+	/** Fanout directories, by the first byte of their objects. */
+	private final File[] dirs;
+
+	private final AtomicReferenceArray<Listing> listings;
+
+	private final AtomicLong round = new AtomicLong();
+
+	/**
+	 * Create a cache for the loose objects of a directory.
+	 *
+	 * @param directory
+	 *            the location of the <code>objects</code> directory.
+	 */
+	LooseObjectListingCache(File directory) {
+		this.dirs = new File[FANOUT];
+		for (int i = 0; i < FANOUT; i++) {
+			dirs[i] = new File(directory,
+					Integer.toHexString(FANOUT | i).substring(1));
+		}
+		this.listings = new AtomicReferenceArray<>(FANOUT);
+	}
+
+	/**
+	 * Look up an object in the listing of its directory.
+	 *
+	 * @param id
+	 *            identity of the object.
+	 * @return whether the directory holds the file of the object.
+	 */
+	Presence lookup(AnyObjectId id) {
+		Listing l = listing(id);
+		if (l == null) {
+			return Presence.UNKNOWN;
+		}
+		return Arrays.binarySearch(l.ids, id) >= 0 ? Presence.FOUND
+				: Presence.MISSING;
+	}
+
+	/**
+	 * Start a new round, in which each directory is stat'ed again before its
+	 * listing is trusted.
+	 */
+	void newRound() {
+		round.incrementAndGet();
+	}
+
+	/**
+	 * Check the directory of an object again before trusting its listing,
+	 * even within the current round.
+	 *
+	 * @param id
+	 *            identity of an object added to or removed from the
+	 *            directory.
+	 */
+	void invalidate(AnyObjectId id) {
+		Listing l = listings.get(id.getFirstByte());
+		if (l != null) {
+			l.checkedRound = -1;
+		}
+	}
+
+	void clear() {
+		for (int i = 0; i < FANOUT; i++) {
+			listings.set(i, null);
+		}
+	}
+
+	private Listing listing(AnyObjectId id) {
+		int fanout = id.getFirstByte();
+		Listing l = listings.get(fanout);
+		long current = round.get();
+		if (l != null && l.checkedRound == current) {
+			return l;
+		}
+		File dir = dirs[fanout];
+		if (l != null && !isModified(l.snapshot, dir)) {
+			l.checkedRound = current;
+			return l;
+		}
+		if (l != null && l.staleLookups
+				.incrementAndGet() <= l.ids.length / RELIST_RATIO) {
+			return null;
+		}
+
+		// Take the snapshot first, so that files added while listing make
+		// the directory look modified on the next lookup.
+		FileSnapshot snapshot = FileSnapshot.save(dir);
+		Listing n = new Listing(snapshot, list(dir));
+		n.checkedRound = current;
+		listings.set(fanout, n);
+		return n;
+	}
+
+	/**
+	 * Stat a directory to tell whether it changed since listed.
+	 *
+	 * @param snapshot
+	 *            snapshot taken when the directory was listed.
+	 * @param dir
+	 *            the directory.
+	 * @return whether the directory may have changed.
+	 */
+	boolean isModified(FileSnapshot snapshot, File dir) {
+		return snapshot.isModified(dir);
+	}
+
+	private static ObjectId[] list(File dir) {
+		String[] entries = dir.list();
+		if (entries == null) {
+			return new ObjectId[0];
+		}
+		String fanOut = dir.getName();
+		ObjectId[] ids = new ObjectId[entries.length];
+		int cnt = 0;
+		for (String e : entries) {
+			if (e.length() != Constants.OBJECT_ID_STRING_LENGTH - 2) {
+				continue;
+			}
+			try {
+				ids[cnt] = ObjectId.fromString(fanOut + e);
+			} catch (IllegalArgumentException notId) {
+				continue;
+			}
+			cnt++;
+		}
+		ids = Arrays.copyOf(ids, cnt);
+		Arrays.sort(ids);
+		return ids;
+	}
+
+	private static final class Listing {
+		final FileSnapshot snapshot;
+
+		/** Objects of the directory, sorted. */
+		final ObjectId[] ids;
+
+		/** Lookups since the directory was found modified. */
+		final AtomicInteger staleLookups = new AtomicInteger();
+
+		/** Round in which the directory was last found unmodified. */
+		volatile long checkedRound;
+
+		Listing(FileSnapshot snapshot, ObjectId[] ids) {
+			this.snapshot = snapshot;
+			this.ids = ids;
+		}
+	}
+}
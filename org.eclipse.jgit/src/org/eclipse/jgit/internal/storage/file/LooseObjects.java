@@ -23,6 +23,7 @@
 
 import org.eclipse.jgit.internal.JGitText;
 import org.eclipse.jgit.internal.storage.file.FileObjectDatabase.InsertLooseObjectResult;
+import org.eclipse.jgit.internal.storage.file.LooseObjectListingCache.Presence;
 import org.eclipse.jgit.lib.AbbreviatedObjectId;
 import org.eclipse.jgit.lib.AnyObjectId;
 import org.eclipse.jgit.lib.Config;
@@ -55,6 +56,8 @@ class LooseObjects {
 
 	private final UnpackedObjectCache unpackedObjectCache;
 
+	private final LooseObjectListingCache listings;
+
 	private final boolean trustFolderStat;
 
 	/**
@@ -68,6 +71,7 @@ class LooseObjects {
 	LooseObjects(Config config, File dir) {
 		directory = dir;
 		unpackedObjectCache = new UnpackedObjectCache();
+		listings = new LooseObjectListingCache(dir);
 		trustFolderStat = config.getBoolean(
 				ConfigConstants.CONFIG_CORE_SECTION,
 				ConfigConstants.CONFIG_KEY_TRUSTFOLDERSTAT, true);
@@ -88,6 +92,15 @@ void create() throws IOException {
 
 	void close() {
 		unpackedObjectCache().clear();
+		listings.clear();
+	}
+
+	/**
+	 * Start a new round of lookups, which stat the directories of the
+	 * objects again before trusting their listings.
+	 */
+	void newRound() {
+		listings.newRound();
 	}
 
 	/** {@inheritDoc} */
@@ -121,9 +134,21 @@ boolean has(AnyObjectId objectId) {
 	}
 
 	private boolean hasWithoutRefresh(AnyObjectId objectId) {
+		Presence p = lookup(objectId);
+		if (p != Presence.UNKNOWN) {
+			return p == Presence.FOUND;
+		}
 		return fileFor(objectId).exists();
 	}
 
+	/**
+	 * Look up an object in the listing of its directory, if the stat of the
+	 * directory can be trusted to tell whether the listing is current.
+	 */
+	private Presence lookup(AnyObjectId objectId) {
+		return trustFolderStat ? listings.lookup(objectId) : Presence.UNKNOWN;
+	}
+
 	/**
 	 * Find objects matching the prefix abbreviation.
 	 *
@@ -165,7 +190,8 @@ boolean resolve(Set<ObjectId> matches, AbbreviatedObjectId id,
 
 	ObjectLoader open(WindowCursor curs, AnyObjectId id) throws IOException {
 		int readAttempts = 0;
-		while (readAttempts < MAX_LOOSE_OBJECT_STALE_READ_ATTEMPTS) {
+		while (lookup(id) != Presence.MISSING
+				&& readAttempts < MAX_LOOSE_OBJECT_STALE_READ_ATTEMPTS) {
 			readAttempts++;
 			File path = fileFor(id);
 			try {
@@ -242,6 +268,10 @@ UnpackedObjectCache unpackedObjectCache() {
 	}
 
 	long getSize(WindowCursor curs, AnyObjectId id) throws IOException {
+		if (lookup(id) == Presence.MISSING) {
+			unpackedObjectCache().remove(id);
+			return -1;
+		}
 		try {
 			return getSizeWithoutRefresh(curs, id);
 		} catch (FileNotFoundException noFile) {
@@ -320,6 +350,7 @@ private InsertLooseObjectResult tryMove(File tmp, File dst, ObjectId id)
 		Files.move(FileUtils.toPath(tmp), FileUtils.toPath(dst),
 				StandardCopyOption.ATOMIC_MOVE);
 		dst.setReadOnly();
+		listings.invalidate(id);
 		unpackedObjectCache().add(id);
 		return InsertLooseObjectResult.INSERTED;
 	}
@@ -13,6 +13,7 @@
 import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.eclipse.jgit.internal.storage.pack.PackExt.PACK;
 import static org.eclipse.jgit.internal.storage.pack.PackExt.BITMAP_INDEX;
+import static org.eclipse.jgit.internal.storage.pack.PackExt.MTIMES;
 import static org.eclipse.jgit.internal.storage.pack.PackExt.INDEX;
 
 import java.io.BufferedReader;
@@ -46,6 +47,7 @@
 import org.eclipse.jgit.lib.ObjectDatabase;
 import org.eclipse.jgit.lib.ObjectId;
 import org.eclipse.jgit.lib.ObjectLoader;
+import org.eclipse.jgit.lib.ObjectReader;
 import org.eclipse.jgit.lib.RepositoryCache;
 import org.eclipse.jgit.lib.RepositoryCache.FileKey;
 import org.eclipse.jgit.util.FS;
@@ -183,6 +185,31 @@ public void create() throws IOException {
 		packed.create();
 	}
 
+	/** {@inheritDoc} */
+	@Override
+	public ObjectReader newReader() {
+		newRound(null);
+		return super.newReader();
+	}
+
+	/**
+	 * Start a new round of lookups of loose objects, in this database and in
+	 * the alternates already opened, so that the directories of the objects
+	 * are stat'ed once per reader.
+	 */
+	private void newRound(Set<AlternateHandle.Id> skips) {
+		loose.newRound();
+		AlternateHandle[] alt = alternates.get();
+		if (alt != null) {
+			skips = addMe(skips);
+			for (AlternateHandle od : alt) {
+				if (!skips.contains(od.getId())) {
+					od.db.newRound(skips);
+				}
+			}
+		}
+	}
+
 	/** {@inheritDoc} */
 	@Override
 	public ObjectDirectoryInserter newInserter() {
@@ -268,7 +295,9 @@ public Pack openPack(File pack) throws IOException {
 		}
 
 		PackFile bitmapIdx = pf.create(BITMAP_INDEX);
-		Pack res = new Pack(pack, bitmapIdx.exists() ? bitmapIdx : null);
+		PackFile mtimes = pf.create(MTIMES);
+		Pack res = new Pack(pack, bitmapIdx.exists() ? bitmapIdx : null,
+				mtimes.exists() ? mtimes : null);
 		packed.insert(res);
 		return res;
 	}
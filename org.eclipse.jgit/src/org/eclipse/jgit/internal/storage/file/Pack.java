@@ -71,10 +71,15 @@ public class Pack implements Iterable<PackIndex.MutableEntry> {
 	private static final Logger LOG = LoggerFactory.getLogger(Pack.class);
 
 	/**
-	 * Sorts PackFiles to be most recently created to least recently created.
+	 * Sorts PackFiles to be most recently created to least recently created,
+	 * cruft packs after all other packs.
 	 */
-	public static final Comparator<Pack> SORT = (a, b) -> b.packLastModified
-			.compareTo(a.packLastModified);
+	public static final Comparator<Pack> SORT = (a, b) -> {
+		if (a.isCruft() != b.isCruft()) {
+			return a.isCruft() ? 1 : -1;
+		}
+		return b.packLastModified.compareTo(a.packLastModified);
+	};
 
 	private final PackFile packFile;
 
@@ -104,6 +109,11 @@ public class Pack implements Iterable<PackIndex.MutableEntry> {
 	@Nullable
 	private PackFile bitmapIdxFile;
 
+	@Nullable
+	private final PackFile mtimesFile;
+
+	private PackMtimes mtimes;
+
 	private AtomicInteger transientErrorCount = new AtomicInteger();
 
 	private byte[] packChecksum;
@@ -132,10 +142,27 @@ public class Pack implements Iterable<PackIndex.MutableEntry> {
 	 *            existing bitmap index file with the same base as the pack
 	 */
 	public Pack(File packFile, @Nullable PackFile bitmapIdxFile) {
+		this(packFile, bitmapIdxFile, null);
+	}
+
+	/**
+	 * Construct a reader for an existing, pre-indexed packfile.
+	 *
+	 * @param packFile
+	 *            path of the <code>.pack</code> file holding the data.
+	 * @param bitmapIdxFile
+	 *            existing bitmap index file with the same base as the pack
+	 * @param mtimesFile
+	 *            existing object modification times file with the same base
+	 *            as the pack, if the pack is a cruft pack
+	 */
+	public Pack(File packFile, @Nullable PackFile bitmapIdxFile,
+			@Nullable PackFile mtimesFile) {
 		this.packFile = new PackFile(packFile);
 		this.fileSnapshot = PackFileSnapshot.save(packFile);
 		this.packLastModified = fileSnapshot.lastModifiedInstant();
 		this.bitmapIdxFile = bitmapIdxFile;
+		this.mtimesFile = mtimesFile;
 
 		// Multiply by 31 here so we can more directly combine with another
 		// value in WindowCache.hash(), without doing the multiply there.
@@ -255,6 +282,34 @@ public boolean shouldBeKept() {
 		return keepFile.exists();
 	}
 
+	/**
+	 * Whether this is a cruft pack, holding unreachable objects together with
+	 * their modification times.
+	 *
+	 * @return true if a .mtimes file exists for this pack file.
+	 */
+	public boolean isCruft() {
+		return mtimesFile != null;
+	}
+
+	/**
+	 * Get the modification times of the objects of this cruft pack.
+	 *
+	 * @return the modification times, or null if this is not a cruft pack.
+	 * @throws java.io.IOException
+	 *             the index or the .mtimes file cannot be read.
+	 */
+	@Nullable
+	public synchronized PackMtimes getMtimes() throws IOException {
+		if (mtimesFile == null) {
+			return null;
+		}
+		if (mtimes == null) {
+			mtimes = PackMtimes.open(mtimesFile, idx());
+		}
+		return mtimes;
+	}
+
 	/**
 	 * Get an object from this pack.
 	 *
@@ -286,6 +341,7 @@ public void close() {
 		synchronized (this) {
 			loadedIdx = null;
 			reverseIdx = null;
+			mtimes = null;
 		}
 	}
 
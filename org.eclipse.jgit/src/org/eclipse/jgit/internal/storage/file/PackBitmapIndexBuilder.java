@@ -190,7 +190,11 @@ private StoredEntry generateStoredEntry(StoredBitmap bitmapToWrite) {
 		if (entry == null) {
 			throw new IllegalStateException();
 		}
-		bestBitmap.trim();
+		if (bestXorOffset != 0) {
+			// The bitmap itself was trimmed when it was processed, and may
+			// be read by other threads since.
+			bestBitmap.trim();
+		}
 		StoredEntry result = new StoredEntry(entry.namePosition, bestBitmap,
 				bestXorOffset, bitmapToWrite.getFlags());
 
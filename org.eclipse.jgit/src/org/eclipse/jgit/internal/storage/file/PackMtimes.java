@@ -0,0 +1,219 @@
+/*
+ * Copyright (C) 2023, Google LLC and others
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Distribution License v. 1.0 which is available at
+ * https://www.eclipse.org/org/documents/edl-v10.php.
+ *
+ * SPDX-License-Identifier: BSD-3-Clause
+ */
+
+package org.eclipse.jgit.internal.storage.file;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.DigestInputStream;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToLongFunction;
+
+import org.eclipse.jgit.internal.JGitText;
+import org.eclipse.jgit.lib.AnyObjectId;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.util.IO;
+import org.eclipse.jgit.util.NB;
+import org.eclipse.jgit.util.io.SilentFileInputStream;
+
+/**
+ * Modification times of the objects in a cruft pack.
+ * <p>
+ * A cruft pack holds unreachable objects which are not yet old enough to be
+ * pruned. Its {@code .mtimes} file records, in the order of the pack index,
+ * the time each object was last written, so that garbage collection can
+ * prune the objects by age without storing them as loose objects. The format
+ * is the one used by C Git: the signature {@code MTME}, the version 1, the
+ * hash function id 1 (SHA-1), one 32-bit time in seconds per object, the
+ * checksum of the pack and the checksum of the file.
+ */
+public class PackMtimes {
+	private static final byte[] SIGNATURE = { 'M', 'T', 'M', 'E' };
+
+	private static final int VERSION_1 = 1;
+
+	private static final int SHA1_ID = 1;
+
+	private static final int HEADER_LENGTH = 12;
+
+	/**
+	 * Open an existing {@code .mtimes} file for reading.
+	 *
+	 * @param mtimesFile
+	 *            existing {@code .mtimes} file to read.
+	 * @param index
+	 *            index of the pack the file belongs to.
+	 * @return the modification times.
+	 * @throws java.io.FileNotFoundException
+	 *             the file does not exist.
+	 * @throws java.io.IOException
+	 *             the file could not be read, does not belong to the pack or
+	 *             is corrupt.
+	 */
+	public static PackMtimes open(File mtimesFile, PackIndex index)
+			throws IOException {
+		try (SilentFileInputStream fd = new SilentFileInputStream(
+				mtimesFile)) {
+			return read(fd, index);
+		} catch (IOException ioe) {
+			throw new IOException(
+					MessageFormat.format(JGitText.get().unreadablePackMtimes,
+							mtimesFile.getAbsolutePath()),
+					ioe);
+		}
+	}
+
+	/**
+	 * Read modification times from a stream.
+	 *
+	 * @param fd
+	 *            stream to read the file from. The caller is responsible for
+	 *            closing the stream.
+	 * @param index
+	 *            index of the pack the file belongs to.
+	 * @return the modification times.
+	 * @throws java.io.IOException
+	 *             the stream could not be read, does not belong to the pack
+	 *             or is corrupt.
+	 */
+	public static PackMtimes read(InputStream fd, PackIndex index)
+			throws IOException {
+		MessageDigest md = Constants.newMessageDigest();
+		DigestInputStream in = new DigestInputStream(fd, md);
+		byte[] hdr = new byte[HEADER_LENGTH];
+		IO.readFully(in, hdr, 0, hdr.length);
+		if (!Arrays.equals(SIGNATURE, Arrays.copyOf(hdr, 4))
+				|| NB.decodeInt32(hdr, 4) != VERSION_1
+				|| NB.decodeInt32(hdr, 8) != SHA1_ID) {
+			throw new IOException(JGitText.get().corruptPackMtimes);
+		}
+
+		long count = index.getObjectCount();
+		if (count > Integer.MAX_VALUE) {
+			throw new IOException(JGitText.get().corruptPackMtimes);
+		}
+		int[] mtimes = new int[(int) count];
+		byte[] buf = new byte[4 * 1024];
+		for (int i = 0; i < mtimes.length;) {
+			int n = Math.min(buf.length / 4, mtimes.length - i);
+			IO.readFully(in, buf, 0, n * 4);
+			for (int p = 0; p < n; p++) {
+				mtimes[i++] = NB.decodeInt32(buf, p * 4);
+			}
+		}
+
+		byte[] packChecksum = new byte[Constants.OBJECT_ID_LENGTH];
+		IO.readFully(in, packChecksum, 0, packChecksum.length);
+		in.on(false);
+		byte[] checksum = new byte[Constants.OBJECT_ID_LENGTH];
+		IO.readFully(fd, checksum, 0, checksum.length);
+		if (!Arrays.equals(packChecksum, index.packChecksum)
+				|| !Arrays.equals(checksum, md.digest())
+				|| fd.read() != -1) {
+			throw new IOException(JGitText.get().corruptPackMtimes);
+		}
+		return new PackMtimes(index, mtimes);
+	}
+
+	/**
+	 * Write a {@code .mtimes} file.
+	 *
+	 * @param out
+	 *            stream to write the file to; not closed.
+	 * @param index
+	 *            index of the pack the file is written for.
+	 * @param mtime
+	 *            modification time of each object of the pack, in
+	 *            milliseconds since the epoch.
+	 * @throws java.io.IOException
+	 *             the file could not be written.
+	 */
+	public static void write(OutputStream out, PackIndex index,
+			ToLongFunction<AnyObjectId> mtime) throws IOException {
+		List<ObjectId> objects = new ArrayList<>(
+				(int) index.getObjectCount());
+		for (PackIndex.MutableEntry e : index) {
+			objects.add(e.toObjectId());
+		}
+		write(out, objects, index.packChecksum, mtime);
+	}
+
+	/**
+	 * Write a {@code .mtimes} file.
+	 *
+	 * @param out
+	 *            stream to write the file to; not closed.
+	 * @param objects
+	 *            the objects of the pack, in the order of its index.
+	 * @param packChecksum
+	 *            checksum of the pack.
+	 * @param mtime
+	 *            modification time of each object of the pack, in
+	 *            milliseconds since the epoch.
+	 * @throws java.io.IOException
+	 *             the file could not be written.
+	 */
+	public static void write(OutputStream out,
+			List<? extends AnyObjectId> objects, byte[] packChecksum,
+			ToLongFunction<AnyObjectId> mtime) throws IOException {
+		MessageDigest md = Constants.newMessageDigest();
+		DigestOutputStream dos = new DigestOutputStream(out, md);
+		byte[] buf = new byte[HEADER_LENGTH];
+		System.arraycopy(SIGNATURE, 0, buf, 0, SIGNATURE.length);
+		NB.encodeInt32(buf, 4, VERSION_1);
+		NB.encodeInt32(buf, 8, SHA1_ID);
+		dos.write(buf);
+		for (AnyObjectId id : objects) {
+			long seconds = TimeUnit.MILLISECONDS
+					.toSeconds(mtime.applyAsLong(id));
+			NB.encodeInt32(buf, 0,
+					(int) Math.max(0, Math.min(seconds, 0xffffffffL)));
+			dos.write(buf, 0, 4);
+		}
+		dos.write(packChecksum);
+		dos.on(false);
+		out.write(md.digest());
+		out.flush();
+	}
+
+	private final PackIndex index;
+
+	private final int[] mtimes;
+
+	private PackMtimes(PackIndex index, int[] mtimes) {
+		this.index = index;
+		this.mtimes = mtimes;
+	}
+
+	/**
+	 * Get the modification time of an object.
+	 *
+	 * @param id
+	 *            the object.
+	 * @return modification time of the object in milliseconds since the
+	 *         epoch, or -1 if the object is not in the pack.
+	 */
+	public long getMtime(AnyObjectId id) {
+		int pos = index.findPosition(id);
+		if (pos < 0) {
+			return -1;
+		}
+		return TimeUnit.SECONDS.toMillis(mtimes[pos] & 0xffffffffL);
+	}
+}
@@ -0,0 +1,313 @@
+/*
+ * Copyright (C) 2023, Google LLC and others
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Distribution License v. 1.0 which is available at
+ * https://www.eclipse.org/org/documents/edl-v10.php.
+ *
+ * SPDX-License-Identifier: BSD-3-Clause
+ */
+
+package org.eclipse.jgit.internal.storage.pack;
+
+import java.io.IOException;
+import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.eclipse.jgit.internal.JGitText;
+import org.eclipse.jgit.internal.storage.file.BitmapIndexImpl;
+import org.eclipse.jgit.internal.storage.file.BitmapIndexImpl.CompressedBitmap;
+import org.eclipse.jgit.internal.storage.file.PackBitmapIndex;
+import org.eclipse.jgit.internal.storage.file.PackBitmapIndexBuilder;
+import org.eclipse.jgit.lib.AnyObjectId;
+import org.eclipse.jgit.lib.BitmapIndex.Bitmap;
+import org.eclipse.jgit.lib.BitmapIndex.BitmapBuilder;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.lib.ThreadSafeProgressMonitor;
+import org.eclipse.jgit.revwalk.BitmapWalker;
+
+import com.googlecode.javaewah.EWAHCompressedBitmap;
+
+/**
+ * Building of the bitmaps of a chain of selected commits by one of several
+ * threads.
+ * <p>
+ * A chain starts at a commit which does not reuse the walker of the commit
+ * before it. The bitmaps of a chain are built one after the other by the
+ * same walker, each walk stopping at the commit before, but different
+ * chains are independent and are built in parallel. Each thread reads
+ * through its own reader and bitmap index.
+ * <p>
+ * The bitmaps are handed to the {@link PackBitmapIndexBuilder} in the order
+ * of the commits, as soon as the ones before are built, so the XOR
+ * compression and the written index are the same as with a single thread.
+ * The bitmaps the builder keeps to speed up walks are published to the
+ * walkers of all threads at the same time. A thread only starts a commit
+ * less than {@link #LOOK_AHEAD} commits per thread ahead of the first one
+ * not handed over, which bounds the bitmaps waiting for it.
+ */
+final class BitmapTask {
+	/** Commits per thread a bitmap may be built ahead of the builder. */
+	static final int LOOK_AHEAD = 32;
+
+	static final class Block {
+		final PackWriterBitmapPreparer preparer;
+		final PackBitmapIndexBuilder writeBitmaps;
+		final ObjectReader templateReader;
+		final ThreadSafeProgressMonitor pm;
+		final BitmapCommit[] commits;
+
+		/** Failures of tasks; once not empty no further task is started. */
+		final List<Throwable> errors;
+
+		/** Bitmaps built and not yet handed over, at their commit index. */
+		private final Bitmap[] bitmaps;
+
+		/** Index of the first commit not handed over to the builder. */
+		private int next;
+
+		private final int lookAhead;
+
+		private final PublishedBitmapIndex published;
+
+		private final Map<Thread, Worker> workers;
+
+		Block(PackWriterBitmapPreparer preparer,
+				PackBitmapIndexBuilder writeBitmaps, ObjectReader reader,
+				ThreadSafeProgressMonitor pm, Collection<BitmapCommit> commits,
+				int threads) {
+			this.preparer = preparer;
+			this.writeBitmaps = writeBitmaps;
+			this.templateReader = reader;
+			this.pm = pm;
+			this.commits = commits.toArray(new BitmapCommit[0]);
+			this.errors = Collections.synchronizedList(new ArrayList<>());
+			this.bitmaps = new Bitmap[this.commits.length];
+			this.lookAhead = threads * LOOK_AHEAD;
+			this.published = writeBitmaps != null
+					? new PublishedBitmapIndex(writeBitmaps)
+					: null;
+			this.workers = new ConcurrentHashMap<>();
+		}
+
+		/**
+		 * Split the commits into their chains.
+		 *
+		 * @return one task per chain, in the order of the commits.
+		 */
+		List<BitmapTask> tasks() {
+			List<BitmapTask> tasks = new ArrayList<>();
+			int begin = 0;
+			for (int i = 1; i <= commits.length; i++) {
+				if (i == commits.length || !commits[i].isReuseWalker()) {
+					tasks.add(new BitmapTask(this, begin, i));
+					begin = i;
+				}
+			}
+			return tasks;
+		}
+
+		/**
+		 * Wait until the bitmap of a commit may be built.
+		 *
+		 * @param i
+		 *            index of the commit.
+		 * @return false if the tasks failed, and the bitmap should not be
+		 *         built.
+		 */
+		synchronized boolean await(int i) {
+			// The commit the builder waits for is never held back, so the
+			// thread building it always makes progress.
+			while (errors.isEmpty() && next + lookAhead <= i) {
+				try {
+					wait();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					fail(e);
+				}
+			}
+			return errors.isEmpty();
+		}
+
+		/**
+		 * Store the bitmap of a commit, and hand the bitmaps over to the
+		 * builder for as long as they follow each other.
+		 *
+		 * @param i
+		 *            index of the commit.
+		 * @param bitmap
+		 *            its bitmap, no longer used by the thread which built it.
+		 */
+		synchronized void built(int i, Bitmap bitmap) {
+			bitmaps[i] = bitmap;
+			while (next < commits.length && bitmaps[next] != null) {
+				BitmapCommit c = commits[next];
+				writeBitmaps.processBitmapForWrite(c, bitmaps[next],
+						c.getFlags());
+				if (c.isAddToIndex()) {
+					published.add(c, bitmaps[next].retrieveCompressed());
+				}
+				bitmaps[next++] = null;
+			}
+			notifyAll();
+		}
+
+		synchronized void fail(Throwable failure) {
+			errors.add(failure);
+			notifyAll();
+		}
+
+		Worker worker() throws IOException {
+			// Only the current thread adds its own entry.
+			Worker w = workers.get(Thread.currentThread());
+			if (w == null) {
+				ObjectReader reader = templateReader.newReader();
+				try {
+					w = new Worker(reader,
+							preparer.newBitmapIndex(reader, published));
+				} catch (IOException | RuntimeException e) {
+					reader.close();
+					throw e;
+				}
+				workers.put(Thread.currentThread(), w);
+			}
+			return w;
+		}
+
+		/** Release the readers of the threads once all tasks are done. */
+		void close() {
+			for (Worker w : workers.values()) {
+				w.reader.close();
+			}
+			workers.clear();
+		}
+	}
+
+	/** State of one thread, only used by that thread. */
+	static final class Worker {
+		final ObjectReader reader;
+
+		final BitmapIndexImpl index;
+
+		Worker(ObjectReader reader, BitmapIndexImpl index) {
+			this.reader = reader;
+			this.index = index;
+		}
+	}
+
+	/**
+	 * View of the index being built which the walkers of all threads read.
+	 * <p>
+	 * The positions of the objects do not change once the builder is
+	 * created. The bitmaps it keeps for walks are added while other threads
+	 * read, so they are published in a concurrent map instead.
+	 */
+	static final class PublishedBitmapIndex extends PackBitmapIndex {
+		private final PackBitmapIndexBuilder builder;
+
+		private final Map<ObjectId, EWAHCompressedBitmap> bitmaps;
+
+		PublishedBitmapIndex(PackBitmapIndexBuilder builder) {
+			this.builder = builder;
+			this.bitmaps = new ConcurrentHashMap<>();
+		}
+
+		void add(AnyObjectId objectId, EWAHCompressedBitmap bitmap) {
+			bitmaps.put(objectId.copy(), bitmap);
+		}
+
+		@Override
+		public int findPosition(AnyObjectId objectId) {
+			return builder.findPosition(objectId);
+		}
+
+		@Override
+		public ObjectId getObject(int position)
+				throws IllegalArgumentException {
+			return builder.getObject(position);
+		}
+
+		@Override
+		public EWAHCompressedBitmap ofObjectType(EWAHCompressedBitmap bitmap,
+				int type) {
+			return builder.ofObjectType(bitmap, type);
+		}
+
+		@Override
+		public EWAHCompressedBitmap getBitmap(AnyObjectId objectId) {
+			return bitmaps.get(objectId);
+		}
+
+		@Override
+		public int getObjectCount() {
+			return builder.getObjectCount();
+		}
+
+		@Override
+		public int getBitmapCount() {
+			return bitmaps.size();
+		}
+	}
+
+	private final Block block;
+	private final int beginIndex;
+	private final int endIndex;
+
+	BitmapTask(Block b, int begin, int end) {
+		this.block = b;
+		this.beginIndex = begin;
+		this.endIndex = end;
+	}
+
+	/** Build the bitmaps of the chain, unless another task failed. */
+	void build() {
+		if (!block.errors.isEmpty()) {
+			return;
+		}
+		try {
+			Worker w = block.worker();
+			BitmapWalker walker = block.preparer.newBitmapWalker(w.reader,
+					w.index);
+			AnyObjectId last = null;
+			for (int i = beginIndex; i < endIndex; i++) {
+				if (!block.await(i)) {
+					return;
+				}
+				BitmapCommit cmit = block.commits[i];
+				BitmapBuilder bitmap = walker.findObjects(
+						Collections.singleton(cmit), null, false);
+
+				if (last != null && !bitmap.contains(last))
+					throw new IllegalStateException(MessageFormat.format(
+							JGitText.get().bitmapMissingObject, cmit.name(),
+							last.name()));
+				last = BitmapCommit.copyFrom(cmit).build();
+
+				// The builder trims the bitmap it is given, while the walker
+				// still reads this one to build the next bitmap.
+				block.built(i, new CompressedBitmap(
+						copy(bitmap.build().retrieveCompressed()), w.index));
+
+				walker.setPrevCommit(last);
+				walker.setPrevBitmap(bitmap);
+				block.pm.update(1);
+			}
+		} catch (Throwable failure) {
+			block.fail(failure);
+		}
+	}
+
+	private static EWAHCompressedBitmap copy(EWAHCompressedBitmap bitmap) {
+		try {
+			return bitmap.clone();
+		} catch (CloneNotSupportedException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+}
@@ -251,16 +251,35 @@ public void encode(OutputStream out, byte[] res) throws IOException {
 	 */
 	public boolean encode(OutputStream out, byte[] res, int deltaSizeLimit)
 			throws IOException {
-		final int end = res.length;
-		final DeltaEncoder enc = newEncoder(out, end, deltaSizeLimit);
+		return encode(newEncoder(out, res.length, deltaSizeLimit), res,
+				res.length, 0);
+	}
 
+	/**
+	 * Append the instructions recreating part of the result to a delta.
+	 *
+	 * @param enc
+	 *            encoder of the delta.
+	 * @param res
+	 *            buffer holding the part of the result.
+	 * @param end
+	 *            number of bytes of {@code res} to recreate.
+	 * @param srcOffset
+	 *            offset of this index's source buffer within the base of the
+	 *            delta, added to the offset of every copy instruction.
+	 * @return true if the delta is smaller than the limit of the encoder.
+	 * @throws java.io.IOException
+	 *             the output stream refused to write the instructions.
+	 */
+	boolean encode(DeltaEncoder enc, byte[] res, int end, long srcOffset)
+			throws IOException {
 		// If either input is smaller than one full block, we simply punt
 		// and construct a delta as a literal. This implies that any file
 		// smaller than our block size is never delta encoded as the delta
 		// will always be larger than the file itself would be.
 		//
 		if (end < BLKSZ || table.length == 0)
-			return enc.insert(res);
+			return enc.insert(res, 0, end);
 
 		// Bootstrap the scan by constructing a hash for the first block
 		// in the input.
@@ -302,7 +321,8 @@ public boolean encode(OutputStream out, byte[] res, int deltaSizeLimit)
 						neg = negmatch(res, blkPtr, src, valOf(ent), neg);
 					}
 
-					int len = neg + fwdmatch(res, blkPtr, src, valOf(ent));
+					int len = neg
+							+ fwdmatch(res, blkPtr, end, src, valOf(ent));
 					if (bestLen < len) {
 						bestLen = len;
 						bestPtr = valOf(ent);
@@ -335,7 +355,7 @@ public boolean encode(OutputStream out, byte[] res, int deltaSizeLimit)
 					return false;
 			}
 
-			if (!enc.copy(bestPtr - bestNeg, bestLen))
+			if (!enc.copy(srcOffset + bestPtr - bestNeg, bestLen))
 				return false;
 
 			blkPtr += bestLen;
@@ -367,9 +387,10 @@ private DeltaEncoder newEncoder(OutputStream out, long resSize, int limit)
 		return new DeltaEncoder(out, getSourceSize(), resSize, limit);
 	}
 
-	private static int fwdmatch(byte[] res, int resPtr, byte[] src, int srcPtr) {
+	private static int fwdmatch(byte[] res, int resPtr, int resEnd,
+			byte[] src, int srcPtr) {
 		int start = resPtr;
-		for (; resPtr < res.length && srcPtr < src.length; resPtr++, srcPtr++) {
+		for (; resPtr < resEnd && srcPtr < src.length; resPtr++, srcPtr++) {
 			if (res[resPtr] != src[srcPtr])
 				break;
 		}
@@ -0,0 +1,326 @@
+/*
+ * Copyright (C) 2023, Google LLC and others
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Distribution License v. 1.0 which is available at
+ * https://www.eclipse.org/org/documents/edl-v10.php.
+ *
+ * SPDX-License-Identifier: BSD-3-Clause
+ */
+
+package org.eclipse.jgit.internal.storage.pack;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.eclipse.jgit.errors.MissingObjectException;
+import org.eclipse.jgit.lib.AnyObjectId;
+import org.eclipse.jgit.lib.FileMode;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectIdOwnerMap;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.lib.Ref;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevObject;
+import org.eclipse.jgit.revwalk.RevSort;
+import org.eclipse.jgit.revwalk.RevTag;
+import org.eclipse.jgit.revwalk.RevTree;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.treewalk.CanonicalTreeParser;
+
+/**
+ * Delta islands constraining the choice of delta bases.
+ * <p>
+ * Refs are grouped into islands by the regular expressions of
+ * {@link org.eclipse.jgit.storage.pack.PackConfig#getDeltaIslands()}. An
+ * object may only be stored as a delta against a base which is reachable from
+ * every island the object is reachable from, so that the delta can be reused
+ * as is when a pack is written for the refs of any single island.
+ */
+public final class DeltaIslands {
+	private static final BitSet NONE = new BitSet();
+
+	private final Map<String, List<ObjectId>> tips = new LinkedHashMap<>();
+
+	private ObjectIdOwnerMap<Marks> marks;
+
+	/** Unions of canonical island sets, while marking. */
+	private Map<BitSet, Map<BitSet, BitSet>> unions;
+
+	/** Canonical instance of each island set, while marking. */
+	private Map<BitSet, BitSet> canonical;
+
+	/**
+	 * Group refs into islands.
+	 *
+	 * @param regexes
+	 *            regular expressions matching the names of the refs which
+	 *            form islands. If several match a ref, the last one wins.
+	 * @param refs
+	 *            the refs to group.
+	 * @throws java.util.regex.PatternSyntaxException
+	 *             a regular expression is invalid.
+	 */
+	public DeltaIslands(String[] regexes, Collection<Ref> refs) {
+		List<Pattern> patterns = new ArrayList<>(regexes.length);
+		for (String regex : regexes) {
+			patterns.add(Pattern.compile(regex));
+		}
+		for (Ref ref : refs) {
+			ObjectId id = ref.getObjectId();
+			if (ref.isSymbolic() || id == null) {
+				continue;
+			}
+			String name = islandName(patterns, ref.getName());
+			if (name != null) {
+				tips.computeIfAbsent(name, n -> new ArrayList<>()).add(id);
+			}
+		}
+	}
+
+	/**
+	 * Get the name of the island of a ref.
+	 *
+	 * @param patterns
+	 *            the patterns defining islands.
+	 * @param refName
+	 *            name of the ref.
+	 * @return the groups captured by the last matching pattern, joined by
+	 *         {@code -}; null if no pattern matches.
+	 */
+	static String islandName(List<Pattern> patterns, String refName) {
+		for (int i = patterns.size() - 1; i >= 0; i--) {
+			Matcher m = patterns.get(i).matcher(refName);
+			if (!m.find()) {
+				continue;
+			}
+			StringBuilder name = new StringBuilder();
+			for (int g = 1; g <= m.groupCount(); g++) {
+				if (m.group(g) == null) {
+					continue;
+				}
+				if (name.length() > 0) {
+					name.append('-');
+				}
+				name.append(m.group(g));
+			}
+			return name.toString();
+		}
+		return null;
+	}
+
+	/**
+	 * Get the number of islands.
+	 *
+	 * @return number of distinct islands the refs were grouped into.
+	 */
+	public int getIslandCount() {
+		return tips.size();
+	}
+
+	/**
+	 * Record the islands of the objects being packed.
+	 * <p>
+	 * The refs are walked once, whatever the number of islands. Commits are
+	 * walked in topological order, so that the islands of a commit are
+	 * complete before they are added to its parents. The islands of the
+	 * commits are then added to their trees, and propagated from each tree
+	 * to its entries; a tree is read again only if it is reached from a tree
+	 * with islands it was not yet in.
+	 *
+	 * @param reader
+	 *            reader to walk the islands with.
+	 * @param objects
+	 *            the objects being packed.
+	 * @throws IOException
+	 *             an object could not be read.
+	 */
+	void mark(ObjectReader reader, ObjectIdOwnerMap<ObjectToPack> objects)
+			throws IOException {
+		marks = new ObjectIdOwnerMap<>();
+		unions = new IdentityHashMap<>();
+		canonical = new HashMap<>();
+		List<RevTree> trees = new ArrayList<>();
+		try (RevWalk rw = new RevWalk(reader)) {
+			rw.sort(RevSort.TOPO);
+			int island = 0;
+			for (List<ObjectId> islandTips : tips.values()) {
+				BitSet bit = new BitSet();
+				bit.set(island++);
+				bit = canonical(bit);
+				for (ObjectId tip : islandTips) {
+					try {
+						markTip(rw, rw.parseAny(tip), bit, trees, objects);
+					} catch (MissingObjectException notFound) {
+						// A ref to a missing object does not add to an island.
+					}
+				}
+			}
+
+			RevCommit c;
+			while ((c = rw.next()) != null) {
+				BitSet islands = marks.get(c).islands;
+				for (RevCommit p : c.getParents()) {
+					add(p, islands);
+				}
+				if (add(c.getTree(), islands)) {
+					trees.add(c.getTree());
+				}
+			}
+		}
+
+		// Ancestors are usually in more islands than their descendants, so
+		// starting from the oldest trees reads few trees more than once.
+		Deque<ObjectId> pending = new ArrayDeque<>();
+		for (int i = trees.size() - 1; i >= 0; i--) {
+			pending.push(trees.get(i));
+			while (!pending.isEmpty()) {
+				propagate(reader, pending, objects);
+			}
+		}
+
+		// Only the islands of the objects being packed are looked up.
+		ObjectIdOwnerMap<Marks> packed = new ObjectIdOwnerMap<>();
+		for (Marks m : marks) {
+			if (objects.contains(m)) {
+				Marks p = new Marks(m);
+				p.islands = m.islands;
+				packed.add(p);
+			}
+		}
+		marks = packed;
+		unions = null;
+		canonical = null;
+	}
+
+	private void markTip(RevWalk rw, RevObject o, BitSet islands,
+			List<RevTree> trees, ObjectIdOwnerMap<ObjectToPack> objects)
+			throws IOException {
+		while (o instanceof RevTag) {
+			add(o, islands);
+			o = ((RevTag) o).getObject();
+			rw.parseHeaders(o);
+		}
+		if (o instanceof RevCommit) {
+			add(o, islands);
+			rw.markStart((RevCommit) o);
+		} else if (o instanceof RevTree) {
+			if (add(o, islands)) {
+				trees.add((RevTree) o);
+			}
+		} else if (objects.contains(o)) {
+			add(o, islands);
+		}
+	}
+
+	private void propagate(ObjectReader reader, Deque<ObjectId> pending,
+			ObjectIdOwnerMap<ObjectToPack> objects) throws IOException {
+		Marks tree = marks.get(pending.pop());
+		tree.pending = false;
+		BitSet islands = tree.islands;
+		CanonicalTreeParser p = new CanonicalTreeParser(null, reader, tree);
+		for (; !p.eof(); p.next()) {
+			int type = p.getEntryRawMode() & FileMode.TYPE_MASK;
+			if (type == FileMode.TYPE_GITLINK) {
+				continue;
+			}
+			ObjectId id = p.getEntryObjectId();
+			if (type == FileMode.TYPE_TREE) {
+				Marks m = marks.get(id);
+				if (add(id, islands) && (m == null || !m.pending)) {
+					marks.get(id).pending = true;
+					pending.push(id);
+				}
+			} else if (objects.contains(id)) {
+				add(id, islands);
+			}
+		}
+	}
+
+	/**
+	 * Add islands to an object.
+	 *
+	 * @return true if the object was not yet in all of these islands.
+	 */
+	private boolean add(AnyObjectId id, BitSet islands) {
+		Marks m = marks.get(id);
+		if (m == null) {
+			m = new Marks(id);
+			marks.add(m);
+		}
+		BitSet old = m.islands;
+		m.islands = union(old, islands);
+		return m.islands != old;
+	}
+
+	private BitSet union(BitSet a, BitSet b) {
+		if (a == b || b == NONE) {
+			return a;
+		}
+		if (a == NONE) {
+			return b;
+		}
+		// The island sets are canonical, so their unions can be looked up
+		// by identity.
+		return unions.computeIfAbsent(a, x -> new IdentityHashMap<>())
+				.computeIfAbsent(b, x -> {
+					BitSet u = (BitSet) a.clone();
+					u.or(b);
+					return canonical(u.equals(a) ? a : u);
+				});
+	}
+
+	private BitSet canonical(BitSet islands) {
+		return canonical.computeIfAbsent(islands, s -> s);
+	}
+
+	/**
+	 * Whether an object may be stored as a delta against a base.
+	 *
+	 * @param target
+	 *            the object to store as a delta.
+	 * @param base
+	 *            the candidate delta base.
+	 * @return true if the base is in every island the target is in.
+	 */
+	boolean canDelta(AnyObjectId target, AnyObjectId base) {
+		BitSet t = islands(target);
+		BitSet b = islands(base);
+		if (t == b) {
+			return true;
+		}
+		for (int i = t.nextSetBit(0); i >= 0; i = t.nextSetBit(i + 1)) {
+			if (!b.get(i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private BitSet islands(AnyObjectId id) {
+		Marks m = marks != null ? marks.get(id) : null;
+		return m != null ? m.islands : NONE;
+	}
+
+	private static final class Marks extends ObjectIdOwnerMap.Entry {
+		BitSet islands = NONE;
+
+		/** Whether the islands still have to be added to the entries. */
+		boolean pending;
+
+		Marks(AnyObjectId id) {
+			super(id);
+		}
+	}
+}
@@ -0,0 +1,180 @@
+/*
+ * Copyright (C) 2023, Google LLC and others
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Distribution License v. 1.0 which is available at
+ * https://www.eclipse.org/org/documents/edl-v10.php.
+ *
+ * SPDX-License-Identifier: BSD-3-Clause
+ */
+
+package org.eclipse.jgit.internal.storage.pack;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.DigestInputStream;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.util.Arrays;
+
+import org.eclipse.jgit.annotations.Nullable;
+import org.eclipse.jgit.internal.JGitText;
+import org.eclipse.jgit.lib.AnyObjectId;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectIdOwnerMap;
+import org.eclipse.jgit.util.IO;
+import org.eclipse.jgit.util.NB;
+
+/**
+ * Results of earlier delta searches.
+ * <p>
+ * For each object searched for a delta base the cache records the base
+ * chosen, or that no base was found. A {@link PackWriter} given a cache
+ * only tries the recorded base for such an object instead of searching
+ * the delta window again, and records the results of its own search for
+ * the next run. The file starts with the signature {@code DSRC}, the
+ * version 1 and the number of entries, followed by the id of each object
+ * and the id of its base (zero if none was found), and the checksum of
+ * the file.
+ */
+public final class DeltaSearchCache {
+	private static final byte[] SIGNATURE = { 'D', 'S', 'R', 'C' };
+
+	private static final int VERSION_1 = 1;
+
+	private static final int HEADER_LENGTH = 12;
+
+	private static final int ENTRY_LENGTH = 2 * Constants.OBJECT_ID_LENGTH;
+
+	/**
+	 * Read a cache from a stream.
+	 *
+	 * @param fd
+	 *            stream to read the cache from. The caller is responsible for
+	 *            closing the stream.
+	 * @return the cache.
+	 * @throws java.io.IOException
+	 *             the stream could not be read or is corrupt.
+	 */
+	public static DeltaSearchCache read(InputStream fd) throws IOException {
+		MessageDigest md = Constants.newMessageDigest();
+		DigestInputStream in = new DigestInputStream(fd, md);
+		byte[] hdr = new byte[HEADER_LENGTH];
+		IO.readFully(in, hdr, 0, hdr.length);
+		int count = NB.decodeInt32(hdr, 8);
+		if (!Arrays.equals(SIGNATURE, Arrays.copyOf(hdr, 4))
+				|| NB.decodeInt32(hdr, 4) != VERSION_1 || count < 0) {
+			throw new IOException(JGitText.get().corruptDeltaSearchCache);
+		}
+
+		DeltaSearchCache cache = new DeltaSearchCache();
+		byte[] buf = new byte[ENTRY_LENGTH];
+		for (int i = 0; i < count; i++) {
+			IO.readFully(in, buf, 0, buf.length);
+			ObjectId base = ObjectId.fromRaw(buf,
+					Constants.OBJECT_ID_LENGTH);
+			Entry e = new Entry(ObjectId.fromRaw(buf), base);
+			if (!cache.previous.contains(e)) {
+				cache.previous.add(e);
+			}
+		}
+
+		in.on(false);
+		byte[] checksum = new byte[Constants.OBJECT_ID_LENGTH];
+		IO.readFully(fd, checksum, 0, checksum.length);
+		if (!Arrays.equals(checksum, md.digest()) || fd.read() != -1) {
+			throw new IOException(JGitText.get().corruptDeltaSearchCache);
+		}
+		return cache;
+	}
+
+	private final ObjectIdOwnerMap<Entry> previous = new ObjectIdOwnerMap<>();
+
+	private final ObjectIdOwnerMap<Entry> recorded = new ObjectIdOwnerMap<>();
+
+	/** Create an empty cache. */
+	public DeltaSearchCache() {
+		// Do nothing.
+	}
+
+	/**
+	 * Write the results recorded since the cache was created.
+	 * <p>
+	 * Results read from an earlier run are not written again, so objects
+	 * which are no longer searched drop out of the cache.
+	 *
+	 * @param out
+	 *            stream to write the cache to; not closed.
+	 * @throws java.io.IOException
+	 *             the cache could not be written.
+	 */
+	public synchronized void write(OutputStream out) throws IOException {
+		MessageDigest md = Constants.newMessageDigest();
+		DigestOutputStream dos = new DigestOutputStream(out, md);
+		byte[] buf = new byte[ENTRY_LENGTH];
+		System.arraycopy(SIGNATURE, 0, buf, 0, SIGNATURE.length);
+		NB.encodeInt32(buf, 4, VERSION_1);
+		NB.encodeInt32(buf, 8, recorded.size());
+		dos.write(buf, 0, HEADER_LENGTH);
+		for (Entry e : recorded) {
+			e.copyRawTo(buf, 0);
+			e.base.copyRawTo(buf, Constants.OBJECT_ID_LENGTH);
+			dos.write(buf);
+		}
+		dos.on(false);
+		out.write(md.digest());
+		out.flush();
+	}
+
+	/**
+	 * Get the number of results recorded since the cache was created.
+	 *
+	 * @return number of objects whose search result was recorded.
+	 */
+	public synchronized int getRecordedCount() {
+		return recorded.size();
+	}
+
+	/**
+	 * Get the result of an earlier search.
+	 *
+	 * @param target
+	 *            the object searched for a delta base.
+	 * @return the base chosen for the object; {@link ObjectId#zeroId()} if
+	 *         no base was found; null if the object was not searched.
+	 */
+	@Nullable
+	synchronized ObjectId getBase(AnyObjectId target) {
+		Entry e = previous.get(target);
+		return e != null ? e.base : null;
+	}
+
+	/**
+	 * Record the result of a search.
+	 *
+	 * @param target
+	 *            the object searched for a delta base.
+	 * @param base
+	 *            the base chosen for the object; null if none was found.
+	 */
+	synchronized void record(AnyObjectId target, @Nullable AnyObjectId base) {
+		Entry e = recorded.get(target);
+		ObjectId id = base != null ? base.copy() : ObjectId.zeroId();
+		if (e != null) {
+			e.base = id;
+		} else {
+			recorded.add(new Entry(target, id));
+		}
+	}
+
+	private static final class Entry extends ObjectIdOwnerMap.Entry {
+		ObjectId base;
+
+		Entry(AnyObjectId id, ObjectId base) {
+			super(id);
+			this.base = base;
+		}
+	}
+}
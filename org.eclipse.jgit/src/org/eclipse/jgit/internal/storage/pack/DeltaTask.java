@@ -10,49 +10,97 @@
 
 package org.eclipse.jgit.internal.storage.pack;
 
-import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.Iterator;
-import java.util.LinkedList;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.concurrent.Callable;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.eclipse.jgit.lib.ObjectReader;
 import org.eclipse.jgit.lib.ThreadSafeProgressMonitor;
 import org.eclipse.jgit.storage.pack.PackConfig;
 
-final class DeltaTask implements Callable<Object> {
+/**
+ * Delta search of a range of objects on a
+ * {@link java.util.concurrent.ForkJoinPool}.
+ * <p>
+ * A task whose objects weigh more than its share of the total splits itself
+ * in two halves of about the same weight, at the boundary between two paths.
+ * Idle threads of the pool steal the halves not yet searched, so a thread
+ * stuck with a range of big objects does not hold up the others. On other
+ * executors the block is split up front, and each thread searches the next
+ * task not started yet.
+ */
+final class DeltaTask extends RecursiveAction {
+	private static final long serialVersionUID = 1L;
+
 	static final long MAX_METER = 9 << 20;
 
-	static final class Block {
-		private static final int MIN_TOP_PATH = 50 << 20;
+	/** Minimum number of tasks per thread the search is split into. */
+	private static final int TASKS_PER_THREAD = 8;
 
-		final List<DeltaTask> tasks;
-		final int threads;
+	static final class Block {
 		final PackConfig config;
 		final ObjectReader templateReader;
+		final DeltaIslands islands;
+		final boolean byPath;
 		final DeltaCache dc;
 		final ThreadSafeProgressMonitor pm;
 		final ObjectToPack[] list;
 		final int beginIndex;
 		final int endIndex;
 
-		private long totalWeight;
-		long bytesPerUnit;
+		/** Memory loaded by the windows of all threads. */
+		final AtomicLong loaded;
+
+		/** Failures of tasks; once not empty no further task is started. */
+		final List<Throwable> errors;
+
+		private final Map<Thread, Worker> workers;
+
+		/** Adjusted weight of the objects before each index of the block. */
+		private final long[] weights;
+
+		private final long totalWeight;
+		private final long splitWeight;
+		final long bytesPerUnit;
 
 		Block(int threads, PackConfig config, ObjectReader reader,
-				DeltaCache dc, ThreadSafeProgressMonitor pm,
+				DeltaIslands islands, boolean byPath, DeltaCache dc,
+				ThreadSafeProgressMonitor pm,
 				ObjectToPack[] list, int begin, int end) {
-			this.tasks = new ArrayList<>(threads);
-			this.threads = threads;
 			this.config = config;
 			this.templateReader = reader;
+			this.islands = islands;
+			this.byPath = byPath;
 			this.dc = dc;
 			this.pm = pm;
 			this.list = list;
 			this.beginIndex = begin;
 			this.endIndex = end;
+			this.loaded = new AtomicLong();
+			this.errors = Collections.synchronizedList(new ArrayList<>());
+			this.workers = new ConcurrentHashMap<>();
+
+			weights = new long[end - begin + 1];
+			for (int i = begin; i < end; i++) {
+				weights[i - begin + 1] = weights[i - begin]
+						+ getAdjustedWeight(list[i]);
+			}
+			totalWeight = weights[end - begin];
+			splitWeight = Math.max(totalWeight / (threads * TASKS_PER_THREAD),
+					1);
+
+			long bpu = 1;
+			while (MAX_METER <= (totalWeight / bpu)) {
+				bpu <<= 10;
+			}
+			bytesPerUnit = bpu;
 		}
 
 		int cost() {
@@ -62,130 +110,110 @@ int cost() {
 			return d;
 		}
 
-		synchronized DeltaWindow stealWork(DeltaTask forThread) {
-			for (;;) {
-				DeltaTask maxTask = null;
-				Slice maxSlice = null;
-				int maxWork = 0;
-
-				for (DeltaTask task : tasks) {
-					Slice s = task.remaining();
-					if (s != null && maxWork < s.size()) {
-						maxTask = task;
-						maxSlice = s;
-						maxWork = s.size();
-					}
+		/**
+		 * Find where to split a range of objects.
+		 *
+		 * @param begin
+		 *            first object of the range.
+		 * @param end
+		 *            end of the range.
+		 * @return index of the first path after the middle of the weight of
+		 *         the range, or of the last path before it; -1 if the range
+		 *         should be searched as a whole.
+		 */
+		int split(int begin, int end) {
+			long b = weights[begin - beginIndex];
+			long e = weights[end - beginIndex];
+			if (e - b <= splitWeight
+					|| end - begin < 2 * config.getDeltaSearchWindowSize()) {
+				return -1;
+			}
+
+			// Find the first object past the middle of the weight.
+			long mid = b + (e - b) / 2;
+			int lo = begin + 1;
+			int hi = end - 1;
+			while (lo < hi) {
+				int m = (lo + hi) >>> 1;
+				if (weights[m - beginIndex] < mid) {
+					lo = m + 1;
+				} else {
+					hi = m;
 				}
-				if (maxTask == null) {
-					return null;
+			}
+
+			// Do not split the versions of a path.
+			for (int n = lo; n < end; n++) {
+				if (pathHash(list[n - 1]) != pathHash(list[n])) {
+					return n;
 				}
-				if (maxTask.tryStealWork(maxSlice)) {
-					return forThread.initWindow(maxSlice);
+			}
+			for (int p = lo - 1; begin < p; p--) {
+				if (pathHash(list[p - 1]) != pathHash(list[p])) {
+					return p;
 				}
 			}
+			return -1;
 		}
 
-		void partitionTasks() {
-			ArrayList<WeightedPath> topPaths = computeTopPaths();
-			Iterator<WeightedPath> topPathItr = topPaths.iterator();
-			int nextTop = 0;
-			long weightPerThread = Math.max(totalWeight / threads, 1);
-			for (int i = beginIndex; i < endIndex;) {
-				DeltaTask task = new DeltaTask(this);
-				long w = 0;
-
-				// Assign the thread one top path.
-				if (topPathItr.hasNext()) {
-					WeightedPath p = topPathItr.next();
-					w += p.weight;
-					task.add(p.slice);
-				}
+		/** Hash the objects were sorted by, grouping the versions of a path. */
+		private int pathHash(ObjectToPack o) {
+			return byPath ? o.getFullPathHash() : o.getPathHash();
+		}
 
-				// Assign the task thread ~average weight.
-				int s = i;
-				for (; w < weightPerThread && i < endIndex;) {
-					if (nextTop < topPaths.size()
-							&& i == topPaths.get(nextTop).slice.beginIndex) {
-						if (s < i) {
-							task.add(new Slice(s, i));
-						}
-						s = i = topPaths.get(nextTop++).slice.endIndex;
-					} else {
-						w += getAdjustedWeight(list[i++]);
-					}
-				}
+		/**
+		 * Split the block up front into the tasks a
+		 * {@link java.util.concurrent.ForkJoinPool} would fork, for an
+		 * executor which cannot fork them.
+		 *
+		 * @return the tasks, in the order of their objects.
+		 */
+		Queue<DeltaTask> tasks() {
+			Queue<DeltaTask> tasks = new ConcurrentLinkedQueue<>();
+			addTasks(tasks, beginIndex, endIndex);
+			return tasks;
+		}
 
-				// Round up the slice to the end of a path.
-				if (s < i) {
-					int h = list[i - 1].getPathHash();
-					while (i < endIndex) {
-						if (h == list[i].getPathHash()) {
-							i++;
-						} else {
-							break;
-						}
-					}
-					task.add(new Slice(s, i));
-				}
-				if (!task.slices.isEmpty()) {
-					tasks.add(task);
-				}
-			}
-			while (topPathItr.hasNext()) {
-				WeightedPath p = topPathItr.next();
-				DeltaTask task = new DeltaTask(this);
-				task.add(p.slice);
-				tasks.add(task);
+		private void addTasks(Queue<DeltaTask> tasks, int begin, int end) {
+			int s = split(begin, end);
+			if (s > 0) {
+				addTasks(tasks, begin, s);
+				addTasks(tasks, s, end);
+			} else {
+				tasks.add(new DeltaTask(this, begin, end));
 			}
+		}
 
-			topPaths = null;
+		Worker worker() {
+			return workers.computeIfAbsent(Thread.currentThread(),
+					t -> new Worker(templateReader.newReader()));
 		}
 
-		private ArrayList<WeightedPath> computeTopPaths() {
-			ArrayList<WeightedPath> topPaths = new ArrayList<>(
-					threads);
-			int cp = beginIndex;
-			int ch = list[cp].getPathHash();
-			long cw = getAdjustedWeight(list[cp]);
-			totalWeight = cw;
-
-			for (int i = cp + 1; i < endIndex; i++) {
-				ObjectToPack o = list[i];
-				if (ch != o.getPathHash()) {
-					if (MIN_TOP_PATH < cw) {
-						if (topPaths.size() < threads) {
-							Slice s = new Slice(cp, i);
-							topPaths.add(new WeightedPath(cw, s));
-							if (topPaths.size() == threads) {
-								Collections.sort(topPaths);
-							}
-						} else if (topPaths.get(0).weight < cw) {
-							Slice s = new Slice(cp, i);
-							WeightedPath p = new WeightedPath(cw, s);
-							topPaths.set(0, p);
-							if (p.compareTo(topPaths.get(1)) > 0) {
-								Collections.sort(topPaths);
-							}
-						}
-					}
-					cp = i;
-					ch = o.getPathHash();
-					cw = 0;
-				}
-				int weight = getAdjustedWeight(o);
-				cw += weight;
-				totalWeight += weight;
+		/**
+		 * Release the readers of the threads once all tasks are done.
+		 *
+		 * @return time in nanoseconds each thread spent searching.
+		 */
+		Map<Thread, Long> close() {
+			Map<Thread, Long> busy = new LinkedHashMap<>();
+			for (Map.Entry<Thread, Worker> e : workers.entrySet()) {
+				Worker w = e.getValue();
+				w.reader.close();
+				busy.put(e.getKey(), Long.valueOf(w.busyNanos));
 			}
+			workers.clear();
+			return busy;
+		}
+	}
 
-			// Sort by starting index to identify gaps later.
-			Collections.sort(topPaths, (WeightedPath a,
-					WeightedPath b) -> a.slice.beginIndex - b.slice.beginIndex);
+	/** State of one thread of the pool, only used by that thread. */
+	static final class Worker {
+		final ObjectReader reader;
 
-			bytesPerUnit = 1;
-			while (MAX_METER <= (totalWeight / bytesPerUnit)) {
-				bytesPerUnit <<= 10;
-			}
-			return topPaths;
+		long busyNanos;
+
+		Worker(ObjectReader reader) {
+			this.reader = reader;
 		}
 	}
 
@@ -198,122 +226,44 @@ static int getAdjustedWeight(ObjectToPack o) {
 		return o.getWeight();
 	}
 
-	static final class WeightedPath implements Comparable<WeightedPath> {
-		final long weight;
-		final Slice slice;
-
-		WeightedPath(long weight, Slice s) {
-			this.weight = weight;
-			this.slice = s;
-		}
-
-		@Override
-		public int compareTo(WeightedPath o) {
-			int cmp = Long.signum(weight - o.weight);
-			if (cmp != 0) {
-				return cmp;
-			}
-			return slice.beginIndex - o.slice.beginIndex;
-		}
-	}
-
-	static final class Slice {
-		final int beginIndex;
-		final int endIndex;
-
-		Slice(int b, int e) {
-			beginIndex = b;
-			endIndex = e;
-		}
-
-		final int size() {
-			return endIndex - beginIndex;
-		}
-	}
-
-	private final Block block;
-	final LinkedList<Slice> slices;
+	private final transient Block block;
+	private final int beginIndex;
+	private final int endIndex;
 
-	private ObjectReader or;
-	private DeltaWindow dw;
-
-	DeltaTask(Block b) {
+	DeltaTask(Block b, int begin, int end) {
 		this.block = b;
-		this.slices = new LinkedList<>();
-	}
-
-	void add(Slice s) {
-		if (!slices.isEmpty()) {
-			Slice last = slices.getLast();
-			if (last.endIndex == s.beginIndex) {
-				slices.removeLast();
-				slices.add(new Slice(last.beginIndex, s.endIndex));
-				return;
-			}
-		}
-		slices.add(s);
+		this.beginIndex = begin;
+		this.endIndex = end;
 	}
 
 	/** {@inheritDoc} */
 	@Override
-	public Object call() throws Exception {
-		or = block.templateReader.newReader();
-		try {
-			DeltaWindow w;
-			for (;;) {
-				synchronized (this) {
-					if (slices.isEmpty()) {
-						break;
-					}
-					w = initWindow(slices.removeFirst());
-				}
-				runWindow(w);
-			}
-			while ((w = block.stealWork(this)) != null) {
-				runWindow(w);
-			}
-		} finally {
-			block.pm.endWorker();
-			or.close();
-			or = null;
+	protected void compute() {
+		if (!block.errors.isEmpty()) {
+			return;
 		}
-		return null;
-	}
-
-	DeltaWindow initWindow(Slice s) {
-		DeltaWindow w = new DeltaWindow(block.config, block.dc,
-				or, block.pm, block.bytesPerUnit,
-				block.list, s.beginIndex, s.endIndex);
-		synchronized (this) {
-			dw = w;
+		int split = block.split(beginIndex, endIndex);
+		if (split > 0) {
+			invokeAll(new DeltaTask(block, beginIndex, split),
+					new DeltaTask(block, split, endIndex));
+			return;
 		}
-		return w;
+
+		search();
 	}
 
-	private void runWindow(DeltaWindow w) throws IOException {
+	/** Search the range of this task, without splitting it. */
+	void search() {
+		Worker w = block.worker();
+		long start = System.nanoTime();
 		try {
-			w.search();
+			new DeltaWindow(block.config, block.dc, w.reader, block.islands,
+					block.byPath, block.pm, block.bytesPerUnit, block.loaded,
+					block.list, beginIndex, endIndex).search();
+		} catch (Throwable failure) {
+			block.errors.add(failure);
 		} finally {
-			synchronized (this) {
-				dw = null;
-			}
-		}
-	}
-
-	synchronized Slice remaining() {
-		if (!slices.isEmpty()) {
-			return slices.getLast();
-		}
-		DeltaWindow d = dw;
-		return d != null ? d.remaining() : null;
-	}
-
-	synchronized boolean tryStealWork(Slice s) {
-		if (!slices.isEmpty() && slices.getLast().beginIndex == s.beginIndex) {
-			slices.removeLast();
-			return true;
+			w.busyNanos += System.nanoTime() - start;
 		}
-		DeltaWindow d = dw;
-		return d != null ? d.tryStealWork(s) : false;
 	}
 }
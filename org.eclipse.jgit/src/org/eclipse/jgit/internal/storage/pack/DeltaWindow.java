@@ -13,6 +13,7 @@
 import java.io.EOFException;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.zip.Deflater;
 
 import org.eclipse.jgit.errors.IncorrectObjectTypeException;
@@ -30,6 +31,10 @@ final class DeltaWindow {
 	private final PackConfig config;
 	private final DeltaCache deltaCache;
 	private final ObjectReader reader;
+	private final DeltaIslands islands;
+
+	/** Whether only objects of the same full path are compared. */
+	private final boolean byPath;
 	private final ProgressMonitor monitor;
 	private final long bytesPerUnit;
 	private long bytesProcessed;
@@ -47,6 +52,9 @@ final class DeltaWindow {
 	/** Amount of memory we have loaded right now. */
 	private long loaded;
 
+	/** Amount of memory loaded right now by all windows sharing the limit. */
+	private final AtomicLong memory;
+
 	// The object we are currently considering needs a lot of state:
 
 	/** Window entry of the object we are currently considering. */
@@ -61,13 +69,16 @@ final class DeltaWindow {
 	private Deflater deflater;
 
 	DeltaWindow(PackConfig pc, DeltaCache dc, ObjectReader or,
-			ProgressMonitor pm, long bpu,
-			ObjectToPack[] in, int beginIndex, int endIndex) {
+			DeltaIslands di, boolean bp, ProgressMonitor pm, long bpu,
+			AtomicLong mem, ObjectToPack[] in, int beginIndex, int endIndex) {
 		config = pc;
 		deltaCache = dc;
 		reader = or;
+		islands = di;
+		byPath = bp;
 		monitor = pm;
 		bytesPerUnit = bpu;
+		memory = mem;
 		toSearch = in;
 		cur = beginIndex;
 		end = endIndex;
@@ -77,59 +88,23 @@ final class DeltaWindow {
 		res = DeltaWindowEntry.createWindow(config.getDeltaSearchWindowSize());
 	}
 
-	synchronized DeltaTask.Slice remaining() {
-		int e = end;
-		int halfRemaining = (e - cur) >>> 1;
-		if (0 == halfRemaining)
-			return null;
-
-		int split = e - halfRemaining;
-		int h = toSearch[split].getPathHash();
-
-		// Attempt to split on the next path after the 50% split point.
-		for (int n = split + 1; n < e; n++) {
-			if (h != toSearch[n].getPathHash())
-				return new DeltaTask.Slice(n, e);
-		}
-
-		if (h != toSearch[cur].getPathHash()) {
-			// Try to split on the path before the 50% split point.
-			// Do not split the path currently being processed.
-			for (int p = split - 1; cur < p; p--) {
-				if (h != toSearch[p].getPathHash())
-					return new DeltaTask.Slice(p + 1, e);
-			}
-		}
-		return null;
-	}
-
-	synchronized boolean tryStealWork(DeltaTask.Slice s) {
-		if (s.beginIndex <= cur || end <= s.beginIndex)
-			return false;
-		end = s.beginIndex;
-		return true;
-	}
-
 	void search() throws IOException {
 		try {
-			for (;;) {
-				ObjectToPack next;
-				synchronized (this) {
-					if (end <= cur)
-						break;
-					next = toSearch[cur++];
-				}
+			while (cur < end) {
+				ObjectToPack next = toSearch[cur++];
 				if (maxMemory != 0) {
 					clear(res);
 					final long need = estimateSize(next);
 					DeltaWindowEntry n = res.next;
-					for (; maxMemory < loaded + need && n != res; n = n.next)
+					for (; maxMemory < memory.get() + need && n != res;
+							n = n.next)
 						clear(n);
 				}
 				res.set(next);
 				clearWindowOnTypeSwitch();
 
-				if (res.object.isEdge() || res.object.doNotAttemptDelta()) {
+				if (res.object.isEdge() || res.object.doNotAttemptDelta()
+						|| res.object.isBaseOnly()) {
 					// We don't actually want to make a delta for
 					// them, just need to push them into the window
 					// so they can be read by other objects.
@@ -147,6 +122,37 @@ void search() throws IOException {
 		} finally {
 			if (deflater != null)
 				deflater.end();
+			memory.addAndGet(-loaded);
+		}
+	}
+
+	/**
+	 * Try each object against one base only. The objects to search hold
+	 * each base followed by the object to delta compress against it.
+	 */
+	void searchPairs() throws IOException {
+		try {
+			for (; cur + 1 < end; cur += 2) {
+				DeltaWindowEntry p = res;
+				do {
+					clear(p);
+					p = p.next;
+				} while (p != res);
+
+				res.set(toSearch[cur]);
+				keepInWindow();
+				res.set(toSearch[cur + 1]);
+				if (bytesPerUnit <= (bytesProcessed += res.object.getWeight())) {
+					int d = (int) (bytesProcessed / bytesPerUnit);
+					monitor.update(d);
+					bytesProcessed -= d * bytesPerUnit;
+				}
+				searchInWindow();
+			}
+		} finally {
+			if (deflater != null)
+				deflater.end();
+			memory.addAndGet(-loaded);
 		}
 	}
 
@@ -164,7 +170,9 @@ private static long estimateIndexSize(DeltaWindowEntry ent) {
 
 	private void clearWindowOnTypeSwitch() {
 		DeltaWindowEntry p = res.prev;
-		if (!p.empty() && res.type() != p.type()) {
+		if (!p.empty() && (res.type() != p.type() || (byPath
+				&& res.object.getFullPathHash() != p.object
+						.getFullPathHash()))) {
 			for (; p != res; p = p.prev) {
 				clear(p);
 			}
@@ -173,12 +181,19 @@ private void clearWindowOnTypeSwitch() {
 
 	private void clear(DeltaWindowEntry ent) {
 		if (ent.index != null)
-			loaded -= ent.index.getIndexSize();
+			load(-ent.index.getIndexSize());
 		else if (ent.buffer != null)
-			loaded -= ent.buffer.length;
+			load(-ent.buffer.length);
 		ent.set(null);
 	}
 
+	private void load(long size) {
+		if (maxMemory != 0) {
+			loaded += size;
+			memory.addAndGet(size);
+		}
+	}
+
 	private void searchInWindow() throws IOException {
 		// Loop through the window backwards, considering every entry.
 		// This lets us look at the bigger objects that came before.
@@ -247,6 +262,10 @@ private boolean delta(DeltaWindowEntry src)
 		if (res.size() - src.size() > msz)
 			return NEXT_SRC;
 
+		// The base must be available in every island of the object.
+		if (islands != null && !islands.canDelta(res.object, src.object))
+			return NEXT_SRC;
+
 		DeltaIndex srcIndex;
 		try {
 			srcIndex = index(src);
@@ -261,7 +280,7 @@ private boolean delta(DeltaWindowEntry src)
 
 		byte[] resBuf;
 		try {
-			resBuf = buffer(res);
+			resBuf = buffer(res, src);
 		} catch (LargeObjectException tooBig) {
 			// If its too big, move on to another item.
 			return NEXT_RES;
@@ -351,47 +370,66 @@ private DeltaIndex index(DeltaWindowEntry ent)
 			IOException, LargeObjectException {
 		DeltaIndex idx = ent.index;
 		if (idx == null) {
-			checkLoadable(ent, estimateIndexSize(ent));
+			checkLoadable(ent, ent, estimateIndexSize(ent));
 
 			try {
-				idx = new DeltaIndex(buffer(ent));
+				idx = new DeltaIndex(buffer(ent, ent));
 			} catch (OutOfMemoryError noMemory) {
 				LargeObjectException.OutOfMemory e;
 				e = new LargeObjectException.OutOfMemory(noMemory);
 				e.setObjectId(ent.object);
 				throw e;
 			}
-			if (maxMemory != 0)
-				loaded += idx.getIndexSize() - idx.getSourceSize();
+			load(idx.getIndexSize() - idx.getSourceSize());
 			ent.index = idx;
 		}
 		return idx;
 	}
 
-	private byte[] buffer(DeltaWindowEntry ent) throws MissingObjectException,
-			IncorrectObjectTypeException, IOException, LargeObjectException {
+	private byte[] buffer(DeltaWindowEntry ent, DeltaWindowEntry keep)
+			throws MissingObjectException, IncorrectObjectTypeException,
+			IOException, LargeObjectException {
 		byte[] buf = ent.buffer;
 		if (buf == null) {
-			checkLoadable(ent, ent.size());
+			checkLoadable(ent, keep, ent.size());
 
 			buf = PackWriter.buffer(config, reader, ent.object);
-			if (maxMemory != 0)
-				loaded += buf.length;
+			load(buf.length);
 			ent.buffer = buf;
 		}
 		return buf;
 	}
 
-	private void checkLoadable(DeltaWindowEntry ent, long need) {
+	/**
+	 * Make room to load an entry by clearing the oldest entries of the
+	 * window, up to the base being compared.
+	 *
+	 * @param ent
+	 *            the entry to load.
+	 * @param keep
+	 *            the base being compared, which must not be cleared unless
+	 *            it is the entry to load.
+	 * @param need
+	 *            bytes to load.
+	 */
+	private void checkLoadable(DeltaWindowEntry ent, DeltaWindowEntry keep,
+			long need) {
 		if (maxMemory == 0)
 			return;
 
 		DeltaWindowEntry n = res.next;
-		for (; maxMemory < loaded + need; n = n.next) {
+		for (; maxMemory < memory.get() + need; n = n.next) {
+			if (n == keep) {
+				if (maxMemory < loaded + need) {
+					if (n == ent)
+						clear(n);
+					throw new LargeObjectException.ExceedsLimit(
+							maxMemory, loaded + need);
+				}
+				// The rest of the memory is held by other threads.
+				break;
+			}
 			clear(n);
-			if (n == ent)
-				throw new LargeObjectException.ExceedsLimit(
-						maxMemory, loaded + need);
 		}
 	}
 
@@ -29,6 +29,7 @@ public class ObjectToPack extends PackedObjectInfo {
 	private static final int DELTA_ATTEMPTED = 1 << 1;
 	private static final int DO_NOT_DELTA = 1 << 2;
 	private static final int EDGE = 1 << 3;
+	private static final int BASE_ONLY = 1 << 4;
 	private static final int ATTEMPT_DELTA_MASK = REUSE_AS_IS | DELTA_ATTEMPTED;
 	private static final int TYPE_SHIFT = 5;
 	private static final int EXT_SHIFT = 8;
@@ -47,7 +48,7 @@ public class ObjectToPack extends PackedObjectInfo {
 	 * <li>1 bit: deltaAttempted</li>
 	 * <li>1 bit: doNotDelta</li>
 	 * <li>1 bit: edgeObject</li>
-	 * <li>1 bit: unused</li>
+	 * <li>1 bit: baseOnly</li>
 	 * <li>3 bits: type</li>
 	 * <li>4 bits: subclass flags (if any)</li>
 	 * <li>--</li>
@@ -59,6 +60,9 @@ public class ObjectToPack extends PackedObjectInfo {
 	/** Hash of the object's tree path. */
 	private int pathHash;
 
+	/** Hash of the object's full tree path, 0 if unknown. */
+	private int fullPathHash;
+
 	/** If present, deflated delta instruction stream for this object. */
 	private DeltaCache.Ref cachedDelta;
 
@@ -232,6 +236,14 @@ final void setEdge() {
 		flags |= EDGE;
 	}
 
+	final boolean isBaseOnly() {
+		return (flags & BASE_ONLY) != 0;
+	}
+
+	final void setBaseOnly() {
+		flags |= BASE_ONLY;
+	}
+
 	final boolean doNotAttemptDelta() {
 		// Do not attempt if delta attempted and object reuse.
 		return (flags & ATTEMPT_DELTA_MASK) == ATTEMPT_DELTA_MASK;
@@ -333,6 +345,14 @@ final void setPathHash(int hc) {
 		pathHash = hc;
 	}
 
+	final int getFullPathHash() {
+		return fullPathHash;
+	}
+
+	final void setFullPathHash(int hc) {
+		fullPathHash = hc;
+	}
+
 	final int getCachedSize() {
 		return pathHash;
 	}
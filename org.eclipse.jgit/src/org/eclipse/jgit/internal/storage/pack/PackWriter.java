@@ -32,18 +32,24 @@
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.Queue;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executor;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
 import java.util.zip.CRC32;
 import java.util.zip.CheckedOutputStream;
 import java.util.zip.Deflater;
@@ -96,6 +102,7 @@
 import org.eclipse.jgit.transport.WriteAbortedException;
 import org.eclipse.jgit.util.BlockList;
 import org.eclipse.jgit.util.TemporaryBuffer;
+import org.eclipse.jgit.util.io.NullOutputStream;
 
 /**
  * <p>
@@ -245,6 +252,16 @@ public static Iterable<PackWriter> getInstances() {
 
 	private boolean reuseDeltas;
 
+	private DeltaIslands deltaIslands;
+
+	private DeltaSearchCache deltaSearchCache;
+
+	/** Temporary pool to run parallel tasks on, if the config has none. */
+	private ForkJoinPool taskPool;
+
+	/** Time in nanoseconds each thread spent searching for deltas. */
+	private final Map<Thread, Long> deltaSearchBusy = new ConcurrentHashMap<>();
+
 	private boolean reuseDeltaCommits;
 
 	private boolean reuseValidate;
@@ -622,6 +639,34 @@ public void setIgnoreMissingUninteresting(boolean ignore) {
 		ignoreMissingUninteresting = ignore;
 	}
 
+	/**
+	 * Set the delta islands constraining the choice of delta bases.
+	 * <p>
+	 * Deltas are only reused or created against bases which are in every
+	 * island the object is in. The islands are computed when the pack is
+	 * written, by walking the refs of each island.
+	 *
+	 * @param islands
+	 *            the delta islands; null to not constrain delta bases.
+	 */
+	public void setDeltaIslands(DeltaIslands islands) {
+		deltaIslands = islands;
+	}
+
+	/**
+	 * Set the cache of earlier delta search results.
+	 * <p>
+	 * Objects with a cached result are only tried against the base found
+	 * before, or only used as bases if none was found. The results of the
+	 * search are recorded in the cache.
+	 *
+	 * @param cache
+	 *            the cache; null to search all objects.
+	 */
+	public void setDeltaSearchCache(DeltaSearchCache cache) {
+		deltaSearchCache = cache;
+	}
+
 	/**
 	 * Set the tag targets that should be hoisted earlier during packing.
 	 * <p>
@@ -1089,7 +1134,49 @@ public void writeIndex(OutputStream indexStream) throws IOException {
 		final PackIndexWriter iw = PackIndexWriter.createVersion(
 				indexStream, getIndexVersion());
 		iw.write(sortByName(), packcsum);
-		stats.timeWriting += System.currentTimeMillis() - writeStart;
+		long time = System.currentTimeMillis() - writeStart;
+		stats.timeWriting += time;
+		stats.timeWritingIndex += time;
+	}
+
+	/**
+	 * Get the objects of the pack written, in the order of its index.
+	 * <p>
+	 * Called after
+	 * {@link #writePack(ProgressMonitor, ProgressMonitor, OutputStream)} and
+	 * before {@link #prepareBitmapIndex(ProgressMonitor)}, which reorders
+	 * them. The list is not modified in between, so files listing the
+	 * objects in the order of the index can be written from it by other
+	 * threads while {@link #writeIndex(OutputStream)} runs.
+	 *
+	 * @return the objects sorted by name; not modifiable.
+	 * @throws java.io.IOException
+	 *             the pack contains cached packs, whose objects are not
+	 *             listed.
+	 * @since 6.6
+	 */
+	public List<? extends AnyObjectId> getObjectsInIndexOrder()
+			throws IOException {
+		if (isIndexDisabled()) {
+			throw new IOException(
+					JGitText.get().cachedPacksPreventsListingObjects);
+		}
+		return Collections.unmodifiableList(sortByName());
+	}
+
+	/**
+	 * Get the checksum of the pack written.
+	 * <p>
+	 * Called after
+	 * {@link #writePack(ProgressMonitor, ProgressMonitor, OutputStream)}.
+	 *
+	 * @return the trailing checksum of the pack; null if no pack was
+	 *         written yet.
+	 * @since 6.6
+	 */
+	@Nullable
+	public byte[] getPackChecksum() {
+		return packcsum != null ? packcsum.clone() : null;
 	}
 
 	/**
@@ -1133,7 +1220,9 @@ public void writeObjectSizeIndex(OutputStream objIdxStream)
 				objIdxStream, config.getMinBytesForObjSizeIndex());
 		// All indexed objects because their positions must match primary index order
 		iw.write(sortByName());
-		stats.timeWriting += System.currentTimeMillis() - writeStart;
+		long time = System.currentTimeMillis() - writeStart;
+		stats.timeWriting += time;
+		stats.timeWritingIndex += time;
 	}
 
 	/**
@@ -1155,7 +1244,9 @@ public void writeBitmapIndex(OutputStream bitmapIndexStream)
 		long writeStart = System.currentTimeMillis();
 		final PackBitmapIndexWriterV1 iw = new PackBitmapIndexWriterV1(bitmapIndexStream);
 		iw.write(writeBitmaps, packcsum);
-		stats.timeWriting += System.currentTimeMillis() - writeStart;
+		long time = System.currentTimeMillis() - writeStart;
+		stats.timeWriting += time;
+		stats.timeWritingBitmapIndex += time;
 	}
 
 	private List<ObjectToPack> sortByName() {
@@ -1248,6 +1339,11 @@ public void writePack(ProgressMonitor compressMonitor,
 		excludeInPacks = null;
 		excludeInPackLast = null;
 
+		if (deltaIslands != null && deltaIslands.getIslandCount() > 0
+				&& (reuseDeltas || config.isDeltaCompress())) {
+			deltaIslands.mark(reader, objectsMap);
+		}
+
 		boolean needSearchForReuse = reuseSupport != null && (
 				   reuseDeltas
 				|| config.isReuseObjects()
@@ -1528,8 +1624,15 @@ private void searchForDeltas(ProgressMonitor monitor)
 				long sz = sizeQueue.getSize();
 				if (DeltaIndex.BLKSZ < sz && sz < limit)
 					otp.setWeight((int) sz);
-				else
+				else {
+					if (limit <= sz && sz < Integer.MAX_VALUE
+							&& config.isBigFileDeltas()
+							&& otp.getType() == OBJ_BLOB) {
+						// Keep the size for searchForBigDeltas.
+						otp.setWeight((int) sz);
+					}
 					otp.setDoNotDelta(); // too small, or too big
+				}
 				monitor.update(1);
 			}
 		} finally {
@@ -1574,18 +1677,45 @@ private void searchForDeltas(ProgressMonitor monitor)
 
 		// Above we stored the objects we cannot delta onto the end.
 		// Remove them from the list so we don't waste time on them.
+		int all = cnt;
 		while (0 < cnt && list[cnt - 1].isDoNotDelta()) {
 			if (!list[cnt - 1].isEdge())
 				nonEdgeCnt--;
 			cnt--;
 		}
-		if (cnt == 0)
-			return;
 
 		final long searchStart = System.currentTimeMillis();
-		searchForDeltas(monitor, list, cnt);
+		if (config.isBigFileDeltas()) {
+			nonEdgeCnt += searchForBigDeltas(monitor, list, cnt, all);
+		}
+		if (cnt == 0) {
+			stats.deltaSearchNonEdgeObjects = nonEdgeCnt;
+			stats.timeCompressing = System.currentTimeMillis() - searchStart;
+			return;
+		}
+		try {
+			if (deltaSearchCache != null) {
+				searchForCachedDeltas(monitor, list, cnt);
+			}
+			if (config.isPathWalk()) {
+				searchForPathDeltas(monitor, list, cnt);
+			}
+			searchForDeltas(monitor, list, cnt, false);
+		} finally {
+			shutdownTaskPool();
+		}
+		if (deltaSearchCache != null) {
+			recordDeltaSearch(list, cnt);
+		}
 		stats.deltaSearchNonEdgeObjects = nonEdgeCnt;
 		stats.timeCompressing = System.currentTimeMillis() - searchStart;
+		stats.timeCompressingPerThread = new long[deltaSearchBusy.size()];
+		int t = 0;
+		for (Long busy : deltaSearchBusy.values()) {
+			stats.timeCompressingPerThread[t++] = TimeUnit.NANOSECONDS
+					.toMillis(busy.longValue());
+		}
+		deltaSearchBusy.clear();
 
 		for (int i = 0; i < cnt; i++)
 			if (!list[i].isEdge() && list[i].isDeltaRepresentation())
@@ -1615,21 +1745,253 @@ private void reselectNonDelta(ObjectToPack otp) throws IOException {
 		reuseDeltas = old;
 	}
 
+	/**
+	 * Apply the results of earlier searches. Objects for which no base was
+	 * found are only considered as bases from now on, unless objects which
+	 * were not searched before have the same type and path hash: these
+	 * would be in their window, and may be a base for them, so they are
+	 * searched again even if they are stored whole. Objects with a
+	 * cached base still being searched are only tried against that base;
+	 * they and their bases are only considered as bases afterwards, so that
+	 * the chains are not lengthened.
+	 */
+	private void searchForCachedDeltas(ProgressMonitor monitor,
+			ObjectToPack[] list, int cnt) throws IOException {
+		Set<Long> newWindows = new HashSet<>();
+		for (int i = 0; i < cnt; i++) {
+			ObjectToPack otp = list[i];
+			if (!otp.isEdge() && deltaSearchCache.getBase(otp) == null) {
+				newWindows.add(Long.valueOf(windowKey(otp)));
+			}
+		}
+
+		Map<ObjectToPack, ObjectToPack> baseOf = new IdentityHashMap<>();
+		for (int i = 0; i < cnt; i++) {
+			ObjectToPack otp = list[i];
+			if (otp.isEdge()) {
+				continue;
+			}
+			ObjectId base = deltaSearchCache.getBase(otp);
+			if (base == null) {
+				continue;
+			} else if (base.equals(ObjectId.zeroId())) {
+				if (newWindows.contains(Long.valueOf(windowKey(otp)))) {
+					// Search again, even if it is already stored whole.
+					otp.setDeltaAttempted(false);
+				} else {
+					otp.setBaseOnly();
+				}
+				continue;
+			}
+
+			// The base must still be searched, i.e. not be a reused delta.
+			ObjectToPack b = objectsMap.get(base);
+			if (b != null && b != otp && b.getType() == otp.getType()
+					&& !b.isEdge() && !b.isDoNotDelta()
+					&& !b.isDeltaRepresentation()) {
+				baseOf.put(otp, b);
+			}
+		}
+		if (baseOf.isEmpty()) {
+			return;
+		}
+
+		// Delta compress the bases of a chain before the objects using
+		// them, so that the depth of the bases is known.
+		int maxDepth = config.getMaxDeltaDepth();
+		List<ObjectToPack> targets = new ArrayList<>(baseOf.size());
+		Map<ObjectToPack, Integer> depth = new IdentityHashMap<>();
+		for (ObjectToPack otp : baseOf.keySet()) {
+			int d = 1;
+			for (ObjectToPack b = baseOf.get(otp); b != null
+					&& d <= maxDepth; b = baseOf.get(b)) {
+				d++;
+			}
+			if (d <= maxDepth) {
+				targets.add(otp);
+				depth.put(otp, Integer.valueOf(d));
+			}
+		}
+		targets.sort((ObjectToPack a, ObjectToPack b) -> Integer
+				.compare(depth.get(a).intValue(), depth.get(b).intValue()));
+
+		ObjectToPack[] pairs = new ObjectToPack[2 * targets.size()];
+		long totalWeight = 0;
+		int n = 0;
+		for (ObjectToPack otp : targets) {
+			pairs[n++] = baseOf.get(otp);
+			pairs[n++] = otp;
+			totalWeight += DeltaTask.getAdjustedWeight(otp);
+		}
+		long bytesPerUnit = 1;
+		while (DeltaTask.MAX_METER <= (totalWeight / bytesPerUnit))
+			bytesPerUnit <<= 10;
+		int cost = (int) (totalWeight / bytesPerUnit);
+		if (totalWeight % bytesPerUnit != 0)
+			cost++;
+
+		beginPhase(PackingPhase.COMPRESSING, monitor, cost);
+		new DeltaWindow(config, new DeltaCache(config), reader,
+				deltaIslands, false, monitor, bytesPerUnit, new AtomicLong(),
+				pairs, 0, n).searchPairs();
+		endPhase(monitor);
+
+		for (int i = 0; i < n; i++) {
+			pairs[i].setBaseOnly();
+		}
+	}
+
+	private static long windowKey(ObjectToPack otp) {
+		return ((long) otp.getType() << 32)
+				| (otp.getPathHash() & 0xffffffffL);
+	}
+
+	/**
+	 * Delta compress the blobs above the big file threshold against the
+	 * biggest version of their path. The delta is only sized here while
+	 * streaming both versions, and encoded again when it is written.
+	 *
+	 * @return number of objects not on the edge compared to a base.
+	 */
+	private int searchForBigDeltas(ProgressMonitor monitor,
+			ObjectToPack[] list, int begin, int end) throws IOException {
+		// The objects left out of the search are sorted like the others,
+		// so the versions of a path follow each other, biggest first.
+		List<ObjectToPack> big = new ArrayList<>();
+		for (int i = begin; i < end; i++) {
+			ObjectToPack otp = list[i];
+			if (otp.getType() == OBJ_BLOB
+					&& config.getBigFileThreshold() <= otp.getWeight()) {
+				big.add(otp);
+			}
+		}
+		if (big.size() < 2) {
+			return 0;
+		}
+
+		beginPhase(PackingPhase.COMPRESSING, monitor, big.size());
+		StreamingDeltaEncoder enc = newStreamingDeltaEncoder();
+		ObjectToPack base = null;
+		int searched = 0;
+		for (ObjectToPack otp : big) {
+			if (base == null || base.getPathHash() != otp.getPathHash()) {
+				base = otp;
+			} else if (!otp.isEdge()) {
+				searched++;
+				if (enc.encode(NullOutputStream.INSTANCE,
+						reader.open(base, OBJ_BLOB),
+						reader.open(otp, OBJ_BLOB),
+						otp.getWeight() / 2 - 20)) {
+					if (base.isEdge()) {
+						otp.setDeltaBase(base.copy());
+					} else {
+						otp.setDeltaBase(base);
+					}
+					otp.setDeltaDepth(base.getDeltaDepth() + 1);
+					otp.clearReuseAsIs();
+					stats.deltasFound++;
+				}
+			}
+			monitor.update(1);
+		}
+		endPhase(monitor);
+		return searched;
+	}
+
+	private StreamingDeltaEncoder newStreamingDeltaEncoder() {
+		// The window, the chunk of the result and the index of the window
+		// take about 8 chunks.
+		return new StreamingDeltaEncoder(config.getBigFileThreshold() / 8);
+	}
+
+	/**
+	 * Record the results of the search in the delta search cache. Objects
+	 * which were only considered as bases are recorded only if no base was
+	 * found for them before, as they have not been searched.
+	 */
+	private void recordDeltaSearch(ObjectToPack[] list, int cnt) {
+		for (int i = 0; i < cnt; i++) {
+			ObjectToPack otp = list[i];
+			if (otp.isEdge()) {
+				continue;
+			}
+			if (otp.isDeltaRepresentation()) {
+				ObjectToPack base = otp.getDeltaBase();
+				if (base != null) {
+					deltaSearchCache.record(otp, base);
+				}
+			} else if (!otp.isBaseOnly() || ObjectId.zeroId()
+					.equals(deltaSearchCache.getBase(otp))) {
+				deltaSearchCache.record(otp, null);
+			}
+		}
+	}
+
+	/**
+	 * Delta compress the versions of each path among themselves. Objects
+	 * which are stored as a delta or used as a base afterwards are only
+	 * considered as bases by the following search by path hash, so that it
+	 * neither breaks nor lengthens the chains found here.
+	 */
+	private void searchForPathDeltas(ProgressMonitor monitor,
+			ObjectToPack[] list, int cnt) throws IOException {
+		ObjectToPack[] byPath = new ObjectToPack[cnt];
+		int n = 0;
+		for (int i = 0; i < cnt; i++) {
+			if (list[i].getFullPathHash() != 0) {
+				byPath[n++] = list[i];
+			}
+		}
+		if (n == 0) {
+			return;
+		}
+		Arrays.sort(byPath, 0, n, (ObjectToPack a, ObjectToPack b) -> {
+			int cmp = a.getType() - b.getType();
+			if (cmp != 0) {
+				return cmp;
+			}
+
+			cmp = Integer.compare(a.getFullPathHash(), b.getFullPathHash());
+			if (cmp != 0) {
+				return cmp;
+			}
+
+			cmp = (a.isEdge() ? 0 : 1) - (b.isEdge() ? 0 : 1);
+			if (cmp != 0) {
+				return cmp;
+			}
+
+			return b.getWeight() - a.getWeight();
+		});
+		searchForDeltas(monitor, byPath, n, true);
+
+		for (int i = 0; i < n; i++) {
+			ObjectToPack otp = byPath[i];
+			if (otp.isDeltaRepresentation()) {
+				otp.setBaseOnly();
+				ObjectToPack base = otp.getDeltaBase();
+				if (base != null) {
+					base.setBaseOnly();
+				}
+			}
+		}
+	}
+
 	private void searchForDeltas(final ProgressMonitor monitor,
-			final ObjectToPack[] list, final int cnt)
+			final ObjectToPack[] list, final int cnt, boolean byPath)
 			throws MissingObjectException, IncorrectObjectTypeException,
 			LargeObjectException, IOException {
 		int threads = config.getThreads();
 		if (threads == 0)
 			threads = Runtime.getRuntime().availableProcessors();
 		if (threads <= 1 || cnt <= config.getDeltaSearchWindowSize())
-			singleThreadDeltaSearch(monitor, list, cnt);
+			singleThreadDeltaSearch(monitor, list, cnt, byPath);
 		else
-			parallelDeltaSearch(monitor, list, cnt, threads);
+			parallelDeltaSearch(monitor, list, cnt, threads, byPath);
 	}
 
 	private void singleThreadDeltaSearch(ProgressMonitor monitor,
-			ObjectToPack[] list, int cnt) throws IOException {
+			ObjectToPack[] list, int cnt, boolean byPath) throws IOException {
 		long totalWeight = 0;
 		for (int i = 0; i < cnt; i++) {
 			ObjectToPack o = list[i];
@@ -1645,82 +2007,32 @@ private void singleThreadDeltaSearch(ProgressMonitor monitor,
 
 		beginPhase(PackingPhase.COMPRESSING, monitor, cost);
 		new DeltaWindow(config, new DeltaCache(config), reader,
-				monitor, bytesPerUnit,
+				deltaIslands, byPath, monitor, bytesPerUnit, new AtomicLong(),
 				list, 0, cnt).search();
 		endPhase(monitor);
 	}
 
-	@SuppressWarnings("Finally")
 	private void parallelDeltaSearch(ProgressMonitor monitor,
-			ObjectToPack[] list, int cnt, int threads) throws IOException {
+			ObjectToPack[] list, int cnt, int threads, boolean byPath)
+			throws IOException {
 		DeltaCache dc = new ThreadSafeDeltaCache(config);
 		ThreadSafeProgressMonitor pm = new ThreadSafeProgressMonitor(monitor);
 		DeltaTask.Block taskBlock = new DeltaTask.Block(threads, config,
-				reader, dc, pm,
+				reader, deltaIslands, byPath, dc, pm,
 				list, 0, cnt);
-		taskBlock.partitionTasks();
 		beginPhase(PackingPhase.COMPRESSING, monitor, taskBlock.cost());
-		pm.startWorkers(taskBlock.tasks.size());
 
 		Executor executor = config.getExecutor();
-		final List<Throwable> errors =
-				Collections.synchronizedList(new ArrayList<>(threads));
-		if (executor instanceof ExecutorService) {
-			// Caller supplied us a service, use it directly.
-			runTasks((ExecutorService) executor, pm, taskBlock, errors);
-		} else if (executor == null) {
-			// Caller didn't give us a way to run the tasks, spawn up a
-			// temporary thread pool and make sure it tears down cleanly.
-			ExecutorService pool = Executors.newFixedThreadPool(threads);
-			Throwable e1 = null;
-			try {
-				runTasks(pool, pm, taskBlock, errors);
-			} catch (Exception e) {
-				e1 = e;
-			} finally {
-				pool.shutdown();
-				for (;;) {
-					try {
-						if (pool.awaitTermination(60, TimeUnit.SECONDS)) {
-							break;
-						}
-					} catch (InterruptedException e) {
-						if (e1 != null) {
-							e.addSuppressed(e1);
-						}
-						throw new IOException(JGitText
-								.get().packingCancelledDuringObjectsWriting, e);
-					}
-				}
-			}
+		if (executor == null || executor instanceof ForkJoinPool) {
+			forkDeltaTasks(taskBlock, pm, threads);
 		} else {
-			// The caller gave us an executor, but it might not do
-			// asynchronous execution.  Wrap everything and hope it
-			// can schedule these for us.
-			for (DeltaTask task : taskBlock.tasks) {
-				executor.execute(() -> {
-					try {
-						task.call();
-					} catch (Throwable failure) {
-						errors.add(failure);
-					}
-				});
-			}
-			try {
-				pm.waitForCompletion();
-			} catch (InterruptedException ie) {
-				// We can't abort the other tasks as we have no handle.
-				// Cross our fingers and just break out anyway.
-				//
-				throw new IOException(
-						JGitText.get().packingCancelledDuringObjectsWriting,
-						ie);
-			}
+			runDeltaTasks(executor, taskBlock, pm, threads);
 		}
 
 		// If any task threw an error, try to report it back as
 		// though we weren't using a threaded search algorithm.
 		//
+		List<Throwable> errors = taskBlock.errors;
 		if (!errors.isEmpty()) {
 			Throwable err = errors.get(0);
 			if (err instanceof Error)
@@ -1735,30 +2047,95 @@ private void parallelDeltaSearch(ProgressMonitor monitor,
 		endPhase(monitor);
 	}
 
-	private static void runTasks(ExecutorService pool,
-			ThreadSafeProgressMonitor pm,
-			DeltaTask.Block tb, List<Throwable> errors) throws IOException {
-		List<Future<?>> futures = new ArrayList<>(tb.tasks.size());
-		for (DeltaTask task : tb.tasks)
-			futures.add(pool.submit(task));
-
+	private void forkDeltaTasks(DeltaTask.Block taskBlock,
+			ThreadSafeProgressMonitor pm, int threads) throws IOException {
+		DeltaTask root = new DeltaTask(taskBlock, taskBlock.beginIndex,
+				taskBlock.endIndex);
+		pm.startWorker();
+		Future<?> result = taskPool(threads).submit(() -> {
+			try {
+				root.invoke();
+			} finally {
+				closeDeltaTasks(taskBlock);
+				pm.endWorker();
+			}
+		});
 		try {
 			pm.waitForCompletion();
-			for (Future<?> f : futures) {
+			result.get();
+		} catch (InterruptedException ie) {
+			// Stop the tasks not yet started.
+			taskBlock.errors.add(ie);
+			throw new IOException(
+					JGitText.get().packingCancelledDuringObjectsWriting, ie);
+		} catch (ExecutionException failed) {
+			taskBlock.errors.add(failed.getCause());
+		}
+	}
+
+	private void runDeltaTasks(Executor executor, DeltaTask.Block taskBlock,
+			ThreadSafeProgressMonitor pm, int threads) throws IOException {
+		// The caller gave us an executor which cannot fork tasks, and might
+		// not do asynchronous execution. Each runner searches the next task
+		// until none is left.
+		Queue<DeltaTask> tasks = taskBlock.tasks();
+		int runners = Math.min(threads, tasks.size());
+		AtomicInteger running = new AtomicInteger(runners);
+		pm.startWorkers(runners);
+		for (int i = 0; i < runners; i++) {
+			executor.execute(() -> {
 				try {
-					f.get();
-				} catch (ExecutionException failed) {
-					errors.add(failed.getCause());
+					DeltaTask task;
+					while (taskBlock.errors.isEmpty()
+							&& (task = tasks.poll()) != null) {
+						task.search();
+					}
+				} finally {
+					if (running.decrementAndGet() == 0) {
+						closeDeltaTasks(taskBlock);
+					}
+					pm.endWorker();
 				}
-			}
+			});
+		}
+		try {
+			pm.waitForCompletion();
 		} catch (InterruptedException ie) {
-			for (Future<?> f : futures)
-				f.cancel(true);
+			// Stop the tasks not yet started.
+			taskBlock.errors.add(ie);
 			throw new IOException(
 					JGitText.get().packingCancelledDuringObjectsWriting, ie);
 		}
 	}
 
+	private void closeDeltaTasks(DeltaTask.Block taskBlock) {
+		taskBlock.close().forEach(
+				(t, busy) -> deltaSearchBusy.merge(t, busy, Long::sum));
+	}
+
+	/**
+	 * Get the pool to run parallel tasks on: the executor of the
+	 * configuration if it is a {@link ForkJoinPool}, or a temporary pool
+	 * torn down by {@link #shutdownTaskPool()}.
+	 */
+	private ForkJoinPool taskPool(int threads) {
+		Executor executor = config.getExecutor();
+		if (executor instanceof ForkJoinPool) {
+			return (ForkJoinPool) executor;
+		}
+		if (taskPool == null) {
+			taskPool = new ForkJoinPool(threads);
+		}
+		return taskPool;
+	}
+
+	private void shutdownTaskPool() {
+		if (taskPool != null) {
+			taskPool.shutdown();
+			taskPool = null;
+		}
+	}
+
 	private void writeObjects(PackOutputStream out) throws IOException {
 		writeObjects(out, objectsLists[OBJ_COMMIT]);
 		writeObjects(out, objectsLists[OBJ_TAG]);
@@ -1889,7 +2266,11 @@ private void writeDeltaObjectDeflate(PackOutputStream out,
 			}
 		}
 
-		try (TemporaryBuffer.Heap delta = delta(otp)) {
+		ObjectLoader res = reader.open(otp, otp.getType());
+		TemporaryBuffer delta = res.getSize() < config.getBigFileThreshold()
+				? delta(otp, res)
+				: streamingDelta(otp, res);
+		try {
 			out.writeHeader(otp, delta.length());
 
 			Deflater deflater = deflater();
@@ -1897,15 +2278,17 @@ private void writeDeltaObjectDeflate(PackOutputStream out,
 			DeflaterOutputStream dst = new DeflaterOutputStream(out, deflater);
 			delta.writeTo(dst, null);
 			dst.finish();
+		} finally {
+			delta.destroy();
 		}
 		typeStats.cntDeltas++;
 		typeStats.deltaBytes += out.length() - otp.getOffset();
 	}
 
-	private TemporaryBuffer.Heap delta(ObjectToPack otp)
+	private TemporaryBuffer.Heap delta(ObjectToPack otp, ObjectLoader ldr)
 			throws IOException {
 		DeltaIndex index = new DeltaIndex(buffer(otp.getDeltaBaseId()));
-		byte[] res = buffer(otp);
+		byte[] res = ldr.getCachedBytes(config.getBigFileThreshold());
 
 		// We never would have proposed this pair if the delta would be
 		// larger than the unpacked version of the object. So using it
@@ -1916,6 +2299,22 @@ private TemporaryBuffer.Heap delta(ObjectToPack otp)
 		return delta;
 	}
 
+	private TemporaryBuffer streamingDelta(ObjectToPack otp, ObjectLoader ldr)
+			throws IOException {
+		// Spill deltas too large to be held in memory to a temporary file.
+		TemporaryBuffer.LocalFile delta = new TemporaryBuffer.LocalFile(null,
+				config.getBigFileThreshold() / 8);
+		try {
+			newStreamingDeltaEncoder().encode(delta,
+					reader.open(otp.getDeltaBaseId(), otp.getType()), ldr, 0);
+			delta.close();
+		} catch (IOException | RuntimeException e) {
+			delta.destroy();
+			throw e;
+		}
+		return delta;
+	}
+
 	private byte[] buffer(AnyObjectId objId) throws IOException {
 		return buffer(config, reader, objId);
 	}
@@ -2084,6 +2483,14 @@ private void findObjectsToPack(@NonNull ProgressMonitor countingMonitor,
 		}
 		stats.rootCommits = Collections.unmodifiableSet(roots);
 
+		List<RevTree> sparseRoots = null;
+		if (filterSpec.getSparseOid() != null) {
+			sparseRoots = new ArrayList<>(commits.size());
+			for (RevCommit cmit : commits) {
+				sparseRoots.add(cmit.getTree());
+			}
+		}
+
 		if (shallowPack) {
 			for (RevCommit cmit : commits) {
 				addObject(cmit, 0);
@@ -2139,8 +2546,9 @@ private void findObjectsToPack(@NonNull ProgressMonitor countingMonitor,
 				byte[] pathBuf = walker.getPathBuffer();
 				int pathLen = walker.getPathLength();
 				bases.addBase(o.getType(), pathBuf, pathLen, pathHash);
-				if (!depthSkip(o, walker)) {
-					filterAndAddObject(o, o.getType(), pathHash, want);
+				if (!depthSkip(o, walker) && !sparseSkip(o, want)) {
+					filterAndAddObject(o, o.getType(), pathHash,
+							fullPathHash(walker), want);
 				}
 				countingMonitor.update(1);
 			}
@@ -2151,14 +2559,24 @@ private void findObjectsToPack(@NonNull ProgressMonitor countingMonitor,
 					continue;
 				if (exclude(o))
 					continue;
-				if (!depthSkip(o, walker)) {
+				if (!depthSkip(o, walker) && !sparseSkip(o, want)) {
 					filterAndAddObject(o, o.getType(), walker.getPathHashCode(),
-									   want);
+							fullPathHash(walker), want);
 				}
 				countingMonitor.update(1);
 			}
 		}
 
+		if (sparseRoots != null) {
+			// The walk returns each blob once, at the first path it was
+			// found at. Select the blobs by all of their paths instead.
+			selectFilteredTrees(sparseRoots, want, id -> {
+				RevObject o = walker.lookupOrNull(id);
+				return o != null && !o.has(RevFlag.UNINTERESTING)
+						&& !exclude(o);
+			});
+		}
+
 		for (CachedPack pack : cachedPacks)
 			countingMonitor.update((int) pack.getObjectCount());
 		endPhase(countingMonitor);
@@ -2181,19 +2599,76 @@ private void findObjectsToPackUsingBitmaps(
 			cachedPacks.addAll(
 					reuseSupport.getCachedPacksAndUpdate(needBitmap));
 
+		// Filters depending on paths select trees and blobs by walking the
+		// root trees of the commits, entering only trees of needBitmap.
+		boolean walkTrees = TreeFilterWalk.needsWalk(filterSpec);
+		List<ObjectId> commits = new ArrayList<>();
 		for (BitmapObject obj : needBitmap) {
 			ObjectId objectId = obj.getObjectId();
 			if (exclude(objectId)) {
 				needBitmap.remove(objectId);
 				continue;
 			}
-			filterAndAddObject(objectId, obj.getType(), 0, want);
+			int type = obj.getType();
+			if (walkTrees) {
+				if ((type == OBJ_TREE || type == OBJ_BLOB)
+						&& !want.contains(objectId)) {
+					continue;
+				}
+				if (type == OBJ_COMMIT) {
+					commits.add(objectId);
+				}
+			}
+			filterAndAddObject(objectId, type, 0, want);
+		}
+
+		if (walkTrees && filterSpec.getTreeDepthLimit() != 0) {
+			List<ObjectId> rootTrees = new ArrayList<>(commits.size());
+			for (ObjectId c : commits) {
+				byte[] raw = reader.open(c, OBJ_COMMIT).getCachedBytes();
+				rootTrees.add(ObjectId.fromString(raw, 5)); // "tree "
+			}
+			stats.treesTraversed += selectFilteredTrees(rootTrees, want,
+					needBitmap::contains);
 		}
 
 		if (thin)
 			haveObjects = haveBitmap;
 	}
 
+	/**
+	 * Add the trees and blobs passing a filter depending on paths.
+	 *
+	 * @param rootTrees
+	 *            root trees of the commits being packed.
+	 * @param want
+	 *            objects wanted by the client; wanted trees are walked as
+	 *            roots, and were added already.
+	 * @param candidates
+	 *            objects being packed, before filtering.
+	 * @return number of trees traversed.
+	 */
+	private long selectFilteredTrees(List<? extends ObjectId> rootTrees,
+			Set<? extends ObjectId> want, Predicate<AnyObjectId> candidates)
+			throws IOException {
+		TreeFilterWalk tw = new TreeFilterWalk(reader, filterSpec, candidates,
+				(id, type, pathHash) -> {
+					if (!objectsMap.contains(id)) {
+						addObject(id, type, pathHash);
+					}
+				});
+		for (ObjectId tree : rootTrees) {
+			tw.addRoot(tree);
+		}
+		for (ObjectId id : want) {
+			ObjectToPack otp = objectsMap.get(id);
+			if (otp != null && otp.getType() == OBJ_TREE) {
+				tw.addRoot(id);
+			}
+		}
+		return tw.getTreesTraversed();
+	}
+
 	private static void pruneEdgesFromObjectList(List<ObjectToPack> list) {
 		final int size = list.size();
 		int src = 0;
@@ -2236,16 +2711,42 @@ private void addObject(RevObject object, int pathHashCode) {
 
 	private void addObject(
 			final AnyObjectId src, final int type, final int pathHashCode) {
+		addObject(src, type, pathHashCode, 0);
+	}
+
+	private void addObject(AnyObjectId src, int type, int pathHashCode,
+			int fullPathHash) {
 		final ObjectToPack otp;
 		if (reuseSupport != null)
 			otp = reuseSupport.newObjectToPack(src, type);
 		else
 			otp = new ObjectToPack(src, type);
 		otp.setPathHash(pathHashCode);
+		otp.setFullPathHash(fullPathHash);
 		objectsLists[type].add(otp);
 		objectsMap.add(otp);
 	}
 
+	/**
+	 * Hash the full path of the current object of a walk, if objects are
+	 * grouped by path for delta compression.
+	 *
+	 * @return hash of the path, never 0; or 0 if objects are not grouped by
+	 *         path.
+	 */
+	private int fullPathHash(ObjectWalk walker) {
+		if (!config.isPathWalk()) {
+			return 0;
+		}
+		byte[] buf = walker.getPathBuffer();
+		int len = walker.getPathLength();
+		int hash = 1;
+		for (int i = 0; i < len; i++) {
+			hash = 31 * hash + buf[i];
+		}
+		return hash != 0 ? hash : 1;
+	}
+
 	/**
 	 * Determines if the object should be omitted from the pack as a result of
 	 * its depth (probably because of the tree:<depth> filter).
@@ -2284,11 +2785,27 @@ private boolean depthSkip(@NonNull RevObject obj, ObjectWalk walker) {
 		return true;
 	}
 
+	/**
+	 * Determines if a blob should be omitted from the pack by the walk,
+	 * because a sparse filter selects blobs with their paths afterwards.
+	 */
+	private boolean sparseSkip(@NonNull RevObject obj,
+			@NonNull Set<? extends AnyObjectId> want) {
+		return filterSpec.getSparseOid() != null
+				&& obj.getType() == OBJ_BLOB && !want.contains(obj);
+	}
+
 	// Adds the given object as an object to be packed, first performing
 	// filtering on blobs at or exceeding a given size.
 	private void filterAndAddObject(@NonNull AnyObjectId src, int type,
 			int pathHashCode, @NonNull Set<? extends AnyObjectId> want)
 			throws IOException {
+		filterAndAddObject(src, type, pathHashCode, 0, want);
+	}
+
+	private void filterAndAddObject(@NonNull AnyObjectId src, int type,
+			int pathHashCode, int fullPathHash,
+			@NonNull Set<? extends AnyObjectId> want) throws IOException {
 
 		// Cheaper checks first
 		if (!filterSpec.allowsType(type) && !want.contains(src)) {
@@ -2300,7 +2817,7 @@ private void filterAndAddObject(@NonNull AnyObjectId src, int type,
 				&& !reader.isNotLargerThan(src, OBJ_BLOB, blobLimit)) {
 			return;
 		}
-		addObject(src, type, pathHashCode);
+		addObject(src, type, pathHashCode, fullPathHash);
 	}
 
 	private boolean exclude(AnyObjectId objectId) {
@@ -2351,7 +2868,8 @@ public void select(ObjectToPack otp, StoredObjectRepresentation next) {
 		if (nFmt == PACK_DELTA && reuseDeltas && reuseDeltaFor(otp)) {
 			ObjectId baseId = next.getDeltaBase();
 			ObjectToPack ptr = objectsMap.get(baseId);
-			if (ptr != null && !ptr.isEdge()) {
+			if (ptr != null && !ptr.isEdge() && (deltaIslands == null
+					|| deltaIslands.canDelta(otp, ptr))) {
 				otp.setDeltaBase(ptr);
 				otp.setReuseAsIs();
 			} else if (thin && have(ptr, baseId)) {
@@ -2414,6 +2932,7 @@ public boolean prepareBitmapIndex(ProgressMonitor pm) throws IOException {
 		if (pm == null)
 			pm = NullProgressMonitor.INSTANCE;
 
+		long buildStart = System.currentTimeMillis();
 		int numCommits = objectsLists[OBJ_COMMIT].size();
 		List<ObjectToPack> byName = sortByName();
 		// Reset sortedByName before the array that it points to is mutated by
@@ -2434,6 +2953,22 @@ public boolean prepareBitmapIndex(ProgressMonitor pm) throws IOException {
 
 		beginPhase(PackingPhase.BUILDING_BITMAPS, pm, selectedCommits.size());
 
+		int threads = config.getThreads();
+		if (threads == 0)
+			threads = Runtime.getRuntime().availableProcessors();
+		if (threads <= 1 || selectedCommits.size() <= 1)
+			singleThreadBitmaps(bitmapPreparer, selectedCommits, pm);
+		else
+			parallelBitmaps(bitmapPreparer, selectedCommits, pm, threads);
+
+		endPhase(pm);
+		stats.timeBuildingBitmaps = System.currentTimeMillis() - buildStart;
+		return true;
+	}
+
+	private void singleThreadBitmaps(PackWriterBitmapPreparer bitmapPreparer,
+			Collection<BitmapCommit> selectedCommits, ProgressMonitor pm)
+			throws IOException {
 		BitmapWalker walker = bitmapPreparer.newBitmapWalker();
 		AnyObjectId last = null;
 		for (BitmapCommit cmit : selectedCommits) {
@@ -2458,9 +2993,80 @@ public boolean prepareBitmapIndex(ProgressMonitor pm) throws IOException {
 
 			pm.update(1);
 		}
+	}
 
-		endPhase(pm);
-		return true;
+	private void parallelBitmaps(PackWriterBitmapPreparer bitmapPreparer,
+			Collection<BitmapCommit> selectedCommits, ProgressMonitor monitor,
+			int threads) throws IOException {
+		ThreadSafeProgressMonitor pm = new ThreadSafeProgressMonitor(monitor);
+		BitmapTask.Block taskBlock = new BitmapTask.Block(bitmapPreparer,
+				writeBitmaps, reader, pm, selectedCommits, threads);
+		Queue<BitmapTask> tasks = new ConcurrentLinkedQueue<>(
+				taskBlock.tasks());
+		int runners = Math.min(threads, tasks.size());
+		AtomicInteger running = new AtomicInteger(runners);
+
+		try {
+			// Each runner builds the next chain not started yet, so the
+			// chains are started in the order their bitmaps are needed.
+			Executor executor = config.getExecutor();
+			if (executor == null) {
+				executor = taskPool(threads);
+			}
+			Runnable done = () -> {
+				if (running.decrementAndGet() == 0) {
+					taskBlock.close();
+				}
+				pm.endWorker();
+			};
+			pm.startWorkers(runners);
+			int started = 0;
+			try {
+				for (; started < runners; started++) {
+					executor.execute(() -> {
+						try {
+							BitmapTask task;
+							while ((task = tasks.poll()) != null) {
+								task.build();
+							}
+						} finally {
+							done.run();
+						}
+					});
+				}
+			} catch (RejectedExecutionException e) {
+				// Stop the runners already started, and release what the
+				// others would have released.
+				taskBlock.fail(e);
+				for (int i = started; i < runners; i++) {
+					done.run();
+				}
+			}
+			try {
+				pm.waitForCompletion();
+			} catch (InterruptedException ie) {
+				// Stop the tasks not yet started.
+				taskBlock.fail(ie);
+				throw new IOException(
+						JGitText.get().packingCancelledDuringObjectsWriting,
+						ie);
+			}
+		} finally {
+			shutdownTaskPool();
+		}
+
+		List<Throwable> errors = taskBlock.errors;
+		if (!errors.isEmpty()) {
+			Throwable err = errors.get(0);
+			if (err instanceof Error)
+				throw (Error) err;
+			if (err instanceof RuntimeException)
+				throw (RuntimeException) err;
+			if (err instanceof IOException)
+				throw (IOException) err;
+
+			throw new IOException(err.getMessage(), err);
+		}
 	}
 
 	private boolean reuseDeltaFor(ObjectToPack otp) {
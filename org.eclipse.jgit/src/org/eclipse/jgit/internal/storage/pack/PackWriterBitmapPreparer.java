@@ -33,6 +33,7 @@
 import org.eclipse.jgit.internal.storage.file.PackBitmapIndexBuilder;
 import org.eclipse.jgit.internal.storage.file.PackBitmapIndexRemapper;
 import org.eclipse.jgit.lib.AnyObjectId;
+import org.eclipse.jgit.lib.BitmapIndex;
 import org.eclipse.jgit.lib.BitmapIndex.BitmapBuilder;
 import org.eclipse.jgit.lib.Constants;
 import org.eclipse.jgit.lib.ObjectId;
@@ -482,6 +483,30 @@ BitmapWalker newBitmapWalker() {
 				new ObjectWalk(reader), bitmapIndex, null);
 	}
 
+	/**
+	 * Create a bitmap index for the pack being written, for use by another
+	 * thread than the one owning this preparer.
+	 *
+	 * @param r
+	 *            reader of the other thread.
+	 * @param index
+	 *            view of the index being written, safe to read while the
+	 *            bitmaps of the selected commits are added.
+	 * @return index mapping the bitmaps of the previous pack and of the
+	 *         selected commits to the positions in the new pack.
+	 * @throws IOException
+	 *             the bitmaps of the previous pack could not be read.
+	 */
+	BitmapIndexImpl newBitmapIndex(ObjectReader r, PackBitmapIndex index)
+			throws IOException {
+		return new BitmapIndexImpl(PackBitmapIndexRemapper
+				.newPackBitmapIndex(r.getBitmapIndex(), index));
+	}
+
+	BitmapWalker newBitmapWalker(ObjectReader r, BitmapIndex index) {
+		return new BitmapWalker(new ObjectWalk(r), index, null);
+	}
+
 	/**
 	 * Container for state used in the first phase of selecting commits, which
 	 * walks all of the reachable commits via the branch tips that are not
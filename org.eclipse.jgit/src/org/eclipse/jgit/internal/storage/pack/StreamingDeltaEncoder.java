@@ -0,0 +1,120 @@
+/*
+ * Copyright (C) 2023, Google LLC and others
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Distribution License v. 1.0 which is available at
+ * https://www.eclipse.org/org/documents/edl-v10.php.
+ *
+ * SPDX-License-Identifier: BSD-3-Clause
+ */
+
+package org.eclipse.jgit.internal.storage.pack;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+import org.eclipse.jgit.lib.ObjectLoader;
+import org.eclipse.jgit.lib.ObjectStream;
+import org.eclipse.jgit.util.IO;
+
+/**
+ * Delta compresses objects too large to be loaded into memory.
+ * <p>
+ * Both objects are streamed once. The result is read in chunks, and each
+ * chunk is encoded against a window of the base spanning from one chunk
+ * before to two chunks after the chunk's own offset. Regions which moved by
+ * less than a chunk between both versions are copied from the base, the
+ * rest of the result is inserted literally. Only the window, its index and
+ * one chunk of the result are held in memory.
+ */
+final class StreamingDeltaEncoder {
+	private final int chunkSize;
+
+	/**
+	 * Create an encoder.
+	 *
+	 * @param chunkSize
+	 *            number of bytes of the result encoded at once; the window
+	 *            of the base is three times as large.
+	 */
+	StreamingDeltaEncoder(int chunkSize) {
+		this.chunkSize = Math.max(chunkSize, DeltaIndex.BLKSZ);
+	}
+
+	/**
+	 * Generate the delta recreating an object from a base.
+	 *
+	 * @param out
+	 *            stream to receive the delta instructions. This stream should
+	 *            be buffered, as instructions are written directly to it in
+	 *            small bursts.
+	 * @param base
+	 *            the base of the delta.
+	 * @param res
+	 *            the object to recreate.
+	 * @param deltaSizeLimit
+	 *            maximum number of bytes that the delta instructions can
+	 *            occupy, 0 for no limit.
+	 * @return true if the delta is smaller than deltaSizeLimit; false if the
+	 *         encoder aborted because the delta would be longer.
+	 * @throws java.io.IOException
+	 *             the objects could not be read, or the output stream refused
+	 *             to write the instructions.
+	 */
+	boolean encode(OutputStream out, ObjectLoader base, ObjectLoader res,
+			int deltaSizeLimit) throws IOException {
+		long baseSize = base.getSize();
+		long resSize = res.getSize();
+		DeltaEncoder enc = new DeltaEncoder(out, baseSize, resSize,
+				deltaSizeLimit);
+		try (ObjectStream src = base.openStream();
+				ObjectStream dst = res.openStream()) {
+			byte[] window = new byte[(int) Math.min(3L * chunkSize, baseSize)];
+			byte[] chunk = new byte[(int) Math.min(chunkSize, resSize)];
+			long windowStart = 0;
+			int windowLen = 0;
+
+			for (long pos = 0; pos < resSize;) {
+				int n = (int) Math.min(chunkSize, resSize - pos);
+				IO.readFully(dst, chunk, 0, n);
+
+				// Slide the window to the chunks around pos.
+				long start = Math.min(Math.max(0, pos - chunkSize), baseSize);
+				long end = Math.min(pos + 2L * chunkSize, baseSize);
+				int drop = (int) Math.min(start - windowStart, windowLen);
+				System.arraycopy(window, drop, window, 0, windowLen - drop);
+				windowLen -= drop;
+				skip(src, start - windowStart - drop);
+				windowStart = start;
+				int fill = (int) (end - windowStart - windowLen);
+				IO.readFully(src, window, windowLen, fill);
+				windowLen += fill;
+
+				if (!encode(enc, window, windowLen, windowStart, chunk, n)) {
+					return false;
+				}
+				pos += n;
+			}
+		}
+		return true;
+	}
+
+	private static boolean encode(DeltaEncoder enc, byte[] window,
+			int windowLen, long windowStart, byte[] chunk, int n)
+			throws IOException {
+		if (windowLen < DeltaIndex.BLKSZ) {
+			return enc.insert(chunk, 0, n);
+		}
+		byte[] src = windowLen == window.length ? window
+				: Arrays.copyOf(window, windowLen);
+		return new DeltaIndex(src).encode(enc, chunk, n, windowStart);
+	}
+
+	private static void skip(InputStream in, long cnt) throws IOException {
+		if (cnt > 0) {
+			IO.skipFully(in, cnt);
+		}
+	}
+}
@@ -0,0 +1,284 @@
+/*
+ * Copyright (C) 2023, Google LLC and others
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Distribution License v. 1.0 which is available at
+ * https://www.eclipse.org/org/documents/edl-v10.php.
+ *
+ * SPDX-License-Identifier: BSD-3-Clause
+ */
+
+package org.eclipse.jgit.internal.storage.pack;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.eclipse.jgit.lib.Constants.OBJ_BLOB;
+import static org.eclipse.jgit.lib.Constants.OBJ_TREE;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Predicate;
+
+import org.eclipse.jgit.ignore.IgnoreNode;
+import org.eclipse.jgit.lib.AnyObjectId;
+import org.eclipse.jgit.lib.FileMode;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectLoader;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.transport.FilterSpec;
+import org.eclipse.jgit.treewalk.CanonicalTreeParser;
+
+/**
+ * Selects the trees and blobs passing a {@code tree:<depth>} or
+ * {@code sparse:oid=<oid>} filter.
+ * <p>
+ * Both filters depend on the path at which an object is reached from its
+ * root tree, which a reachability bitmap does not record. This walk starts at
+ * the root trees of the packed commits and only enters trees which the
+ * caller reports as candidates, i.e. part of the pack being written; objects
+ * the client already has are never read. With a depth limit trees are read
+ * down to the limit only, so shallow limits are served almost entirely from
+ * the bitmap. With a sparse specification each distinct tree is read once
+ * for every path it is found at.
+ */
+final class TreeFilterWalk {
+	/** Receives the selected objects. */
+	interface Visitor {
+		void select(AnyObjectId id, int type, int pathHash)
+				throws IOException;
+	}
+
+	private final ObjectReader reader;
+
+	private final long depthLimit;
+
+	private final IgnoreNode sparse;
+
+	private final Predicate<AnyObjectId> candidates;
+
+	private final Visitor visitor;
+
+	/** Lowest depth each tree was entered at, for depth limits. */
+	private final Map<ObjectId, Integer> treeDepths = new HashMap<>();
+
+	/** Trees already entered at a path, for sparse specifications. */
+	private final Set<SparseVisit> sparseVisits = new HashSet<>();
+
+	/**
+	 * Whether a filter needs this walk to select trees and blobs.
+	 *
+	 * @param filter
+	 *            the filter of the pack.
+	 * @return whether {@code filter} depends on the paths of objects.
+	 */
+	static boolean needsWalk(FilterSpec filter) {
+		return filter.getTreeDepthLimit() >= 0
+				|| filter.getSparseOid() != null;
+	}
+
+	/**
+	 * Create a walk for a filter.
+	 *
+	 * @param reader
+	 *            reader to load trees and the sparse specification with.
+	 * @param filter
+	 *            filter to apply; {@link #needsWalk(FilterSpec)} must be
+	 *            true.
+	 * @param candidates
+	 *            the objects which may be selected. Trees not accepted are
+	 *            not entered.
+	 * @param visitor
+	 *            receives the selected objects. An object may be offered
+	 *            more than once.
+	 * @throws IOException
+	 *             the sparse specification could not be read.
+	 */
+	TreeFilterWalk(ObjectReader reader, FilterSpec filter,
+			Predicate<AnyObjectId> candidates, Visitor visitor)
+			throws IOException {
+		this.reader = reader;
+		this.depthLimit = filter.getTreeDepthLimit();
+		this.candidates = candidates;
+		this.visitor = visitor;
+
+		ObjectId sparseOid = filter.getSparseOid();
+		if (sparseOid != null) {
+			ObjectLoader ldr = reader.open(sparseOid, OBJ_BLOB);
+			sparse = new IgnoreNode();
+			try (InputStream in = ldr.openStream()) {
+				sparse.parse(sparseOid.name(), in);
+			}
+		} else {
+			sparse = null;
+		}
+	}
+
+	/**
+	 * Select the objects reachable from a root tree.
+	 *
+	 * @param tree
+	 *            root tree of a packed commit, or a tree wanted by the
+	 *            client.
+	 * @throws IOException
+	 *             a tree could not be read.
+	 */
+	void addRoot(AnyObjectId tree) throws IOException {
+		if (sparse != null) {
+			visitSparse(tree, "", null); //$NON-NLS-1$
+		} else {
+			visitDepth(tree, 1, ""); //$NON-NLS-1$
+		}
+	}
+
+	/**
+	 * Get the number of distinct trees selected
+	 *
+	 * @return number of distinct trees within the depth limit, or of
+	 *         distinct tree and path combinations entered.
+	 */
+	long getTreesTraversed() {
+		return sparse != null ? sparseVisits.size() : treeDepths.size();
+	}
+
+	/**
+	 * Visit a tree at a depth; root trees have depth 1, and every object
+	 * directly within a tree at depth {@code d} has depth {@code d + 1}, as
+	 * counted by {@link org.eclipse.jgit.revwalk.ObjectWalk#getTreeDepth()}.
+	 */
+	private void visitDepth(AnyObjectId tree, int depth, String path)
+			throws IOException {
+		if (depth > depthLimit || !candidates.test(tree)) {
+			return;
+		}
+		Integer seen = treeDepths.get(tree);
+		if (seen != null && seen.intValue() <= depth) {
+			return;
+		}
+		treeDepths.put(tree.copy(), Integer.valueOf(depth));
+		if (seen == null) {
+			visitor.select(tree, OBJ_TREE, pathHash(path));
+		}
+		if (depth == depthLimit) {
+			return;
+		}
+
+		CanonicalTreeParser p = parse(tree);
+		for (; !p.eof(); p.next()) {
+			int mode = p.getEntryRawMode();
+			if (isTree(mode)) {
+				visitDepth(p.getEntryObjectId(), depth + 1,
+						child(path, p));
+			} else if (isBlob(mode)) {
+				ObjectId id = p.getEntryObjectId();
+				if (candidates.test(id)) {
+					visitor.select(id, OBJ_BLOB, pathHash(child(path, p)));
+				}
+			}
+		}
+	}
+
+	/**
+	 * Visit a tree at a path; {@code included} is the result of the last
+	 * pattern matching the tree or one of its parents, null if none did.
+	 */
+	private void visitSparse(AnyObjectId tree, String path, Boolean included)
+			throws IOException {
+		if (!candidates.test(tree)
+				|| !sparseVisits.add(new SparseVisit(tree, path, included))) {
+			return;
+		}
+		visitor.select(tree, OBJ_TREE, pathHash(path));
+
+		CanonicalTreeParser p = parse(tree);
+		for (; !p.eof(); p.next()) {
+			int mode = p.getEntryRawMode();
+			boolean isTree = isTree(mode);
+			if (!isTree && !isBlob(mode)) {
+				continue;
+			}
+			String entryPath = child(path, p);
+			Boolean match = sparse.checkIgnored(entryPath, isTree);
+			if (match == null) {
+				match = included;
+			}
+			if (isTree) {
+				visitSparse(p.getEntryObjectId(), entryPath, match);
+			} else if (Boolean.TRUE.equals(match)) {
+				ObjectId id = p.getEntryObjectId();
+				if (candidates.test(id)) {
+					visitor.select(id, OBJ_BLOB, pathHash(entryPath));
+				}
+			}
+		}
+	}
+
+	private CanonicalTreeParser parse(AnyObjectId tree) throws IOException {
+		CanonicalTreeParser p = new CanonicalTreeParser();
+		p.reset(reader.open(tree, OBJ_TREE).getCachedBytes());
+		return p;
+	}
+
+	private static String child(String path, CanonicalTreeParser p) {
+		String name = p.getEntryPathString();
+		return path.isEmpty() ? name : path + '/' + name;
+	}
+
+	private static boolean isTree(int mode) {
+		return (mode & FileMode.TYPE_MASK) == FileMode.TYPE_TREE;
+	}
+
+	private static boolean isBlob(int mode) {
+		int type = mode & FileMode.TYPE_MASK;
+		return type == FileMode.TYPE_FILE || type == FileMode.TYPE_SYMLINK;
+	}
+
+	/**
+	 * Hash a path like {@link org.eclipse.jgit.revwalk.ObjectWalk}, using its
+	 * last 16 characters, so that deltas are searched among objects of
+	 * similar paths.
+	 */
+	private static int pathHash(String path) {
+		byte[] buf = path.getBytes(UTF_8);
+		int hash = 0;
+		for (int ptr = Math.max(0, buf.length - 16); ptr < buf.length; ptr++) {
+			byte c = buf[ptr];
+			if (c != ' ') {
+				hash = (hash >>> 2) + (c << 24);
+			}
+		}
+		return hash;
+	}
+
+	private static final class SparseVisit {
+		private final ObjectId tree;
+
+		private final String path;
+
+		private final Boolean included;
+
+		SparseVisit(AnyObjectId tree, String path, Boolean included) {
+			this.tree = tree.copy();
+			this.path = path;
+			this.included = included;
+		}
+
+		@Override
+		public int hashCode() {
+			return tree.hashCode() * 31 + path.hashCode();
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof SparseVisit)) {
+				return false;
+			}
+			SparseVisit v = (SparseVisit) obj;
+			return tree.equals(v.tree) && path.equals(v.path)
+					&& Objects.equals(included, v.included);
+		}
+	}
+}
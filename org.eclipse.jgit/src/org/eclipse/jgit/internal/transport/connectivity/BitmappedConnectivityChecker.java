@@ -0,0 +1,244 @@
+/*
+ * Copyright (C) 2023, Google LLC and others
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Distribution License v. 1.0 which is available at
+ * https://www.eclipse.org/org/documents/edl-v10.php.
+ *
+ * SPDX-License-Identifier: BSD-3-Clause
+ */
+
+package org.eclipse.jgit.internal.transport.connectivity;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import org.eclipse.jgit.errors.MissingObjectException;
+import org.eclipse.jgit.internal.JGitText;
+import org.eclipse.jgit.lib.AnyObjectId;
+import org.eclipse.jgit.lib.BitmapIndex;
+import org.eclipse.jgit.lib.BitmapIndex.BitmapBuilder;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectIdSubclassMap;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.lib.ProgressMonitor;
+import org.eclipse.jgit.revwalk.BitmapWalker;
+import org.eclipse.jgit.revwalk.ObjectWalk;
+import org.eclipse.jgit.revwalk.RevBlob;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevFlag;
+import org.eclipse.jgit.revwalk.RevObject;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.revwalk.filter.ObjectFilter;
+import org.eclipse.jgit.revwalk.filter.RevFilter;
+import org.eclipse.jgit.transport.ConnectivityChecker;
+import org.eclipse.jgit.transport.ReceiveCommand;
+import org.eclipse.jgit.transport.ReceiveCommand.Result;
+
+/**
+ * A connectivity checker that uses the bitmap index of the repository to
+ * determine the objects reachable from the haves.
+ * <p>
+ * Instead of walking back from the new tips until the haves are reached, the
+ * objects reachable from the haves are taken from the bitmaps. Only haves not
+ * covered by a bitmap, typically refs updated since the last repack, and the
+ * objects reachable from the new tips but not from the haves are walked. If
+ * info.isCheckObjects() is set the latter objects must have been received in
+ * the pack, and objects referenced by deltas must be reachable from the
+ * haves.
+ * <p>
+ * Repositories without a bitmap index are checked by the fallback checker,
+ * {@link FullConnectivityChecker} by default.
+ */
+public final class BitmappedConnectivityChecker
+		implements ConnectivityChecker {
+	private final ConnectivityChecker fallback;
+
+	/**
+	 * Create a checker falling back to {@link FullConnectivityChecker} if the
+	 * repository has no bitmap index.
+	 */
+	public BitmappedConnectivityChecker() {
+		this(new FullConnectivityChecker());
+	}
+
+	/**
+	 * Create a checker.
+	 *
+	 * @param fallback
+	 *            checker to use if the repository has no bitmap index.
+	 */
+	public BitmappedConnectivityChecker(ConnectivityChecker fallback) {
+		this.fallback = fallback;
+	}
+
+	@Override
+	public void checkConnectivity(ConnectivityCheckInfo connectivityCheckInfo,
+			Set<ObjectId> haves, ProgressMonitor pm)
+			throws MissingObjectException, IOException {
+		try (ObjectReader reader = connectivityCheckInfo.getRepository()
+				.newObjectReader()) {
+			BitmapIndex bitmapIndex = reader.getBitmapIndex();
+			if (bitmapIndex == null) {
+				fallback.checkConnectivity(connectivityCheckInfo, haves, pm);
+				return;
+			}
+
+			pm.beginTask(JGitText.get().countingObjects,
+					ProgressMonitor.UNKNOWN);
+			try {
+				check(connectivityCheckInfo, reader, bitmapIndex, haves, pm);
+			} finally {
+				pm.endTask();
+			}
+		}
+	}
+
+	private static void check(ConnectivityCheckInfo connectivityCheckInfo,
+			ObjectReader reader, BitmapIndex bitmapIndex, Set<ObjectId> haves,
+			ProgressMonitor pm) throws IOException {
+		List<ObjectId> tips = new ArrayList<>();
+		for (ReceiveCommand cmd : connectivityCheckInfo.getCommands()) {
+			if (cmd.getResult() != Result.NOT_ATTEMPTED) {
+				continue;
+			}
+			if (cmd.getType() == ReceiveCommand.Type.DELETE) {
+				continue;
+			}
+			if (haves.contains(cmd.getNewId())) {
+				continue;
+			}
+			tips.add(cmd.getNewId());
+		}
+		if (tips.isEmpty()) {
+			return;
+		}
+
+		BitmapBuilder reachable;
+		try (ObjectWalk hw = new ObjectWalk(reader)) {
+			reachable = new BitmapWalker(hw, bitmapIndex, pm)
+					.findObjects(haves, null, true);
+		}
+
+		try (ObjectWalk ow = new ObjectWalk(reader)) {
+			boolean hasInteresting = false;
+			for (ObjectId tip : tips) {
+				if (reachable.contains(tip)) {
+					continue;
+				}
+				ow.markStart(ow.parseAny(tip));
+				pm.update(1);
+				hasInteresting = true;
+			}
+			if (hasInteresting) {
+				ow.setRevFilter(new NotReachableFilter(reachable));
+				ow.setObjectFilter(new NotReachableObjectFilter(reachable));
+				checkCommitTree(connectivityCheckInfo, ow, pm);
+				checkObjects(connectivityCheckInfo, ow, pm);
+			}
+			if (connectivityCheckInfo.isCheckObjects()) {
+				checkBaseObjects(connectivityCheckInfo, ow, reachable);
+			}
+		}
+	}
+
+	private static void checkCommitTree(
+			ConnectivityCheckInfo connectivityCheckInfo, ObjectWalk ow,
+			ProgressMonitor pm) throws IOException {
+		RevCommit c;
+		ObjectIdSubclassMap<ObjectId> newObjectIds = connectivityCheckInfo
+				.getParser().getNewObjectIds();
+		while ((c = ow.next()) != null) {
+			pm.update(1);
+			if (connectivityCheckInfo.isCheckObjects()
+					&& !newObjectIds.contains(c)) {
+				throw new MissingObjectException(c, Constants.TYPE_COMMIT);
+			}
+		}
+	}
+
+	private static void checkObjects(
+			ConnectivityCheckInfo connectivityCheckInfo, ObjectWalk ow,
+			ProgressMonitor pm) throws IOException {
+		RevObject o;
+		ObjectIdSubclassMap<ObjectId> newObjectIds = connectivityCheckInfo
+				.getParser().getNewObjectIds();
+		while ((o = ow.nextObject()) != null) {
+			pm.update(1);
+			if (connectivityCheckInfo.isCheckObjects()) {
+				if (newObjectIds.contains(o)) {
+					continue;
+				}
+				throw new MissingObjectException(o, o.getType());
+			}
+
+			if (o instanceof RevBlob
+					&& !ow.getObjectReader().has(o)) {
+				throw new MissingObjectException(o, Constants.TYPE_BLOB);
+			}
+		}
+	}
+
+	private static void checkBaseObjects(
+			ConnectivityCheckInfo connectivityCheckInfo, ObjectWalk ow,
+			BitmapBuilder reachable) throws IOException {
+		for (ObjectId id : connectivityCheckInfo.getParser()
+				.getBaseObjectIds()) {
+			if (!reachable.contains(id)) {
+				RevObject o = ow.parseAny(id);
+				throw new MissingObjectException(o, o.getType());
+			}
+		}
+	}
+
+	/**
+	 * Stops the walk at commits reachable from the haves, without parsing
+	 * their ancestors.
+	 */
+	private static final class NotReachableFilter extends RevFilter {
+		private final BitmapBuilder reachable;
+
+		NotReachableFilter(BitmapBuilder reachable) {
+			this.reachable = reachable;
+		}
+
+		@Override
+		public boolean include(RevWalk walker, RevCommit cmit) {
+			if (!reachable.contains(cmit)) {
+				return true;
+			}
+			for (RevCommit p : cmit.getParents()) {
+				p.add(RevFlag.SEEN);
+			}
+			return false;
+		}
+
+		@Override
+		public RevFilter clone() {
+			// The bitmap is only read, the filter holds no state of a walk.
+			return this;
+		}
+
+		@Override
+		public boolean requiresCommitBody() {
+			return false;
+		}
+	}
+
+	/** Skips trees and blobs reachable from the haves. */
+	private static final class NotReachableObjectFilter extends ObjectFilter {
+		private final BitmapBuilder reachable;
+
+		NotReachableObjectFilter(BitmapBuilder reachable) {
+			this.reachable = reachable;
+		}
+
+		@Override
+		public boolean include(ObjectWalk walker, AnyObjectId objid) {
+			return !reachable.contains(objid);
+		}
+	}
+}
@@ -939,4 +939,46 @@ public final class ConfigConstants {
 	 * @since 5.13.2
 	 */
 	public static final String CONFIG_KEY_PRUNE_PRESERVED = "prunepreserved";
+
+	/**
+	 * The "gc.cruftPacks" key
+	 *
+	 * @since 6.6
+	 */
+	public static final String CONFIG_KEY_CRUFT_PACKS = "cruftpacks";
+
+	/**
+	 * The "gc.geometricFactor" key
+	 *
+	 * @since 6.6
+	 */
+	public static final String CONFIG_KEY_GEOMETRIC_FACTOR = "geometricfactor";
+
+	/**
+	 * The "pack.island" key
+	 *
+	 * @since 6.6
+	 */
+	public static final String CONFIG_KEY_ISLAND = "island";
+
+	/**
+	 * The "pack.usePathWalk" key
+	 *
+	 * @since 6.6
+	 */
+	public static final String CONFIG_KEY_USE_PATH_WALK = "usepathwalk";
+
+	/**
+	 * The "pack.deltaSearchCache" key
+	 *
+	 * @since 6.6
+	 */
+	public static final String CONFIG_KEY_DELTA_SEARCH_CACHE = "deltasearchcache";
+
+	/**
+	 * The "pack.bigFileDeltas" key
+	 *
+	 * @since 6.6
+	 */
+	public static final String CONFIG_KEY_BIG_FILE_DELTAS = "bigfiledeltas";
 }
@@ -13,6 +13,7 @@
 import java.io.IOException;
 
 import org.eclipse.jgit.diff.DiffConfig;
+import org.eclipse.jgit.diff.SimilarityIndexCache;
 import org.eclipse.jgit.errors.IncorrectObjectTypeException;
 import org.eclipse.jgit.errors.MissingObjectException;
 import org.eclipse.jgit.treewalk.TreeWalk;
@@ -62,6 +63,8 @@ public static FollowFilter create(String path, DiffConfig cfg) {
 
 	private RenameCallback renameCallback;
 
+	private SimilarityIndexCache similarityIndexCache;
+
 	FollowFilter(PathFilter path, DiffConfig cfg) {
 		this.path = path;
 		this.cfg = cfg;
@@ -125,4 +128,28 @@ public RenameCallback getRenameCallback() {
 	public void setRenameCallback(RenameCallback callback) {
 		renameCallback = callback;
 	}
+
+	/**
+	 * Get the cache of similarity indexes used while detecting renames.
+	 *
+	 * @return the cache, or <code>null</code> if none
+	 * @since 6.6
+	 */
+	public SimilarityIndexCache getSimilarityIndexCache() {
+		return similarityIndexCache;
+	}
+
+	/**
+	 * Sets the cache of similarity indexes to use while detecting renames.
+	 * <p>
+	 * The cache is shared by the rename detection of every commit walked, so
+	 * blobs seen again further back in history are not hashed twice.
+	 *
+	 * @param cache
+	 *            the cache to use, or <code>null</code> to not cache indexes
+	 * @since 6.6
+	 */
+	public void setSimilarityIndexCache(SimilarityIndexCache cache) {
+		similarityIndexCache = cache;
+	}
 }
@@ -257,6 +257,7 @@ private void updateFollowFilter(ObjectId[] trees, DiffConfig cfg)
 
 		List<DiffEntry> files = DiffEntry.scan(tw);
 		RenameDetector rd = new RenameDetector(tw.getObjectReader(), cfg);
+		rd.setSimilarityIndexCache(oldFilter.getSimilarityIndexCache());
 		rd.addAll(files);
 		files = rd.compute();
 
@@ -270,6 +271,8 @@ private void updateFollowFilter(ObjectId[] trees, DiffConfig cfg)
 					// forward the callback to the new follow filter
 					((FollowFilter) newFilter).setRenameCallback(callback);
 				}
+				((FollowFilter) newFilter).setSimilarityIndexCache(
+						oldFilter.getSimilarityIndexCache());
 				break;
 			}
 		}
@@ -25,14 +25,18 @@
 import static org.eclipse.jgit.lib.ConfigConstants.CONFIG_KEY_DELTA_CACHE_LIMIT;
 import static org.eclipse.jgit.lib.ConfigConstants.CONFIG_KEY_DELTA_CACHE_SIZE;
 import static org.eclipse.jgit.lib.ConfigConstants.CONFIG_KEY_DELTA_COMPRESSION;
+import static org.eclipse.jgit.lib.ConfigConstants.CONFIG_KEY_BIG_FILE_DELTAS;
+import static org.eclipse.jgit.lib.ConfigConstants.CONFIG_KEY_DELTA_SEARCH_CACHE;
 import static org.eclipse.jgit.lib.ConfigConstants.CONFIG_KEY_DEPTH;
 import static org.eclipse.jgit.lib.ConfigConstants.CONFIG_KEY_INDEXVERSION;
+import static org.eclipse.jgit.lib.ConfigConstants.CONFIG_KEY_ISLAND;
 import static org.eclipse.jgit.lib.ConfigConstants.CONFIG_KEY_MIN_SIZE_PREVENT_RACYPACK;
 import static org.eclipse.jgit.lib.ConfigConstants.CONFIG_KEY_REUSE_DELTAS;
 import static org.eclipse.jgit.lib.ConfigConstants.CONFIG_KEY_REUSE_OBJECTS;
 import static org.eclipse.jgit.lib.ConfigConstants.CONFIG_KEY_SEARCH_FOR_REUSE_TIMEOUT;
 import static org.eclipse.jgit.lib.ConfigConstants.CONFIG_KEY_SINGLE_PACK;
 import static org.eclipse.jgit.lib.ConfigConstants.CONFIG_KEY_THREADS;
+import static org.eclipse.jgit.lib.ConfigConstants.CONFIG_KEY_USE_PATH_WALK;
 import static org.eclipse.jgit.lib.ConfigConstants.CONFIG_KEY_WAIT_PREVENT_RACYPACK;
 import static org.eclipse.jgit.lib.ConfigConstants.CONFIG_KEY_WINDOW;
 import static org.eclipse.jgit.lib.ConfigConstants.CONFIG_KEY_WINDOW_MEMORY;
@@ -42,6 +46,7 @@
 import static org.eclipse.jgit.lib.ConfigConstants.CONFIG_KEY_PRUNE_PRESERVED;
 
 import java.time.Duration;
+import java.util.Arrays;
 import java.util.concurrent.Executor;
 import java.util.concurrent.TimeUnit;
 import java.util.zip.Deflater;
@@ -229,6 +234,30 @@ public class PackConfig {
 	 */
 	public static final int DEFAULT_BITMAP_INACTIVE_BRANCH_AGE_IN_DAYS = 90;
 
+	/**
+	 * Default value of the path walk option: {@value}
+	 *
+	 * @see #setPathWalk(boolean)
+	 * @since 6.6
+	 */
+	public static final boolean DEFAULT_PATH_WALK = false;
+
+	/**
+	 * Default value of the delta search cache option: {@value}
+	 *
+	 * @see #setDeltaSearchCache(boolean)
+	 * @since 6.6
+	 */
+	public static final boolean DEFAULT_DELTA_SEARCH_CACHE = false;
+
+	/**
+	 * Default value of the big file deltas option: {@value}
+	 *
+	 * @see #setBigFileDeltas(boolean)
+	 * @since 6.6
+	 */
+	public static final boolean DEFAULT_BIG_FILE_DELTAS = false;
+
 	/**
 	 * Default refs prefixes excluded from the calculation of pack bitmaps.
 	 *
@@ -316,6 +345,14 @@ public class PackConfig {
 
 	private int minBytesForObjSizeIndex = DEFAULT_MIN_BYTES_FOR_OBJ_SIZE_INDEX;
 
+	private String[] deltaIslands = new String[0];
+
+	private boolean pathWalk = DEFAULT_PATH_WALK;
+
+	private boolean deltaSearchCache = DEFAULT_DELTA_SEARCH_CACHE;
+
+	private boolean bigFileDeltas = DEFAULT_BIG_FILE_DELTAS;
+
 	/**
 	 * Create a default configuration.
 	 */
@@ -384,6 +421,10 @@ public PackConfig(PackConfig cfg) {
 		this.singlePack = cfg.singlePack;
 		this.searchForReuseTimeout = cfg.searchForReuseTimeout;
 		this.minBytesForObjSizeIndex = cfg.minBytesForObjSizeIndex;
+		this.deltaIslands = cfg.deltaIslands;
+		this.pathWalk = cfg.pathWalk;
+		this.deltaSearchCache = cfg.deltaSearchCache;
+		this.bigFileDeltas = cfg.bigFileDeltas;
 	}
 
 	/**
@@ -647,6 +688,76 @@ public void setSinglePack(boolean single) {
 		singlePack = single;
 	}
 
+	/**
+	 * Whether objects are grouped by their full path for delta compression.
+	 *
+	 * Default setting: {@value #DEFAULT_PATH_WALK}
+	 *
+	 * @return true if the versions of each path are delta compressed
+	 *         together before all objects are searched by path hash.
+	 * @since 6.6
+	 */
+	public boolean isPathWalk() {
+		return pathWalk;
+	}
+
+	/**
+	 * Set whether objects are grouped by their full path for delta
+	 * compression.
+	 * <p>
+	 * By default objects are sorted by a hash of the last characters of
+	 * their path, so that all files with the same name are searched together
+	 * for deltas, wherever they are. In repositories with many files of the
+	 * same name in different directories, e.g. {@code package.json} or
+	 * {@code BUILD}, the delta window is then filled with unrelated files.
+	 * If enabled, the versions of each full path are first delta compressed
+	 * among themselves. A second search by path hash then only looks for
+	 * bases of the objects not involved in any delta yet, e.g. renamed files.
+	 *
+	 * Default setting: {@value #DEFAULT_PATH_WALK}
+	 *
+	 * @param pathWalk
+	 *            true to delta compress the versions of each path together
+	 *            first.
+	 * @since 6.6
+	 */
+	public void setPathWalk(boolean pathWalk) {
+		this.pathWalk = pathWalk;
+	}
+
+	/**
+	 * Whether garbage collection keeps the results of delta searches.
+	 *
+	 * Default setting: {@value #DEFAULT_DELTA_SEARCH_CACHE}
+	 *
+	 * @return true if the delta bases found are kept for the next garbage
+	 *         collection.
+	 * @since 6.6
+	 */
+	public boolean isDeltaSearchCache() {
+		return deltaSearchCache;
+	}
+
+	/**
+	 * Set whether garbage collection keeps the results of delta searches.
+	 * <p>
+	 * Objects whose stored representation cannot be reused are searched for
+	 * a delta base again on every garbage collection. If enabled, the base
+	 * found for each object, or the fact that none was found, is saved in
+	 * the repository, and the next garbage collection only tries that base
+	 * instead of searching the whole delta window again. New objects are
+	 * searched as usual.
+	 *
+	 * Default setting: {@value #DEFAULT_DELTA_SEARCH_CACHE}
+	 *
+	 * @param deltaSearchCache
+	 *            true to keep the results of delta searches.
+	 * @since 6.6
+	 */
+	public void setDeltaSearchCache(boolean deltaSearchCache) {
+		this.deltaSearchCache = deltaSearchCache;
+	}
+
 	/**
 	 * Get the number of objects to try when looking for a delta base.
 	 *
@@ -683,8 +794,9 @@ public void setDeltaSearchWindowSize(int objectCount) {
 	 * memory used is the lower limit of either this setting, or the sum of
 	 * space used by at most {@link #getDeltaSearchWindowSize()} objects.
 	 *
-	 * This limit is per thread, if 4 threads are used the actual memory limit
-	 * will be 4 times this value.
+	 * This limit is shared by all threads searching in parallel. A thread may
+	 * still load the object it is compressing and its base when the other
+	 * threads hold the rest of the memory.
 	 *
 	 * @return the memory limit.
 	 */
@@ -794,6 +906,47 @@ public void setBigFileThreshold(int bigFileThreshold) {
 		this.bigFileThreshold = bigFileThreshold;
 	}
 
+	/**
+	 * Whether files bigger than the big file threshold are delta compressed.
+	 *
+	 * Default setting: {@value #DEFAULT_BIG_FILE_DELTAS}
+	 *
+	 * @return true if the versions of a big file are delta compressed against
+	 *         each other.
+	 * @since 6.6
+	 */
+	public boolean isBigFileDeltas() {
+		return bigFileDeltas;
+	}
+
+	/**
+	 * Set whether files bigger than the big file threshold are delta
+	 * compressed.
+	 * <p>
+	 * If enabled, the versions of each path bigger than
+	 * {@link #getBigFileThreshold()} are delta compressed against the biggest
+	 * version of the path. The delta is encoded while streaming both
+	 * versions, holding only about {@link #getBigFileThreshold()} bytes in
+	 * memory at once, so it only finds the regions which moved by less than
+	 * a quarter of that distance between both versions.
+	 * <p>
+	 * Readers do not stream such deltas: JGit rebuilds an object stored as a
+	 * delta entirely in the heap, next to its base, even above the stream
+	 * file threshold ({@code core.streamFileThreshold}) under which whole
+	 * objects are streamed. Reading a big file delta compressed this way
+	 * needs about twice its size in memory, so only enable this where the
+	 * readers of the pack can afford it.
+	 *
+	 * Default setting: {@value #DEFAULT_BIG_FILE_DELTAS}
+	 *
+	 * @param bigFileDeltas
+	 *            true to delta compress big files.
+	 * @since 6.6
+	 */
+	public void setBigFileDeltas(boolean bigFileDeltas) {
+		this.bigFileDeltas = bigFileDeltas;
+	}
+
 	/**
 	 * Get whether we wait before opening a newly written pack to prevent its
 	 * lastModified timestamp could be racy
@@ -905,7 +1058,8 @@ public int getThreads() {
 	 *
 	 * During delta compression, if there are enough objects to be considered
 	 * the writer will start up concurrent threads and allow them to compress
-	 * different sections of the repository concurrently.
+	 * different sections of the repository concurrently. The bitmaps of
+	 * commits which do not depend on each other are built by as many threads.
 	 *
 	 * An application thread pool can be set by {@link #setExecutor(Executor)}.
 	 * If not set a temporary pool will be created by the writer, and torn down
@@ -934,9 +1088,12 @@ public Executor getExecutor() {
 	 * Set the executor to use when using threads.
 	 *
 	 * During delta compression if the executor is non-null jobs will be queued
-	 * up on it to perform delta compression in parallel. Aside from setting the
-	 * executor, the caller must set {@link #setThreads(int)} to enable threaded
-	 * delta search.
+	 * up on it to perform delta compression in parallel. On a
+	 * {@link java.util.concurrent.ForkJoinPool} idle threads steal the tasks
+	 * of busy ones; on other executors {@link #getThreads()} jobs each search
+	 * the next task not started yet. Bitmaps are built on it as well. Aside
+	 * from setting the executor, the caller must set {@link #setThreads(int)}
+	 * to enable threaded delta search and bitmap building.
 	 *
 	 * @param executor
 	 *            executor to use for threads. Set to null to create a temporary
@@ -1243,6 +1400,43 @@ public boolean isWriteObjSizeIndex() {
 		return this.minBytesForObjSizeIndex >= 0;
 	}
 
+	/**
+	 * Get the regular expressions defining delta islands.
+	 *
+	 * Default setting: no delta islands
+	 *
+	 * @return the regular expressions matching the names of refs which form
+	 *         delta islands.
+	 * @since 6.6
+	 */
+	public String[] getDeltaIslands() {
+		return deltaIslands;
+	}
+
+	/**
+	 * Set the regular expressions defining delta islands.
+	 * <p>
+	 * Refs whose names match one of the regular expressions are grouped into
+	 * islands. The name of the island of a ref is the concatenation of the
+	 * groups captured by the last matching expression, separated by
+	 * {@code -}, so expressions without groups put all their refs into the
+	 * same island. When garbage collection packs objects, an object is only
+	 * stored as a delta against a base which is reachable from every island
+	 * the object is reachable from. Packs shared by several repositories,
+	 * e.g. the forks of a project, then only contain deltas which can be
+	 * reused when serving any of them.
+	 *
+	 * Default setting: no delta islands
+	 *
+	 * @param regexes
+	 *            the regular expressions matching the names of refs which
+	 *            form delta islands.
+	 * @since 6.6
+	 */
+	public void setDeltaIslands(String[] regexes) {
+		deltaIslands = regexes;
+	}
+
 	/**
 	 * Update properties by setting fields from the configuration.
 	 *
@@ -1328,6 +1522,17 @@ public void fromConfig(Config rc) {
 				CONFIG_KEY_PRESERVE_OLD_PACKS, DEFAULT_PRESERVE_OLD_PACKS));
 		setPrunePreserved(rc.getBoolean(CONFIG_PACK_SECTION,
 				CONFIG_KEY_PRUNE_PRESERVED, DEFAULT_PRUNE_PRESERVED));
+		setPathWalk(rc.getBoolean(CONFIG_PACK_SECTION,
+				CONFIG_KEY_USE_PATH_WALK, isPathWalk()));
+		setDeltaSearchCache(rc.getBoolean(CONFIG_PACK_SECTION,
+				CONFIG_KEY_DELTA_SEARCH_CACHE, isDeltaSearchCache()));
+		setBigFileDeltas(rc.getBoolean(CONFIG_PACK_SECTION,
+				CONFIG_KEY_BIG_FILE_DELTAS, isBigFileDeltas()));
+		String[] islands = rc.getStringList(CONFIG_PACK_SECTION, null,
+				CONFIG_KEY_ISLAND);
+		if (islands.length > 0) {
+			setDeltaIslands(islands);
+		}
 	}
 
 	/** {@inheritDoc} */
@@ -1365,6 +1570,11 @@ public String toString() {
 		b.append(", singlePack=").append(getSinglePack()); //$NON-NLS-1$
 		b.append(", minBytesForObjSizeIndex=") //$NON-NLS-1$
 				.append(getMinBytesForObjSizeIndex());
+		b.append(", pathWalk=").append(isPathWalk()); //$NON-NLS-1$
+		b.append(", deltaSearchCache=").append(isDeltaSearchCache()); //$NON-NLS-1$
+		b.append(", bigFileDeltas=").append(isBigFileDeltas()); //$NON-NLS-1$
+		b.append(", deltaIslands=") //$NON-NLS-1$
+				.append(Arrays.toString(getDeltaIslands()));
 		return b.toString();
 	}
 }
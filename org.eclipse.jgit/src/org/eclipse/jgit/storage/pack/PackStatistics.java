@@ -270,9 +270,40 @@ public static class Accumulator {
 		/** Time in ms spent compressing the pack. */
 		public long timeCompressing;
 
+		/**
+		 * Time in ms each thread spent searching for deltas, if the search
+		 * was run in parallel.
+		 *
+		 * @since 6.6
+		 */
+		public long[] timeCompressingPerThread = {};
+
 		/** Time in ms spent writing the pack. */
 		public long timeWriting;
 
+		/**
+		 * Time in ms spent writing the index and object size index of the
+		 * pack, included in {@link #timeWriting}.
+		 *
+		 * @since 6.6
+		 */
+		public long timeWritingIndex;
+
+		/**
+		 * Time in ms spent selecting commits and building their bitmaps.
+		 *
+		 * @since 6.6
+		 */
+		public long timeBuildingBitmaps;
+
+		/**
+		 * Time in ms spent writing the bitmap index, included in
+		 * {@link #timeWriting}.
+		 *
+		 * @since 6.6
+		 */
+		public long timeWritingBitmapIndex;
+
 		/** Time in ms spent checking reachability.
 		 *
 		 * @since 5.10
@@ -616,6 +647,40 @@ public long getTimeCompressing() {
 		return statistics.timeCompressing;
 	}
 
+	/**
+	 * Get time in milliseconds each thread spent searching for deltas.
+	 *
+	 * @return time in milliseconds each thread of a parallel delta search
+	 *         spent searching; empty if the search was not run in parallel.
+	 * @since 6.6
+	 */
+	public long[] getTimeCompressingPerThread() {
+		return statistics.timeCompressingPerThread.clone();
+	}
+
+	/**
+	 * Get the share of the time spent on delta compression each thread was
+	 * searching for deltas.
+	 * <p>
+	 * Threads which are idle while others are still searching lower their
+	 * utilization.
+	 *
+	 * @return for each thread of a parallel delta search, the time it spent
+	 *         searching divided by {@link #getTimeCompressing()}; empty if
+	 *         the search was not run in parallel.
+	 * @since 6.6
+	 */
+	public double[] getDeltaSearchThreadUtilization() {
+		long[] busy = statistics.timeCompressingPerThread;
+		double[] utilization = new double[busy.length];
+		long total = statistics.timeCompressing;
+		for (int i = 0; i < busy.length; i++) {
+			utilization[i] = total > 0 ? Math.min(1.0, (double) busy[i] / total)
+					: 0;
+		}
+		return utilization;
+	}
+
 	/**
 	 * Get time in milliseconds spent writing the pack output, from start of
 	 * header until end of trailer.
@@ -628,6 +693,42 @@ public long getTimeWriting() {
 		return statistics.timeWriting;
 	}
 
+	/**
+	 * Get time in milliseconds spent writing the index and object size index
+	 * of the pack.
+	 *
+	 * @return time in milliseconds spent writing the index files of the pack.
+	 *         This time is part of {@link #getTimeWriting()}.
+	 * @since 6.6
+	 */
+	public long getTimeWritingIndex() {
+		return statistics.timeWritingIndex;
+	}
+
+	/**
+	 * Get time in milliseconds spent selecting commits and building their
+	 * bitmaps.
+	 *
+	 * @return time in milliseconds spent preparing the bitmap index. This is
+	 *         observed wall-clock time; bitmaps of independent commits may
+	 *         have been built by several threads.
+	 * @since 6.6
+	 */
+	public long getTimeBuildingBitmaps() {
+		return statistics.timeBuildingBitmaps;
+	}
+
+	/**
+	 * Get time in milliseconds spent writing the bitmap index.
+	 *
+	 * @return time in milliseconds spent writing the bitmap index. This time
+	 *         is part of {@link #getTimeWriting()}.
+	 * @since 6.6
+	 */
+	public long getTimeWritingBitmapIndex() {
+		return statistics.timeWritingBitmapIndex;
+	}
+
 	/**
 	 * Get time in milliseconds spent checking if the client has access to the
 	 * commits they are requesting.
@@ -18,12 +18,14 @@
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
 import java.io.OutputStream;
 import java.net.HttpURLConnection;
 import java.net.Proxy;
 import java.net.ProxySelector;
 import java.net.URL;
 import java.net.URLConnection;
+import java.net.URLDecoder;
 import java.security.DigestOutputStream;
 import java.security.GeneralSecurityException;
 import java.security.InvalidKeyException;
@@ -33,6 +35,7 @@
 import java.text.SimpleDateFormat;
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.Date;
@@ -46,6 +49,14 @@
 import java.util.SortedMap;
 import java.util.TimeZone;
 import java.util.TreeMap;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
 import javax.crypto.Mac;
@@ -82,10 +93,41 @@
  * compatible with <a href="http://jets3t.s3.amazonaws.com/index.html">jets3t</a>,
  * a popular Java based Amazon S3 client library. Enabling encryption can hide
  * sensitive data from the operators of the S3 service.
+ * <p>
+ * Objects larger than the configured part size are uploaded with the S3
+ * multipart upload API, sending several parts concurrently while the caller
+ * is still writing the object.
  */
 public class AmazonS3 {
 	private static final Set<String> SIGNED_HEADERS;
 
+	/** Query parameters which are part of the resource signed by V2. */
+	private static final Set<String> SUB_RESOURCES = Set.of("partNumber", //$NON-NLS-1$
+			"uploadId", "uploads"); //$NON-NLS-1$ //$NON-NLS-2$
+
+	/** Smallest part size accepted by S3 for all but the last part. */
+	private static final int MIN_PART_SIZE = 5 << 20;
+
+	/** Largest number of parts of one multipart upload. */
+	private static final int MAX_PARTS = 10000;
+
+	private static final ExecutorService uploads = Executors
+			.newCachedThreadPool(new ThreadFactory() {
+				private final ThreadFactory baseFactory = Executors
+						.defaultThreadFactory();
+
+				private final AtomicInteger threadNumber = new AtomicInteger(0);
+
+				@Override
+				public Thread newThread(Runnable runnable) {
+					Thread thread = baseFactory.newThread(runnable);
+					thread.setName("JGit-AmazonS3-Upload-" //$NON-NLS-1$
+							+ threadNumber.getAndIncrement());
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+
 	private static final String AWS_API_V2 = "2"; //$NON-NLS-1$
 
 	private static final String AWS_API_V4 = "4"; //$NON-NLS-1$
@@ -174,6 +216,15 @@ private static MessageDigest newMD5() {
 	/** S3 Region. */
 	private final String region;
 
+	/** Whether the bucket is addressed in the path instead of the host. */
+	private final boolean pathStyle;
+
+	/** Size of the parts of multipart uploads; 0 if disabled. */
+	private final int partSize;
+
+	/** Number of parts of one object uploaded concurrently. */
+	private final int uploadThreads;
+
 	/** Property names used in amazon connection configuration file. */
 	interface Keys {
 		String AWS_API_SIGNATURE_VERSION = "aws.api.signature.version"; //$NON-NLS-1$
@@ -187,6 +238,9 @@ interface Keys {
 		String REGION = "region"; //$NON-NLS-1$
 		String HTTP_RETRY = "httpclient.retry-max"; //$NON-NLS-1$
 		String TMP_DIR = "tmpdir"; //$NON-NLS-1$
+		String PATH_STYLE = "s3service.disable-dns-buckets"; //$NON-NLS-1$
+		String PART_SIZE = "upload.part-size"; //$NON-NLS-1$
+		String UPLOAD_THREADS = "upload.threads"; //$NON-NLS-1$
 	}
 
 	/**
@@ -218,6 +272,18 @@ interface Keys {
 	 * # AWS S3 Region (required if aws.api.signature.version = 4)
 	 * region: us-west-2
 	 *
+	 * # Address buckets as http://domain/bucket/ instead of
+	 * # http://bucket.domain/, e.g. for local S3 compatible servers.
+	 * s3service.disable-dns-buckets: false
+	 *
+	 * # Size in bytes of the parts of multipart uploads (at least 5 MiB).
+	 * # Larger objects are uploaded in parts. Defaults to 16 MiB; 0 disables
+	 * # multipart uploads, spooling large objects to tmpdir instead.
+	 * upload.part-size: 16777216
+	 *
+	 * # Number of parts of an object uploaded concurrently.
+	 * upload.threads: 4
+	 *
 	 * # Number of times to retry after internal error from S3.
 	 * httpclient.retry-max: 3
 	 *
@@ -283,6 +349,14 @@ else if (StringUtils.equalsIgnoreCase("PUBLIC_READ", pacl)) //$NON-NLS-1$
 
 		String tmp = props.getProperty(Keys.TMP_DIR);
 		tmpDir = tmp != null && tmp.length() > 0 ? new File(tmp) : null;
+
+		pathStyle = Boolean
+				.parseBoolean(props.getProperty(Keys.PATH_STYLE, "false")); //$NON-NLS-1$
+		int ps = Integer
+				.parseInt(props.getProperty(Keys.PART_SIZE, "16777216")); //$NON-NLS-1$
+		partSize = ps > 0 ? Math.max(MIN_PART_SIZE, ps) : 0;
+		uploadThreads = Math.max(1, Integer
+				.parseInt(props.getProperty(Keys.UPLOAD_THREADS, "4"))); //$NON-NLS-1$
 	}
 
 	/**
@@ -460,17 +534,22 @@ public void put(String bucket, String key, byte[] data)
 	/**
 	 * Atomically create or replace a single large object.
 	 * <p>
-	 * Initially the returned output stream buffers data into memory, but if the
-	 * total number of written bytes starts to exceed an internal limit the data
-	 * is spooled to a temporary file on the local drive.
+	 * The returned output stream buffers data into memory. Content up to the
+	 * configured part size is sent with a single request when
+	 * <code>close()</code> gets called at the end of output. Larger content is
+	 * sent with a multipart upload: each part is uploaded as soon as it has
+	 * been written, with up to the configured number of parts in flight, and
+	 * the object is created once <code>close()</code> has uploaded the last
+	 * part. If any part fails the upload is aborted and the object is not
+	 * created or replaced.
 	 * <p>
-	 * Network transmission is attempted only when <code>close()</code> gets
-	 * called at the end of output. Closing the returned stream can therefore
-	 * take significant time, especially if the written content is very large.
+	 * If multipart uploads are disabled, content exceeding an internal limit
+	 * is spooled to a temporary file on the local drive, and all of it is
+	 * sent when <code>close()</code> gets called.
 	 * <p>
 	 * End-to-end data integrity is assured by internally computing the MD5
-	 * checksum of the supplied data and transmitting the checksum along with
-	 * the data itself.
+	 * checksum of the supplied data (or of each part) and transmitting the
+	 * checksum along with the data itself.
 	 *
 	 * @param bucket
 	 *            name of the bucket storing the object.
@@ -488,6 +567,10 @@ public void put(String bucket, String key, byte[] data)
 	public OutputStream beginPut(final String bucket, final String key,
 			final ProgressMonitor monitor, final String monitorTask)
 			throws IOException {
+		if (partSize > 0) {
+			return encryption.encrypt(new MultipartOutputStream(bucket, key,
+					monitor, monitorTask));
+		}
 		final MessageDigest md5 = newMD5();
 		final TemporaryBuffer buffer = new TemporaryBuffer.LocalFile(tmpDir) {
 			@Override
@@ -544,6 +627,141 @@ void putImpl(final String bucket, final String key,
 		throw maxAttempts(JGitText.get().s3ActionWriting, key);
 	}
 
+	private String initiateUpload(String bucket, String key)
+			throws IOException {
+		final Map<String, String> args = Collections.singletonMap("uploads", //$NON-NLS-1$
+				""); //$NON-NLS-1$
+		for (int curAttempt = 0; curAttempt < maxAttempts; curAttempt++) {
+			final HttpURLConnection c = open("POST", bucket, key, args); //$NON-NLS-1$
+			c.setRequestProperty("Content-Type", "application/octet-stream"); //$NON-NLS-1$ //$NON-NLS-2$
+			c.setRequestProperty(X_AMZ_ACL, acl);
+			encryption.request(c, X_AMZ_META);
+			authorize(c, args, 0, null);
+			c.setDoOutput(true);
+			c.setFixedLengthStreamingMode(0);
+			c.getOutputStream().close();
+
+			switch (HttpSupport.response(c)) {
+			case HttpURLConnection.HTTP_OK:
+				final String uploadId = new ResultParser("UploadId") //$NON-NLS-1$
+						.parse(key, c);
+				if (uploadId == null || uploadId.isEmpty()) {
+					throw error(JGitText.get().s3ActionWriting, key, c);
+				}
+				return uploadId;
+			case HttpURLConnection.HTTP_INTERNAL_ERROR:
+				continue;
+			default:
+				throw error(JGitText.get().s3ActionWriting, key, c);
+			}
+		}
+		throw maxAttempts(JGitText.get().s3ActionWriting, key);
+	}
+
+	private String uploadPart(String bucket, String key, String uploadId,
+			int partNumber, byte[] data, int len) throws IOException {
+		final Map<String, String> args = new TreeMap<>();
+		args.put("partNumber", String.valueOf(partNumber)); //$NON-NLS-1$
+		args.put("uploadId", uploadId); //$NON-NLS-1$
+
+		final MessageDigest md5 = newMD5();
+		md5.update(data, 0, len);
+		final String md5str = Base64.encodeBytes(md5.digest());
+		final String bodyHash = awsApiSignatureVersion.equals(AWS_API_V4)
+				? AwsRequestSignerV4.calculateBodyHash(data, 0, len)
+				: null;
+		for (int curAttempt = 0; curAttempt < maxAttempts; curAttempt++) {
+			final HttpURLConnection c = open("PUT", bucket, key, args); //$NON-NLS-1$
+			c.setFixedLengthStreamingMode(len);
+			c.setRequestProperty("Content-MD5", md5str); //$NON-NLS-1$
+			authorize(c, args, len, bodyHash);
+			c.setDoOutput(true);
+			try (OutputStream os = c.getOutputStream()) {
+				os.write(data, 0, len);
+			}
+
+			switch (HttpSupport.response(c)) {
+			case HttpURLConnection.HTTP_OK:
+				final String etag = c.getHeaderField("ETag"); //$NON-NLS-1$
+				if (etag == null) {
+					throw error(JGitText.get().s3ActionWriting, key, c);
+				}
+				return etag;
+			case HttpURLConnection.HTTP_INTERNAL_ERROR:
+				continue;
+			default:
+				throw error(JGitText.get().s3ActionWriting, key, c);
+			}
+		}
+		throw maxAttempts(JGitText.get().s3ActionWriting, key);
+	}
+
+	private void completeUpload(String bucket, String key, String uploadId,
+			List<String> etags) throws IOException {
+		final Map<String, String> args = Collections.singletonMap("uploadId", //$NON-NLS-1$
+				uploadId);
+		final StringBuilder xml = new StringBuilder();
+		xml.append("<CompleteMultipartUpload>"); //$NON-NLS-1$
+		for (int i = 0; i < etags.size(); i++) {
+			xml.append("<Part><PartNumber>"); //$NON-NLS-1$
+			xml.append(i + 1);
+			xml.append("</PartNumber><ETag>"); //$NON-NLS-1$
+			xml.append(etags.get(i).replace("&", "&amp;") //$NON-NLS-1$ //$NON-NLS-2$
+					.replace("\"", "&quot;")); //$NON-NLS-1$ //$NON-NLS-2$
+			xml.append("</ETag></Part>"); //$NON-NLS-1$
+		}
+		xml.append("</CompleteMultipartUpload>"); //$NON-NLS-1$
+		final byte[] body = xml.toString().getBytes(UTF_8);
+		final String bodyHash = awsApiSignatureVersion.equals(AWS_API_V4)
+				? AwsRequestSignerV4.calculateBodyHash(body)
+				: null;
+
+		for (int curAttempt = 0; curAttempt < maxAttempts; curAttempt++) {
+			final HttpURLConnection c = open("POST", bucket, key, args); //$NON-NLS-1$
+			c.setRequestProperty("Content-Type", "application/xml"); //$NON-NLS-1$ //$NON-NLS-2$
+			authorize(c, args, body.length, bodyHash);
+			c.setDoOutput(true);
+			c.setFixedLengthStreamingMode(body.length);
+			try (OutputStream os = c.getOutputStream()) {
+				os.write(body);
+			}
+
+			switch (HttpSupport.response(c)) {
+			case HttpURLConnection.HTTP_OK:
+				// S3 may report a failure after it started sending 200 OK.
+				final String code = new ResultParser("Code").parse(key, c); //$NON-NLS-1$
+				if (code == null) {
+					return;
+				}
+				if ("InternalError".equals(code)) { //$NON-NLS-1$
+					continue;
+				}
+				throw new IOException(MessageFormat.format(
+						JGitText.get().amazonS3ActionFailed,
+						JGitText.get().s3ActionWriting, key,
+						Integer.valueOf(HttpURLConnection.HTTP_OK), code));
+			case HttpURLConnection.HTTP_INTERNAL_ERROR:
+				continue;
+			default:
+				throw error(JGitText.get().s3ActionWriting, key, c);
+			}
+		}
+		throw maxAttempts(JGitText.get().s3ActionWriting, key);
+	}
+
+	private void abortUpload(String bucket, String key, String uploadId) {
+		final Map<String, String> args = Collections.singletonMap("uploadId", //$NON-NLS-1$
+				uploadId);
+		try {
+			final HttpURLConnection c = open("DELETE", bucket, key, args); //$NON-NLS-1$
+			authorize(c, args, 0, null);
+			HttpSupport.response(c);
+		} catch (IOException e) {
+			// Ignore, the upload failed already. Parts of abandoned uploads
+			// are removed by the bucket's lifecycle rules, if any.
+		}
+	}
+
 	IOException error(final String action, final String key,
 			final HttpURLConnection c) throws IOException {
 		final IOException err = new IOException(MessageFormat.format(
@@ -591,9 +809,15 @@ HttpURLConnection open(final String method, final String bucket,
 			throws IOException {
 		final StringBuilder urlstr = new StringBuilder();
 		urlstr.append("http://"); //$NON-NLS-1$
-		urlstr.append(bucket);
-		urlstr.append('.');
-		urlstr.append(domain);
+		if (pathStyle) {
+			urlstr.append(domain);
+			urlstr.append('/');
+			urlstr.append(bucket);
+		} else {
+			urlstr.append(bucket);
+			urlstr.append('.');
+			urlstr.append(domain);
+		}
 		urlstr.append('/');
 		if (key.length() > 0) {
 			if (awsApiSignatureVersion.equals(AWS_API_V2)) {
@@ -668,10 +892,13 @@ void authorizeV2(HttpURLConnection c) throws IOException {
 			s.append('\n');
 		}
 
-		final String host = c.getURL().getHost();
-		s.append('/');
-		s.append(host.substring(0, host.length() - domain.length() - 1));
+		if (!pathStyle) {
+			final String host = c.getURL().getHost();
+			s.append('/');
+			s.append(host.substring(0, host.length() - domain.length() - 1));
+		}
 		s.append(c.getURL().getPath());
+		appendSubResources(s, c.getURL().getQuery());
 
 		final String sec;
 		try {
@@ -686,6 +913,31 @@ void authorizeV2(HttpURLConnection c) throws IOException {
 		c.setRequestProperty("Authorization", "AWS " + publicKey + ":" + sec); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
 	}
 
+	private static void appendSubResources(StringBuilder s, String query) {
+		if (query == null) {
+			return;
+		}
+		final SortedMap<String, String> sub = new TreeMap<>();
+		for (String p : query.split("&")) { //$NON-NLS-1$
+			final int eq = p.indexOf('=');
+			final String name = eq < 0 ? p : p.substring(0, eq);
+			if (SUB_RESOURCES.contains(name)) {
+				sub.put(name, eq < 0 ? "" //$NON-NLS-1$
+						: URLDecoder.decode(p.substring(eq + 1), UTF_8));
+			}
+		}
+		char sep = '?';
+		for (Map.Entry<String, String> e : sub.entrySet()) {
+			s.append(sep);
+			s.append(e.getKey());
+			if (!e.getValue().isEmpty()) {
+				s.append('=');
+				s.append(e.getValue());
+			}
+			sep = '&';
+		}
+	}
+
 	static Properties properties(File authFile)
 			throws FileNotFoundException, IOException {
 		final Properties p = new Properties();
@@ -695,6 +947,271 @@ static Properties properties(File authFile)
 		return p;
 	}
 
+	/**
+	 * Output stream of {@link AmazonS3#beginPut}, buffering content in memory
+	 * and uploading it in parts once it exceeds the part size.
+	 * <p>
+	 * The buffer starts small and grows up to the part size, as most objects,
+	 * such as loose objects and pack indexes, are far smaller than a part.
+	 */
+	private final class MultipartOutputStream extends OutputStream {
+		/** Initial size of the buffer of the first part. */
+		private static final int INITIAL_BUFFER_SIZE = 8192;
+
+		private final String bucket;
+
+		private final String key;
+
+		private final ProgressMonitor monitor;
+
+		private final String monitorTask;
+
+		/** Limits parts being uploaded, and thus the memory held. */
+		private final Semaphore slots = new Semaphore(uploadThreads);
+
+		private final List<Future<String>> parts = new ArrayList<>();
+
+		private final List<Integer> partLengths = new ArrayList<>();
+
+		private byte[] buf = new byte[Math.min(INITIAL_BUFFER_SIZE, partSize)];
+
+		private int cnt;
+
+		private String uploadId;
+
+		private int reported;
+
+		private boolean closed;
+
+		private boolean aborted;
+
+		MultipartOutputStream(String bucket, String key,
+				ProgressMonitor monitor, String monitorTask) {
+			this.bucket = bucket;
+			this.key = key;
+			this.monitor = monitor != null ? monitor
+					: NullProgressMonitor.INSTANCE;
+			this.monitorTask = monitorTask != null ? monitorTask
+					: MessageFormat.format(
+							JGitText.get().progressMonUploading, key);
+		}
+
+		@Override
+		public void write(int b) throws IOException {
+			write(new byte[] { (byte) b }, 0, 1);
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			while (len > 0) {
+				if (cnt == buf.length) {
+					if (buf.length < partSize) {
+						buf = Arrays.copyOf(buf,
+								(int) Math.min(2L * buf.length, partSize));
+					} else {
+						// Only upload full parts once more content follows,
+						// the last part is sent by close().
+						uploadBuffer();
+					}
+				}
+				final int n = Math.min(len, buf.length - cnt);
+				System.arraycopy(b, off, buf, cnt, n);
+				cnt += n;
+				off += n;
+				len -= n;
+			}
+		}
+
+		private void uploadBuffer() throws IOException {
+			try {
+				if (uploadId == null) {
+					uploadId = initiateUpload(bucket, key);
+					monitor.beginTask(monitorTask, ProgressMonitor.UNKNOWN);
+				}
+				if (parts.size() == MAX_PARTS) {
+					throw new IOException(MessageFormat.format(
+							JGitText.get().amazonS3TooManyParts, key,
+							Integer.valueOf(MAX_PARTS),
+							Integer.valueOf(partSize)));
+				}
+				try {
+					slots.acquire();
+				} catch (InterruptedException e) {
+					throw new InterruptedIOException();
+				}
+				final byte[] data = buf;
+				final int len = cnt;
+				final int partNumber = parts.size() + 1;
+				try {
+					parts.add(uploads.submit(() -> {
+						try {
+							return uploadPart(bucket, key, uploadId,
+									partNumber, data, len);
+						} finally {
+							slots.release();
+						}
+					}));
+				} catch (RuntimeException e) {
+					slots.release();
+					throw e;
+				}
+				partLengths.add(Integer.valueOf(len));
+				buf = new byte[partSize];
+				cnt = 0;
+				reportFinishedParts();
+			} catch (IOException | RuntimeException e) {
+				abort();
+				throw e;
+			}
+		}
+
+		/**
+		 * Update the progress monitor for parts uploaded since the last call,
+		 * and fail early if a part could not be uploaded.
+		 */
+		private void reportFinishedParts() throws IOException {
+			while (reported < parts.size() && parts.get(reported).isDone()) {
+				await(parts.get(reported));
+				monitor.update(partLengths.get(reported).intValue() / 1024);
+				reported++;
+			}
+		}
+
+		@Override
+		public void close() throws IOException {
+			if (closed) {
+				return;
+			}
+			closed = true;
+			if (uploadId == null) {
+				final MessageDigest md5 = newMD5();
+				md5.update(buf, 0, cnt);
+				final TemporaryBuffer.Heap content = new TemporaryBuffer.Heap(
+						cnt);
+				content.write(buf, 0, cnt);
+				content.close();
+				buf = null;
+				putImpl(bucket, key, md5.digest(), content, monitor,
+						monitorTask);
+				return;
+			}
+
+			try {
+				uploadBuffer();
+				final List<String> etags = new ArrayList<>(parts.size());
+				for (int i = 0; i < parts.size(); i++) {
+					etags.add(await(parts.get(i)));
+					if (i >= reported) {
+						monitor.update(partLengths.get(i).intValue() / 1024);
+						reported++;
+					}
+				}
+				completeUpload(bucket, key, uploadId, etags);
+			} catch (IOException | RuntimeException e) {
+				abort();
+				throw e;
+			} finally {
+				buf = null;
+				monitor.endTask();
+			}
+		}
+
+		private void abort() {
+			closed = true;
+			if (aborted) {
+				return;
+			}
+			aborted = true;
+			for (Future<String> f : parts) {
+				f.cancel(true);
+			}
+			if (uploadId != null) {
+				abortUpload(bucket, key, uploadId);
+			}
+		}
+
+		private String await(Future<String> part) throws IOException {
+			try {
+				return part.get();
+			} catch (InterruptedException e) {
+				throw new InterruptedIOException();
+			} catch (ExecutionException e) {
+				final Throwable cause = e.getCause();
+				if (cause instanceof IOException) {
+					throw (IOException) cause;
+				}
+				throw new IOException(cause.getMessage(), cause);
+			} catch (CancellationException e) {
+				throw new InterruptedIOException();
+			}
+		}
+	}
+
+	/**
+	 * Parser extracting the text of one element of an XML response.
+	 */
+	private static final class ResultParser extends DefaultHandler {
+		private final String element;
+
+		private StringBuilder data;
+
+		private String result;
+
+		ResultParser(String element) {
+			this.element = element;
+		}
+
+		String parse(String key, HttpURLConnection c) throws IOException {
+			final XMLReader xr;
+			try {
+				xr = SAXParserFactory.newInstance().newSAXParser()
+						.getXMLReader();
+			} catch (SAXException | ParserConfigurationException e) {
+				throw new IOException(JGitText.get().noXMLParserAvailable, e);
+			}
+			xr.setContentHandler(this);
+			try (InputStream in = c.getInputStream()) {
+				xr.parse(new InputSource(in));
+			} catch (SAXException parsingError) {
+				throw new IOException(MessageFormat.format(
+						JGitText.get().amazonS3ActionFailed,
+						JGitText.get().s3ActionWriting, key,
+						Integer.valueOf(HttpSupport.response(c)),
+						c.getResponseMessage()), parsingError);
+			}
+			return result;
+		}
+
+		@Override
+		public void startElement(String uri, String name, String qName,
+				Attributes attributes) throws SAXException {
+			if (isElement(name, qName) && result == null) {
+				data = new StringBuilder();
+			}
+		}
+
+		private boolean isElement(String name, String qName) {
+			// Without namespace processing only the qualified name is set.
+			return element.equals(name.isEmpty() ? qName : name);
+		}
+
+		@Override
+		public void characters(char[] ch, int s, int n) throws SAXException {
+			if (data != null) {
+				data.append(ch, s, n);
+			}
+		}
+
+		@Override
+		public void endElement(String uri, String name, String qName)
+				throws SAXException {
+			if (data != null && isElement(name, qName)) {
+				result = data.toString();
+				data = null;
+			}
+		}
+	}
+
 	/**
 	 * KeyInfo enables sorting of keys by lastModified time
 	 */
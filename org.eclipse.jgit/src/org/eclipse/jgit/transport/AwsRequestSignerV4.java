@@ -97,6 +97,21 @@ public static void sign(HttpURLConnection httpURLConnection,
 			Map<String, String> queryParameters, long contentLength,
 			String bodyHash, String serviceName, String regionName,
 			String awsAccessKey, char[] awsSecretKey) {
+		sign(httpURLConnection, queryParameters, contentLength, bodyHash,
+				serviceName, regionName, awsAccessKey, awsSecretKey,
+				Instant.now());
+	}
+
+	/**
+	 * Sign the provided request as if sent at the given time.
+	 *
+	 * @see #sign(HttpURLConnection, Map, long, String, String, String,
+	 *      String, char[])
+	 */
+	static void sign(HttpURLConnection httpURLConnection,
+			Map<String, String> queryParameters, long contentLength,
+			String bodyHash, String serviceName, String regionName,
+			String awsAccessKey, char[] awsSecretKey, Instant time) {
 		// get request headers
 		Map<String, String> headers = new HashMap<>();
 		httpURLConnection.getRequestProperties()
@@ -113,7 +128,7 @@ public static void sign(HttpURLConnection httpURLConnection,
 		headers.put("x-amz-content-sha256", bodyHash); //$NON-NLS-1$
 
 		// add the 'x-amz-date' header
-		OffsetDateTime now = Instant.now().atOffset(ZoneOffset.UTC);
+		OffsetDateTime now = time.atOffset(ZoneOffset.UTC);
 		String amzDate = now.format(AMZ_DATE_FORMAT);
 		headers.put("x-amz-date", amzDate); //$NON-NLS-1$
 
@@ -185,6 +200,32 @@ public static String calculateBodyHash(final byte[] data) {
 				: Hex.toHexString(hash(data));
 	}
 
+	/**
+	 * Calculates the hex-encoded SHA-256 hash of a range of a byte array.
+	 *
+	 * @param data
+	 *            Byte array holding the content to hash
+	 * @param off
+	 *            Offset of the content in the array
+	 * @param len
+	 *            Length of the content
+	 *
+	 * @return Hex-encoded SHA-256 hash of the content.
+	 */
+	static String calculateBodyHash(byte[] data, int off, int len) {
+		if (len < 1) {
+			return EMPTY_BODY_SHA256;
+		}
+		try {
+			MessageDigest md = MessageDigest.getInstance("SHA-256"); //$NON-NLS-1$
+			md.update(data, off, len);
+			return Hex.toHexString(md.digest());
+		} catch (Exception e) {
+			throw new RuntimeException(
+					JGitText.get().couldNotHashByteArrayWithSha256, e);
+		}
+	}
+
 	/**
 	 * Construct a string listing all request headers in sorted case-insensitive
 	 * order, separated by a ';'.
@@ -13,6 +13,7 @@
 
 package org.eclipse.jgit.transport;
 
+import static org.eclipse.jgit.transport.GitProtocolConstants.COMMAND_BUNDLE_URI;
 import static org.eclipse.jgit.transport.GitProtocolConstants.COMMAND_LS_REFS;
 import static org.eclipse.jgit.transport.GitProtocolConstants.OPTION_AGENT;
 import static org.eclipse.jgit.transport.GitProtocolConstants.REF_ATTR_PEELED;
@@ -24,7 +25,10 @@
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.net.URI;
+import java.net.URISyntaxException;
 import java.text.MessageFormat;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
@@ -32,6 +36,7 @@
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
@@ -345,6 +350,93 @@ private void lsRefsImpl(Collection<RefSpec> refSpecs,
 		available(avail);
 	}
 
+	/**
+	 * Issue a protocol V2 bundle-uri command and read its response.
+	 *
+	 * @return the advertised bundles, ordered by their creation token
+	 * @throws TransportException
+	 *             if the command could not be run or its output not be read
+	 */
+	protected List<BundleUri> bundleUris() throws TransportException {
+		try {
+			return bundleUrisImpl();
+		} catch (TransportException err) {
+			close();
+			throw err;
+		} catch (IOException | RuntimeException err) {
+			close();
+			throw new TransportException(err.getMessage(), err);
+		}
+	}
+
+	@SuppressWarnings("nls")
+	private List<BundleUri> bundleUrisImpl() throws IOException {
+		pckOut.writeString("command=" + COMMAND_BUNDLE_URI);
+		String agent = UserAgent.get();
+		if (agent != null && isCapableOf(OPTION_AGENT)) {
+			pckOut.writeString(OPTION_AGENT + '=' + agent);
+		}
+		pckOut.end();
+		// Lines are "bundle.<id>.<key>=<value>"; only the location and
+		// creation token of each bundle are used.
+		Map<String, String> uris = new LinkedHashMap<>();
+		Map<String, Long> tokens = new HashMap<>();
+		for (;;) {
+			String line = readLine();
+			if (line == null) {
+				break;
+			}
+			int eq = line.indexOf('=');
+			int dot = line.lastIndexOf('.', eq < 0 ? line.length() : eq);
+			if (eq < 0 || !line.regionMatches(true, 0, "bundle.", 0, 7)) {
+				throw new PackProtocolException(uri, MessageFormat
+						.format(JGitText.get().unexpectedPacketLine, line));
+			}
+			if (dot < 7) {
+				continue; // bundle.version, bundle.mode, ...
+			}
+			String id = line.substring(7, dot);
+			String key = StringUtils.toLowerCase(line.substring(dot + 1, eq));
+			String value = line.substring(eq + 1);
+			if (key.equals("uri")) {
+				uris.put(id, resolveBundleUri(value));
+			} else if (key.equals("creationtoken")) {
+				try {
+					tokens.put(id, Long.valueOf(value));
+				} catch (NumberFormatException e) {
+					// Not ordered by a valid token, keep it unordered.
+				}
+			}
+		}
+		List<BundleUri> bundles = new ArrayList<>(uris.size());
+		for (Map.Entry<String, String> e : uris.entrySet()) {
+			Long token = tokens.get(e.getKey());
+			bundles.add(new BundleUri(e.getKey(), e.getValue(),
+					token != null ? token.longValue() : 0));
+		}
+		bundles.sort((a, b) -> Long.compare(a.getCreationToken(),
+				b.getCreationToken()));
+		return bundles;
+	}
+
+	/** Resolve a bundle location relative to an HTTP(S) remote. */
+	@SuppressWarnings("nls")
+	private String resolveBundleUri(String location) {
+		String scheme = uri.getScheme();
+		if (!"http".equals(scheme) && !"https".equals(scheme)) {
+			return location;
+		}
+		String base = uri.toString();
+		if (!base.endsWith("/")) {
+			base += '/';
+		}
+		try {
+			return new URI(base).resolve(location).toString();
+		} catch (URISyntaxException | IllegalArgumentException e) {
+			return location;
+		}
+	}
+
 	private Collection<String> getRefPrefixes(Collection<RefSpec> refSpecs,
 			String... additionalPatterns) {
 		if (refSpecs.isEmpty() && (additionalPatterns == null
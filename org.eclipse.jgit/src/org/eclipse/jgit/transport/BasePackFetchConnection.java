@@ -12,6 +12,7 @@
 
 package org.eclipse.jgit.transport;
 
+import static org.eclipse.jgit.transport.GitProtocolConstants.COMMAND_BUNDLE_URI;
 import static org.eclipse.jgit.transport.GitProtocolConstants.PACKET_DELIM;
 import static org.eclipse.jgit.transport.GitProtocolConstants.PACKET_DEEPEN;
 import static org.eclipse.jgit.transport.GitProtocolConstants.PACKET_DEEPEN_NOT;
@@ -37,6 +38,7 @@
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.function.Supplier;
 
 import org.eclipse.jgit.errors.PackProtocolException;
 import org.eclipse.jgit.errors.RemoteRepositoryException;
@@ -58,7 +60,6 @@
 import org.eclipse.jgit.revwalk.RevSort;
 import org.eclipse.jgit.revwalk.RevWalk;
 import org.eclipse.jgit.revwalk.filter.CommitTimeRevFilter;
-import org.eclipse.jgit.revwalk.filter.RevFilter;
 import org.eclipse.jgit.transport.GitProtocolConstants.MultiAck;
 import org.eclipse.jgit.transport.PacketLineIn.AckNackResult;
 import org.eclipse.jgit.util.StringUtils;
@@ -225,6 +226,9 @@ public abstract class BasePackFetchConnection extends BasePackConnection
 
 	private int maxHaves;
 
+	/** Chooses the haves of the current negotiation. */
+	private FetchNegotiator negotiator;
+
 	private Integer depth;
 
 	private Instant deepenSince;
@@ -292,6 +296,22 @@ public BasePackFetchConnection(PackTransport packTransport) {
 		}
 	}
 
+	/**
+	 * Create the negotiator for a negotiation.
+	 *
+	 * @return the negotiator chosen for the transport, or configured by
+	 *         {@code fetch.negotiationAlgorithm} of the local repository.
+	 */
+	private FetchNegotiator newNegotiator() {
+		Supplier<? extends FetchNegotiator> factory = transport
+				.getFetchNegotiator();
+		if (factory != null) {
+			return factory.get();
+		}
+		return local.getConfig().get(TransferConfig.KEY)
+				.getNegotiationAlgorithm().newNegotiator();
+	}
+
 	static class FetchConfig {
 		final boolean allowOfsDelta;
 
@@ -351,9 +371,20 @@ public Collection<PackLock> getPackLocks() {
 		return Collections.<PackLock> emptyList();
 	}
 
+	/** {@inheritDoc} */
+	@Override
+	public List<BundleUri> getBundleUris() throws TransportException {
+		if (!TransferConfig.ProtocolVersion.V2.equals(getProtocolVersion())
+				|| !isCapableOf(COMMAND_BUNDLE_URI)) {
+			return Collections.emptyList();
+		}
+		return bundleUris();
+	}
+
 	private void clearState() {
 		walk.dispose();
 		reachableCommits = null;
+		negotiator = null;
 		state = null;
 		pckState = null;
 	}
@@ -541,7 +572,7 @@ private boolean sendNextHaveBatch(FetchStateV2 fetchState,
 			throws IOException, CancelledException {
 		long n = 0;
 		while (n < fetchState.havesToSend) {
-			final RevCommit c = walk.next();
+			final RevCommit c = negotiator.next();
 			if (c == null) {
 				break;
 			}
@@ -843,7 +874,7 @@ private void negotiate(ProgressMonitor monitor, boolean mayHaveShallow, Set<Obje
 
 		negotiateBegin();
 		SEND_HAVES: for (;;) {
-			final RevCommit c = walk.next();
+			final RevCommit c = negotiator.next();
 			if (c == null) {
 				break SEND_HAVES;
 			}
@@ -1006,33 +1037,8 @@ private void negotiate(ProgressMonitor monitor, boolean mayHaveShallow, Set<Obje
 
 	private void negotiateBegin() throws IOException {
 		walk.resetRetain(REACHABLE, ADVERTISED);
-		walk.markStart(reachableCommits);
-		walk.sort(RevSort.COMMIT_TIME_DESC);
-		walk.setRevFilter(new RevFilter() {
-			@Override
-			public RevFilter clone() {
-				return this;
-			}
-
-			@Override
-			public boolean include(RevWalk walker, RevCommit c) {
-				final boolean remoteKnowsIsCommon = c.has(COMMON);
-				if (c.has(ADVERTISED)) {
-					// Remote advertised this, and we have it, hence common.
-					// Whether or not the remote knows that fact is tested
-					// before we added the flag. If the remote doesn't know
-					// we have to still send them this object.
-					//
-					c.add(COMMON);
-				}
-				return !remoteKnowsIsCommon;
-			}
-
-			@Override
-			public boolean requiresCommitBody() {
-				return false;
-			}
-		});
+		negotiator = newNegotiator();
+		negotiator.begin(walk, reachableCommits, COMMON, ADVERTISED);
 	}
 
 	private void markRefsAdvertised() {
@@ -1057,6 +1063,8 @@ private void markCommon(RevObject obj, AckNackResult anr, boolean useState)
 			pckState.writeString(PACKET_HAVE + obj.name() + '\n');
 			obj.add(STATE);
 		}
+		if (obj instanceof RevCommit && negotiator != null)
+			negotiator.ack((RevCommit) obj);
 		obj.add(COMMON);
 		if (obj instanceof RevCommit)
 			((RevCommit) obj).carry(COMMON);
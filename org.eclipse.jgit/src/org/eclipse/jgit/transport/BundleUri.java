@@ -0,0 +1,83 @@
+/*
+ * Copyright (C) 2023, Google LLC and others
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Distribution License v. 1.0 which is available at
+ * https://www.eclipse.org/org/documents/edl-v10.php.
+ *
+ * SPDX-License-Identifier: BSD-3-Clause
+ */
+package org.eclipse.jgit.transport;
+
+import org.eclipse.jgit.annotations.NonNull;
+
+/**
+ * A bundle advertised by a server through the {@code bundle-uri} command.
+ * <p>
+ * A client may download and unbundle the advertised bundles before fetching,
+ * so that only the objects not contained in the bundles have to be sent by
+ * the server.
+ *
+ * @since 6.6
+ */
+public class BundleUri {
+	private final String id;
+
+	private final String uri;
+
+	private final long creationToken;
+
+	/**
+	 * Create a bundle advertisement.
+	 *
+	 * @param id
+	 *            identifier of the bundle within the advertisement; must
+	 *            consist of alphanumeric characters and {@code '-'} only
+	 * @param uri
+	 *            location to download the bundle from
+	 * @param creationToken
+	 *            value ordering the bundles; bundles with lower tokens are
+	 *            applied first. 0 if the bundles are unordered.
+	 */
+	public BundleUri(@NonNull String id, @NonNull String uri,
+			long creationToken) {
+		this.id = id;
+		this.uri = uri;
+		this.creationToken = creationToken;
+	}
+
+	/**
+	 * Get the identifier of the bundle
+	 *
+	 * @return the identifier of the bundle within the advertisement
+	 */
+	@NonNull
+	public String getId() {
+		return id;
+	}
+
+	/**
+	 * Get the location of the bundle
+	 *
+	 * @return the location to download the bundle from
+	 */
+	@NonNull
+	public String getUri() {
+		return uri;
+	}
+
+	/**
+	 * Get the creation token of the bundle
+	 *
+	 * @return value ordering the bundles, 0 if not set
+	 */
+	public long getCreationToken() {
+		return creationToken;
+	}
+
+	@SuppressWarnings("nls")
+	@Override
+	public String toString() {
+		return "BundleUri[" + id + ", " + uri + ", " + creationToken + "]";
+	}
+}
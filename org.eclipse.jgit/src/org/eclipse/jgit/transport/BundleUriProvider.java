@@ -0,0 +1,37 @@
+/*
+ * Copyright (C) 2023, Google LLC and others
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Distribution License v. 1.0 which is available at
+ * https://www.eclipse.org/org/documents/edl-v10.php.
+ *
+ * SPDX-License-Identifier: BSD-3-Clause
+ */
+package org.eclipse.jgit.transport;
+
+import java.io.IOException;
+import java.util.Collection;
+
+import org.eclipse.jgit.lib.Repository;
+
+/**
+ * Provider of the bundles advertised by
+ * {@link org.eclipse.jgit.transport.UploadPack} through the protocol V2
+ * {@code bundle-uri} command.
+ *
+ * @since 6.6
+ */
+public interface BundleUriProvider {
+	/**
+	 * Get the bundles to advertise.
+	 *
+	 * @param repository
+	 *            the repository being served
+	 * @return the bundles clients may download before fetching; empty if
+	 *         there are none.
+	 * @throws IOException
+	 *             implementations may throw this
+	 */
+	Collection<BundleUri> getBundleUris(Repository repository)
+			throws IOException;
+}
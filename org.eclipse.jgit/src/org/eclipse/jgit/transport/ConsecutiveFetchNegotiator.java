@@ -0,0 +1,73 @@
+/*
+ * Copyright (C) 2023, Google LLC and others
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Distribution License v. 1.0 which is available at
+ * https://www.eclipse.org/org/documents/edl-v10.php.
+ *
+ * SPDX-License-Identifier: BSD-3-Clause
+ */
+
+package org.eclipse.jgit.transport;
+
+import java.io.IOException;
+import java.util.Collection;
+
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevFlag;
+import org.eclipse.jgit.revwalk.RevSort;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.revwalk.filter.RevFilter;
+
+/**
+ * Sends every commit not known to be common, newest first.
+ * <p>
+ * Common history is skipped by carrying the common flag to the parents of
+ * commits acknowledged by the server.
+ */
+class ConsecutiveFetchNegotiator implements FetchNegotiator {
+	private RevWalk walk;
+
+	@Override
+	public void begin(RevWalk rw, Collection<RevCommit> tips,
+			RevFlag common, RevFlag advertised) throws IOException {
+		walk = rw;
+		walk.markStart(tips);
+		walk.sort(RevSort.COMMIT_TIME_DESC);
+		walk.setRevFilter(new RevFilter() {
+			@Override
+			public RevFilter clone() {
+				return this;
+			}
+
+			@Override
+			public boolean include(RevWalk walker, RevCommit c) {
+				final boolean remoteKnowsIsCommon = c.has(common);
+				if (c.has(advertised)) {
+					// Remote advertised this, and we have it, hence common.
+					// Whether or not the remote knows that fact is tested
+					// before we added the flag. If the remote doesn't know
+					// we have to still send them this object.
+					//
+					c.add(common);
+				}
+				return !remoteKnowsIsCommon;
+			}
+
+			@Override
+			public boolean requiresCommitBody() {
+				return false;
+			}
+		});
+	}
+
+	@Override
+	public RevCommit next() throws IOException {
+		return walk.next();
+	}
+
+	@Override
+	public void ack(RevCommit commit) {
+		// The walk carries the common flag to the parents.
+	}
+}
@@ -19,7 +19,15 @@
 import java.net.Socket;
 import java.net.SocketAddress;
 import java.net.SocketException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.Collection;
 
 import org.eclipse.jgit.annotations.Nullable;
@@ -36,6 +44,12 @@
 
 /**
  * Basic daemon for the anonymous <code>git://</code> transport protocol.
+ * <p>
+ * By default every client is served by a new thread. Servers expecting many
+ * concurrent clients should run the sessions on an executor, see
+ * {@link #setExecutor(ExecutorService)} and
+ * {@link #newClientExecutor(int)}, and limit the number of sessions of each
+ * service with {@link DaemonService#setMaxSessions(int)}.
  */
 public class Daemon {
 	/** 9418: IANA assigned port number for Git. */
@@ -55,6 +69,8 @@ public class Daemon {
 
 	private PackConfig packConfig;
 
+	private volatile ExecutorService executor;
+
 	private volatile RepositoryResolver<DaemonClient> repositoryResolver;
 
 	volatile UploadPackFactory<DaemonClient> uploadPackFactory;
@@ -214,6 +230,86 @@ public void setPackConfig(PackConfig pc) {
 		this.packConfig = pc;
 	}
 
+	/**
+	 * Get the executor running client sessions
+	 *
+	 * @return the executor running client sessions; null if a new thread is
+	 *         started for each client.
+	 * @since 6.6
+	 */
+	@Nullable
+	public ExecutorService getExecutor() {
+		return executor;
+	}
+
+	/**
+	 * Set the executor running client sessions.
+	 * <p>
+	 * The daemon does not shut down the executor when it is stopped. Clients
+	 * whose session is rejected by the executor are disconnected.
+	 *
+	 * @param executor
+	 *            the executor; null to start a new thread for each client.
+	 * @since 6.6
+	 */
+	public void setExecutor(@Nullable ExecutorService executor) {
+		this.executor = executor;
+	}
+
+	/**
+	 * Create an executor for client sessions.
+	 * <p>
+	 * If the Java runtime supports virtual threads, the returned executor
+	 * runs each session on a new virtual thread, and {@code maxThreads} is
+	 * not used; the number of sessions should then be limited by
+	 * {@link DaemonService#setMaxSessions(int)}. Otherwise sessions are run
+	 * by a pool of at most {@code maxThreads} threads, and further clients
+	 * wait until a thread is available.
+	 *
+	 * @param maxThreads
+	 *            maximum number of platform threads running sessions.
+	 * @return a new executor; the caller is responsible for shutting it
+	 *         down.
+	 * @since 6.6
+	 */
+	public static ExecutorService newClientExecutor(int maxThreads) {
+		ExecutorService virtual = newVirtualThreadExecutor();
+		if (virtual != null) {
+			return virtual;
+		}
+		AtomicInteger count = new AtomicInteger();
+		ThreadFactory factory = r -> new Thread(r,
+				"Git-Daemon-Client-" + count.incrementAndGet()); //$NON-NLS-1$
+		ThreadPoolExecutor pool = new ThreadPoolExecutor(maxThreads,
+				maxThreads, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+				factory);
+		pool.allowCoreThreadTimeOut(true);
+		return pool;
+	}
+
+	/**
+	 * Create an executor starting a virtual thread per task, through
+	 * reflection as virtual threads are only available since Java 21.
+	 *
+	 * @return the executor; null if virtual threads are not supported.
+	 */
+	@Nullable
+	private static ExecutorService newVirtualThreadExecutor() {
+		try {
+			Class<?> builder = Class.forName("java.lang.Thread$Builder"); //$NON-NLS-1$
+			Object b = Thread.class.getMethod("ofVirtual").invoke(null); //$NON-NLS-1$
+			b = builder.getMethod("name", String.class, long.class) //$NON-NLS-1$
+					.invoke(b, "Git-Daemon-Client-", Long.valueOf(1)); //$NON-NLS-1$
+			ThreadFactory factory = (ThreadFactory) builder
+					.getMethod("factory").invoke(b); //$NON-NLS-1$
+			return (ExecutorService) Executors.class
+					.getMethod("newThreadPerTaskExecutor", ThreadFactory.class) //$NON-NLS-1$
+					.invoke(null, factory);
+		} catch (ReflectiveOperationException | RuntimeException e) {
+			return null;
+		}
+	}
+
 	/**
 	 * Set the resolver used to locate a repository by name.
 	 *
@@ -384,31 +480,44 @@ void startClient(Socket s) {
 		if (peer instanceof InetSocketAddress)
 			dc.setRemoteAddress(((InetSocketAddress) peer).getAddress());
 
-		new Thread(processors, "Git-Daemon-Client " + peer.toString()) { //$NON-NLS-1$
-			@Override
-			public void run() {
-				try {
-					dc.execute(s);
-				} catch (ServiceNotEnabledException e) {
-					// Ignored. Client cannot use this repository.
-				} catch (ServiceNotAuthorizedException e) {
-					// Ignored. Client cannot use this repository.
-				} catch (IOException e) {
-					// Ignore unexpected IO exceptions from clients
-				} finally {
-					try {
-						s.getInputStream().close();
-					} catch (IOException e) {
-						// Ignore close exceptions
-					}
-					try {
-						s.getOutputStream().close();
-					} catch (IOException e) {
-						// Ignore close exceptions
-					}
-				}
+		Runnable session = () -> {
+			try {
+				dc.execute(s);
+			} catch (ServiceNotEnabledException e) {
+				// Ignored. Client cannot use this repository.
+			} catch (ServiceNotAuthorizedException e) {
+				// Ignored. Client cannot use this repository.
+			} catch (IOException e) {
+				// Ignore unexpected IO exceptions from clients
+			} finally {
+				close(s);
 			}
-		}.start();
+		};
+
+		ExecutorService e = executor;
+		if (e == null) {
+			new Thread(processors, session,
+					"Git-Daemon-Client " + peer.toString()).start(); //$NON-NLS-1$
+			return;
+		}
+		try {
+			e.execute(session);
+		} catch (RejectedExecutionException err) {
+			close(s);
+		}
+	}
+
+	private static void close(Socket s) {
+		try {
+			s.getInputStream().close();
+		} catch (IOException e) {
+			// Ignore close exceptions
+		}
+		try {
+			s.getOutputStream().close();
+		} catch (IOException e) {
+			// Ignore close exceptions
+		}
 	}
 
 	synchronized DaemonService matchService(String cmd) {
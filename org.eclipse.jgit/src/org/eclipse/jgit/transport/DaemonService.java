@@ -12,9 +12,16 @@
 package org.eclipse.jgit.transport;
 
 import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.text.MessageFormat;
 import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
 
 import org.eclipse.jgit.annotations.Nullable;
+import org.eclipse.jgit.internal.JGitText;
 import org.eclipse.jgit.lib.Config;
 import org.eclipse.jgit.lib.Config.SectionParser;
 import org.eclipse.jgit.lib.Repository;
@@ -24,6 +31,12 @@
 /**
  * A service exposed by {@link org.eclipse.jgit.transport.Daemon} over anonymous
  * <code>git://</code>.
+ * <p>
+ * The number of concurrent sessions of a service can be limited with
+ * {@link #setMaxSessions(int)}. Clients exceeding the limit wait for a
+ * session to end, and are sent an error if too many clients are already
+ * waiting or if they waited too long. Counters of the sessions and of the
+ * time spent in them are kept for monitoring.
  */
 public abstract class DaemonService {
 	private final String command;
@@ -34,6 +47,30 @@ public abstract class DaemonService {
 
 	private boolean overridable;
 
+	private volatile int maxSessions;
+
+	private volatile int maxQueuedSessions;
+
+	private volatile int queueTimeout;
+
+	private final ReentrantLock sessionLock = new ReentrantLock(true);
+
+	private final Condition sessionEnded = sessionLock.newCondition();
+
+	private int activeSessions;
+
+	private int queuedSessions;
+
+	private final AtomicLong completedSessions = new AtomicLong();
+
+	private final AtomicLong rejectedSessions = new AtomicLong();
+
+	private final AtomicLong totalSessionNanos = new AtomicLong();
+
+	private final AtomicLong maxSessionNanos = new AtomicLong();
+
+	private final AtomicLong totalQueueNanos = new AtomicLong();
+
 	DaemonService(String cmdName, String cfgName) {
 		command = cmdName.startsWith("git-") ? cmdName : "git-" + cmdName; //$NON-NLS-1$ //$NON-NLS-2$
 		configKey = cfg -> new ServiceConfig(DaemonService.this, cfg, cfgName);
@@ -93,6 +130,162 @@ public void setOverridable(boolean on) {
 		overridable = on;
 	}
 
+	/**
+	 * Get the maximum number of concurrent sessions
+	 *
+	 * @return maximum number of concurrent sessions of this service; 0 if
+	 *         unlimited.
+	 * @since 6.6
+	 */
+	public int getMaxSessions() {
+		return maxSessions;
+	}
+
+	/**
+	 * Set the maximum number of concurrent sessions.
+	 *
+	 * @param max
+	 *            maximum number of clients using this service at the same
+	 *            time; 0 for no limit. Further clients wait for a session to
+	 *            end.
+	 * @since 6.6
+	 */
+	public void setMaxSessions(int max) {
+		maxSessions = Math.max(0, max);
+	}
+
+	/**
+	 * Get the maximum number of clients waiting for a session
+	 *
+	 * @return maximum number of clients waiting for a session; 0 if
+	 *         unlimited.
+	 * @since 6.6
+	 */
+	public int getMaxQueuedSessions() {
+		return maxQueuedSessions;
+	}
+
+	/**
+	 * Set the maximum number of clients waiting for a session.
+	 * <p>
+	 * Only used if the number of sessions is limited by
+	 * {@link #setMaxSessions(int)}.
+	 *
+	 * @param max
+	 *            maximum number of clients waiting for a session; 0 for no
+	 *            limit. Further clients are sent an error.
+	 * @since 6.6
+	 */
+	public void setMaxQueuedSessions(int max) {
+		maxQueuedSessions = Math.max(0, max);
+	}
+
+	/**
+	 * Get the time a client waits for a session
+	 *
+	 * @return time in seconds a client waits for a session; 0 if it waits
+	 *         until a session ends.
+	 * @since 6.6
+	 */
+	public int getQueueTimeout() {
+		return queueTimeout;
+	}
+
+	/**
+	 * Set the time a client waits for a session.
+	 *
+	 * @param seconds
+	 *            number of seconds a client waits for a session before it is
+	 *            sent an error; 0 to wait until a session ends.
+	 * @since 6.6
+	 */
+	public void setQueueTimeout(int seconds) {
+		queueTimeout = Math.max(0, seconds);
+	}
+
+	/**
+	 * Get the number of active sessions
+	 *
+	 * @return number of clients currently using this service.
+	 * @since 6.6
+	 */
+	public int getActiveSessions() {
+		sessionLock.lock();
+		try {
+			return activeSessions;
+		} finally {
+			sessionLock.unlock();
+		}
+	}
+
+	/**
+	 * Get the number of waiting clients
+	 *
+	 * @return number of clients currently waiting for a session.
+	 * @since 6.6
+	 */
+	public int getQueuedSessions() {
+		sessionLock.lock();
+		try {
+			return queuedSessions;
+		} finally {
+			sessionLock.unlock();
+		}
+	}
+
+	/**
+	 * Get the number of completed sessions
+	 *
+	 * @return number of sessions which have ended, successfully or not.
+	 * @since 6.6
+	 */
+	public long getCompletedSessions() {
+		return completedSessions.get();
+	}
+
+	/**
+	 * Get the number of rejected clients
+	 *
+	 * @return number of clients sent an error because too many sessions were
+	 *         active.
+	 * @since 6.6
+	 */
+	public long getRejectedSessions() {
+		return rejectedSessions.get();
+	}
+
+	/**
+	 * Get the total duration of completed sessions
+	 *
+	 * @return total duration of the completed sessions in milliseconds, not
+	 *         including the time spent waiting for a session.
+	 * @since 6.6
+	 */
+	public long getTotalSessionTime() {
+		return TimeUnit.NANOSECONDS.toMillis(totalSessionNanos.get());
+	}
+
+	/**
+	 * Get the duration of the longest session
+	 *
+	 * @return duration of the longest completed session in milliseconds.
+	 * @since 6.6
+	 */
+	public long getMaxSessionTime() {
+		return TimeUnit.NANOSECONDS.toMillis(maxSessionNanos.get());
+	}
+
+	/**
+	 * Get the total time clients waited for a session
+	 *
+	 * @return total time in milliseconds clients waited for a session,
+	 *         including clients which were rejected after waiting.
+	 * @since 6.6
+	 */
+	public long getTotalQueueTime() {
+		return TimeUnit.NANOSECONDS.toMillis(totalQueueNanos.get());
+	}
+
 	/**
 	 * Get name of the command requested by clients.
 	 *
@@ -120,6 +313,13 @@ void execute(DaemonClient client, String commandLine,
 			throws IOException, ServiceNotEnabledException,
 			ServiceNotAuthorizedException {
 		final String name = commandLine.substring(command.length() + 1);
+		try {
+			beginSession();
+		} catch (ServiceMayNotContinueException e) {
+			sendError(client, e);
+			return;
+		}
+		long start = System.nanoTime();
 		try (Repository db = client.getDaemon().openRepository(client, name)) {
 			if (isEnabledFor(db)) {
 				execute(client, db, extraParameters);
@@ -127,9 +327,81 @@ void execute(DaemonClient client, String commandLine,
 		} catch (ServiceMayNotContinueException e) {
 			// An error when opening the repo means the client is expecting a ref
 			// advertisement, so use that style of error.
-			PacketLineOut pktOut = new PacketLineOut(client.getOutputStream());
-			pktOut.writeString("ERR " + e.getMessage() + "\n"); //$NON-NLS-1$ //$NON-NLS-2$
+			sendError(client, e);
+		} finally {
+			endSession(System.nanoTime() - start);
+		}
+	}
+
+	private static void sendError(DaemonClient client,
+			ServiceMayNotContinueException e) throws IOException {
+		PacketLineOut pktOut = new PacketLineOut(client.getOutputStream());
+		pktOut.writeString("ERR " + e.getMessage() + "\n"); //$NON-NLS-1$ //$NON-NLS-2$
+		pktOut.flush();
+	}
+
+	private void beginSession() throws ServiceMayNotContinueException,
+			InterruptedIOException {
+		long start = System.nanoTime();
+		boolean queued = false;
+		sessionLock.lock();
+		try {
+			int max = maxSessions;
+			if (max == 0 || activeSessions < max) {
+				activeSessions++;
+				return;
+			}
+
+			int maxQueued = maxQueuedSessions;
+			if (maxQueued > 0 && queuedSessions >= maxQueued) {
+				throw rejectSession();
+			}
+			queuedSessions++;
+			queued = true;
+			long timeout = TimeUnit.SECONDS.toNanos(queueTimeout);
+			long remaining = timeout;
+			for (;;) {
+				max = maxSessions;
+				if (max == 0 || activeSessions < max) {
+					break;
+				}
+				if (timeout == 0) {
+					sessionEnded.await();
+				} else if (remaining > 0) {
+					remaining = sessionEnded.awaitNanos(remaining);
+				} else {
+					throw rejectSession();
+				}
+			}
+			activeSessions++;
+		} catch (InterruptedException e) {
+			throw new InterruptedIOException();
+		} finally {
+			if (queued) {
+				queuedSessions--;
+				totalQueueNanos.addAndGet(System.nanoTime() - start);
+			}
+			sessionLock.unlock();
+		}
+	}
+
+	private ServiceMayNotContinueException rejectSession() {
+		rejectedSessions.incrementAndGet();
+		return new ServiceMayNotContinueException(MessageFormat
+				.format(JGitText.get().daemonTooManySessions, command));
+	}
+
+	private void endSession(long nanos) {
+		sessionLock.lock();
+		try {
+			activeSessions--;
+			sessionEnded.signal();
+		} finally {
+			sessionLock.unlock();
 		}
+		completedSessions.incrementAndGet();
+		totalSessionNanos.addAndGet(nanos);
+		maxSessionNanos.accumulateAndGet(nanos, Math::max);
 	}
 
 	private boolean isEnabledFor(Repository db) {
@@ -15,6 +15,8 @@
 
 import java.io.OutputStream;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
 import java.util.Set;
 
 import org.eclipse.jgit.errors.TransportException;
@@ -185,4 +187,20 @@ void fetch(final ProgressMonitor monitor,
 	 *         order to safely permit garbage collection.
 	 */
 	Collection<PackLock> getPackLocks();
+
+	/**
+	 * Get the bundles the remote advertises for bootstrapping.
+	 * <p>
+	 * Bundles may be downloaded and unbundled before fetching, so that only
+	 * the objects missing from the bundles need to be fetched.
+	 *
+	 * @return the advertised bundles, in the order they should be applied;
+	 *         empty if the remote does not advertise any.
+	 * @throws TransportException
+	 *             the bundles could not be requested from the remote.
+	 * @since 6.6
+	 */
+	default List<BundleUri> getBundleUris() throws TransportException {
+		return Collections.emptyList();
+	}
 }
@@ -0,0 +1,75 @@
+/*
+ * Copyright (C) 2023, Google LLC and others
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Distribution License v. 1.0 which is available at
+ * https://www.eclipse.org/org/documents/edl-v10.php.
+ *
+ * SPDX-License-Identifier: BSD-3-Clause
+ */
+
+package org.eclipse.jgit.transport;
+
+import java.io.IOException;
+import java.util.Collection;
+
+import org.eclipse.jgit.annotations.Nullable;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevFlag;
+import org.eclipse.jgit.revwalk.RevWalk;
+
+/**
+ * Chooses the commits a fetch client tells the server it has.
+ * <p>
+ * During negotiation the client sends "have" lines naming local commits
+ * until the server has found enough common history to compute a pack. The
+ * negotiator decides the order of these commits, and which commits need not
+ * be sent at all. A negotiator is used for a single negotiation.
+ *
+ * @see TransferConfig.NegotiationAlgorithm
+ * @since 6.6
+ */
+public interface FetchNegotiator {
+	/**
+	 * Begin a negotiation.
+	 *
+	 * @param walk
+	 *            walk to parse commits with. Its flags were reset, except for
+	 *            {@code advertised} and flags marking local objects.
+	 * @param tips
+	 *            commits referenced by local refs, to start from.
+	 * @param common
+	 *            flag of commits known to both sides. Commits with this flag
+	 *            need not be sent, and neither do their ancestors.
+	 * @param advertised
+	 *            flag of commits the server advertised refs for. Such commits
+	 *            are common, but the server doesn't yet know that the client
+	 *            has them.
+	 * @throws IOException
+	 *             commits cannot be read.
+	 */
+	void begin(RevWalk walk, Collection<RevCommit> tips, RevFlag common,
+			RevFlag advertised) throws IOException;
+
+	/**
+	 * Get the next commit to send as "have".
+	 *
+	 * @return the next commit to send; null if there are no more.
+	 * @throws IOException
+	 *             commits cannot be read.
+	 */
+	@Nullable
+	RevCommit next() throws IOException;
+
+	/**
+	 * Note that the server acknowledged a commit as common.
+	 * <p>
+	 * Invoked before the caller sets the {@code common} flag on the commit.
+	 *
+	 * @param commit
+	 *            commit the server acknowledged.
+	 * @throws IOException
+	 *             commits cannot be read.
+	 */
+	void ack(RevCommit commit) throws IOException;
+}
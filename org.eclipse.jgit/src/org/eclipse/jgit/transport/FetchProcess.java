@@ -21,6 +21,7 @@
 import java.io.IOException;
 import java.io.OutputStreamWriter;
 import java.io.Writer;
+import java.net.URISyntaxException;
 import java.text.MessageFormat;
 import java.util.ArrayList;
 import java.util.Collection;
@@ -28,6 +29,7 @@
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
@@ -159,6 +161,7 @@ private void executeImp(final ProgressMonitor monitor,
 			}
 			result.setAdvertisedRefs(transport.getURI(), refsMap);
 			result.peerUserAgent = conn.getPeerUserAgent();
+			fetchBundles(monitor);
 			final Set<Ref> matched = new HashSet<>();
 			for (RefSpec spec : toFetch) {
 				if (spec.getSource() == null)
@@ -386,6 +389,101 @@ private void updateFETCH_HEAD(FetchResult result) throws IOException {
 		}
 	}
 
+	/**
+	 * Unbundle the bundles set on the transport and, when cloning, the
+	 * bundles advertised by the remote into {@code refs/bundles/*}. Their
+	 * objects are then already complete locally or used as haves while
+	 * negotiating with the remote, which only sends the remaining objects.
+	 * <p>
+	 * Bundles are optional: those which cannot be read are skipped, and the
+	 * remote sends their objects instead.
+	 */
+	private void fetchBundles(ProgressMonitor monitor)
+			throws TransportException {
+		List<String> uris = new ArrayList<>(transport.getBundleUris());
+		int explicit = uris.size();
+		if (transport.isUseBundleUris() && localRefs().isEmpty()) {
+			for (BundleUri b : conn.getBundleUris()) {
+				// The remote must not make us read local files.
+				if (isHttp(b.getUri())) {
+					uris.add(b.getUri());
+				}
+			}
+		}
+		if (uris.isEmpty()) {
+			return;
+		}
+		for (int i = 0; i < uris.size(); i++) {
+			try (Transport bundle = openBundle(uris.get(i), i < explicit)) {
+				bundle.setTimeout(transport.getTimeout());
+				bundle.setCheckFetchedObjects(
+						transport.isCheckFetchedObjects());
+				bundle.fetch(monitor, Collections.singletonList(
+						new RefSpec("+refs/*:refs/bundles/*"))); //$NON-NLS-1$
+			} catch (IOException | URISyntaxException e) {
+				// Skip the bundle, its objects are fetched from the remote.
+			}
+		}
+		localRefs = null;
+	}
+
+	/**
+	 * Open a bundle.
+	 *
+	 * @param uri
+	 *            URI of the bundle.
+	 * @param explicit
+	 *            whether the bundle was set on the transport, rather than
+	 *            advertised by the remote.
+	 * @return transport to fetch from the bundle.
+	 */
+	private Transport openBundle(String uri, boolean explicit)
+			throws IOException, URISyntaxException {
+		URIish u = new URIish(uri);
+		if (!isHttp(uri)) {
+			return Transport.open(transport.local, u);
+		}
+		TransportHttp http = new TransportHttp(transport.local, u);
+		try {
+			// Advertised bundles may be on any host: only authenticate to
+			// the remote itself, other hosts get the bundle anonymously.
+			http.setCredentialsProvider(
+					explicit || isSameOrigin(u, transport.getURI())
+							? transport.getCredentialsProvider()
+							: null);
+			http.setTimeout(transport.getTimeout());
+			return http.openBundle();
+		} catch (IOException | RuntimeException e) {
+			http.close();
+			throw e;
+		}
+	}
+
+	private static boolean isSameOrigin(URIish a, URIish b) {
+		return a.getScheme() != null && a.getScheme().equals(b.getScheme())
+				&& a.getHost() != null
+				&& a.getHost().equalsIgnoreCase(b.getHost())
+				&& port(a) == port(b);
+	}
+
+	private static int port(URIish u) {
+		if (u.getPort() > 0) {
+			return u.getPort();
+		}
+		return "https".equals(u.getScheme()) ? 443 : 80; //$NON-NLS-1$
+	}
+
+	private static boolean isHttp(String uri) {
+		String scheme;
+		try {
+			scheme = new URIish(uri).getScheme();
+		} catch (URISyntaxException e) {
+			return false;
+		}
+		return "http".equals(scheme) //$NON-NLS-1$
+				|| "https".equals(scheme); //$NON-NLS-1$
+	}
+
 	private boolean askForIsComplete() throws TransportException {
 		try {
 			try (ObjectWalk ow = new ObjectWalk(transport.local)) {
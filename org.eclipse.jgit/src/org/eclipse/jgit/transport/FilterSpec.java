@@ -24,6 +24,7 @@
 import org.eclipse.jgit.annotations.Nullable;
 import org.eclipse.jgit.errors.PackProtocolException;
 import org.eclipse.jgit.internal.JGitText;
+import org.eclipse.jgit.lib.ObjectId;
 
 /**
  * Represents either a filter specified in a protocol "filter" line, or a
@@ -79,10 +80,18 @@ public int hashCode() {
 
 	private final long treeDepthLimit;
 
+	private final ObjectId sparseOid;
+
 	private FilterSpec(ObjectTypes types, long blobLimit, long treeDepthLimit) {
+		this(types, blobLimit, treeDepthLimit, null);
+	}
+
+	private FilterSpec(ObjectTypes types, long blobLimit, long treeDepthLimit,
+			ObjectId sparseOid) {
 		this.types = requireNonNull(types);
 		this.blobLimit = blobLimit;
 		this.treeDepthLimit = treeDepthLimit;
+		this.sparseOid = sparseOid;
 	}
 
 	/**
@@ -93,6 +102,8 @@ private FilterSpec(ObjectTypes types, long blobLimit, long treeDepthLimit) {
 	 *   <li>"blob:none"
 	 *   <li>"blob:limit=N", with N &gt;= 0
 	 *   <li>"tree:DEPTH", with DEPTH &gt;= 0
+	 *   <li>"sparse:oid=OID", with OID the object id of a blob holding
+	 *   sparse-checkout patterns
 	 * </ul>
 	 *
 	 * @param filterLine
@@ -131,6 +142,11 @@ public static FilterSpec fromFilterLine(String filterLine)
 			if (treeDepthLimit >= 0) {
 				return FilterSpec.withTreeDepthLimit(treeDepthLimit);
 			}
+		} else if (filterLine.startsWith("sparse:oid=")) { //$NON-NLS-1$
+			String oid = filterLine.substring("sparse:oid=".length()); //$NON-NLS-1$
+			if (ObjectId.isId(oid)) {
+				return FilterSpec.withSparseOid(ObjectId.fromString(oid));
+			}
 		}
 
 		// Did not match any known filter format.
@@ -175,6 +191,19 @@ static FilterSpec withTreeDepthLimit(long treeDepthLimit) {
 		return new FilterSpec(ObjectTypes.ALL, -1, treeDepthLimit);
 	}
 
+	/**
+	 * @param sparseOid
+	 *            the blob with sparse-checkout patterns in a
+	 *            "sparse:oid=[oid]" filter line
+	 * @return a filter spec which filters blobs whose path does not match the
+	 *         patterns
+	 * @since 6.6
+	 */
+	public static FilterSpec withSparseOid(ObjectId sparseOid) {
+		return new FilterSpec(ObjectTypes.ALL, -1, -1,
+				requireNonNull(sparseOid).copy());
+	}
+
 	/**
 	 * A placeholder that indicates no filtering.
 	 */
@@ -209,11 +238,22 @@ public long getTreeDepthLimit() {
 		return treeDepthLimit;
 	}
 
+	/**
+	 * @return the blob holding the sparse-checkout patterns blobs must match,
+	 *         or null if this filter does not filter blobs based on their path
+	 * @since 6.6
+	 */
+	@Nullable
+	public ObjectId getSparseOid() {
+		return sparseOid;
+	}
+
 	/**
 	 * @return true if this filter doesn't filter out anything
 	 */
 	public boolean isNoOp() {
-		return types.equals(ObjectTypes.ALL) && blobLimit == -1 && treeDepthLimit == -1;
+		return types.equals(ObjectTypes.ALL) && blobLimit == -1
+				&& treeDepthLimit == -1 && sparseOid == null;
 	}
 
 	/**
@@ -223,6 +263,8 @@ public boolean isNoOp() {
 	public String filterLine() {
 		if (isNoOp()) {
 			return null;
+		} else if (sparseOid != null) {
+			return OPTION_FILTER + " sparse:oid=" + sparseOid.name(); //$NON-NLS-1$
 		} else if (types.equals(ObjectTypes.allow(OBJ_TREE, OBJ_COMMIT, OBJ_TAG)) &&
 					blobLimit == -1 && treeDepthLimit == -1) {
 			return OPTION_FILTER + " blob:none"; //$NON-NLS-1$
@@ -0,0 +1,42 @@
+/*
+ * Copyright (C) 2023, Google LLC and others
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Distribution License v. 1.0 which is available at
+ * https://www.eclipse.org/org/documents/edl-v10.php.
+ *
+ * SPDX-License-Identifier: BSD-3-Clause
+ */
+
+package org.eclipse.jgit.transport;
+
+import java.util.Collection;
+
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevFlag;
+import org.eclipse.jgit.revwalk.RevWalk;
+
+/**
+ * Sends no commits at all.
+ * <p>
+ * Like {@code fetch.negotiationAlgorithm=noop} of C git: the server sends
+ * all objects reachable from the wanted commits, except those reachable from
+ * advertised refs the client already has.
+ */
+class NoopFetchNegotiator implements FetchNegotiator {
+	@Override
+	public void begin(RevWalk walk, Collection<RevCommit> tips,
+			RevFlag common, RevFlag advertised) {
+		// Nothing to prepare.
+	}
+
+	@Override
+	public RevCommit next() {
+		return null;
+	}
+
+	@Override
+	public void ack(RevCommit commit) {
+		// Nothing was sent.
+	}
+}
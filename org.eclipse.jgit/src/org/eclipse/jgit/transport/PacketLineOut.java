@@ -169,6 +169,21 @@ public void writePacket(byte[] buf, int pos, int len) throws IOException {
 		}
 	}
 
+	/**
+	 * Write packets which were already encoded.
+	 *
+	 * @param packets
+	 *            complete pkt-lines, including their length headers.
+	 * @throws java.io.IOException
+	 *             the packets could not be written.
+	 */
+	void writeEncoded(byte[] packets) throws IOException {
+		out.write(packets);
+		if (logEnabled && log.isDebugEnabled()) {
+			log.debug("git> (" + packets.length + " bytes of encoded packets)"); //$NON-NLS-1$ //$NON-NLS-2$
+		}
+	}
+
 	/**
 	 * Write a packet delim marker (0001).
 	 *
@@ -188,6 +188,9 @@ public Set<String> getCapabilities() {
 	/** Filter used while advertising the refs to the client. */
 	private RefFilter refFilter;
 
+	/** Cache of encoded advertisements; null if not caching. */
+	private RefAdvertisementCache refAdvertisementCache;
+
 	/** Timeout in seconds to wait for client interaction. */
 	private int timeout;
 
@@ -807,6 +810,23 @@ public void setRefFilter(RefFilter refFilter) {
 		this.refFilter = refFilter != null ? refFilter : RefFilter.DEFAULT;
 	}
 
+	/**
+	 * Set the cache of encoded ref advertisements.
+	 * <p>
+	 * The cache must have been created for the repository this instance
+	 * serves; it is only used when the advertisement is written through a
+	 * {@link org.eclipse.jgit.transport.RefAdvertiser.PacketLineOutRefAdvertiser}.
+	 *
+	 * @param cache
+	 *            the cache, shared by all instances serving the repository;
+	 *            null to format every advertisement.
+	 * @since 6.6
+	 */
+	public void setRefAdvertisementCache(
+			@Nullable RefAdvertisementCache cache) {
+		refAdvertisementCache = cache;
+	}
+
 	/**
 	 * Get timeout (in seconds) before aborting an IO operation.
 	 *
@@ -1308,7 +1328,8 @@ public void sendAdvertisedRefs(RefAdvertiser adv)
 			adv.advertiseCapability(CAPABILITY_PUSH_OPTIONS);
 		}
 		adv.advertiseCapability(OPTION_AGENT, UserAgent.get());
-		adv.send(getAdvertisedOrDefaultRefs().values());
+		adv.send(getAdvertisedOrDefaultRefs().values(),
+				refAdvertisementCache, advertiseRefsHook, refFilter);
 		for (ObjectId obj : advertisedHaves) {
 			adv.advertiseHave(obj);
 		}
@@ -2062,6 +2083,31 @@ public void setPushOptions(@Nullable List<String> options) {
 		pushOptions = options;
 	}
 
+	/**
+	 * Get the connectivity checker
+	 *
+	 * @return the checker verifying that the received objects only depend on
+	 *         objects reachable from the advertised refs.
+	 * @since 6.6
+	 */
+	public ConnectivityChecker getConnectivityChecker() {
+		return connectivityChecker;
+	}
+
+	/**
+	 * Set the connectivity checker.
+	 *
+	 * @param checker
+	 *            the checker; null to use the default checker, which walks
+	 *            from the received tips until the advertised refs are
+	 *            reached.
+	 * @since 6.6
+	 */
+	public void setConnectivityChecker(@Nullable ConnectivityChecker checker) {
+		connectivityChecker = checker != null ? checker
+				: new FullConnectivityChecker();
+	}
+
 	/**
 	 * Get the hook invoked before updates occur.
 	 *
@@ -0,0 +1,301 @@
+/*
+ * Copyright (C) 2023, Google LLC and others
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Distribution License v. 1.0 which is available at
+ * https://www.eclipse.org/org/documents/edl-v10.php.
+ *
+ * SPDX-License-Identifier: BSD-3-Clause
+ */
+
+package org.eclipse.jgit.transport;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Set;
+
+import org.eclipse.jgit.events.ListenerHandle;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Ref;
+import org.eclipse.jgit.lib.Repository;
+
+/**
+ * Cache of encoded ref advertisements of one repository.
+ * <p>
+ * Formatting the advertisement of a repository with many refs sorts the refs,
+ * peels annotated tags and encodes every ref into a pkt-line. As refs change
+ * far less often than they are advertised, the encoded advertisement can be
+ * kept and written directly to the next client requesting the same
+ * advertisement.
+ * <p>
+ * Entries are keyed by the advertised refs (names and object ids), the
+ * options of the advertisement, and the identity of the
+ * {@link org.eclipse.jgit.transport.AdvertiseRefsHook} and
+ * {@link org.eclipse.jgit.transport.RefFilter} which selected the refs. Hooks
+ * and filters whose result depends on the connecting user must therefore not
+ * be shared between users, or the cache must not be used. All entries are
+ * dropped when the repository fires a
+ * {@link org.eclipse.jgit.events.RefsChangedEvent}. The capabilities are
+ * not cached; the line carrying them is formatted for every advertisement,
+ * so capabilities which differ between advertisements, such as the nonce of
+ * push certificates, do not prevent the reuse of the other lines.
+ * <p>
+ * A cache is created for one repository and used by passing it to
+ * {@link UploadPack#setRefAdvertisementCache(RefAdvertisementCache)} or
+ * {@link ReceivePack#setRefAdvertisementCache(RefAdvertisementCache)}. It
+ * only applies to advertisements written through a
+ * {@link org.eclipse.jgit.transport.RefAdvertiser.PacketLineOutRefAdvertiser}.
+ * This class is thread-safe.
+ *
+ * @since 6.6
+ */
+public class RefAdvertisementCache implements AutoCloseable {
+	/** Default limit of the cache, in bytes. */
+	public static final long DEFAULT_MAX_BYTES = 64 << 20;
+
+	/** Estimated memory used per advertised object id of an entry. */
+	private static final int BYTES_PER_ID = 96;
+
+	private final Repository repository;
+
+	private final long maxBytes;
+
+	private final LinkedHashMap<Key, Entry> map;
+
+	private final ListenerHandle listener;
+
+	private long currentBytes;
+
+	private long hitCount;
+
+	private long missCount;
+
+	/**
+	 * Create a cache holding at most {@link #DEFAULT_MAX_BYTES}.
+	 *
+	 * @param repository
+	 *            the repository whose advertisements are cached.
+	 */
+	public RefAdvertisementCache(Repository repository) {
+		this(repository, DEFAULT_MAX_BYTES);
+	}
+
+	/**
+	 * Create a cache.
+	 *
+	 * @param repository
+	 *            the repository whose advertisements are cached.
+	 * @param maxBytes
+	 *            approximate limit of memory held by the cache.
+	 */
+	public RefAdvertisementCache(Repository repository, long maxBytes) {
+		this.repository = repository;
+		this.maxBytes = maxBytes;
+		this.map = new LinkedHashMap<>(16, 0.75f, true);
+		this.listener = repository.getListenerList()
+				.addRefsChangedListener(event -> invalidate());
+	}
+
+	/**
+	 * Get the repository
+	 *
+	 * @return the repository whose advertisements are cached.
+	 */
+	public Repository getRepository() {
+		return repository;
+	}
+
+	/**
+	 * Get the limit of this cache
+	 *
+	 * @return approximate limit of memory held by the cache, in bytes.
+	 */
+	public long getMaxBytes() {
+		return maxBytes;
+	}
+
+	/**
+	 * Get the memory held by the cache
+	 *
+	 * @return approximate memory held by cached advertisements, in bytes.
+	 */
+	public synchronized long getCurrentBytes() {
+		return currentBytes;
+	}
+
+	/**
+	 * Get the number of cached advertisements
+	 *
+	 * @return number of cached advertisements.
+	 */
+	public synchronized int getEntryCount() {
+		return map.size();
+	}
+
+	/**
+	 * Get the number of advertisements written from the cache
+	 *
+	 * @return number of advertisements written from the cache.
+	 */
+	public synchronized long getHitCount() {
+		return hitCount;
+	}
+
+	/**
+	 * Get the number of advertisements which had to be formatted
+	 *
+	 * @return number of advertisements not found in the cache.
+	 */
+	public synchronized long getMissCount() {
+		return missCount;
+	}
+
+	/**
+	 * Drop all cached advertisements.
+	 * <p>
+	 * Invoked automatically when the refs of the repository change.
+	 */
+	public synchronized void invalidate() {
+		map.clear();
+		currentBytes = 0;
+	}
+
+	/**
+	 * Stop listening to ref changes of the repository and drop all cached
+	 * advertisements.
+	 */
+	@Override
+	public void close() {
+		listener.remove();
+		invalidate();
+	}
+
+	synchronized Entry get(Key key) {
+		Entry e = map.get(key);
+		if (e != null) {
+			hitCount++;
+		} else {
+			missCount++;
+		}
+		return e;
+	}
+
+	synchronized void put(Key key, Entry e) {
+		long size = e.size();
+		if (size > maxBytes) {
+			return; // Too large to cache.
+		}
+		Entry old = map.put(key, e);
+		if (old != null) {
+			currentBytes -= old.size();
+		}
+		currentBytes += size;
+
+		Iterator<Entry> itr = map.values().iterator();
+		while (currentBytes > maxBytes && itr.hasNext()) {
+			currentBytes -= itr.next().size();
+			itr.remove();
+		}
+	}
+
+	/**
+	 * Compute a hash of the advertised refs.
+	 * <p>
+	 * The result does not depend on the order of {@code refs}, and covers
+	 * the names, the full object ids and symbolic targets of the refs.
+	 */
+	static long fingerprint(Collection<Ref> refs) {
+		int[] w = new int[5];
+		long sum = refs.size();
+		for (Ref ref : refs) {
+			long h = ref.getName().hashCode();
+			ObjectId id = ref.getObjectId();
+			if (id != null) {
+				id.copyRawTo(w, 0);
+				for (int i = 0; i < w.length; i++) {
+					h = h * 0x9E3779B97F4A7C15L + w[i];
+				}
+			}
+			if (ref.isSymbolic()) {
+				h = h * 31 + ref.getTarget().getName().hashCode();
+			}
+			sum += mix(h);
+		}
+		return sum;
+	}
+
+	/** Finalizer of MurmurHash3, spreading all bits of {@code h}. */
+	private static long mix(long h) {
+		h ^= h >>> 33;
+		h *= 0xff51afd7ed558ccdL;
+		h ^= h >>> 33;
+		h *= 0xc4ceb9fe1a85ec53L;
+		h ^= h >>> 33;
+		return h;
+	}
+
+	static final class Key {
+		private final String options;
+
+		private final Object hook;
+
+		private final Object filter;
+
+		private final long refs;
+
+		Key(String options, Object hook, Object filter, long refs) {
+			this.options = options;
+			this.hook = hook;
+			this.filter = filter;
+			this.refs = refs;
+		}
+
+		@Override
+		public int hashCode() {
+			return options.hashCode() * 31 + Long.hashCode(refs);
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof Key)) {
+				return false;
+			}
+			Key k = (Key) obj;
+			return refs == k.refs && hook == k.hook && filter == k.filter
+					&& options.equals(k.options);
+		}
+	}
+
+	static final class Entry {
+		/**
+		 * Object advertised by the first line, which carries the
+		 * capabilities; null if there is no such line.
+		 */
+		final ObjectId firstId;
+
+		/** Name advertised by the first line. */
+		final String firstName;
+
+		/**
+		 * Encoded pkt-lines of the advertisement following the first line,
+		 * without the flush-pkt.
+		 */
+		final byte[] packets;
+
+		/** Object ids advertised by the entry. */
+		final Set<ObjectId> advertised;
+
+		Entry(ObjectId firstId, String firstName, byte[] packets,
+				Set<ObjectId> advertised) {
+			this.firstId = firstId;
+			this.firstName = firstName;
+			this.packets = packets;
+			this.advertised = advertised;
+		}
+
+		long size() {
+			return packets.length + (long) advertised.size() * BYTES_PER_ID;
+		}
+	}
+}
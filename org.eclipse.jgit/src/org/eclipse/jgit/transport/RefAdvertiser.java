@@ -16,6 +16,7 @@
 import static org.eclipse.jgit.transport.GitProtocolConstants.REF_ATTR_PEELED;
 import static org.eclipse.jgit.transport.GitProtocolConstants.REF_ATTR_SYMREF_TARGET;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.CharBuffer;
@@ -23,12 +24,15 @@
 import java.nio.charset.CharsetEncoder;
 import java.nio.charset.CoderResult;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedHashSet;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeMap;
 
+import org.eclipse.jgit.annotations.Nullable;
 import org.eclipse.jgit.lib.AnyObjectId;
 import org.eclipse.jgit.lib.Constants;
 import org.eclipse.jgit.lib.ObjectId;
@@ -125,6 +129,11 @@ protected void writeOne(CharSequence line) throws IOException {
 			pckOut.writeString(line.toString());
 		}
 
+		@Override
+		PacketLineOut getPacketLineOut() {
+			return pckOut;
+		}
+
 		@Override
 		protected void end() throws IOException {
 			pckOut.end();
@@ -325,6 +334,115 @@ public Set<ObjectId> send(Collection<Ref> refs) throws IOException {
 		return sent;
 	}
 
+	/**
+	 * Format an advertisement for the supplied refs, reusing the encoded
+	 * advertisement from a cache if possible.
+	 *
+	 * @param refs
+	 *            zero or more refs to format for the client.
+	 * @param cache
+	 *            cache of encoded advertisements; null to format the refs.
+	 * @param hook
+	 *            the hook which selected {@code refs}.
+	 * @param filter
+	 *            the filter which selected {@code refs}.
+	 * @return set of ObjectIds that were advertised to the client.
+	 * @throws java.io.IOException
+	 *             the underlying output stream failed to write out an
+	 *             advertisement record.
+	 */
+	Set<ObjectId> send(Collection<Ref> refs,
+			@Nullable RefAdvertisementCache cache, Object hook, Object filter)
+			throws IOException {
+		PacketLineOut pckOut = getPacketLineOut();
+		if (cache == null || pckOut == null || pckOut.isUsingSideband()
+				|| repository != cache.getRepository()) {
+			return send(refs);
+		}
+
+		RefAdvertisementCache.Key key = new RefAdvertisementCache.Key(
+				describeOptions(), hook, filter,
+				RefAdvertisementCache.fingerprint(refs));
+		RefAdvertisementCache.Entry e = cache.get(key);
+		if (e == null) {
+			ByteArrayOutputStream buf = new ByteArrayOutputStream();
+			CachedRefAdvertiser c = new CachedRefAdvertiser(
+					new PacketLineOut(buf, false));
+			RefAdvertiser tmp = c;
+			tmp.repository = repository;
+			tmp.derefTags = derefTags;
+			tmp.useProtocolV2 = useProtocolV2;
+			tmp.symrefs.putAll(symrefs);
+			Set<ObjectId> advertised = tmp.send(refs);
+			e = new RefAdvertisementCache.Entry(c.firstId, c.firstName,
+					buf.toByteArray(), Collections.unmodifiableSet(advertised));
+			cache.put(key, e);
+		}
+
+		// The capabilities, such as the nonce of push certificates, may
+		// differ for every advertisement and are not cached.
+		if (e.firstId != null) {
+			advertiseId(e.firstId, e.firstName);
+		}
+		pckOut.writeEncoded(e.packets);
+		sent.addAll(e.advertised);
+		return sent;
+	}
+
+	/**
+	 * Advertiser encoding an advertisement for a cache.
+	 * <p>
+	 * The first line, which carries the capabilities, is not written but
+	 * remembered, to be written with the capabilities of each advertisement
+	 * taken from the cache.
+	 */
+	private static class CachedRefAdvertiser
+			extends PacketLineOutRefAdvertiser {
+		ObjectId firstId;
+
+		String firstName;
+
+		CachedRefAdvertiser(PacketLineOut out) {
+			super(out);
+		}
+
+		@Override
+		public void advertiseId(AnyObjectId id, String refName)
+				throws IOException {
+			if (firstId == null) {
+				firstId = id.copy();
+				firstName = refName;
+			} else {
+				super.advertiseId(id, refName);
+			}
+		}
+	}
+
+	/**
+	 * Get the stream advertisements are written to, if encoded by this class.
+	 *
+	 * @return the stream the advertisement is written to, if
+	 *         {@link #advertiseId(AnyObjectId, String)} and
+	 *         {@link #writeOne(CharSequence)} only write pkt-lines to it; null
+	 *         otherwise.
+	 */
+	PacketLineOut getPacketLineOut() {
+		return null;
+	}
+
+	/** Describe everything other than the refs that affects the output. */
+	@SuppressWarnings("nls")
+	private String describeOptions() {
+		StringBuilder s = new StringBuilder();
+		s.append(useProtocolV2 ? "v2" : "v0");
+		s.append(derefTags ? " peel" : "");
+		for (Map.Entry<String, String> e : new TreeMap<>(symrefs)
+				.entrySet()) {
+			s.append('\n').append(e.getKey()).append(':').append(e.getValue());
+		}
+		return s.toString();
+	}
+
 	/**
 	 * Advertise one object is available using the magic {@code .have}.
 	 * <p>
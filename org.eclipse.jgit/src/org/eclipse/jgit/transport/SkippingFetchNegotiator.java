@@ -0,0 +1,199 @@
+/*
+ * Copyright (C) 2023, Google LLC and others
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Distribution License v. 1.0 which is available at
+ * https://www.eclipse.org/org/documents/edl-v10.php.
+ *
+ * SPDX-License-Identifier: BSD-3-Clause
+ */
+
+package org.eclipse.jgit.transport;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevFlag;
+import org.eclipse.jgit.revwalk.RevWalk;
+
+/**
+ * Skips commits in increasing steps while walking back along ancestry.
+ * <p>
+ * Like {@code fetch.negotiationAlgorithm=skipping} of C git: after sending a
+ * commit, the next commits along each line of ancestry are skipped, the
+ * number of skipped commits growing by half each time. A repository which
+ * diverged far from the server thus finds common history in few round trips,
+ * at the cost of possibly receiving some objects it already has.
+ * <p>
+ * Commits with parents that were already walked over due to clock skew, and
+ * commits without parents, are always sent.
+ */
+class SkippingFetchNegotiator implements FetchNegotiator {
+	private static final class Entry {
+		final RevCommit commit;
+
+		/** Sequence number, to keep the order of equal commit times. */
+		final long seq;
+
+		/** Number of commits to skip, counting this one. */
+		int ttl;
+
+		/** Value of {@link #ttl} when the current skip started. */
+		int originalTtl;
+
+		boolean popped;
+
+		Entry(RevCommit commit, long seq) {
+			this.commit = commit;
+			this.seq = seq;
+		}
+	}
+
+	private final Map<RevCommit, Entry> seen = new HashMap<>();
+
+	private final PriorityQueue<Entry> queue = new PriorityQueue<>(
+			(a, b) -> {
+				int cmp = Integer.compare(b.commit.getCommitTime(),
+						a.commit.getCommitTime());
+				return cmp != 0 ? cmp : Long.compare(a.seq, b.seq);
+			});
+
+	private RevWalk walk;
+
+	private RevFlag common;
+
+	private RevFlag advertised;
+
+	private long seq;
+
+	/** Number of seen, not yet popped commits that are not common. */
+	private int nonCommon;
+
+	@Override
+	public void begin(RevWalk rw, Collection<RevCommit> tips,
+			RevFlag commonFlag, RevFlag advertisedFlag) throws IOException {
+		walk = rw;
+		common = commonFlag;
+		advertised = advertisedFlag;
+		for (RevCommit tip : tips) {
+			if (!seen.containsKey(tip)) {
+				push(tip);
+			}
+		}
+	}
+
+	@Override
+	public RevCommit next() throws IOException {
+		RevCommit toSend = null;
+		while (toSend == null) {
+			if (queue.isEmpty() || nonCommon == 0) {
+				return null;
+			}
+
+			Entry e = queue.poll();
+			RevCommit c = e.commit;
+			e.popped = true;
+			boolean isCommon = c.has(common);
+			if (!isCommon) {
+				nonCommon--;
+				if (e.ttl == 0 || c.has(advertised)) {
+					toSend = c;
+				}
+			}
+
+			boolean parentPushed = false;
+			for (RevCommit p : c.getParents()) {
+				parentPushed |= pushParent(e, p);
+			}
+			if (!isCommon && !parentPushed) {
+				// All parents were already popped, due to clock skew, or
+				// this is a root commit. Send it anyway.
+				toSend = c;
+			}
+
+			if (!isCommon && c.has(advertised)) {
+				// The server has it, and everything reachable from it.
+				markCommon(c);
+			}
+		}
+		return toSend;
+	}
+
+	@Override
+	public void ack(RevCommit commit) {
+		if (!commit.has(common)) {
+			markCommon(commit);
+		}
+	}
+
+	private Entry push(RevCommit c) throws IOException {
+		walk.parseHeaders(c);
+		Entry e = new Entry(c, seq++);
+		seen.put(c, e);
+		queue.add(e);
+		if (!c.has(common)) {
+			nonCommon++;
+		}
+		return e;
+	}
+
+	private boolean pushParent(Entry child, RevCommit p) throws IOException {
+		Entry pe = seen.get(p);
+		if (pe == null) {
+			pe = push(p);
+		} else if (pe.popped) {
+			// Already walked over due to clock skew. Pretend this parent
+			// does not exist.
+			return false;
+		}
+
+		if (child.commit.has(common)) {
+			if (!p.has(common)) {
+				markCommon(p);
+			}
+		} else {
+			int originalTtl;
+			int ttl;
+			if (child.ttl > 0) {
+				originalTtl = child.originalTtl;
+				ttl = child.ttl - 1;
+			} else {
+				originalTtl = child.originalTtl * 3 / 2 + 1;
+				ttl = originalTtl;
+			}
+			if (pe.originalTtl < originalTtl) {
+				pe.originalTtl = originalTtl;
+				pe.ttl = ttl;
+			}
+		}
+		return true;
+	}
+
+	/** Mark a commit and its already seen ancestors as common. */
+	private void markCommon(RevCommit c) {
+		Deque<RevCommit> todo = new ArrayDeque<>();
+		c.add(common);
+		todo.add(c);
+		while ((c = todo.poll()) != null) {
+			Entry e = seen.get(c);
+			if (e == null) {
+				continue;
+			}
+			if (!e.popped) {
+				nonCommon--;
+			}
+			for (RevCommit p : c.getParents()) {
+				if (seen.containsKey(p) && !p.has(common)) {
+					p.add(common);
+					todo.add(p);
+				}
+			}
+		}
+	}
+}
@@ -28,12 +28,17 @@
 import org.eclipse.jgit.lib.Ref;
 import org.eclipse.jgit.lib.Repository;
 import org.eclipse.jgit.util.SystemReader;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /**
  * The standard "transfer", "fetch", "protocol", "receive", and "uploadpack"
  * configuration parameters.
  */
 public class TransferConfig {
+	private static final Logger LOG = LoggerFactory
+			.getLogger(TransferConfig.class);
+
 	private static final String FSCK = "fsck"; //$NON-NLS-1$
 
 	/** Key for {@link Config#get(SectionParser)}. */
@@ -108,6 +113,48 @@ static ProtocolVersion parse(@Nullable String name) {
 		}
 	}
 
+	/**
+	 * Algorithm a fetch client uses to choose the commits it tells the server
+	 * it has. Used in fetch.negotiationAlgorithm.
+	 *
+	 * @since 6.6
+	 */
+	public enum NegotiationAlgorithm {
+		/**
+		 * The default algorithm, currently {@link #CONSECUTIVE}.
+		 */
+		DEFAULT,
+		/**
+		 * Send every commit not known to be common, newest first.
+		 */
+		CONSECUTIVE,
+		/**
+		 * Skip commits in increasing steps along ancestry, finding common
+		 * history in fewer round trips if the repositories diverged far.
+		 */
+		SKIPPING,
+		/**
+		 * Send no commits, receiving all objects not reachable from
+		 * advertised refs the client has.
+		 */
+		NOOP;
+
+		/**
+		 * Create a negotiator implementing this algorithm.
+		 *
+		 * @return a new negotiator, to be used for one negotiation.
+		 */
+		public FetchNegotiator newNegotiator() {
+			if (this == SKIPPING) {
+				return new SkippingFetchNegotiator();
+			}
+			if (this == NOOP) {
+				return new NoopFetchNegotiator();
+			}
+			return new ConsecutiveFetchNegotiator();
+		}
+	}
+
 	private final boolean fetchFsck;
 	private final boolean receiveFsck;
 	private final String fsckSkipList;
@@ -128,6 +175,12 @@ static ProtocolVersion parse(@Nullable String name) {
 
 	private final boolean allowReceiveClientSID;
 
+	private final NegotiationAlgorithm negotiationAlgorithm;
+
+	private final int walkConcurrency;
+
+	private final boolean useBundleUris;
+
 	final @Nullable ProtocolVersion protocolVersion;
 	final String[] hideRefs;
 
@@ -221,6 +274,22 @@ public TransferConfig(Config rc) {
 				"advertiseobjectinfo", false);
 		allowReceiveClientSID = rc.getBoolean("transfer", "advertisesid",
 				false);
+		negotiationAlgorithm = parseNegotiationAlgorithm(rc);
+		walkConcurrency = Math.max(1,
+				rc.getInt("fetch", "walkconcurrency", 4));
+		useBundleUris = rc.getBoolean("transfer", "bundleuri", false);
+	}
+
+	private static NegotiationAlgorithm parseNegotiationAlgorithm(Config rc) {
+		// An unknown algorithm must not break pushes and servers, which
+		// don't negotiate, nor fetches, which can use the default.
+		try {
+			return rc.getEnum("fetch", null, "negotiationalgorithm",
+					NegotiationAlgorithm.DEFAULT);
+		} catch (IllegalArgumentException e) {
+			LOG.warn(e.getMessage());
+			return NegotiationAlgorithm.DEFAULT;
+		}
 	}
 
 	/**
@@ -353,6 +422,44 @@ public boolean isAllowReceiveClientSID() {
 		return allowReceiveClientSID;
 	}
 
+	/**
+	 * Get the negotiation algorithm of fetch clients
+	 *
+	 * @return the algorithm configured by {@code fetch.negotiationAlgorithm};
+	 *         {@link NegotiationAlgorithm#DEFAULT} if the configured
+	 *         algorithm is not known.
+	 * @since 6.6
+	 */
+	public NegotiationAlgorithm getNegotiationAlgorithm() {
+		return negotiationAlgorithm;
+	}
+
+	/**
+	 * Get the number of concurrent requests of dumb transport fetches
+	 * <p>
+	 * Fetches over dumb HTTP and Amazon S3 download objects and pack indexes
+	 * with up to this many requests in flight. Transports which cannot serve
+	 * concurrent requests, such as SFTP, always use a single request.
+	 *
+	 * @return the number of requests configured by
+	 *         {@code fetch.walkConcurrency}; at least 1.
+	 * @since 6.6
+	 */
+	public int getWalkConcurrency() {
+		return walkConcurrency;
+	}
+
+	/**
+	 * Whether a clone downloads the bundles advertised by the server before
+	 * fetching the remaining objects.
+	 *
+	 * @return the value of {@code transfer.bundleURI}; false by default.
+	 * @since 6.6
+	 */
+	public boolean isUseBundleUris() {
+		return useBundleUris;
+	}
+
 	/**
 	 * Get {@link org.eclipse.jgit.transport.RefFilter} respecting configured
 	 * hidden refs.
@@ -38,6 +38,7 @@
 import java.util.Map;
 import java.util.Vector;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Supplier;
 
 import org.eclipse.jgit.annotations.NonNull;
 import org.eclipse.jgit.annotations.Nullable;
@@ -801,6 +802,15 @@ static String findTrackingRefName(final String remoteName,
 
 	private List<String> deepenNots = new ArrayList<>();
 
+	@Nullable
+	private Supplier<? extends FetchNegotiator> fetchNegotiator;
+
+	/** Bundles to unbundle before fetching. */
+	private List<String> bundleUris = Collections.emptyList();
+
+	/** Whether to unbundle the bundles advertised by the remote. */
+	private boolean useBundleUris;
+
 	@Nullable
 	TransferConfig.ProtocolVersion protocol;
 
@@ -821,6 +831,7 @@ protected Transport(Repository local, URIish uri) {
 		this.uri = uri;
 		this.protocol = tc.protocolVersion;
 		this.objectChecker = tc.newObjectChecker();
+		this.useBundleUris = tc.isUseBundleUris();
 		this.credentialsProvider = CredentialsProvider.getDefault();
 	}
 
@@ -1150,6 +1161,62 @@ public final void setFilterSpec(@NonNull FilterSpec filter) {
 		filterSpec = requireNonNull(filter);
 	}
 
+	/**
+	 * Get the bundles to unbundle before fetching
+	 *
+	 * @return the locations set with {@link #setBundleUris(List)}; empty if
+	 *         none were set.
+	 * @since 6.6
+	 */
+	public final List<String> getBundleUris() {
+		return bundleUris;
+	}
+
+	/**
+	 * Set bundles to unbundle before fetching.
+	 * <p>
+	 * The bundles are fetched from in the given order, into
+	 * {@code refs/bundles/*}; their objects need not be fetched from the
+	 * remote anymore. Bundles which cannot be downloaded or unbundled are
+	 * ignored.
+	 *
+	 * @param uris
+	 *            locations of the bundles; local paths, {@code file:} or
+	 *            HTTP(S) URLs.
+	 * @since 6.6
+	 */
+	public final void setBundleUris(@NonNull List<String> uris) {
+		bundleUris = Collections.unmodifiableList(new ArrayList<>(uris));
+	}
+
+	/**
+	 * Whether the bundles advertised by the remote are unbundled
+	 *
+	 * @return whether a fetch into a repository without refs unbundles the
+	 *         bundles advertised by the remote before fetching; defaults to
+	 *         {@code transfer.bundleURI}.
+	 * @since 6.6
+	 */
+	public final boolean isUseBundleUris() {
+		return useBundleUris;
+	}
+
+	/**
+	 * Set whether the bundles advertised by the remote are unbundled.
+	 * <p>
+	 * If enabled, a fetch into a repository without refs, typically a clone,
+	 * first unbundles the bundles the remote advertises with the protocol V2
+	 * {@code bundle-uri} command, and then fetches only the objects the
+	 * bundles do not contain.
+	 *
+	 * @param use
+	 *            whether to use advertised bundles.
+	 * @since 6.6
+	 */
+	public final void setUseBundleUris(boolean use) {
+		useBundleUris = use;
+	}
+
 
 	/**
 	 * Retrieves the depth for a shallow clone.
@@ -1227,6 +1294,35 @@ public final void setDeepenNots(@NonNull List<String> deepenNots) {
 		this.deepenNots = deepenNots;
 	}
 
+	/**
+	 * Get the factory of fetch negotiators
+	 *
+	 * @return the factory set with
+	 *         {@link #setFetchNegotiator(Supplier)}; null if the
+	 *         {@code fetch.negotiationAlgorithm} of the local repository is
+	 *         used.
+	 * @since 6.6
+	 */
+	@Nullable
+	public final Supplier<? extends FetchNegotiator> getFetchNegotiator() {
+		return fetchNegotiator;
+	}
+
+	/**
+	 * Set how a fetch chooses the commits it tells the server it has.
+	 *
+	 * @param factory
+	 *            creates a negotiator for each negotiation, e.g.
+	 *            {@code NegotiationAlgorithm.SKIPPING::newNegotiator}; null
+	 *            to use the {@code fetch.negotiationAlgorithm} of the local
+	 *            repository.
+	 * @since 6.6
+	 */
+	public final void setFetchNegotiator(
+			@Nullable Supplier<? extends FetchNegotiator> factory) {
+		fetchNegotiator = factory;
+	}
+
 	/**
 	 * Apply provided remote configuration on this transport.
 	 *
@@ -351,6 +351,11 @@ private Storage loose(Ref r) {
 			return Storage.LOOSE;
 		}
 
+		@Override
+		boolean supportsConcurrentOpen() {
+			return true;
+		}
+
 		@Override
 		void close() {
 			// We do not maintain persistent connections.
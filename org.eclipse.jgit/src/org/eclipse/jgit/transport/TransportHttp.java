@@ -250,7 +250,13 @@ public Transport open(URIish uri, Repository local, String remoteName)
 
 	private boolean useSmartHttp = true;
 
-	private HttpAuthMethod authMethod = HttpAuthMethod.Type.NONE.method(null);
+	/**
+	 * Authentication of requests. It is chosen on the calling thread, before
+	 * a dumb fetch reads ahead on several threads, but these threads read the
+	 * field and use the method concurrently.
+	 */
+	private volatile HttpAuthMethod authMethod = HttpAuthMethod.Type.NONE
+			.method(null);
 
 	private Map<String, String> headers;
 
@@ -746,6 +752,93 @@ private HttpConnection connect(String service,
 		}
 	}
 
+	/**
+	 * Open the bundle at the URI of this transport.
+	 * <p>
+	 * The bundle is downloaded like the repository: with the proxy, SSL
+	 * verification, extra headers and cookies configured for its URL, and
+	 * authenticating with the credentials provider of this transport.
+	 * Closing the returned transport also closes this one.
+	 *
+	 * @return transport reading the bundle
+	 * @throws TransportException
+	 *             if the bundle cannot be downloaded
+	 */
+	Transport openBundle() throws TransportException {
+		URL u;
+		try {
+			u = new URL(currentUri.toPrivateString());
+		} catch (MalformedURLException e) {
+			throw new TransportException(uri, MessageFormat
+					.format(JGitText.get().invalidURL, currentUri), e);
+		}
+		if (HttpAuthMethod.Type.NONE.equals(authMethod.getType())) {
+			authMethod = authFromUri(currentUri);
+		}
+		int authAttempts = 1;
+		for (;;) {
+			HttpConnection conn = null;
+			try {
+				conn = httpOpen(METHOD_GET, u, AcceptEncoding.UNSPECIFIED);
+				int status = HttpSupport.response(conn);
+				processResponseCookies(conn);
+				switch (status) {
+				case HttpConnection.HTTP_OK:
+					InputStream in = conn.getInputStream();
+					conn = null;
+					return new TransportBundleStream(local, uri, in) {
+						@Override
+						public void close() {
+							try {
+								super.close();
+							} finally {
+								TransportHttp.this.close();
+							}
+						}
+					};
+
+				case HttpConnection.HTTP_UNAUTHORIZED:
+					authMethod = HttpAuthMethod.scanResponse(conn, null);
+					if (authMethod.getType() == HttpAuthMethod.Type.NONE) {
+						throw new TransportException(uri, MessageFormat.format(
+								JGitText.get().authenticationNotSupported,
+								uri));
+					}
+					CredentialsProvider credentials = getCredentialsProvider();
+					if (credentials == null) {
+						throw new TransportException(uri,
+								JGitText.get().noCredentialsProvider);
+					}
+					if (authAttempts > 1) {
+						credentials.reset(currentUri);
+					}
+					if (3 < authAttempts
+							|| !authMethod.authorize(currentUri, credentials)) {
+						throw new TransportException(uri,
+								JGitText.get().notAuthorized,
+								TransportException.Status.NOT_AUTHORIZED);
+					}
+					authAttempts++;
+					continue;
+
+				default:
+					String err = status + " " + conn.getResponseMessage(); //$NON-NLS-1$
+					throw new TransportException(uri, err);
+				}
+			} catch (SSLHandshakeException e) {
+				handleSslFailure(e);
+			} catch (TransportException e) {
+				throw e;
+			} catch (IOException e) {
+				throw new TransportException(uri, e.getMessage(), e);
+			} finally {
+				if (conn != null) {
+					conn.disconnect();
+				}
+			}
+		}
+	}
+
 	void processResponseCookies(HttpConnection conn) {
 		if (cookieFile != null && http.getSaveCookies()) {
 			List<HttpCookie> foundCookies = new LinkedList<>();
@@ -1036,14 +1129,15 @@ protected HttpConnection httpOpen(String method, URL u,
 		factoryUsed = true;
 		HttpConnection conn = factory.create(u, proxy);
 
-		if (gitSession == null && (factory instanceof HttpConnectionFactory2)) {
-			gitSession = ((HttpConnectionFactory2) factory).newSession();
-		}
-		if (gitSession != null) {
-			try {
-				gitSession.configure(conn, sslVerify);
-			} catch (GeneralSecurityException e) {
-				throw new IOException(e.getMessage(), e);
+		HttpConnectionFactory2.GitSession session = getGitSession();
+		if (session != null) {
+			// Dumb fetches may open connections from several threads.
+			synchronized (session) {
+				try {
+					session.configure(conn, sslVerify);
+				} catch (GeneralSecurityException e) {
+					throw new IOException(e.getMessage(), e);
+				}
 			}
 		} else if (!sslVerify && "https".equals(u.getProtocol())) { //$NON-NLS-1$
 			// Backwards compatibility
@@ -1082,10 +1176,21 @@ protected HttpConnection httpOpen(String method, URL u,
 				conn.setRequestProperty(entry.getKey(), entry.getValue());
 			}
 		}
-		authMethod.configureRequest(conn);
+		// Methods such as Digest count the requests they authenticate.
+		HttpAuthMethod auth = authMethod;
+		synchronized (auth) {
+			auth.configureRequest(conn);
+		}
 		return conn;
 	}
 
+	private synchronized HttpConnectionFactory2.GitSession getGitSession() {
+		if (gitSession == null && (factory instanceof HttpConnectionFactory2)) {
+			gitSession = ((HttpConnectionFactory2) factory).newSession();
+		}
+		return gitSession;
+	}
+
 	/**
 	 * Adds a list of header strings to the connection. Headers are expected to
 	 * separate keys from values, i.e. "Key: Value". Headers without colon or
@@ -1503,6 +1608,11 @@ private PackProtocolException duplicateAdvertisement(String n) {
 			return new PackProtocolException(MessageFormat.format(JGitText.get().duplicateAdvertisementsOf, n));
 		}
 
+		@Override
+		boolean supportsConcurrentOpen() {
+			return true;
+		}
+
 		@Override
 		void close() {
 			// We do not maintain persistent connections.
@@ -1553,6 +1663,18 @@ protected void doFetch(ProgressMonitor monitor, Collection<Ref> want,
 			}
 		}
 
+		@Override
+		public List<BundleUri> getBundleUris() throws TransportException {
+			if (!TransferConfig.ProtocolVersion.V2.equals(getProtocolVersion())
+					|| !isCapableOf(GitProtocolConstants.COMMAND_BUNDLE_URI)) {
+				return Collections.emptyList();
+			}
+			LongPollService service = new LongPollService(SVC_UPLOAD_PACK,
+					getProtocolVersion());
+			init(service.getInputStream(), service.getOutputStream());
+			return super.getBundleUris();
+		}
+
 		@Override
 		protected void onReceivePack() {
 			svc.finalRequest = true;
@@ -16,6 +16,7 @@
 import static org.eclipse.jgit.lib.Constants.R_TAGS;
 import static org.eclipse.jgit.transport.GitProtocolConstants.CAPABILITY_REF_IN_WANT;
 import static org.eclipse.jgit.transport.GitProtocolConstants.CAPABILITY_SERVER_OPTION;
+import static org.eclipse.jgit.transport.GitProtocolConstants.COMMAND_BUNDLE_URI;
 import static org.eclipse.jgit.transport.GitProtocolConstants.COMMAND_FETCH;
 import static org.eclipse.jgit.transport.GitProtocolConstants.COMMAND_LS_REFS;
 import static org.eclipse.jgit.transport.GitProtocolConstants.COMMAND_OBJECT_INFO;
@@ -284,6 +285,9 @@ public Set<String> getOptions() {
 	/** Filter used while advertising the refs to the client. */
 	private RefFilter refFilter = RefFilter.DEFAULT;
 
+	/** Cache of encoded advertisements; null if not caching. */
+	private RefAdvertisementCache refAdvertisementCache;
+
 	/** Hook handling the various upload phases. */
 	private PreUploadHook preUploadHook = PreUploadHook.NULL;
 
@@ -346,6 +350,8 @@ public Set<String> getOptions() {
 
 	private CachedPackUriProvider cachedPackUriProvider;
 
+	private BundleUriProvider bundleUriProvider;
+
 	/**
 	 * Create a new pack upload for an open repository.
 	 *
@@ -620,6 +626,23 @@ public void setRefFilter(@Nullable RefFilter refFilter) {
 		this.refFilter = refFilter != null ? refFilter : RefFilter.DEFAULT;
 	}
 
+	/**
+	 * Set the cache of encoded ref advertisements.
+	 * <p>
+	 * The cache must have been created for the repository this instance
+	 * serves; it is only used when the advertisement is written through a
+	 * {@link org.eclipse.jgit.transport.RefAdvertiser.PacketLineOutRefAdvertiser}.
+	 *
+	 * @param cache
+	 *            the cache, shared by all instances serving the repository;
+	 *            null to format every advertisement.
+	 * @since 6.6
+	 */
+	public void setRefAdvertisementCache(
+			@Nullable RefAdvertisementCache cache) {
+		refAdvertisementCache = cache;
+	}
+
 	/**
 	 * Get the configured pre upload hook.
 	 *
@@ -740,6 +763,21 @@ public void setCachedPackUriProvider(@Nullable CachedPackUriProvider p) {
 		cachedPackUriProvider = p;
 	}
 
+	/**
+	 * Set the provider of bundles advertised to protocol V2 clients.
+	 * <p>
+	 * If set, the {@code bundle-uri} command is advertised and clients may
+	 * download the bundles before fetching the remaining objects.
+	 *
+	 * @param p
+	 *            provider of the bundles to advertise; {@code null} to not
+	 *            advertise the {@code bundle-uri} command
+	 * @since 6.6
+	 */
+	public void setBundleUriProvider(@Nullable BundleUriProvider p) {
+		bundleUriProvider = p;
+	}
+
 	private boolean useProtocolV2() {
 		return (transferConfig.protocolVersion == null
 			|| ProtocolVersion.V2.equals(transferConfig.protocolVersion))
@@ -1145,7 +1183,8 @@ private void lsRefsV2(PacketLineOut pckOut) throws IOException {
 			findSymrefs(adv, refsToSend);
 		}
 
-		adv.send(refsToSend.values());
+		adv.send(refsToSend.values(), refAdvertisementCache,
+				advertiseRefsHook, refFilter);
 		adv.end();
 	}
 
@@ -1333,6 +1372,40 @@ private void objectInfo(PacketLineOut pckOut) throws IOException {
 		pckOut.end();
 	}
 
+	@SuppressWarnings("nls")
+	private void bundleUri(PacketLineOut pckOut) throws IOException {
+		// The request carries capabilities only, none of which are used.
+		String line;
+		while (!PacketLineIn.isEnd(line = pckIn.readString())) {
+			if (!PacketLineIn.isDelimiter(line)
+					&& !line.startsWith(OPTION_AGENT + '=')
+					&& !line.startsWith(OPTION_SESSION_ID + '=')
+					&& !line.startsWith(CAPABILITY_SERVER_OPTION + '=')) {
+				throw new PackProtocolException(MessageFormat.format(
+						JGitText.get().unexpectedPacketLine, line));
+			}
+		}
+
+		List<BundleUri> bundles = new ArrayList<>(
+				bundleUriProvider.getBundleUris(db));
+		if (!bundles.isEmpty()) {
+			pckOut.writeString("bundle.version=1\n");
+			pckOut.writeString("bundle.mode=all\n");
+			if (bundles.stream().anyMatch(b -> b.getCreationToken() > 0)) {
+				pckOut.writeString("bundle.heuristic=creationToken\n");
+			}
+			for (BundleUri b : bundles) {
+				String prefix = "bundle." + b.getId() + '.';
+				pckOut.writeString(prefix + "uri=" + b.getUri() + '\n');
+				if (b.getCreationToken() > 0) {
+					pckOut.writeString(prefix + "creationToken="
+							+ b.getCreationToken() + '\n');
+				}
+			}
+		}
+		pckOut.end();
+	}
+
 	/*
 	 * Returns true if this is the last command and we should tear down the
 	 * connection.
@@ -1363,6 +1436,11 @@ private boolean serveOneCommandV2(PacketLineOut pckOut) throws IOException {
 			objectInfo(pckOut);
 			return false;
 		}
+		if (bundleUriProvider != null
+				&& command.equals("command=" + COMMAND_BUNDLE_URI)) { //$NON-NLS-1$
+			bundleUri(pckOut);
+			return false;
+		}
 		throw new PackProtocolException(MessageFormat
 				.format(JGitText.get().unknownTransportCommand, command));
 	}
@@ -1393,6 +1471,9 @@ private List<String> getV2CapabilityAdvertisement() {
 		if (transferConfig.isAdvertiseObjectInfo()) {
 			caps.add(COMMAND_OBJECT_INFO);
 		}
+		if (bundleUriProvider != null) {
+			caps.add(COMMAND_BUNDLE_URI);
+		}
 
 		return caps;
 	}
@@ -1613,7 +1694,8 @@ public void sendAdvertisedRefs(RefAdvertiser adv,
 		}
 		adv.setDerefTags(true);
 		findSymrefs(adv, advertisedOrDefaultRefs);
-		advertised = adv.send(advertisedOrDefaultRefs.values());
+		advertised = adv.send(advertisedOrDefaultRefs.values(),
+				refAdvertisementCache, advertiseRefsHook, refFilter);
 
 		if (adv.isEmpty())
 			adv.advertiseId(ObjectId.zeroId(), "capabilities^{}"); //$NON-NLS-1$
@@ -2367,8 +2449,7 @@ private void sendPack(ProgressMonitor pm, PacketLineOut pckOut,
 			}
 			pw.setUseBitmaps(
 					req.getDepth() == 0
-							&& req.getClientShallowCommits().isEmpty()
-							&& req.getFilterSpec().getTreeDepthLimit() == -1);
+							&& req.getClientShallowCommits().isEmpty());
 			pw.setClientShallowCommits(req.getClientShallowCommits());
 			pw.setReuseDeltaCommits(true);
 			pw.setDeltaBaseAsOffset(
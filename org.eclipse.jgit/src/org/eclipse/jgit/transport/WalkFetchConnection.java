@@ -15,15 +15,24 @@
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.text.MessageFormat;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.eclipse.jgit.errors.CompoundException;
 import org.eclipse.jgit.errors.CorruptObjectException;
@@ -35,6 +44,7 @@
 import org.eclipse.jgit.internal.storage.file.UnpackedObject;
 import org.eclipse.jgit.lib.AnyObjectId;
 import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.EmptyProgressMonitor;
 import org.eclipse.jgit.lib.FileMode;
 import org.eclipse.jgit.lib.MutableObjectId;
 import org.eclipse.jgit.lib.ObjectChecker;
@@ -73,10 +83,32 @@
  * Instead it delegates the transfer to a {@link WalkRemoteObjectDatabase},
  * which knows how to read individual files from the remote repository and
  * supply the data as a standard Java InputStream.
+ * <p>
+ * If the remote database supports concurrent requests, up to
+ * {@link TransferConfig#getWalkConcurrency()} loose objects and pack indexes
+ * are downloaded ahead of the walk. Downloaded objects are still verified and
+ * inserted by the walking thread, in the order the walk needs them.
  *
  * @see WalkRemoteObjectDatabase
  */
 class WalkFetchConnection extends BaseFetchConnection {
+	private static final ExecutorService downloads = Executors
+			.newCachedThreadPool(new ThreadFactory() {
+				private final ThreadFactory baseFactory = Executors
+						.defaultThreadFactory();
+
+				private final AtomicInteger threadNumber = new AtomicInteger(0);
+
+				@Override
+				public Thread newThread(Runnable runnable) {
+					Thread thread = baseFactory.newThread(runnable);
+					thread.setName("JGit-WalkFetch-" //$NON-NLS-1$
+							+ threadNumber.getAndIncrement());
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+
 	/** The repository this transport fetches into, or pushes out of. */
 	final Repository local;
 
@@ -153,6 +185,20 @@ class WalkFetchConnection extends BaseFetchConnection {
 	/** Inserter to read objects from {@link #local}. */
 	private final ObjectReader reader;
 
+	/** Maximum number of downloads running ahead of the walk. */
+	private final int maxInFlight;
+
+	/** Loose objects being downloaded ahead of {@link #workQueue}. */
+	private final LinkedHashMap<ObjectId, LooseDownload> looseDownloads;
+
+	/**
+	 * Whether the last object was obtained as a loose object.
+	 * <p>
+	 * Loose objects are only downloaded ahead while the remote serves them;
+	 * once objects come from packs, loose requests would mostly fail.
+	 */
+	private boolean fetchingLoose;
+
 	WalkFetchConnection(WalkTransport t, WalkRemoteObjectDatabase w) {
 		Transport wt = (Transport)t;
 		local = wt.local;
@@ -184,6 +230,10 @@ class WalkFetchConnection extends BaseFetchConnection {
 
 		localCommitQueue = new DateRevQueue();
 		workQueue = new LinkedList<>();
+
+		maxInFlight = local.getConfig().get(TransferConfig.KEY)
+				.getWalkConcurrency();
+		looseDownloads = new LinkedHashMap<>();
 	}
 
 	/** {@inheritDoc} */
@@ -202,8 +252,11 @@ protected void doFetch(final ProgressMonitor monitor,
 
 		while (!monitor.isCancelled() && !workQueue.isEmpty()) {
 			final ObjectId id = workQueue.removeFirst();
-			if (!(id instanceof RevObject) || !((RevObject) id).has(COMPLETE))
+			if (!(id instanceof RevObject) || !((RevObject) id).has(COMPLETE)) {
+				downloadLooseAhead(id);
 				downloadObject(monitor, id);
+			}
+			cancelLooseDownload(id);
 			process(id);
 		}
 
@@ -229,6 +282,10 @@ public void setPackLockMessage(String message) {
 	/** {@inheritDoc} */
 	@Override
 	public void close() {
+		cancelLooseDownloads();
+		for (RemotePack p : unfetchedPacks) {
+			p.cancelIndexDownload();
+		}
 		inserter.close();
 		reader.close();
 		for (RemotePack p : unfetchedPacks) {
@@ -371,6 +428,62 @@ private void needs(RevObject obj) {
 		}
 	}
 
+	/**
+	 * Start downloading loose objects the walk will need next.
+	 *
+	 * @param next
+	 *            the object the walk is about to download.
+	 */
+	private void downloadLooseAhead(ObjectId next) throws TransportException {
+		if (maxInFlight <= 1 || !fetchingLoose) {
+			return;
+		}
+		WalkRemoteObjectDatabase remote = remotes.get(lastRemoteIdx);
+		if (!remote.supportsConcurrentOpen()) {
+			return;
+		}
+		downloadLooseAhead(remote, next);
+		Iterator<ObjectId> itr = workQueue.iterator();
+		int scanned = 0;
+		while (looseDownloads.size() < maxInFlight && itr.hasNext()
+				&& scanned++ < 4 * maxInFlight) {
+			ObjectId id = itr.next();
+			if (!(id instanceof RevObject) || !((RevObject) id).has(COMPLETE)) {
+				downloadLooseAhead(remote, id);
+			}
+		}
+	}
+
+	private void downloadLooseAhead(WalkRemoteObjectDatabase remote,
+			ObjectId id) throws TransportException {
+		if (looseDownloads.size() >= maxInFlight
+				|| looseDownloads.containsKey(id) || alreadyHave(id)) {
+			return;
+		}
+		String looseName = looseName(id);
+		looseDownloads.put(id.copy(), new LooseDownload(remote, downloads
+				.submit(() -> remote.open(looseName).toArray())));
+	}
+
+	private void cancelLooseDownload(AnyObjectId id) {
+		LooseDownload d = looseDownloads.remove(id);
+		if (d != null) {
+			d.result.cancel(true);
+		}
+	}
+
+	private void cancelLooseDownloads() {
+		for (LooseDownload d : looseDownloads.values()) {
+			d.result.cancel(true);
+		}
+		looseDownloads.clear();
+	}
+
+	private static String looseName(AnyObjectId id) {
+		final String idStr = id.name();
+		return idStr.substring(0, 2) + "/" + idStr.substring(2); //$NON-NLS-1$
+	}
+
 	private void downloadObject(ProgressMonitor pm, AnyObjectId id)
 			throws TransportException {
 		if (alreadyHave(id))
@@ -381,26 +494,28 @@ private void downloadObject(ProgressMonitor pm, AnyObjectId id)
 			// that if it has this object, it has others related to it so
 			// getting the pack is a good bet.
 			//
-			if (downloadPackedObject(pm, id))
+			if (downloadPackedObject(pm, id)) {
+				fetchingLoose = false;
+				cancelLooseDownloads();
 				return;
+			}
 
 			// Search for a loose object over all alternates, starting
 			// from the one we last successfully located an object through.
 			//
-			final String idStr = id.name();
-			final String subdir = idStr.substring(0, 2);
-			final String file = idStr.substring(2);
-			final String looseName = subdir + "/" + file; //$NON-NLS-1$
+			final String looseName = looseName(id);
 
 			for (int i = lastRemoteIdx; i < remotes.size(); i++) {
 				if (downloadLooseObject(id, looseName, remotes.get(i))) {
 					lastRemoteIdx = i;
+					fetchingLoose = true;
 					return;
 				}
 			}
 			for (int i = 0; i < lastRemoteIdx; i++) {
 				if (downloadLooseObject(id, looseName, remotes.get(i))) {
 					lastRemoteIdx = i;
+					fetchingLoose = true;
 					return;
 				}
 			}
@@ -429,8 +544,11 @@ private void downloadObject(ProgressMonitor pm, AnyObjectId id)
 					if (packsConsidered.add(packName))
 						unfetchedPacks.add(new RemotePack(wrr, packName));
 				}
-				if (downloadPackedObject(pm, id))
+				if (downloadPackedObject(pm, id)) {
+					fetchingLoose = false;
+					cancelLooseDownloads();
 					return;
+				}
 			}
 
 			// Try to expand the first alternate we haven't expanded yet.
@@ -476,11 +594,13 @@ private boolean downloadPackedObject(final ProgressMonitor monitor,
 		// Search for the object in a remote pack whose index we have,
 		// but whose pack we do not yet have.
 		//
+		downloadIndexesAhead();
 		final Iterator<RemotePack> packItr = unfetchedPacks.iterator();
 		while (packItr.hasNext() && !monitor.isCancelled()) {
 			final RemotePack pack = packItr.next();
 			try {
 				pack.openIndex(monitor);
+				downloadIndexesAhead();
 			} catch (IOException err) {
 				// If the index won't open its either not found or
 				// its a format we don't recognize. In either case
@@ -569,6 +689,27 @@ private boolean downloadPackedObject(final ProgressMonitor monitor,
 		return false;
 	}
 
+	/** Start downloading indexes of packs not searched yet. */
+	private void downloadIndexesAhead() {
+		if (maxInFlight <= 1) {
+			return;
+		}
+		int inFlight = 0;
+		for (RemotePack pack : unfetchedPacks) {
+			if (pack.isDownloadingIndex()) {
+				inFlight++;
+			}
+		}
+		for (RemotePack pack : unfetchedPacks) {
+			if (inFlight >= maxInFlight) {
+				return;
+			}
+			if (pack.downloadIndexAhead()) {
+				inFlight++;
+			}
+		}
+	}
+
 	private Iterator<ObjectId> swapFetchQueue() {
 		final Iterator<ObjectId> r = workQueue.iterator();
 		workQueue = new LinkedList<>();
@@ -579,7 +720,10 @@ private boolean downloadLooseObject(final AnyObjectId id,
 			final String looseName, final WalkRemoteObjectDatabase remote)
 			throws TransportException {
 		try {
-			final byte[] compressed = remote.open(looseName).toArray();
+			byte[] compressed = takeLooseDownload(id, remote);
+			if (compressed == null) {
+				compressed = remote.open(looseName).toArray();
+			}
 			verifyAndInsertLooseObject(id, compressed);
 			return true;
 		} catch (FileNotFoundException e) {
@@ -593,6 +737,46 @@ private boolean downloadLooseObject(final AnyObjectId id,
 		}
 	}
 
+	/**
+	 * Get the result of a download started ahead of the walk.
+	 *
+	 * @return the compressed object; null if no download of the object
+	 *         from {@code remote} was started.
+	 */
+	private byte[] takeLooseDownload(AnyObjectId id,
+			WalkRemoteObjectDatabase remote) throws IOException {
+		LooseDownload d = looseDownloads.remove(id);
+		if (d == null) {
+			return null;
+		}
+		if (d.remote != remote) {
+			d.result.cancel(true);
+			return null;
+		}
+		return await(d.result);
+	}
+
+	private static <T> T await(Future<T> result) throws IOException {
+		try {
+			return result.get();
+		} catch (InterruptedException e) {
+			result.cancel(true);
+			throw new InterruptedIOException(e.getMessage());
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof IOException) {
+				throw (IOException) cause;
+			}
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw new IOException(cause);
+		}
+	}
+
 	private void verifyAndInsertLooseObject(final AnyObjectId id,
 			final byte[] compressed) throws IOException {
 		final ObjectLoader uol;
@@ -774,6 +958,17 @@ private void recordError(AnyObjectId id, Throwable what) {
 		errors.add(what);
 	}
 
+	private static class LooseDownload {
+		final WalkRemoteObjectDatabase remote;
+
+		final Future<byte[]> result;
+
+		LooseDownload(WalkRemoteObjectDatabase remote, Future<byte[]> result) {
+			this.remote = remote;
+			this.result = result;
+		}
+	}
+
 	private class RemotePack {
 		final WalkRemoteObjectDatabase connection;
 
@@ -785,6 +980,15 @@ private class RemotePack {
 
 		PackIndex index;
 
+		/**
+		 * Download of the index started ahead of the walk; completes once
+		 * the download stopped, even if it was cancelled.
+		 */
+		CompletableFuture<PackIndex> indexDownload;
+
+		/** Whether the download of the index was cancelled. */
+		volatile boolean indexCancelled;
+
 		RemotePack(WalkRemoteObjectDatabase c, String pn) {
 			connection = c;
 			packName = pn;
@@ -803,9 +1007,63 @@ private class RemotePack {
 			}
 		}
 
+		boolean isDownloadingIndex() {
+			return indexDownload != null && !indexDownload.isDone();
+		}
+
+		/** @return true if a download of the index was started. */
+		boolean downloadIndexAhead() {
+			if (index != null || indexDownload != null
+					|| !connection.supportsConcurrentOpen()) {
+				return false;
+			}
+			CompletableFuture<PackIndex> result = new CompletableFuture<>();
+			indexDownload = result;
+			downloads.execute(() -> {
+				try {
+					loadIndex(new CancelMonitor());
+					result.complete(index);
+				} catch (Throwable err) {
+					result.completeExceptionally(err);
+				}
+			});
+			return true;
+		}
+
+		/**
+		 * Stop the download of the index, and wait until it stopped using
+		 * {@link #tmpIdx}.
+		 */
+		void cancelIndexDownload() {
+			if (indexDownload != null) {
+				indexCancelled = true;
+				try {
+					indexDownload.join();
+				} catch (RuntimeException err) {
+					// The index is not used anymore.
+				}
+			}
+		}
+
+		/** Reports the download of the index as cancelled once closing. */
+		private class CancelMonitor extends EmptyProgressMonitor {
+			@Override
+			public boolean isCancelled() {
+				return indexCancelled;
+			}
+		}
+
 		void openIndex(ProgressMonitor pm) throws IOException {
 			if (index != null)
 				return;
+			if (indexDownload != null) {
+				index = await(indexDownload);
+				return;
+			}
+			loadIndex(pm);
+		}
+
+		private void loadIndex(ProgressMonitor pm) throws IOException {
 			if (tmpIdx == null)
 				tmpIdx = File.createTempFile("jgit-walk-", ".idx"); //$NON-NLS-1$ //$NON-NLS-2$
 			else if (tmpIdx.isFile()) {
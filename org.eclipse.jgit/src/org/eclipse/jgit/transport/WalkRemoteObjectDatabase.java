@@ -152,6 +152,19 @@ abstract WalkRemoteObjectDatabase openAlternate(String location)
 	 */
 	abstract void close();
 
+	/**
+	 * Whether {@link #open(String)} may be called by several threads at once.
+	 * <p>
+	 * Implementations whose requests are independent of each other, such as
+	 * HTTP or Amazon S3, return true so that fetches may download several
+	 * files concurrently.
+	 *
+	 * @return true if concurrent calls to {@link #open(String)} are safe.
+	 */
+	boolean supportsConcurrentOpen() {
+		return false;
+	}
+
 	/**
 	 * Delete a file from the object database.
 	 * <p>
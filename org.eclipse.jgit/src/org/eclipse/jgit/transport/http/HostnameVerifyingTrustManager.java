@@ -0,0 +1,270 @@
+/*
+ * Copyright (C) 2023, Google LLC and others
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Distribution License v. 1.0 which is available at
+ * https://www.eclipse.org/org/documents/edl-v10.php.
+ *
+ * SPDX-License-Identifier: BSD-3-Clause
+ */
+package org.eclipse.jgit.transport.http;
+
+import java.net.Socket;
+import java.security.KeyManagementException;
+import java.security.KeyStore;
+import java.security.KeyStoreException;
+import java.security.NoSuchAlgorithmException;
+import java.security.Principal;
+import java.security.cert.Certificate;
+import java.security.cert.CertificateException;
+import java.security.cert.X509Certificate;
+import java.text.MessageFormat;
+
+import javax.net.ssl.HostnameVerifier;
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLPeerUnverifiedException;
+import javax.net.ssl.SSLSession;
+import javax.net.ssl.SSLSessionContext;
+import javax.net.ssl.SSLSocket;
+import javax.net.ssl.TrustManager;
+import javax.net.ssl.TrustManagerFactory;
+import javax.net.ssl.X509ExtendedTrustManager;
+import javax.net.ssl.X509TrustManager;
+
+import org.eclipse.jgit.internal.JGitText;
+
+/**
+ * Trust manager verifying the host name of the server through a
+ * {@link HostnameVerifier}.
+ * <p>
+ * {@link java.net.http.HttpClient} has no hostname verifier; it relies on the
+ * trust manager to check the server is the host it connected to. This trust
+ * manager checks the certificates of the server with the trust manager it
+ * wraps, without its host name check, and then asks the verifier.
+ */
+class HostnameVerifyingTrustManager extends X509ExtendedTrustManager {
+	/**
+	 * Wrap trust managers to verify host names.
+	 *
+	 * @param tm
+	 *            trust managers to wrap; {@code null} for the default ones
+	 * @param verifier
+	 *            verifier of the host name of the server
+	 * @return the wrapped trust managers
+	 * @throws NoSuchAlgorithmException
+	 *             if the default trust managers are not available
+	 * @throws KeyManagementException
+	 *             if the default trust managers cannot be initialized
+	 */
+	static TrustManager[] wrap(TrustManager[] tm, HostnameVerifier verifier)
+			throws NoSuchAlgorithmException, KeyManagementException {
+		TrustManager[] src = tm;
+		if (src == null) {
+			TrustManagerFactory f = TrustManagerFactory
+					.getInstance(TrustManagerFactory.getDefaultAlgorithm());
+			try {
+				f.init((KeyStore) null);
+			} catch (KeyStoreException e) {
+				throw new KeyManagementException(e.getMessage(), e);
+			}
+			src = f.getTrustManagers();
+		}
+		TrustManager[] r = new TrustManager[src.length];
+		for (int i = 0; i < src.length; i++) {
+			if (src[i] instanceof X509TrustManager) {
+				r[i] = new HostnameVerifyingTrustManager(
+						(X509TrustManager) src[i], verifier);
+			} else {
+				r[i] = src[i];
+			}
+		}
+		return r;
+	}
+
+	private final X509TrustManager delegate;
+
+	private final HostnameVerifier verifier;
+
+	private HostnameVerifyingTrustManager(X509TrustManager delegate,
+			HostnameVerifier verifier) {
+		this.delegate = delegate;
+		this.verifier = verifier;
+	}
+
+	@Override
+	public X509Certificate[] getAcceptedIssuers() {
+		return delegate.getAcceptedIssuers();
+	}
+
+	@Override
+	public void checkClientTrusted(X509Certificate[] chain, String authType)
+			throws CertificateException {
+		delegate.checkClientTrusted(chain, authType);
+	}
+
+	@Override
+	public void checkClientTrusted(X509Certificate[] chain, String authType,
+			Socket socket) throws CertificateException {
+		delegate.checkClientTrusted(chain, authType);
+	}
+
+	@Override
+	public void checkClientTrusted(X509Certificate[] chain, String authType,
+			SSLEngine engine) throws CertificateException {
+		delegate.checkClientTrusted(chain, authType);
+	}
+
+	@Override
+	public void checkServerTrusted(X509Certificate[] chain, String authType)
+			throws CertificateException {
+		delegate.checkServerTrusted(chain, authType);
+	}
+
+	@Override
+	public void checkServerTrusted(X509Certificate[] chain, String authType,
+			Socket socket) throws CertificateException {
+		delegate.checkServerTrusted(chain, authType);
+		if (socket instanceof SSLSocket) {
+			SSLSession s = ((SSLSocket) socket).getHandshakeSession();
+			verify(chain, s.getPeerHost(), s);
+		}
+	}
+
+	@Override
+	public void checkServerTrusted(X509Certificate[] chain, String authType,
+			SSLEngine engine) throws CertificateException {
+		delegate.checkServerTrusted(chain, authType);
+		verify(chain, engine.getPeerHost(), engine.getHandshakeSession());
+	}
+
+	private void verify(X509Certificate[] chain, String host,
+			SSLSession session) throws CertificateException {
+		// The handshake session does not have the certificates of the peer
+		// yet while they are checked.
+		if (!verifier.verify(host, new HandshakeSession(session, chain))) {
+			throw new CertificateException(MessageFormat
+					.format(JGitText.get().sslHostnameNotVerified, host));
+		}
+	}
+
+	/** Handshake session with the certificates being checked. */
+	private static class HandshakeSession implements SSLSession {
+		private final SSLSession session;
+
+		private final X509Certificate[] chain;
+
+		HandshakeSession(SSLSession session, X509Certificate[] chain) {
+			this.session = session;
+			this.chain = chain;
+		}
+
+		@Override
+		public Certificate[] getPeerCertificates()
+				throws SSLPeerUnverifiedException {
+			return chain.clone();
+		}
+
+		@Override
+		public Principal getPeerPrincipal()
+				throws SSLPeerUnverifiedException {
+			return chain[0].getSubjectX500Principal();
+		}
+
+		@Override
+		@SuppressWarnings("deprecation")
+		public javax.security.cert.X509Certificate[] getPeerCertificateChain()
+				throws SSLPeerUnverifiedException {
+			return session.getPeerCertificateChain();
+		}
+
+		@Override
+		public byte[] getId() {
+			return session.getId();
+		}
+
+		@Override
+		public SSLSessionContext getSessionContext() {
+			return session.getSessionContext();
+		}
+
+		@Override
+		public long getCreationTime() {
+			return session.getCreationTime();
+		}
+
+		@Override
+		public long getLastAccessedTime() {
+			return session.getLastAccessedTime();
+		}
+
+		@Override
+		public void invalidate() {
+			session.invalidate();
+		}
+
+		@Override
+		public boolean isValid() {
+			return session.isValid();
+		}
+
+		@Override
+		public void putValue(String name, Object value) {
+			session.putValue(name, value);
+		}
+
+		@Override
+		public Object getValue(String name) {
+			return session.getValue(name);
+		}
+
+		@Override
+		public void removeValue(String name) {
+			session.removeValue(name);
+		}
+
+		@Override
+		public String[] getValueNames() {
+			return session.getValueNames();
+		}
+
+		@Override
+		public Certificate[] getLocalCertificates() {
+			return session.getLocalCertificates();
+		}
+
+		@Override
+		public Principal getLocalPrincipal() {
+			return session.getLocalPrincipal();
+		}
+
+		@Override
+		public String getCipherSuite() {
+			return session.getCipherSuite();
+		}
+
+		@Override
+		public String getProtocol() {
+			return session.getProtocol();
+		}
+
+		@Override
+		public String getPeerHost() {
+			return session.getPeerHost();
+		}
+
+		@Override
+		public int getPeerPort() {
+			return session.getPeerPort();
+		}
+
+		@Override
+		public int getPacketBufferSize() {
+			return session.getPacketBufferSize();
+		}
+
+		@Override
+		public int getApplicationBufferSize() {
+			return session.getApplicationBufferSize();
+		}
+	}
+}
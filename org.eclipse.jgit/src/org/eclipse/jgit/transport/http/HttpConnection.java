@@ -324,6 +324,18 @@ void setRequestMethod(String method)
 	 */
 	void connect() throws IOException;
 
+	/**
+	 * Release the resources of the connection without reading the rest of
+	 * the response, e.g. after an unexpected status. The connection is not
+	 * reused for other requests.
+	 *
+	 * @see HttpURLConnection#disconnect()
+	 * @since 6.6
+	 */
+	default void disconnect() {
+		// Nothing to release by default.
+	}
+
 	/**
 	 * Configure the connection so that it can be used for https communication.
 	 *
@@ -221,6 +221,12 @@ public void connect() throws IOException {
 		wrappedUrlConnection.connect();
 	}
 
+	/** {@inheritDoc} */
+	@Override
+	public void disconnect() {
+		wrappedUrlConnection.disconnect();
+	}
+
 	/** {@inheritDoc} */
 	@Override
 	public void setHostnameVerifier(HostnameVerifier hostnameverifier) {
@@ -0,0 +1,604 @@
+/*
+ * Copyright (C) 2023, Google LLC and others
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Distribution License v. 1.0 which is available at
+ * https://www.eclipse.org/org/documents/edl-v10.php.
+ *
+ * SPDX-License-Identifier: BSD-3-Clause
+ */
+package org.eclipse.jgit.transport.http;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.net.ProtocolException;
+import java.net.Proxy;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpRequest.BodyPublisher;
+import java.net.http.HttpRequest.BodyPublishers;
+import java.net.http.HttpResponse;
+import java.net.http.HttpResponse.BodyHandlers;
+import java.nio.ByteBuffer;
+import java.security.KeyManagementException;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Flow.Subscriber;
+import java.util.concurrent.Flow.Subscription;
+
+import javax.net.ssl.HostnameVerifier;
+import javax.net.ssl.KeyManager;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.TrustManager;
+
+import org.eclipse.jgit.annotations.NonNull;
+import org.eclipse.jgit.util.HttpSupport;
+
+/**
+ * A {@link org.eclipse.jgit.transport.http.HttpConnection} sending its request
+ * through a {@link java.net.http.HttpClient}.
+ * <p>
+ * The request is sent when the response is first accessed, or, for requests
+ * with a body, as soon as the caller obtains the
+ * {@link #getOutputStream() output stream}. The body is streamed to the
+ * server while it is being written. Clients are shared through the
+ * {@link JavaHttpClientConnectionFactory} which created the connection, so
+ * consecutive requests reuse pooled HTTP/1.1 connections or multiplex over a
+ * single HTTP/2 connection.
+ *
+ * @since 6.6
+ */
+public class JavaHttpClientConnection implements HttpConnection {
+	/** Headers {@link java.net.http.HttpClient} does not let callers set. */
+	private static final Set<String> RESTRICTED_HEADERS = Set.of(
+			"connection", "content-length", "expect", "host", "upgrade"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ //$NON-NLS-5$
+
+	private final JavaHttpClientConnectionFactory factory;
+
+	private final URL url;
+
+	private final Proxy proxy;
+
+	private final Map<String, List<String>> requestHeaders = new TreeMap<>(
+			String.CASE_INSENSITIVE_ORDER);
+
+	private String method = HttpSupport.METHOD_GET;
+
+	private int connectTimeout;
+
+	private int readTimeout;
+
+	private boolean doOutput;
+
+	private long fixedContentLength = -1;
+
+	private KeyManager[] keyManagers;
+
+	private TrustManager[] trustManagers;
+
+	private SecureRandom random;
+
+	private HostnameVerifier hostnameVerifier;
+
+	private SSLContext sslContext;
+
+	private BodyOutputStream body;
+
+	private CompletableFuture<HttpResponse<InputStream>> pending;
+
+	private HttpResponse<InputStream> response;
+
+	/**
+	 * Create a connection.
+	 *
+	 * @param factory
+	 *            factory providing the shared clients
+	 * @param url
+	 *            the URL to request
+	 * @param proxy
+	 *            the proxy to use, {@code null} or
+	 *            {@link java.net.Proxy#NO_PROXY} to connect directly
+	 */
+	protected JavaHttpClientConnection(
+			@NonNull JavaHttpClientConnectionFactory factory, URL url,
+			Proxy proxy) {
+		this.factory = factory;
+		this.url = url;
+		this.proxy = proxy;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public int getResponseCode() throws IOException {
+		return response().statusCode();
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public URL getURL() {
+		return url;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * HTTP/2 does not transfer reason phrases; this returns the standard text
+	 * of the status code instead.
+	 */
+	@Override
+	public String getResponseMessage() throws IOException {
+		return reasonPhrase(getResponseCode());
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public Map<String, List<String>> getHeaderFields() {
+		try {
+			return response().headers().map();
+		} catch (IOException e) {
+			return Collections.emptyMap();
+		}
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void setRequestProperty(String key, String value) {
+		List<String> values = new ArrayList<>(1);
+		values.add(value);
+		requestHeaders.put(key, values);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void setRequestMethod(String method) throws ProtocolException {
+		if (pending != null) {
+			throw new ProtocolException(
+					"Can't reset method: already connected"); //$NON-NLS-1$
+		}
+		this.method = method;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void setUseCaches(boolean usecaches) {
+		// java.net.http.HttpClient does not cache responses.
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void setConnectTimeout(int timeout) {
+		connectTimeout = timeout;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * The timeout limits the time until the response headers are received.
+	 */
+	@Override
+	public void setReadTimeout(int timeout) {
+		readTimeout = timeout;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public String getContentType() {
+		return getHeaderField(HttpSupport.HDR_CONTENT_TYPE);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public InputStream getInputStream() throws IOException {
+		return response().body();
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public String getHeaderField(@NonNull String name) {
+		try {
+			return response().headers().firstValue(name).orElse(null);
+		} catch (IOException e) {
+			return null;
+		}
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public List<String> getHeaderFields(@NonNull String name) {
+		try {
+			return response().headers().allValues(name);
+		} catch (IOException e) {
+			return Collections.emptyList();
+		}
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public int getContentLength() {
+		String len = getHeaderField(HttpSupport.HDR_CONTENT_LENGTH);
+		if (len != null) {
+			try {
+				return Integer.parseInt(len.trim());
+			} catch (NumberFormatException e) {
+				// Treat as unknown.
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * Redirects are never followed; JGit handles them itself.
+	 */
+	@Override
+	public void setInstanceFollowRedirects(boolean followRedirects) {
+		// Clients are created with HttpClient.Redirect.NEVER.
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void setDoOutput(boolean dooutput) {
+		doOutput = dooutput;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void setFixedLengthStreamingMode(int contentLength) {
+		fixedContentLength = contentLength;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public OutputStream getOutputStream() throws IOException {
+		if (body == null) {
+			if (response != null) {
+				throw new ProtocolException(
+						"Cannot write output after reading input"); //$NON-NLS-1$
+			}
+			doOutput = true;
+			body = new BodyOutputStream(contentLength());
+			send(body);
+		}
+		return body;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void setChunkedStreamingMode(int chunklen) {
+		fixedContentLength = -1;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public String getRequestMethod() {
+		return method;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public boolean usingProxy() {
+		return proxy != null && proxy.type() != Proxy.Type.DIRECT;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void connect() throws IOException {
+		if (pending == null && !doOutput) {
+			send(BodyPublishers.noBody());
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * Closing the body before it was read completely closes the underlying
+	 * connection of the client.
+	 */
+	@Override
+	public void disconnect() {
+		if (response != null) {
+			try {
+				response.body().close();
+			} catch (IOException e) {
+				// Ignore, the connection is not used anymore.
+			}
+		} else if (pending != null) {
+			pending.cancel(true);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * Connections configured with the same key and trust managers share a
+	 * client.
+	 */
+	@Override
+	public void configure(KeyManager[] km, TrustManager[] tm,
+			SecureRandom random)
+			throws NoSuchAlgorithmException, KeyManagementException {
+		keyManagers = km;
+		trustManagers = tm;
+		this.random = random;
+		sslContext = factory.getSSLContext(km, tm, random, hostnameVerifier);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * {@link java.net.http.HttpClient} has no hostname verifier. The verifier
+	 * is called by the trust managers instead, once they accepted the
+	 * certificates of the server, and replaces their own check of the host
+	 * name.
+	 */
+	@Override
+	public void setHostnameVerifier(HostnameVerifier hostnameverifier)
+			throws NoSuchAlgorithmException, KeyManagementException {
+		hostnameVerifier = hostnameverifier;
+		sslContext = factory.getSSLContext(keyManagers, trustManagers, random,
+				hostnameverifier);
+	}
+
+	void setSSLContext(SSLContext ctx) {
+		sslContext = ctx;
+	}
+
+	private long contentLength() {
+		if (fixedContentLength >= 0) {
+			return fixedContentLength;
+		}
+		List<String> len = requestHeaders
+				.get(HttpSupport.HDR_CONTENT_LENGTH);
+		if (len != null && !len.isEmpty()) {
+			try {
+				return Long.parseLong(len.get(0).trim());
+			} catch (NumberFormatException e) {
+				// Send chunked.
+			}
+		}
+		return -1;
+	}
+
+	private void send(BodyPublisher publisher) throws IOException {
+		HttpRequest.Builder req;
+		try {
+			req = HttpRequest.newBuilder(url.toURI());
+		} catch (URISyntaxException e) {
+			throw new IOException(e.getMessage(), e);
+		}
+		req.method(method, publisher);
+		if (readTimeout > 0) {
+			req.timeout(Duration.ofMillis(readTimeout));
+		}
+		for (Map.Entry<String, List<String>> e : requestHeaders.entrySet()) {
+			if (RESTRICTED_HEADERS
+					.contains(e.getKey().toLowerCase(Locale.ROOT))) {
+				continue;
+			}
+			for (String v : e.getValue()) {
+				req.header(e.getKey(), v);
+			}
+		}
+		HttpClient client = factory.getClient(proxy, connectTimeout,
+				sslContext);
+		pending = client.sendAsync(req.build(), BodyHandlers.ofInputStream());
+	}
+
+	private HttpResponse<InputStream> response() throws IOException {
+		if (response == null) {
+			if (pending == null) {
+				if (doOutput && body == null) {
+					getOutputStream();
+				} else {
+					connect();
+				}
+			}
+			if (body != null) {
+				body.close();
+			}
+			try {
+				response = pending.get();
+			} catch (InterruptedException e) {
+				pending.cancel(true);
+				throw new InterruptedIOException(e.getMessage());
+			} catch (ExecutionException e) {
+				Throwable cause = e.getCause();
+				if (cause instanceof IOException) {
+					throw new IOException(cause.getMessage(), cause);
+				}
+				throw new IOException(cause);
+			}
+		}
+		return response;
+	}
+
+	private static String reasonPhrase(int status) {
+		switch (status) {
+		case HTTP_OK:
+			return "OK"; //$NON-NLS-1$
+		case HTTP_NOT_AUTHORITATIVE:
+			return "Non-Authoritative Information"; //$NON-NLS-1$
+		case HTTP_MOVED_PERM:
+			return "Moved Permanently"; //$NON-NLS-1$
+		case HTTP_MOVED_TEMP:
+			return "Found"; //$NON-NLS-1$
+		case HTTP_SEE_OTHER:
+			return "See Other"; //$NON-NLS-1$
+		case HTTP_11_MOVED_TEMP:
+			return "Temporary Redirect"; //$NON-NLS-1$
+		case HTTP_11_MOVED_PERM:
+			return "Permanent Redirect"; //$NON-NLS-1$
+		case HTTP_UNAUTHORIZED:
+			return "Unauthorized"; //$NON-NLS-1$
+		case HTTP_FORBIDDEN:
+			return "Forbidden"; //$NON-NLS-1$
+		case HTTP_NOT_FOUND:
+			return "Not Found"; //$NON-NLS-1$
+		case 500:
+			return "Internal Server Error"; //$NON-NLS-1$
+		default:
+			return ""; //$NON-NLS-1$
+		}
+	}
+
+	/**
+	 * Request body passed from the writing thread to the client.
+	 * <p>
+	 * Each write is handed to the client's subscriber by the writing thread
+	 * as soon as the client requested more data, so no thread of the client
+	 * blocks waiting for the body. The writer blocks while the client did
+	 * not request more, and fails once the request was aborted.
+	 */
+	private class BodyOutputStream extends OutputStream
+			implements BodyPublisher, Subscription {
+		private final long length;
+
+		private boolean subscribed;
+
+		private Subscriber<? super ByteBuffer> subscriber;
+
+		private long demand;
+
+		private boolean cancelled;
+
+		private boolean closed;
+
+		BodyOutputStream(long length) {
+			this.length = length;
+		}
+
+		@Override
+		public long contentLength() {
+			return length;
+		}
+
+		@Override
+		public void subscribe(Subscriber<? super ByteBuffer> s) {
+			boolean again;
+			synchronized (this) {
+				again = subscribed;
+				subscribed = true;
+			}
+			if (again) {
+				// The body is not kept, it cannot be sent again.
+				s.onSubscribe(new NoSubscription());
+				s.onError(new IOException(
+						"Request body can only be sent once")); //$NON-NLS-1$
+				return;
+			}
+			s.onSubscribe(this);
+			synchronized (this) {
+				subscriber = s;
+				notifyAll();
+			}
+		}
+
+		@Override
+		public synchronized void request(long n) {
+			demand += n;
+			if (demand < 0) {
+				demand = Long.MAX_VALUE;
+			}
+			notifyAll();
+		}
+
+		@Override
+		public synchronized void cancel() {
+			cancelled = true;
+			notifyAll();
+		}
+
+		@Override
+		public void write(int b) throws IOException {
+			write(new byte[] { (byte) b }, 0, 1);
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			if (closed) {
+				throw new IOException("Stream closed"); //$NON-NLS-1$
+			}
+			if (len > 0) {
+				byte[] chunk = new byte[len];
+				System.arraycopy(b, off, chunk, 0, len);
+				Subscriber<? super ByteBuffer> s = await(true);
+				if (s == null) {
+					throw new IOException(
+							"Request aborted before the body was sent"); //$NON-NLS-1$
+				}
+				s.onNext(ByteBuffer.wrap(chunk));
+			}
+		}
+
+		@Override
+		public void close() throws IOException {
+			if (!closed) {
+				closed = true;
+				Subscriber<? super ByteBuffer> s = await(false);
+				if (s != null) {
+					s.onComplete();
+				}
+			}
+		}
+
+		/**
+		 * Wait until the client subscribed to the body.
+		 *
+		 * @param data
+		 *            whether to also wait until the client requested more
+		 *            data, and take one item of its demand
+		 * @return the subscriber; {@code null} if the request completed or
+		 *         failed without consuming the body
+		 * @throws InterruptedIOException
+		 *             if interrupted while waiting
+		 */
+		private synchronized Subscriber<? super ByteBuffer> await(
+				boolean data) throws InterruptedIOException {
+			try {
+				while (!cancelled
+						&& (subscriber == null || (data && demand == 0))) {
+					if (pending.isDone()) {
+						return null;
+					}
+					wait(100);
+				}
+			} catch (InterruptedException e) {
+				throw new InterruptedIOException(e.getMessage());
+			}
+			if (cancelled) {
+				return null;
+			}
+			if (data) {
+				demand--;
+			}
+			return subscriber;
+		}
+	}
+
+	private static class NoSubscription implements Subscription {
+		@Override
+		public void request(long n) {
+			// Nothing to send.
+		}
+
+		@Override
+		public void cancel() {
+			// Nothing to send.
+		}
+	}
+}
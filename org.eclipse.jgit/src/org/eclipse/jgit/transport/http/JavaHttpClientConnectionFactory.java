@@ -0,0 +1,446 @@
+/*
+ * Copyright (C) 2023, Google LLC and others
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Distribution License v. 1.0 which is available at
+ * https://www.eclipse.org/org/documents/edl-v10.php.
+ *
+ * SPDX-License-Identifier: BSD-3-Clause
+ */
+package org.eclipse.jgit.transport.http;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.net.ProxySelector;
+import java.net.Socket;
+import java.net.URL;
+import java.net.http.HttpClient;
+import java.net.http.HttpClient.Redirect;
+import java.net.http.HttpClient.Version;
+import java.security.GeneralSecurityException;
+import java.security.KeyManagementException;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.security.cert.X509Certificate;
+import java.text.MessageFormat;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+import javax.net.ssl.HostnameVerifier;
+import javax.net.ssl.KeyManager;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.TrustManager;
+import javax.net.ssl.X509ExtendedTrustManager;
+
+import org.eclipse.jgit.annotations.NonNull;
+import org.eclipse.jgit.internal.JGitText;
+
+/**
+ * A factory returning instances of
+ * {@link org.eclipse.jgit.transport.http.JavaHttpClientConnection}, which
+ * send requests through {@link java.net.http.HttpClient}.
+ * <p>
+ * Unlike {@link JDKHttpConnectionFactory}, whose connections are set up per
+ * request, this factory keeps one {@link java.net.http.HttpClient} per proxy,
+ * connect timeout and TLS configuration and shares it between all
+ * connections, and therefore between all
+ * {@link org.eclipse.jgit.transport.TransportHttp} instances using the
+ * factory. Requests to the same server reuse pooled connections; if the
+ * server supports HTTP/2 the requests of a protocol V2 fetch are multiplexed
+ * over a single connection. Request bodies are streamed to the server while
+ * they are written.
+ * <p>
+ * To use it for all HTTP transports, install it with
+ * {@link org.eclipse.jgit.transport.HttpTransport#setConnectionFactory(HttpConnectionFactory)}.
+ *
+ * @since 6.6
+ */
+public class JavaHttpClientConnectionFactory implements HttpConnectionFactory2 {
+	private final Version version;
+
+	private final Map<ClientKey, HttpClient> clients = new Cache<>();
+
+	/** TLS configurations set on connections, by their settings. */
+	private final Map<TlsKey, SSLContext> contexts = new Cache<>();
+
+	private volatile SSLContext noCheckContext;
+
+	/**
+	 * Create a factory preferring HTTP/2.
+	 */
+	public JavaHttpClientConnectionFactory() {
+		this(Version.HTTP_2);
+	}
+
+	/**
+	 * Create a factory.
+	 *
+	 * @param version
+	 *            preferred HTTP version; with {@link Version#HTTP_2} the
+	 *            client falls back to HTTP/1.1 for servers not supporting
+	 *            HTTP/2.
+	 */
+	public JavaHttpClientConnectionFactory(@NonNull Version version) {
+		this.version = version;
+	}
+
+	/**
+	 * Get the preferred HTTP version
+	 *
+	 * @return the preferred HTTP version of requests.
+	 */
+	public Version getVersion() {
+		return version;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public HttpConnection create(URL url) throws IOException {
+		return new JavaHttpClientConnection(this, url, null);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * {@link java.net.http.HttpClient} only supports HTTP proxies.
+	 *
+	 * @throws IOException
+	 *             if {@code proxy} is a SOCKS proxy
+	 */
+	@Override
+	public HttpConnection create(URL url, Proxy proxy) throws IOException {
+		if (proxy != null && proxy.type() != Proxy.Type.DIRECT
+				&& (proxy.type() != Proxy.Type.HTTP
+						|| !(proxy.address() instanceof InetSocketAddress))) {
+			throw new IOException(MessageFormat.format(
+					JGitText.get().httpProxyNotSupported, proxy.type(),
+					HttpClient.class.getName()));
+		}
+		return new JavaHttpClientConnection(this, url, proxy);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public GitSession newSession() {
+		return new JavaHttpClientSession();
+	}
+
+	/**
+	 * Drop all shared clients.
+	 * <p>
+	 * Pooled connections of the dropped clients are closed once they become
+	 * idle. Connections created afterwards use new clients.
+	 */
+	public void clear() {
+		synchronized (clients) {
+			clients.clear();
+		}
+		synchronized (contexts) {
+			contexts.clear();
+		}
+	}
+
+	/**
+	 * Get the client for a request.
+	 *
+	 * @param proxy
+	 *            proxy of the request, may be {@code null}
+	 * @param connectTimeout
+	 *            connect timeout in milliseconds; 0 for none
+	 * @param sslContext
+	 *            TLS configuration of the request; {@code null} for the
+	 *            default
+	 * @return the client, shared by all requests with the same settings
+	 */
+	HttpClient getClient(Proxy proxy, int connectTimeout,
+			SSLContext sslContext) {
+		Proxy p = proxy != null ? proxy : Proxy.NO_PROXY;
+		synchronized (clients) {
+			return clients.computeIfAbsent(
+					new ClientKey(p, connectTimeout, sslContext),
+					k -> newClient(k.proxy, k.connectTimeout, k.sslContext));
+		}
+	}
+
+	/**
+	 * Get the TLS configuration for settings of
+	 * {@link HttpConnection#configure(KeyManager[], TrustManager[], SecureRandom)}
+	 * and {@link HttpConnection#setHostnameVerifier(HostnameVerifier)}.
+	 * <p>
+	 * Connections configured with the same key and trust managers and the
+	 * same verifier get the same configuration, and therefore share a
+	 * client. {@link NoCheckX509TrustManager}s do not hold any state and are
+	 * considered the same.
+	 *
+	 * @param km
+	 *            key managers, may be {@code null}
+	 * @param tm
+	 *            trust managers, may be {@code null}
+	 * @param random
+	 *            source of randomness, may be {@code null}; not used if an
+	 *            equal configuration exists already
+	 * @param verifier
+	 *            verifier of the host name of the server; {@code null} for
+	 *            the standard check
+	 * @return the TLS configuration
+	 * @throws NoSuchAlgorithmException
+	 *             if TLS is not available
+	 * @throws KeyManagementException
+	 *             if the configuration cannot be initialized
+	 */
+	SSLContext getSSLContext(KeyManager[] km, TrustManager[] tm,
+			SecureRandom random, HostnameVerifier verifier)
+			throws NoSuchAlgorithmException, KeyManagementException {
+		TlsKey key = new TlsKey(km, tm, verifier);
+		synchronized (contexts) {
+			SSLContext ctx = contexts.get(key);
+			if (ctx == null) {
+				ctx = SSLContext.getInstance("TLS"); //$NON-NLS-1$
+				ctx.init(km, verifier != null
+						? HostnameVerifyingTrustManager.wrap(tm, verifier)
+						: tm, random);
+				contexts.put(key, ctx);
+			}
+			return ctx;
+		}
+	}
+
+	private HttpClient newClient(Proxy proxy, int connectTimeout,
+			SSLContext sslContext) {
+		HttpClient.Builder b = HttpClient.newBuilder().version(version)
+				.followRedirects(Redirect.NEVER);
+		if (proxy.type() == Proxy.Type.HTTP) {
+			b.proxy(ProxySelector.of((InetSocketAddress) proxy.address()));
+		} else {
+			b.proxy(HttpClient.Builder.NO_PROXY);
+		}
+		if (connectTimeout > 0) {
+			b.connectTimeout(Duration.ofMillis(connectTimeout));
+		}
+		if (sslContext != null) {
+			b.sslContext(sslContext);
+		}
+		return b.build();
+	}
+
+	private SSLContext noCheckContext() throws GeneralSecurityException {
+		SSLContext ctx = noCheckContext;
+		if (ctx == null) {
+			synchronized (this) {
+				ctx = noCheckContext;
+				if (ctx == null) {
+					ctx = SSLContext.getInstance("TLS"); //$NON-NLS-1$
+					ctx.init(null,
+							new TrustManager[] { new NoCheckTrustManager() },
+							null);
+					noCheckContext = ctx;
+				}
+			}
+		}
+		return ctx;
+	}
+
+	private class JavaHttpClientSession implements GitSession {
+		@Override
+		public JavaHttpClientConnection configure(HttpConnection connection,
+				boolean sslVerify) throws GeneralSecurityException {
+			if (!(connection instanceof JavaHttpClientConnection)) {
+				throw new IllegalArgumentException(MessageFormat.format(
+						JGitText.get().httpWrongConnectionType,
+						JavaHttpClientConnection.class.getName(),
+						connection.getClass().getName()));
+			}
+			JavaHttpClientConnection conn = (JavaHttpClientConnection) connection;
+			String scheme = conn.getURL().getProtocol();
+			if ("https".equals(scheme) && !sslVerify) { //$NON-NLS-1$
+				conn.setSSLContext(noCheckContext());
+			}
+			return conn;
+		}
+
+		@Override
+		public void close() {
+			// Clients are shared by all sessions of the factory.
+		}
+	}
+
+	/**
+	 * Trust manager not verifying anything.
+	 * <p>
+	 * Being an {@link X509ExtendedTrustManager}, it is not wrapped by the
+	 * JSSE, which would otherwise still verify the host name of the server.
+	 */
+	private static class NoCheckTrustManager extends X509ExtendedTrustManager {
+		@Override
+		public X509Certificate[] getAcceptedIssuers() {
+			return new X509Certificate[0];
+		}
+
+		@Override
+		public void checkClientTrusted(X509Certificate[] certs,
+				String authType) {
+			// no check
+		}
+
+		@Override
+		public void checkServerTrusted(X509Certificate[] certs,
+				String authType) {
+			// no check
+		}
+
+		@Override
+		public void checkClientTrusted(X509Certificate[] certs,
+				String authType, Socket socket) {
+			// no check
+		}
+
+		@Override
+		public void checkServerTrusted(X509Certificate[] certs,
+				String authType, Socket socket) {
+			// no check
+		}
+
+		@Override
+		public void checkClientTrusted(X509Certificate[] certs,
+				String authType, SSLEngine engine) {
+			// no check
+		}
+
+		@Override
+		public void checkServerTrusted(X509Certificate[] certs,
+				String authType, SSLEngine engine) {
+			// no check
+		}
+	}
+
+	/**
+	 * Map keeping the most recently used entries.
+	 * <p>
+	 * Dropped clients are released once their connections are closed, which
+	 * also ends their selector thread.
+	 */
+	private static class Cache<K, V> extends LinkedHashMap<K, V> {
+		private static final long serialVersionUID = 1L;
+
+		private static final int MAX_ENTRIES = 32;
+
+		Cache() {
+			super(16, 0.75f, true);
+		}
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+			return size() > MAX_ENTRIES;
+		}
+	}
+
+	private static final class TlsKey {
+		private final KeyManager[] km;
+
+		private final TrustManager[] tm;
+
+		private final HostnameVerifier verifier;
+
+		TlsKey(KeyManager[] km, TrustManager[] tm,
+				HostnameVerifier verifier) {
+			this.km = km != null ? km.clone() : null;
+			this.tm = tm != null ? tm.clone() : null;
+			this.verifier = verifier;
+		}
+
+		@Override
+		public int hashCode() {
+			int h = System.identityHashCode(verifier);
+			if (km != null) {
+				for (KeyManager m : km) {
+					h = 31 * h + System.identityHashCode(m);
+				}
+			}
+			if (tm != null) {
+				for (TrustManager m : tm) {
+					h = 31 * h + (isNoCheck(m)
+							? NoCheckX509TrustManager.class.hashCode()
+							: System.identityHashCode(m));
+				}
+			}
+			return h;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof TlsKey)) {
+				return false;
+			}
+			TlsKey k = (TlsKey) obj;
+			if (verifier != k.verifier || !same(km, k.km)
+					|| (tm == null) != (k.tm == null)) {
+				return false;
+			}
+			if (tm != null) {
+				if (tm.length != k.tm.length) {
+					return false;
+				}
+				for (int i = 0; i < tm.length; i++) {
+					if (tm[i] != k.tm[i] && !(isNoCheck(tm[i])
+							&& isNoCheck(k.tm[i]))) {
+						return false;
+					}
+				}
+			}
+			return true;
+		}
+
+		private static boolean isNoCheck(TrustManager m) {
+			return m != null && m.getClass() == NoCheckX509TrustManager.class;
+		}
+
+		private static boolean same(Object[] a, Object[] b) {
+			if (a == null || b == null) {
+				return a == b;
+			}
+			if (a.length != b.length) {
+				return false;
+			}
+			for (int i = 0; i < a.length; i++) {
+				if (a[i] != b[i]) {
+					return false;
+				}
+			}
+			return true;
+		}
+	}
+
+	private static final class ClientKey {
+		final Proxy proxy;
+
+		final int connectTimeout;
+
+		final SSLContext sslContext;
+
+		ClientKey(Proxy proxy, int connectTimeout, SSLContext sslContext) {
+			this.proxy = proxy;
+			this.connectTimeout = connectTimeout;
+			this.sslContext = sslContext;
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(proxy, Integer.valueOf(connectTimeout),
+					sslContext);
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof ClientKey)) {
+				return false;
+			}
+			ClientKey k = (ClientKey) obj;
+			return proxy.equals(k.proxy) && connectTimeout == k.connectTimeout
+					&& sslContext == k.sslContext;
+		}
+	}
+}
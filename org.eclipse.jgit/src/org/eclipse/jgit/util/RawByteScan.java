@@ -0,0 +1,278 @@
+/*
+ * Copyright (C) 2023, Google LLC and others
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Distribution License v. 1.0 which is available at
+ * https://www.eclipse.org/org/documents/edl-v10.php.
+ *
+ * SPDX-License-Identifier: BSD-3-Clause
+ */
+
+package org.eclipse.jgit.util;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+
+/**
+ * Scanning and hashing of raw text, processing 8 bytes at a time.
+ * <p>
+ * Splitting text into lines and hashing lines are on the hot path of every
+ * diff, merge and blame. The methods of this class read the content one
+ * {@code long} at a time and use SIMD-within-a-register techniques to find
+ * line ends and to compute the same hash codes as the byte-at-a-time loops
+ * they replace. The word-at-a-time code can be disabled by setting the system
+ * property {@code org.eclipse.jgit.util.RawByteScan.swar} to {@code false},
+ * in which case the plain scalar loops are used.
+ *
+ * @since 6.6
+ */
+public final class RawByteScan {
+	private static final VarHandle LONGS = MethodHandles
+			.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+
+	private static final long ONES = 0x0101010101010101L;
+
+	private static final long HIGHS = 0x8080808080808080L;
+
+	private static final long LF = ONES * '\n';
+
+	private static final long CR = ONES * '\r';
+
+	/** Every whitespace character is below this value, see {@link RawCharUtil}. */
+	private static final long BELOW_BANG = ONES * ('!');
+
+	private static final long EVEN_BYTES = 0x00FF00FF00FF00FFL;
+
+	private static final long EVEN_SHORTS = 0x0000FFFF0000FFFFL;
+
+	/** 33^2 */
+	private static final int POW2 = 1089;
+
+	/** 33^4 */
+	private static final int POW4 = 1185921;
+
+	/** 33^8 mod 2^32 */
+	private static final int POW8 = 1954312449;
+
+	private static final boolean SWAR = !"false".equalsIgnoreCase( //$NON-NLS-1$
+			System.getProperty("org.eclipse.jgit.util.RawByteScan.swar")); //$NON-NLS-1$
+
+	/**
+	 * Whether word-at-a-time scanning is in use
+	 *
+	 * @return {@code true} if content is scanned 8 bytes at a time;
+	 *         {@code false} if the scalar fallback is used.
+	 */
+	public static boolean isWordAtATime() {
+		return SWAR;
+	}
+
+	/**
+	 * Locate the first position after the next LF within a region.
+	 *
+	 * @param buf
+	 *            buffer to scan.
+	 * @param ptr
+	 *            position within the buffer to start looking for LF at.
+	 * @param end
+	 *            1 past the end of the region to scan.
+	 * @return new position just after the first LF found; {@code end} if
+	 *         there is no LF in {@code [ptr, end)}.
+	 */
+	public static int nextLF(byte[] buf, int ptr, int end) {
+		if (SWAR) {
+			return nextLFWords(buf, ptr, end);
+		}
+		return nextLFBytes(buf, ptr, end);
+	}
+
+	static int nextLFBytes(byte[] buf, int ptr, int end) {
+		while (ptr < end) {
+			if (buf[ptr++] == '\n') {
+				return ptr;
+			}
+		}
+		return end;
+	}
+
+	static int nextLFWords(byte[] buf, int ptr, int end) {
+		for (; ptr + 8 <= end; ptr += 8) {
+			long m = zeroBytes(word(buf, ptr) ^ LF);
+			if (m != 0) {
+				return ptr + (Long.numberOfTrailingZeros(m) >>> 3) + 1;
+			}
+		}
+		return nextLFBytes(buf, ptr, end);
+	}
+
+	/**
+	 * Test whether a region contains only bytes that cannot affect the
+	 * detection of lines or binary content.
+	 * <p>
+	 * Used by callers splitting text which must also reject NUL bytes and
+	 * lone CRs: regions for which this method returns {@code true} contain no
+	 * LF, CR or NUL and can be skipped in one step.
+	 *
+	 * @param buf
+	 *            buffer to scan.
+	 * @param ptr
+	 *            first byte of the 8 byte region to test; {@code ptr + 8}
+	 *            must not exceed the length of {@code buf}.
+	 * @return {@code true} if none of the 8 bytes starting at {@code ptr} is
+	 *         LF, CR or NUL.
+	 */
+	public static boolean isPlainWord(byte[] buf, int ptr) {
+		long w = word(buf, ptr);
+		return (zeroBytes(w ^ LF) | zeroBytes(w ^ CR) | zeroBytes(w)) == 0;
+	}
+
+	/**
+	 * Compute the DJB hash of a region.
+	 * <p>
+	 * The result is equal to continuing the hash {@code hash} with the loop
+	 * {@code hash = ((hash << 5) + hash) + (raw[ptr] & 0xff)} over every byte
+	 * in {@code [ptr, end)}.
+	 *
+	 * @param hash
+	 *            hash to continue; 5381 to start a new hash.
+	 * @param raw
+	 *            the raw content.
+	 * @param ptr
+	 *            first byte of the region to hash.
+	 * @param end
+	 *            1 past the last byte of the region.
+	 * @return hash code for the region.
+	 */
+	public static int djbHash(int hash, byte[] raw, int ptr, int end) {
+		if (SWAR) {
+			for (; ptr + 8 <= end; ptr += 8) {
+				hash = djb8(hash, word(raw, ptr));
+			}
+		}
+		return djbHashBytes(hash, raw, ptr, end);
+	}
+
+	static int djbHashBytes(int hash, byte[] raw, int ptr, int end) {
+		for (; ptr < end; ptr++) {
+			hash = ((hash << 5) + hash) + (raw[ptr] & 0xff);
+		}
+		return hash;
+	}
+
+	/**
+	 * Compute the DJB hash of a region, skipping whitespace.
+	 * <p>
+	 * Equivalent to {@link #djbHash(int, byte[], int, int)} over the bytes of
+	 * the region for which {@link RawCharUtil#isWhitespace(byte)} is
+	 * {@code false}.
+	 *
+	 * @param hash
+	 *            hash to continue; 5381 to start a new hash.
+	 * @param raw
+	 *            the raw content.
+	 * @param ptr
+	 *            first byte of the region to hash.
+	 * @param end
+	 *            1 past the last byte of the region.
+	 * @return hash code for the region.
+	 */
+	public static int djbHashIgnoreWhitespace(int hash, byte[] raw, int ptr,
+			int end) {
+		if (SWAR) {
+			for (; ptr + 8 <= end; ptr += 8) {
+				long w = word(raw, ptr);
+				if (hasSpaceOrControl(w)) {
+					hash = djbHashNonWhitespace(hash, raw, ptr, ptr + 8);
+				} else {
+					hash = djb8(hash, w);
+				}
+			}
+		}
+		return djbHashNonWhitespace(hash, raw, ptr, end);
+	}
+
+	static int djbHashNonWhitespace(int hash, byte[] raw, int ptr, int end) {
+		for (; ptr < end; ptr++) {
+			byte c = raw[ptr];
+			if (!RawCharUtil.isWhitespace(c)) {
+				hash = ((hash << 5) + hash) + (c & 0xff);
+			}
+		}
+		return hash;
+	}
+
+	/**
+	 * Compute the DJB hash of a region, collapsing runs of whitespace.
+	 * <p>
+	 * Equivalent to {@link #djbHash(int, byte[], int, int)} over the region
+	 * with every run of whitespace replaced by a single space. Trailing
+	 * whitespace is not trimmed by this method.
+	 *
+	 * @param hash
+	 *            hash to continue; 5381 to start a new hash.
+	 * @param raw
+	 *            the raw content.
+	 * @param ptr
+	 *            first byte of the region to hash.
+	 * @param end
+	 *            1 past the last byte of the region.
+	 * @return hash code for the region.
+	 */
+	public static int djbHashCollapseWhitespace(int hash, byte[] raw, int ptr,
+			int end) {
+		while (ptr < end) {
+			if (SWAR && ptr + 8 <= end) {
+				long w = word(raw, ptr);
+				if (!hasSpaceOrControl(w)) {
+					hash = djb8(hash, w);
+					ptr += 8;
+					continue;
+				}
+			}
+			byte c = raw[ptr++];
+			if (RawCharUtil.isWhitespace(c)) {
+				ptr = RawCharUtil.trimLeadingWhitespace(raw, ptr, end);
+				c = ' ';
+			}
+			hash = ((hash << 5) + hash) + (c & 0xff);
+		}
+		return hash;
+	}
+
+	private static long word(byte[] buf, int ptr) {
+		return (long) LONGS.get(buf, ptr);
+	}
+
+	/**
+	 * Mark the zero bytes of a word.
+	 * <p>
+	 * The lowest marked byte is always exact; bytes above a zero byte may be
+	 * marked spuriously, which does not matter when looking for the first.
+	 */
+	private static long zeroBytes(long x) {
+		return (x - ONES) & ~x & HIGHS;
+	}
+
+	/** Whether any byte of the word is below '!', i.e. may be whitespace. */
+	private static boolean hasSpaceOrControl(long x) {
+		return ((x - BELOW_BANG) & ~x & HIGHS) != 0;
+	}
+
+	/**
+	 * Continue the DJB hash over the 8 bytes of a little-endian word.
+	 * <p>
+	 * Combines adjacent bytes into 16 bit lanes ({@code b0 * 33 + b1}), then
+	 * adjacent lanes into 32 bit lanes, so that no lane can overflow into its
+	 * neighbour, and finally folds the two halves into the hash.
+	 */
+	private static int djb8(int hash, long w) {
+		long p = (w & EVEN_BYTES) * 33 + ((w >>> 8) & EVEN_BYTES);
+		long q = (p & EVEN_SHORTS) * POW2 + ((p >>> 16) & EVEN_SHORTS);
+		return hash * POW8 + (int) q * POW4 + (int) (q >>> 32);
+	}
+
+	private RawByteScan() {
+		// Static utility methods only.
+	}
+}
@@ -660,7 +660,7 @@ public static final int prevLF(byte[] b, int ptr, char chrA) {
 	public static final IntList lineMap(byte[] buf, int ptr, int end) {
 		IntList map = new IntList((end - ptr) / 36);
 		map.fillTo(1, Integer.MIN_VALUE);
-		for (; ptr < end; ptr = nextLF(buf, ptr)) {
+		for (; ptr < end; ptr = RawByteScan.nextLF(buf, ptr, end)) {
 			map.add(ptr);
 		}
 		map.add(end);
@@ -691,10 +691,18 @@ public static final IntList lineMapOrBinary(byte[] buf, int ptr, int end)
 		IntList map = new IntList((end - ptr) / 36);
 		map.add(Integer.MIN_VALUE);
 		byte last = '\n'; // Must be \n to add the initial ptr
+		boolean words = RawByteScan.isWordAtATime();
 		for (; ptr < end; ptr++) {
 			if (last == '\n') {
 				map.add(ptr);
 			}
+			if (words && last != '\0' && last != '\r' && ptr + 8 <= end
+					&& RawByteScan.isPlainWord(buf, ptr)) {
+				// No line end or binary marker in the next 8 bytes.
+				ptr += 7;
+				last = buf[ptr];
+				continue;
+			}
 			byte curr = buf[ptr];
 			if (RawText.isBinary(curr, last)) {
 				throw new BinaryBlobException();